@@ -0,0 +1,396 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import components.program.Program;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * JMH benchmarks of lexing, parsing, and pretty-printing BL programs and
+ * statements, so that every parser change can be measured against a
+ * baseline.
+ *
+ * <p>
+ * Each benchmark runs on one of three inputs: {@code corpus}, every program
+ * and statement file of the test corpus that parses without error;
+ * {@code large}, a program with many instructions; and {@code deep}, a
+ * program whose body is deeply nested, both made by {@code ProgramGenerator}.
+ * Lexing benchmarks read the files; parsing benchmarks parse tokens lexed
+ * once in advance, so they measure the parser alone; pretty-printing writes
+ * to {@code /dev/null}.
+ *
+ * <p>
+ * To run, compile {@code src} and {@code bench} together with the OSU
+ * components and JMH (with its annotation processor), and run, e.g.,
+ *
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main ParseBenchmark -prof gc
+ * </pre>
+ *
+ * from the project directory. {@code -prof gc} adds the allocation rate
+ * ({@code gc.alloc.rate.norm}, in bytes per operation) to the throughput.
+ * The corpus directory is {@code test}, or the value of the system property
+ * {@code bl.corpus}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    /**
+     * Seed of the generated programs.
+     */
+    private static final long SEED = 17;
+
+    /**
+     * Number of instructions of the large program.
+     */
+    private static final int LARGE_INSTRUCTIONS = 2_000;
+
+    /**
+     * Nesting depth of the instructions and body of the large program.
+     */
+    private static final int LARGE_NESTING = 2;
+
+    /**
+     * Number of statements in each block of the large program.
+     */
+    private static final int LARGE_WIDTH = 4;
+
+    /**
+     * Nesting depth of the deep program; prettyPrint recurses once per level,
+     * so this must fit in a default thread stack.
+     */
+    private static final int DEEP_NESTING = 500;
+
+    /**
+     * The input: "corpus", "large", or "deep".
+     */
+    @Param({ "corpus", "large", "deep" })
+    public String input;
+
+    /**
+     * Names of the files holding programs.
+     */
+    private final List<String> programFiles = new ArrayList<>();
+
+    /**
+     * Names of the files holding blocks of statements.
+     */
+    private final List<String> blockFiles = new ArrayList<>();
+
+    /**
+     * Tokens of the programs, lexed in advance.
+     */
+    private final List<TokenArray> programTokens = new ArrayList<>();
+
+    /**
+     * Tokens of the blocks, lexed in advance.
+     */
+    private final List<TokenArray> blockTokens = new ArrayList<>();
+
+    /**
+     * The programs, parsed in advance.
+     */
+    private final List<Program> programs = new ArrayList<>();
+
+    /**
+     * Generated files, deleted at the end of the trial.
+     */
+    private final List<Path> generated = new ArrayList<>();
+
+    /**
+     * Output of the pretty-printing benchmarks.
+     */
+    private SimpleWriter out;
+
+    /**
+     * Returns the text generated by {@code g}.
+     *
+     * @param g
+     *            the generator
+     * @return the program text
+     * @throws IOException
+     *             never
+     */
+    private static String textOf(ProgramGenerator g) throws IOException {
+        StringWriter text = new StringWriter();
+        g.generate(text);
+        return text.toString();
+    }
+
+    /**
+     * Returns the body of the program {@code text}, as a block.
+     *
+     * @param text
+     *            the program text, with the body between "BEGIN\n" and the
+     *            last line
+     * @return the block text
+     */
+    private static String bodyOf(String text) {
+        int begin = text.indexOf("BEGIN\n") + "BEGIN\n".length();
+        int end = text.lastIndexOf("END ");
+        return text.substring(begin, end);
+    }
+
+    /**
+     * Writes {@code text} to a new temporary file.
+     *
+     * @param text
+     *            the text
+     * @return the name of the file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    private String write(String text) throws IOException {
+        Path file = Files.createTempFile("bench", ".bl");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        this.generated.add(file);
+        return file.toString();
+    }
+
+    /**
+     * Returns the tokens of the file named {@code fileName}.
+     *
+     * @param fileName
+     *            the file
+     * @return the tokens
+     */
+    private static TokenArray tokensOf(String fileName) {
+        SimpleReader in = new SimpleReader1L(fileName);
+        TokenArray tokens = new TokenArray(new ReaderTokenStream(in));
+        in.close();
+        return tokens;
+    }
+
+    /**
+     * Finds the inputs and lexes and parses them in advance.
+     *
+     * @throws IOException
+     *             if an input cannot be read or written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (this.input) {
+            case "large": {
+                String text = textOf(new ProgramGenerator(SEED,
+                        LARGE_INSTRUCTIONS, LARGE_NESTING, LARGE_WIDTH));
+                this.programFiles.add(this.write(text));
+                this.blockFiles.add(this.write(bodyOf(text)));
+                break;
+            }
+            case "deep": {
+                String text = textOf(
+                        new ProgramGenerator(SEED, 0, DEEP_NESTING, 1));
+                this.programFiles.add(this.write(text));
+                this.blockFiles.add(this.write(bodyOf(text)));
+                break;
+            }
+            default: {
+                /*
+                 * Every file of the corpus that is a valid program or block
+                 */
+                Path corpus = Paths.get(System.getProperty("bl.corpus", "test"));
+                try (DirectoryStream<Path> files = Files
+                        .newDirectoryStream(corpus, "*.bl")) {
+                    for (Path file : files) {
+                        String fileName = file.toString();
+                        Diagnostics d = new Diagnostics();
+                        Program1Parse1.parseProgram(tokensOf(fileName),
+                                new Program1Parse1(), d);
+                        if (d.isEmpty()) {
+                            this.programFiles.add(fileName);
+                        } else {
+                            TokenArray tokens = tokensOf(fileName);
+                            try {
+                                Statement1Parse1.parseBlock(tokens,
+                                        new Statement1Parse1(),
+                                        new Diagnostics());
+                                if (tokens
+                                        .frontKind() == TokenKind.END_OF_INPUT) {
+                                    this.blockFiles.add(fileName);
+                                }
+                            } catch (Diagnostics.Abort e) {
+                                /*
+                                 * Neither a program nor a block; not used
+                                 */
+                                continue;
+                            }
+                        }
+                    }
+                }
+                break;
+            }
+        }
+        for (String fileName : this.programFiles) {
+            TokenArray tokens = tokensOf(fileName);
+            this.programTokens.add(tokens);
+            Program1Parse1 p = new Program1Parse1();
+            p.parse(tokens);
+            this.programs.add(p);
+        }
+        for (String fileName : this.blockFiles) {
+            this.blockTokens.add(tokensOf(fileName));
+        }
+        this.out = new SimpleWriter1L("/dev/null");
+    }
+
+    /**
+     * Closes the output and deletes the generated files.
+     *
+     * @throws IOException
+     *             if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.out.close();
+        for (Path file : this.generated) {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Lexes the programs with {@code Tokenizer.tokens}.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void tokenizerTokens(Blackhole bh) {
+        for (String fileName : this.programFiles) {
+            SimpleReader in = new SimpleReader1L(fileName);
+            Queue<String> tokens = Tokenizer.tokens(in);
+            in.close();
+            bh.consume(tokens);
+        }
+    }
+
+    /**
+     * Lexes the programs with {@code ReaderTokenStream}.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void readerTokenStream(Blackhole bh) {
+        for (String fileName : this.programFiles) {
+            SimpleReader in = new SimpleReader1L(fileName);
+            ReaderTokenStream tokens = new ReaderTokenStream(in);
+            while (tokens.frontKind() != TokenKind.END_OF_INPUT) {
+                bh.consume(tokens.dequeue());
+            }
+            in.close();
+        }
+    }
+
+    /**
+     * Lexes the programs with {@code MappedTokenStream}.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void mappedTokenStream(Blackhole bh) {
+        for (String fileName : this.programFiles) {
+            MappedTokenStream tokens = new MappedTokenStream(fileName);
+            while (tokens.frontKind() != TokenKind.END_OF_INPUT) {
+                bh.consume(tokens.dequeue());
+            }
+            tokens.close();
+        }
+    }
+
+    /**
+     * Parses the blocks with {@code Statement1Parse1.parseBlock}.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void statementParseBlock(Blackhole bh) {
+        for (TokenArray tokens : this.blockTokens) {
+            tokens.seek(0);
+            Statement s = new Statement1Parse1();
+            Statement1Parse1.parseBlock(tokens, s, Diagnostics.FATAL);
+            bh.consume(s);
+        }
+    }
+
+    /**
+     * Parses the blocks into {@code FlatStatement}s.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void flatStatementParseBlock(Blackhole bh) {
+        for (TokenArray tokens : this.blockTokens) {
+            tokens.seek(0);
+            Statement s = new FlatStatement();
+            Statement1Parse1.parseBlock(tokens, s, Diagnostics.FATAL);
+            bh.consume(s);
+        }
+    }
+
+    /**
+     * Parses the programs with {@code Program1Parse1.parse}.
+     *
+     * @param bh
+     *            sink for the results
+     */
+    @Benchmark
+    public void programParse(Blackhole bh) {
+        for (TokenArray tokens : this.programTokens) {
+            tokens.seek(0);
+            Program1Parse1 p = new Program1Parse1();
+            p.parse(tokens);
+            bh.consume(p);
+        }
+    }
+
+    /**
+     * Pretty-prints the programs with {@code prettyPrint}.
+     */
+    @Benchmark
+    public void programPrettyPrint() {
+        for (Program p : this.programs) {
+            p.prettyPrint(this.out);
+        }
+    }
+
+}
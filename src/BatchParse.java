@@ -0,0 +1,398 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.utilities.Reporter;
+
+/**
+ * Batch mode for {@code Program1Parse1}: parses every BL program file under a
+ * directory, or matching a glob, on a work-stealing {@code ForkJoinPool}, and
+ * reports the result for each file and the aggregate throughput.
+ *
+ * <p>
+ * Syntax errors are collected as {@code Diagnostic}s instead of terminating
+ * the JVM, so an invalid file is recorded as that file's result and does not
+ * stop the rest of the batch.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class BatchParse {
+
+    /**
+     * Number of files below which a task parses its files itself instead of
+     * splitting them.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BatchParse() {
+    }
+
+    /**
+     * Outcome of parsing one file.
+     */
+    public static final class Result {
+
+        /**
+         * The file parsed.
+         */
+        private final Path file;
+
+        /**
+         * The syntax errors found, empty if the file parsed successfully.
+         */
+        private final List<Diagnostic> diagnostics;
+
+        /**
+         * Size of the file in bytes.
+         */
+        private final long bytes;
+
+        /**
+         * Time spent parsing the file, in nanoseconds.
+         */
+        private final long nanos;
+
+        /**
+         * Constructor.
+         *
+         * @param file
+         *            the file parsed
+         * @param diagnostics
+         *            the syntax errors found
+         * @param bytes
+         *            size of the file in bytes
+         * @param nanos
+         *            time spent parsing, in nanoseconds
+         */
+        private Result(Path file, List<Diagnostic> diagnostics, long bytes,
+                long nanos) {
+            this.file = file;
+            this.diagnostics = diagnostics;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Reports the file parsed.
+         *
+         * @return the file
+         */
+        public Path file() {
+            return this.file;
+        }
+
+        /**
+         * Reports whether the file parsed without error.
+         *
+         * @return true iff the file is a valid BL program
+         */
+        public boolean isValid() {
+            return this.diagnostics.isEmpty();
+        }
+
+        /**
+         * Reports the syntax errors found in the file.
+         *
+         * @return the errors found, in the order they were found
+         */
+        public List<Diagnostic> diagnostics() {
+            return this.diagnostics;
+        }
+
+        /**
+         * Reports the size of the file.
+         *
+         * @return the size in bytes
+         */
+        public long bytes() {
+            return this.bytes;
+        }
+
+        /**
+         * Reports the time spent parsing the file.
+         *
+         * @return the time in nanoseconds
+         */
+        public long nanos() {
+            return this.nanos;
+        }
+
+    }
+
+    /**
+     * Task that parses a range of files, splitting the range in half until it
+     * is small enough to parse sequentially.
+     */
+    private static final class ParseTask extends RecursiveAction {
+
+        /**
+         * Serialization version; tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All files in the batch.
+         */
+        private final Path[] files;
+
+        /**
+         * Results, parallel to {@code files}.
+         */
+        private final Result[] results;
+
+        /**
+         * First index of the range, inclusive.
+         */
+        private final int lo;
+
+        /**
+         * Last index of the range, exclusive.
+         */
+        private final int hi;
+
+        /**
+         * Constructor.
+         *
+         * @param files
+         *            all files in the batch
+         * @param results
+         *            results, parallel to files
+         * @param lo
+         *            first index of the range, inclusive
+         * @param hi
+         *            last index of the range, exclusive
+         */
+        ParseTask(Path[] files, Result[] results, int lo, int hi) {
+            this.files = files;
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.lo; i < this.hi; i++) {
+                    this.results[i] = parseFile(this.files[i]);
+                }
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new ParseTask(this.files, this.results, this.lo, mid),
+                        new ParseTask(this.files, this.results, mid, this.hi));
+            }
+        }
+
+    }
+
+    /**
+     * Returns the outcome of a file that could not be read.
+     *
+     * @param file
+     *            the file
+     * @param e
+     *            why file could not be read
+     * @param bytes
+     *            the size of file, or 0 if unknown
+     * @param start
+     *            the value of System.nanoTime when reading file started
+     * @return the outcome, with one error giving the reason
+     */
+    private static Result unreadable(Path file, IOException e, long bytes,
+            long start) {
+        return new Result(file,
+                Collections.singletonList(new Diagnostic(
+                        "Cannot read file (" + e.getMessage() + ")", 0, 0, 0)),
+                bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Parses the BL program in {@code file}, collecting its syntax errors.
+     *
+     * @param file
+     *            the file to parse
+     * @return the outcome of parsing file
+     */
+    public static Result parseFile(Path file) {
+        assert file != null : "Violation of: file is not null";
+        long start = System.nanoTime();
+        Diagnostics diagnostics = new Diagnostics();
+        long bytes = 0;
+        try {
+            bytes = Files.size(file);
+            Program1Parse1 p = new Program1Parse1();
+            MappedTokenStream tokens = new MappedTokenStream(file.toString());
+            try {
+                p.parse(tokens, diagnostics);
+            } finally {
+                tokens.close();
+            }
+        } catch (IOException e) {
+            return unreadable(file, e, bytes, start);
+        } catch (UncheckedIOException e) {
+            return unreadable(file, e.getCause(), bytes, start);
+        }
+        return new Result(file, diagnostics.list(), bytes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Parses every file in {@code files} on {@code pool}.
+     *
+     * @param files
+     *            the files to parse
+     * @param pool
+     *            the pool to parse on
+     * @return the results, in the same order as files
+     */
+    public static List<Result> parseAll(List<Path> files, ForkJoinPool pool) {
+        assert files != null : "Violation of: files is not null";
+        assert pool != null : "Violation of: pool is not null";
+        Path[] fileArray = files.toArray(new Path[0]);
+        Result[] results = new Result[fileArray.length];
+        pool.invoke(new ParseTask(fileArray, results, 0, fileArray.length));
+        List<Result> list = new ArrayList<>(results.length);
+        Collections.addAll(list, results);
+        return list;
+    }
+
+    /**
+     * Finds the BL files named by {@code spec}: every {@code .bl} file under
+     * {@code spec} if it is a directory, and otherwise every file matching
+     * {@code spec} as a glob, e.g., {@code "submissions/**.bl"}.
+     *
+     * @param spec
+     *            a directory name or glob
+     * @return the matching files, sorted by name
+     * @throws IOException
+     *             if a directory cannot be read
+     */
+    public static List<Path> findFiles(String spec) throws IOException {
+        assert spec != null : "Violation of: spec is not null";
+        Path root;
+        PathMatcher matcher;
+        Path specPath = Paths.get(spec);
+        if (Files.isDirectory(specPath)) {
+            root = specPath;
+            matcher = FileSystems.getDefault().getPathMatcher("glob:**.bl");
+        } else {
+            /*
+             * Walk from the longest prefix of the glob without wildcards
+             */
+            int wildcard = spec.length();
+            String wildcards = "*?[{";
+            for (int i = 0; i < spec.length(); i++) {
+                if (wildcards.indexOf(spec.charAt(i)) >= 0) {
+                    wildcard = i;
+                    break;
+                }
+            }
+            int slash = spec.lastIndexOf('/', wildcard);
+            if (slash < 0) {
+                root = Paths.get(".");
+                matcher = FileSystems.getDefault()
+                        .getPathMatcher("glob:./" + spec);
+            } else {
+                root = Paths.get(spec.substring(0, slash + 1));
+                matcher = FileSystems.getDefault()
+                        .getPathMatcher("glob:" + spec);
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(p -> Files.isRegularFile(p) && matcher.matches(p))
+                    .forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: a directory or glob, optionally
+     *            followed by the number of worker threads
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        Reporter.assertElseFatalError(args.length == 1 || args.length == 2,
+                "Usage: BatchParse <directory-or-glob> [threads]");
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length == 2) {
+            threads = Integer.parseInt(args[1]);
+        }
+        List<Path> files = null;
+        try {
+            files = findFiles(args[0]);
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole(
+                    "Cannot list files: " + args[0] + " (" + e.getMessage()
+                            + ")");
+        }
+        /*
+         * Parse all files
+         */
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Result> results = parseAll(files, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        /*
+         * Report per-file results and totals
+         */
+        int valid = 0;
+        long bytes = 0;
+        for (Result r : results) {
+            bytes += r.bytes();
+            if (r.isValid()) {
+                valid++;
+                out.println("OK    " + r.file());
+            } else {
+                for (Diagnostic d : r.diagnostics()) {
+                    out.println("ERROR " + r.file() + ":" + d);
+                }
+            }
+        }
+        double seconds = elapsed / NANOS_PER_SECOND;
+        out.println("*** " + results.size() + " files, " + valid + " valid, "
+                + (results.size() - valid) + " invalid ***");
+        out.println(String.format(
+                "*** %.3f s on %d threads: %.1f files/s, %.2f MB/s ***",
+                seconds, threads, results.size() / seconds,
+                bytes / BYTES_PER_MB / seconds));
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * The bug a BL program controls, as seen by code that executes the program:
+ * one sensor per basic condition and one actuator per primitive instruction.
+ * The negated conditions are the negations of these sensors, and
+ * {@code true} needs no sensor.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public interface Bug {
+
+    /**
+     * Largest number of jumps back to the top of a loop body and calls of
+     * user-defined instructions that an executor makes in one turn. A turn
+     * ends with its primitive instruction, or without one once this many are
+     * made, so a loop that tests conditions but executes no primitive
+     * instruction, e.g., {@code WHILE true DO IF next-is-enemy THEN infect
+     * END IF END WHILE} while next-is-enemy fails, still ends each turn.
+     */
+    int TURN_LIMIT = 1024;
+
+    /**
+     * Reports whether the cell in front of the bug is empty.
+     *
+     * @return true iff next-is-empty holds
+     */
+    boolean nextIsEmpty();
+
+    /**
+     * Reports whether the cell in front of the bug is a wall.
+     *
+     * @return true iff next-is-wall holds
+     */
+    boolean nextIsWall();
+
+    /**
+     * Reports whether the cell in front of the bug holds a friend.
+     *
+     * @return true iff next-is-friend holds
+     */
+    boolean nextIsFriend();
+
+    /**
+     * Reports whether the cell in front of the bug holds an enemy.
+     *
+     * @return true iff next-is-enemy holds
+     */
+    boolean nextIsEnemy();
+
+    /**
+     * Reports a random choice.
+     *
+     * @return true or false, each with probability one half
+     */
+    boolean random();
+
+    /**
+     * Executes primitive instruction move.
+     */
+    void move();
+
+    /**
+     * Executes primitive instruction turnleft.
+     */
+    void turnLeft();
+
+    /**
+     * Executes primitive instruction turnright.
+     */
+    void turnRight();
+
+    /**
+     * Executes primitive instruction infect.
+     */
+    void infect();
+
+    /**
+     * Executes primitive instruction skip.
+     */
+    void skip();
+
+}
@@ -0,0 +1,640 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import components.map.Map;
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Static call graph of a parsed BL {@code Program}, with the checks the
+ * parser does not make: that every CALL names a primitive or user-defined
+ * instruction, that no instruction can call itself (BL forbids recursion),
+ * and that every instruction can be reached from the body.
+ *
+ * <p>
+ * The user-defined instructions are numbered from 0 in increasing order of
+ * their names, and the calls of each are held as ids in one array, so the
+ * analysis is linear in the size of the program once the names are sorted.
+ * Recursion is found as the strongly connected components of the graph, by
+ * Tarjan's algorithm with an explicit stack, so chains of tens of thousands
+ * of calls are handled. The same pass gives a topological order of the
+ * instructions, callees before callers, in which compilers and inliners can
+ * process them.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class CallGraph {
+
+    /**
+     * Caller recorded for calls in the body of the program.
+     */
+    public static final int BODY = -1;
+
+    /**
+     * Names of the primitive instructions.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * Name of the program.
+     */
+    private final String program;
+
+    /**
+     * Names of the instructions, by id.
+     */
+    private final String[] names;
+
+    /**
+     * Ids of the instructions, by name.
+     */
+    private final HashMap<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Calls of instruction i are callees[first[i]] to callees[first[i + 1]
+     * - 1], in order.
+     */
+    private final int[] first;
+
+    /**
+     * Ids of the instructions called, grouped by caller.
+     */
+    private int[] callees = new int[16];
+
+    /**
+     * Ids of the instructions called by the body, in order.
+     */
+    private int[] roots = new int[16];
+
+    /**
+     * Number of calls recorded in {@code roots}.
+     */
+    private int rootCount;
+
+    /**
+     * Number of calls recorded in {@code callees}.
+     */
+    private int calleeCount;
+
+    /**
+     * Callers of the calls of undefined instructions, in order.
+     */
+    private final List<Integer> undefinedCallers = new ArrayList<>();
+
+    /**
+     * Names called by the calls of undefined instructions, in order.
+     */
+    private final List<String> undefinedNames = new ArrayList<>();
+
+    /**
+     * Strongly connected component of each instruction, numbered in the
+     * order Tarjan's algorithm completes them.
+     */
+    private final int[] component;
+
+    /**
+     * Whether each instruction can call itself.
+     */
+    private final boolean[] recursive;
+
+    /**
+     * Whether each instruction can be reached from the body.
+     */
+    private final boolean[] reachable;
+
+    /**
+     * Instructions, callees before callers.
+     */
+    private final int[] order;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor.
+     *
+     * @param p
+     *            the program
+     * @restores p
+     */
+    public CallGraph(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        this.program = p.name();
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            int n = context.size();
+            this.names = new String[n];
+            int i = 0;
+            for (Map.Pair<String, Statement> pair : context) {
+                this.names[i] = pair.key();
+                i++;
+            }
+            Arrays.sort(this.names);
+            for (i = 0; i < n; i++) {
+                this.ids.put(this.names[i], i);
+            }
+            this.first = new int[n + 1];
+            this.component = new int[n];
+            this.recursive = new boolean[n];
+            this.reachable = new boolean[n];
+            this.order = new int[n];
+            this.collect(body, BODY);
+            for (i = 0; i < n; i++) {
+                this.first[i] = this.calleeCount;
+                this.collect(context.value(this.names[i]), i);
+            }
+            this.first[n] = this.calleeCount;
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+        this.findComponents();
+        this.findReachable();
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Reports whether {@code name} is a primitive instruction.
+     *
+     * @param name
+     *            the name
+     * @return true iff name is a primitive instruction
+     */
+    private static boolean isPrimitive(String name) {
+        boolean found = false;
+        for (String primitive : PRIMITIVES) {
+            found |= primitive.equals(name);
+        }
+        return found;
+    }
+
+    /**
+     * Visitor recording the calls of a walk, made by one instruction or by
+     * the body.
+     */
+    private final class Collector
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * The id of the caller, or {@code BODY}.
+         */
+        private final int caller;
+
+        /**
+         * Constructor.
+         *
+         * @param caller
+         *            the id of the caller, or {@code BODY}
+         */
+        Collector(int caller) {
+            this.caller = caller;
+        }
+
+        @Override
+        public void call(String instruction) {
+            Integer callee = CallGraph.this.ids.get(instruction);
+            if (callee != null) {
+                CallGraph.this.addCall(this.caller, callee);
+            } else if (!isPrimitive(instruction)) {
+                CallGraph.this.undefinedCallers.add(this.caller);
+                CallGraph.this.undefinedNames.add(instruction);
+            }
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+        }
+
+        @Override
+        public void beginElse(int length) {
+        }
+
+        @Override
+        public void endIf() {
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+        }
+
+        @Override
+        public void endWhile() {
+        }
+
+    }
+
+    /**
+     * Records the calls in {@code s}, made by instruction {@code caller}, or
+     * by the body if caller is {@code BODY}. The walk keeps its open
+     * statements on an explicit stack, so s may be nested as deeply as the
+     * parser allows.
+     *
+     * @param s
+     *            the statement
+     * @param caller
+     *            the id of the caller
+     * @restores s
+     */
+    private void collect(Statement s, int caller) {
+        StatementWalker.walk(s, new Collector(caller));
+    }
+
+    /**
+     * Records a call of instruction {@code callee} by {@code caller}.
+     *
+     * @param caller
+     *            the id of the caller, or {@code BODY}
+     * @param callee
+     *            the id of the callee
+     */
+    private void addCall(int caller, int callee) {
+        if (caller == BODY) {
+            if (this.rootCount == this.roots.length) {
+                this.roots = Arrays.copyOf(this.roots, 2 * this.rootCount);
+            }
+            this.roots[this.rootCount] = callee;
+            this.rootCount++;
+        } else {
+            if (this.calleeCount == this.callees.length) {
+                this.callees = Arrays.copyOf(this.callees,
+                        2 * this.calleeCount);
+            }
+            this.callees[this.calleeCount] = callee;
+            this.calleeCount++;
+            if (callee == caller) {
+                this.recursive[caller] = true;
+            }
+        }
+    }
+
+    /**
+     * Numbers the strongly connected components, marks the instructions in
+     * cycles as recursive, and fills {@code order}, by Tarjan's algorithm.
+     */
+    private void findComponents() {
+        int n = this.names.length;
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        /*
+         * Depth-first search path: instruction and position of its next call
+         */
+        int[] path = new int[n];
+        int[] next = new int[n];
+        int count = 0;
+        int components = 0;
+        int ordered = 0;
+        for (int start = 0; start < n; start++) {
+            if (index[start] < 0) {
+                int depth = 0;
+                path[0] = start;
+                next[0] = this.first[start];
+                index[start] = count;
+                low[start] = count;
+                count++;
+                stack[stackSize] = start;
+                stackSize++;
+                onStack[start] = true;
+                while (depth >= 0) {
+                    int v = path[depth];
+                    if (next[depth] < this.first[v + 1]) {
+                        int w = this.callees[next[depth]];
+                        next[depth]++;
+                        if (index[w] < 0) {
+                            depth++;
+                            path[depth] = w;
+                            next[depth] = this.first[w];
+                            index[w] = count;
+                            low[w] = count;
+                            count++;
+                            stack[stackSize] = w;
+                            stackSize++;
+                            onStack[w] = true;
+                        } else if (onStack[w]) {
+                            low[v] = Math.min(low[v], index[w]);
+                        }
+                    } else {
+                        if (low[v] == index[v]) {
+                            /*
+                             * v is the root of a component: pop it
+                             */
+                            int size = 0;
+                            int w;
+                            do {
+                                stackSize--;
+                                w = stack[stackSize];
+                                onStack[w] = false;
+                                this.component[w] = components;
+                                this.order[ordered] = w;
+                                ordered++;
+                                size++;
+                            } while (w != v);
+                            if (size > 1) {
+                                for (int k = ordered - size; k < ordered; k++) {
+                                    this.recursive[this.order[k]] = true;
+                                }
+                            }
+                            components++;
+                        }
+                        depth--;
+                        if (depth >= 0) {
+                            int u = path[depth];
+                            low[u] = Math.min(low[u], low[v]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the instructions reachable from the body.
+     */
+    private void findReachable() {
+        int[] pending = new int[this.names.length];
+        int size = 0;
+        for (int k = 0; k < this.rootCount; k++) {
+            int w = this.roots[k];
+            if (!this.reachable[w]) {
+                this.reachable[w] = true;
+                pending[size] = w;
+                size++;
+            }
+        }
+        while (size > 0) {
+            size--;
+            int v = pending[size];
+            for (int k = this.first[v]; k < this.first[v + 1]; k++) {
+                int w = this.callees[k];
+                if (!this.reachable[w]) {
+                    this.reachable[w] = true;
+                    pending[size] = w;
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of {@code caller} for messages.
+     *
+     * @param caller
+     *            the id of an instruction, or {@code BODY}
+     * @return the name
+     */
+    private String callerName(int caller) {
+        String result;
+        if (caller == BODY) {
+            result = "the body of " + this.program;
+        } else {
+            result = this.names[caller];
+        }
+        return result;
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the number of user-defined instructions.
+     *
+     * @return the number of instructions
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * Returns the name of instruction {@code id}.
+     *
+     * @param id
+     *            the id
+     * @return the name
+     * @requires 0 <= id < size
+     */
+    public String name(int id) {
+        assert 0 <= id && id < this.names.length : "Violation of: "
+                + "0 <= id < size";
+        return this.names[id];
+    }
+
+    /**
+     * Returns the id of the instruction named {@code name}, or -1 if there is
+     * none.
+     *
+     * @param name
+     *            the name
+     * @return the id, or -1
+     */
+    public int id(String name) {
+        Integer id = this.ids.get(name);
+        int result = -1;
+        if (id != null) {
+            result = id;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of the instructions called by instruction {@code id},
+     * or by the body if id is {@code BODY}, in the order of the calls.
+     *
+     * @param id
+     *            the id, or {@code BODY}
+     * @return the ids of the callees
+     * @requires id = BODY or 0 <= id < size
+     */
+    public int[] callees(int id) {
+        assert id == BODY || 0 <= id && id < this.names.length : ""
+                + "Violation of: id = BODY or 0 <= id < size";
+        int[] result;
+        if (id == BODY) {
+            result = Arrays.copyOf(this.roots, this.rootCount);
+        } else {
+            result = Arrays.copyOfRange(this.callees, this.first[id],
+                    this.first[id + 1]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of calls of undefined instructions.
+     *
+     * @return the number of undefined calls
+     */
+    public int undefinedCalls() {
+        return this.undefinedNames.size();
+    }
+
+    /**
+     * Returns the name called by undefined call {@code k}.
+     *
+     * @param k
+     *            the number of the call
+     * @return the name called
+     * @requires 0 <= k < undefinedCalls
+     */
+    public String undefinedName(int k) {
+        return this.undefinedNames.get(k);
+    }
+
+    /**
+     * Returns the caller of undefined call {@code k}: the id of an
+     * instruction, or {@code BODY}.
+     *
+     * @param k
+     *            the number of the call
+     * @return the caller
+     * @requires 0 <= k < undefinedCalls
+     */
+    public int undefinedCaller(int k) {
+        return this.undefinedCallers.get(k);
+    }
+
+    /**
+     * Reports whether instruction {@code id} can call itself.
+     *
+     * @param id
+     *            the id
+     * @return true iff id is in a cycle of calls
+     * @requires 0 <= id < size
+     */
+    public boolean isRecursive(int id) {
+        return this.recursive[id];
+    }
+
+    /**
+     * Returns the strongly connected component of instruction {@code id}.
+     * Components are numbered so that an instruction calls only instructions
+     * in its own component or in components of smaller numbers.
+     *
+     * @param id
+     *            the id
+     * @return the component
+     * @requires 0 <= id < size
+     */
+    public int component(int id) {
+        return this.component[id];
+    }
+
+    /**
+     * Reports whether instruction {@code id} can be reached from the body.
+     *
+     * @param id
+     *            the id
+     * @return true iff id is reachable
+     * @requires 0 <= id < size
+     */
+    public boolean isReachable(int id) {
+        return this.reachable[id];
+    }
+
+    /**
+     * Returns the ids of all the instructions, each after every instruction
+     * it calls, except for calls within a cycle; the instructions of a cycle
+     * are adjacent.
+     *
+     * @return the topological order
+     */
+    public int[] topologicalOrder() {
+        return this.order.clone();
+    }
+
+    /**
+     * Returns a message for each problem found: each call of an undefined
+     * instruction, each cycle of calls, and each instruction not reachable
+     * from the body.
+     *
+     * @return the messages
+     */
+    public List<String> problems() {
+        List<String> result = new ArrayList<>();
+        for (int k = 0; k < this.undefinedNames.size(); k++) {
+            result.add("Call of undefined instruction "
+                    + this.undefinedNames.get(k) + " in "
+                    + this.callerName(this.undefinedCallers.get(k)));
+        }
+        /*
+         * Instructions of a cycle are adjacent in order
+         */
+        int k = 0;
+        while (k < this.order.length) {
+            int c = this.component[this.order[k]];
+            int end = k;
+            StringBuilder cycle = new StringBuilder();
+            while (end < this.order.length
+                    && this.component[this.order[end]] == c) {
+                if (end > k) {
+                    cycle.append(", ");
+                }
+                cycle.append(this.names[this.order[end]]);
+                end++;
+            }
+            if (this.recursive[this.order[k]]) {
+                result.add("Recursive instructions: " + cycle);
+            }
+            k = end;
+        }
+        for (int id = 0; id < this.names.length; id++) {
+            if (!this.reachable[id]) {
+                result.add("Instruction never called: " + this.names[id]);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Reports the problems found in the call graph of the BL program in the
+     * file named by {@code args[0]}, and a topological order of its
+     * instructions.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        Reporter.assertElseFatalError(args.length == 1,
+                "Usage: CallGraph <file.bl>");
+        SimpleWriter out = new SimpleWriter1L();
+        Program1Parse1 p = new Program1Parse1();
+        MappedTokenStream in = new MappedTokenStream(args[0]);
+        p.parse(in);
+        in.close();
+        CallGraph graph = new CallGraph(p);
+        for (String problem : graph.problems()) {
+            out.println(problem);
+        }
+        out.print("Order:");
+        for (int id : graph.topologicalOrder()) {
+            out.print(" " + graph.name(id));
+        }
+        out.println();
+        out.close();
+    }
+
+}
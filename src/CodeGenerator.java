@@ -0,0 +1,381 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Lowers a parsed BL {@code Program} into the flat {@code int[]} instruction
+ * stream executed by {@code VirtualMachine}.
+ *
+ * <p>
+ * The body comes first, at address 0, and ends with {@code HALT}; each
+ * user-defined instruction follows, ending with {@code RETURN}. IF and
+ * IF_ELSE statements branch around their blocks when their condition does
+ * not hold; a WHILE statement jumps to a test at the end of its body, so
+ * each iteration executes a single branch. A condition that always holds
+ * generates no test at all.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class CodeGenerator {
+
+    /**
+     * Opcodes of the primitive instructions, keyed by name.
+     */
+    private static final HashMap<String, Integer> PRIMITIVES = new HashMap<>();
+
+    static {
+        PRIMITIVES.put("move", VirtualMachine.MOVE);
+        PRIMITIVES.put("turnleft", VirtualMachine.TURNLEFT);
+        PRIMITIVES.put("turnright", VirtualMachine.TURNRIGHT);
+        PRIMITIVES.put("infect", VirtualMachine.INFECT);
+        PRIMITIVES.put("skip", VirtualMachine.SKIP);
+    }
+
+    /**
+     * Initial capacity of the code.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The code generated so far.
+     */
+    private int[] code = new int[INITIAL_CAPACITY];
+
+    /**
+     * Length of the code generated so far.
+     */
+    private int length = 0;
+
+    /**
+     * Addresses of the user-defined instructions generated so far.
+     */
+    private final HashMap<String, Integer> addresses = new HashMap<>();
+
+    /**
+     * Addresses of the operands of calls, with the instructions they call.
+     */
+    private final HashMap<Integer, String> calls = new HashMap<>();
+
+    /**
+     * Private constructor; use {@code generate}.
+     */
+    private CodeGenerator() {
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Appends {@code word} to the code.
+     *
+     * @param word
+     *            the word
+     */
+    private void emit(int word) {
+        if (this.length == this.code.length) {
+            this.code = Arrays.copyOf(this.code, 2 * this.length);
+        }
+        this.code[this.length] = word;
+        this.length++;
+    }
+
+    /**
+     * Appends a jump with opcode {@code opcode} to {@code target}.
+     *
+     * @param opcode
+     *            the jump opcode
+     * @param target
+     *            the address jumped to, or -1 if not yet known
+     * @return the address of the operand, for patching
+     */
+    private int jump(int opcode, int target) {
+        this.emit(opcode);
+        this.emit(target);
+        return this.length - 1;
+    }
+
+    /**
+     * Sets the operand at address {@code at} to the address of the next word
+     * of code.
+     *
+     * @param at
+     *            the address of the operand
+     */
+    private void patch(int at) {
+        this.code[at] = this.length;
+    }
+
+    /**
+     * Returns the opcode that jumps if {@code c} holds (or, if
+     * {@code whenTrue} is false, if c does not hold).
+     *
+     * @param c
+     *            the condition, not TRUE
+     * @param whenTrue
+     *            whether to jump when c holds
+     * @return the jump opcode
+     */
+    private static int jumpOn(Statement.Condition c, boolean whenTrue) {
+        int ifSensor;
+        boolean negated;
+        switch (c) {
+            case NEXT_IS_EMPTY:
+            case NEXT_IS_NOT_EMPTY:
+                ifSensor = VirtualMachine.JUMP_IF_EMPTY;
+                negated = c == Statement.Condition.NEXT_IS_NOT_EMPTY;
+                break;
+            case NEXT_IS_WALL:
+            case NEXT_IS_NOT_WALL:
+                ifSensor = VirtualMachine.JUMP_IF_WALL;
+                negated = c == Statement.Condition.NEXT_IS_NOT_WALL;
+                break;
+            case NEXT_IS_FRIEND:
+            case NEXT_IS_NOT_FRIEND:
+                ifSensor = VirtualMachine.JUMP_IF_FRIEND;
+                negated = c == Statement.Condition.NEXT_IS_NOT_FRIEND;
+                break;
+            case NEXT_IS_ENEMY:
+            case NEXT_IS_NOT_ENEMY:
+                ifSensor = VirtualMachine.JUMP_IF_ENEMY;
+                negated = c == Statement.Condition.NEXT_IS_NOT_ENEMY;
+                break;
+            default:
+                ifSensor = VirtualMachine.JUMP_IF_RANDOM;
+                negated = false;
+                break;
+        }
+        /*
+         * JUMP_UNLESS_x immediately follows JUMP_IF_x
+         */
+        if (whenTrue == negated) {
+            return ifSensor + 1;
+        }
+        return ifSensor;
+    }
+
+    /**
+     * An open IF, IF_ELSE, or WHILE statement whose code is being generated.
+     */
+    private static final class Pending {
+
+        /**
+         * The condition of the statement.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * Address of the operand to patch with the address after the current
+         * block, or -1 if there is none.
+         */
+        private int patch;
+
+        /**
+         * Address of the body of a WHILE statement.
+         */
+        private final int top;
+
+        /**
+         * Constructor.
+         *
+         * @param condition
+         *            the condition of the statement
+         * @param patch
+         *            address of the operand to patch, or -1
+         * @param top
+         *            address of the body of a WHILE statement
+         */
+        Pending(Statement.Condition condition, int patch, int top) {
+            this.condition = condition;
+            this.patch = patch;
+            this.top = top;
+        }
+
+    }
+
+    /**
+     * Visitor generating the code of the statements of a walk, with the
+     * statements whose jumps are still to be patched on an explicit stack.
+     * The ELSE block of an IF_ELSE statement whose condition is
+     * {@code true} generates no code: while in it, statements only count
+     * their nesting.
+     */
+    private final class Lowering
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * The open statements, the outermost first.
+         */
+        private final ArrayList<Pending> open = new ArrayList<>();
+
+        /**
+         * Number of statements open in an ELSE block that generates no code,
+         * counting the IF_ELSE statement itself, or 0 if not in one.
+         */
+        private int dead = 0;
+
+        /**
+         * Returns the innermost open statement.
+         *
+         * @return the innermost open statement
+         */
+        private Pending top() {
+            return this.open.get(this.open.size() - 1);
+        }
+
+        @Override
+        public void call(String instruction) {
+            if (this.dead == 0) {
+                Integer primitive = PRIMITIVES.get(instruction);
+                if (primitive != null) {
+                    CodeGenerator.this.emit(primitive);
+                } else {
+                    CodeGenerator.this.calls.put(CodeGenerator.this
+                            .jump(VirtualMachine.CALL, -1), instruction);
+                }
+            }
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            if (this.dead > 0) {
+                this.dead++;
+            } else {
+                int skip = -1;
+                if (condition != Statement.Condition.TRUE) {
+                    skip = CodeGenerator.this.jump(jumpOn(condition, false),
+                            -1);
+                }
+                this.open.add(new Pending(condition, skip, -1));
+            }
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.beginIf(condition, length);
+        }
+
+        @Override
+        public void beginElse(int length) {
+            if (this.dead == 0) {
+                Pending top = this.top();
+                if (top.condition == Statement.Condition.TRUE) {
+                    this.dead = 1;
+                } else {
+                    int end = CodeGenerator.this.jump(VirtualMachine.JUMP, -1);
+                    CodeGenerator.this.patch(top.patch);
+                    top.patch = end;
+                }
+            }
+        }
+
+        @Override
+        public void endIf() {
+            if (this.dead > 1) {
+                this.dead--;
+            } else {
+                this.dead = 0;
+                Pending top = this.open.remove(this.open.size() - 1);
+                if (top.patch >= 0) {
+                    CodeGenerator.this.patch(top.patch);
+                }
+            }
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            if (this.dead > 0) {
+                this.dead++;
+            } else if (condition == Statement.Condition.TRUE) {
+                this.open.add(
+                        new Pending(condition, -1, CodeGenerator.this.length));
+            } else {
+                int test = CodeGenerator.this.jump(VirtualMachine.JUMP, -1);
+                this.open.add(new Pending(condition, test,
+                        CodeGenerator.this.length));
+            }
+        }
+
+        @Override
+        public void endWhile() {
+            if (this.dead > 0) {
+                this.dead--;
+            } else {
+                Pending top = this.open.remove(this.open.size() - 1);
+                if (top.condition == Statement.Condition.TRUE) {
+                    CodeGenerator.this.jump(VirtualMachine.JUMP, top.top);
+                } else {
+                    CodeGenerator.this.patch(top.patch);
+                    CodeGenerator.this.jump(jumpOn(top.condition, true),
+                            top.top);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Generates the code of {@code s}. The walk keeps its open statements on
+     * an explicit stack, so s may be nested as deeply as the parser allows.
+     *
+     * @param s
+     *            the statement
+     * @restores s
+     */
+    private void statement(Statement s) {
+        StatementWalker.walk(s, new Lowering());
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Lowers {@code p} into code for {@code VirtualMachine}.
+     *
+     * @param p
+     *            the program
+     * @return the code of p
+     * @restores p
+     * @requires [every instruction called in p is primitive or defined in the
+     *           context of p]
+     */
+    public static int[] generate(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        CodeGenerator g = new CodeGenerator();
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        g.statement(body);
+        g.emit(VirtualMachine.HALT);
+        Map<String, Statement> generated = p.newContext();
+        while (context.size() > 0) {
+            Map.Pair<String, Statement> pair = context.removeAny();
+            g.addresses.put(pair.key(), g.length);
+            g.statement(pair.value());
+            g.emit(VirtualMachine.RETURN);
+            generated.add(pair.key(), pair.value());
+        }
+        p.replaceContext(generated);
+        p.replaceBody(body);
+        /*
+         * Now that every instruction has an address, fill in the calls
+         */
+        for (int operand : g.calls.keySet()) {
+            String name = g.calls.get(operand);
+            Integer address = g.addresses.get(name);
+            Reporter.assertElseFatalError(address != null,
+                    "Call of undefined instruction: " + name);
+            g.code[operand] = address;
+        }
+        return Arrays.copyOf(g.code, g.length);
+    }
+
+}
@@ -0,0 +1,27 @@
+/**
+ * A BL program compiled to JVM bytecode by {@code ProgramCompiler}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public interface CompiledProgram {
+
+    /**
+     * Reports the name of the program.
+     *
+     * @return the name of the program
+     */
+    String name();
+
+    /**
+     * Executes the body of the program once, driving {@code bug}. Returns
+     * when the body completes; a body that never completes (e.g.,
+     * {@code WHILE true DO ... END WHILE}) runs until {@code bug} throws.
+     *
+     * @param bug
+     *            the bug to drive
+     */
+    void run(Bug bug);
+
+}
@@ -0,0 +1,119 @@
+/**
+ * A syntax error found while parsing BL, with the position of the token at
+ * which it was found.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class Diagnostic {
+
+    /**
+     * The error message.
+     */
+    private final String message;
+
+    /**
+     * Index of the offending token in the token string, counting from 0.
+     */
+    private final int tokenIndex;
+
+    /**
+     * Line of the offending token, counting from 1, or 0 if unknown.
+     */
+    private final int line;
+
+    /**
+     * Column of the offending token, counting from 1, or 0 if unknown.
+     */
+    private final int column;
+
+    /**
+     * Constructor.
+     *
+     * @param message
+     *            the error message
+     * @param tokenIndex
+     *            index of the offending token, counting from 0
+     * @param line
+     *            line of the offending token, counting from 1, or 0 if unknown
+     * @param column
+     *            column of the offending token, counting from 1, or 0 if
+     *            unknown
+     */
+    public Diagnostic(String message, int tokenIndex, int line, int column) {
+        assert message != null : "Violation of: message is not null";
+        this.message = message;
+        this.tokenIndex = tokenIndex;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Reports the error message.
+     *
+     * @return the message
+     */
+    public String message() {
+        return this.message;
+    }
+
+    /**
+     * Reports the index of the offending token.
+     *
+     * @return the token index, counting from 0
+     */
+    public int tokenIndex() {
+        return this.tokenIndex;
+    }
+
+    /**
+     * Reports the line of the offending token.
+     *
+     * @return the line, counting from 1, or 0 if unknown
+     */
+    public int line() {
+        return this.line;
+    }
+
+    /**
+     * Reports the column of the offending token.
+     *
+     * @return the column, counting from 1, or 0 if unknown
+     */
+    public int column() {
+        return this.column;
+    }
+
+    @Override
+    public String toString() {
+        if (this.line == 0) {
+            return "token " + this.tokenIndex + ": " + this.message;
+        }
+        return this.line + ":" + this.column + ": " + this.message;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Diagnostic)) {
+            return false;
+        }
+        Diagnostic d = (Diagnostic) obj;
+        return this.message.equals(d.message)
+                && this.tokenIndex == d.tokenIndex && this.line == d.line
+                && this.column == d.column;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = this.message.hashCode();
+        result = prime * result + this.tokenIndex;
+        result = prime * result + this.line;
+        return prime * result + this.column;
+    }
+
+}
@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import components.utilities.Reporter;
+
+/**
+ * Destination for the syntax errors found by the BL parsers.
+ *
+ * <p>
+ * {@link #FATAL} reports the first error through {@code Reporter} and
+ * terminates the client, as the parsers always have. A {@code Diagnostics}
+ * made with the constructor instead records each error as a
+ * {@code Diagnostic} and abandons only the construct being parsed, so the JVM
+ * stays alive and a caller can recover and keep parsing. Either way, every
+ * error carries the position of the token at which it was found.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class Diagnostics {
+
+    /**
+     * Diagnostics that report the first error to the console and terminate
+     * the client.
+     */
+    public static final Diagnostics FATAL = new Diagnostics(true);
+
+    /**
+     * Thrown by {@code check} in collecting mode to abandon the construct being
+     * parsed; caught by whoever recovers from the error.
+     */
+    static final class Abort extends RuntimeException {
+
+        /**
+         * Serialization version; aborts are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor; no stack trace is recorded, since an abort is expected
+         * control flow and may happen many times per parse.
+         */
+        Abort() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    /**
+     * Whether errors terminate the client.
+     */
+    private final boolean fatal;
+
+    /**
+     * The errors recorded so far.
+     */
+    private final List<Diagnostic> recorded;
+
+    /**
+     * Constructor for diagnostics that terminate the client or not.
+     *
+     * @param fatal
+     *            whether errors terminate the client
+     */
+    private Diagnostics(boolean fatal) {
+        this.fatal = fatal;
+        this.recorded = new ArrayList<>();
+    }
+
+    /**
+     * No-argument constructor; the new diagnostics record errors instead of
+     * terminating the client.
+     */
+    public Diagnostics() {
+        this(false);
+    }
+
+    /**
+     * Reports the error {@code message} at the front of {@code tokens} if
+     * {@code condition} is false.
+     *
+     * @param condition
+     *            the condition that must hold
+     * @param tokens
+     *            the tokens being parsed
+     * @param message
+     *            the error message
+     * @updates this
+     * @ensures <pre>
+     * if not condition then
+     *  [reports message at the front of tokens]
+     * </pre>
+     */
+    public void check(boolean condition, TokenStream tokens, String message) {
+        if (!condition) {
+            this.report(tokens, message);
+        }
+    }
+
+    /**
+     * Reports the error {@code message} at the front of {@code tokens}. In
+     * fatal mode this terminates the client; otherwise the error is recorded
+     * and the construct being parsed is abandoned.
+     *
+     * @param tokens
+     *            the tokens being parsed
+     * @param message
+     *            the error message
+     * @updates this
+     * @ensures <pre>
+     * if this is FATAL then
+     *  [reports message to the console and terminates client]
+     * else
+     *  this = #this * <[message at the front of tokens]>  and
+     *  [abandons the construct being parsed]
+     * </pre>
+     */
+    public void report(TokenStream tokens, String message) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert message != null : "Violation of: message is not null";
+        this.report(tokens.frontIndex(), tokens.frontLine(),
+                tokens.frontColumn(), message);
+    }
+
+    /**
+     * Reports the error {@code message} at the token with index
+     * {@code tokenIndex}, found at {@code line} and {@code column}. In fatal
+     * mode this terminates the client; otherwise the error is recorded and the
+     * construct being parsed is abandoned.
+     *
+     * @param tokenIndex
+     *            index of the offending token
+     * @param line
+     *            line of the offending token, or 0 if unknown
+     * @param column
+     *            column of the offending token, or 0 if unknown
+     * @param message
+     *            the error message
+     * @updates this
+     * @ensures <pre>
+     * if this is FATAL then
+     *  [reports message and its position to the console and terminates
+     *   client]
+     * else
+     *  this = #this * <(message, tokenIndex, line, column)>  and
+     *  [abandons the construct being parsed]
+     * </pre>
+     */
+    public void report(int tokenIndex, int line, int column, String message) {
+        assert message != null : "Violation of: message is not null";
+        Diagnostic d = new Diagnostic(message, tokenIndex, line, column);
+        if (this.fatal) {
+            Reporter.fatalErrorToConsole(d.toString());
+        } else {
+            this.recorded.add(d);
+            throw new Abort();
+        }
+    }
+
+    /**
+     * Reports whether no errors have been recorded.
+     *
+     * @return true iff no errors have been recorded
+     */
+    public boolean isEmpty() {
+        return this.recorded.isEmpty();
+    }
+
+    /**
+     * Reports the number of errors recorded.
+     *
+     * @return the number of errors recorded
+     */
+    public int size() {
+        return this.recorded.size();
+    }
+
+    /**
+     * Reports the errors recorded, in the order they were found.
+     *
+     * @return an unmodifiable view of the errors recorded
+     */
+    public List<Diagnostic> list() {
+        return Collections.unmodifiableList(this.recorded);
+    }
+
+}
@@ -0,0 +1,781 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.queue.Queue;
+import components.statement.Statement;
+import components.statement.StatementSecondary;
+
+/**
+ * {@code Statement} represented as its nodes in preorder, held in four
+ * primitive arrays: the kind of each node, its argument (the condition of an
+ * IF, IF_ELSE, or WHILE node, or the index of the instruction name of a CALL
+ * node in the statement's table of names), the number of nodes in its
+ * subtree, and its number of children. The children of a node start right
+ * after it, and each child is followed by its next sibling, so a whole
+ * statement costs 13 bytes per node, four arrays, and one entry per distinct
+ * name called, however deep it is. The table of names belongs to the
+ * statement, and to the statements taken apart from it, which share it, so
+ * names live exactly as long as the statements calling them.
+ *
+ * <p>
+ * The arrays are never modified once built, so kernel operations copy them;
+ * statements should be built by parsing ({@code Statement1Parse1} fills a
+ * {@code FlatStatement} directly, in one pass) rather than by repeated
+ * assembly.
+ *
+ * @convention <pre>
+ * |kinds| = |args| = |sizes| = |counts| > 0  and
+ * sizes[0] = |kinds|  and
+ * [the args of CALL nodes are indexes in names]  and
+ * [kinds, args, sizes, and counts are the preorder encoding of a well-formed
+ *  statement whose root is node 0]
+ * </pre>
+ * @correspondence this = [the statement encoded by kinds, args, sizes,
+ *                 counts, and names]
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class FlatStatement extends StatementSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * All kinds, indexed by ordinal.
+     */
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * All conditions, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Ordinal of {@code Kind.BLOCK}.
+     */
+    private static final byte BLOCK = (byte) Kind.BLOCK.ordinal();
+
+    /**
+     * Ordinal of {@code Kind.IF}.
+     */
+    private static final byte IF = (byte) Kind.IF.ordinal();
+
+    /**
+     * Ordinal of {@code Kind.IF_ELSE}.
+     */
+    private static final byte IF_ELSE = (byte) Kind.IF_ELSE.ordinal();
+
+    /**
+     * Ordinal of {@code Kind.WHILE}.
+     */
+    private static final byte WHILE = (byte) Kind.WHILE.ordinal();
+
+    /**
+     * Ordinal of {@code Kind.CALL}.
+     */
+    private static final byte CALL = (byte) Kind.CALL.ordinal();
+
+    /**
+     * Initial capacity of the arrays of a builder.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The table of names of a statement that calls nothing.
+     */
+    private static final String[] NO_NAMES = {};
+
+    /**
+     * Kinds of the nodes, as ordinals.
+     */
+    private byte[] kinds;
+
+    /**
+     * Condition ordinals of IF, IF_ELSE, and WHILE nodes, and name ids of
+     * CALL nodes.
+     */
+    private int[] args;
+
+    /**
+     * Number of nodes in the subtree of each node, itself included.
+     */
+    private int[] sizes;
+
+    /**
+     * Number of children of each node.
+     */
+    private int[] counts;
+
+    /**
+     * Names of the instructions called, indexed by the args of CALL nodes;
+     * never modified, so it may be shared.
+     */
+    private String[] names;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.kinds = new byte[] { BLOCK };
+        this.args = new int[1];
+        this.sizes = new int[] { 1 };
+        this.counts = new int[1];
+        this.names = NO_NAMES;
+    }
+
+    /**
+     * Sets the representation of {@code this} to the given arrays.
+     *
+     * @param k
+     *            kinds of the nodes
+     * @param a
+     *            arguments of the nodes
+     * @param s
+     *            subtree sizes of the nodes
+     * @param c
+     *            child counts of the nodes
+     * @param n
+     *            names of the instructions called
+     */
+    private void setRep(byte[] k, int[] a, int[] s, int[] c, String[] n) {
+        this.kinds = k;
+        this.args = a;
+        this.sizes = s;
+        this.counts = c;
+        this.names = n;
+    }
+
+    /**
+     * Returns a table of names holding those of {@code first} followed by
+     * those of {@code second} not in it, and sets {@code ids} to the indexes
+     * of the names of second in it; returns first itself if it already holds
+     * every name of second.
+     *
+     * @param first
+     *            the first table
+     * @param second
+     *            the second table
+     * @param ids
+     *            the indexes in the result of the names of second
+     * @return the union of the tables
+     * @replaces ids
+     * @requires |ids| >= |second|
+     */
+    private static String[] union(String[] first, String[] second,
+            int[] ids) {
+        String[] result = first;
+        if (first != second) {
+            HashMap<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < first.length; i++) {
+                index.put(first[i], i);
+            }
+            int n = first.length;
+            for (int i = 0; i < second.length; i++) {
+                Integer id = index.get(second[i]);
+                if (id == null) {
+                    if (result == first) {
+                        result = Arrays.copyOf(first,
+                                first.length + second.length);
+                    }
+                    id = n;
+                    result[n] = second[i];
+                    index.put(second[i], id);
+                    n++;
+                }
+                ids[i] = id;
+            }
+            if (result != first) {
+                result = Arrays.copyOf(result, n);
+            }
+        } else {
+            for (int i = 0; i < second.length; i++) {
+                ids[i] = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the args of the CALL nodes among the {@code m} nodes from
+     * {@code at} by their indexes in {@code ids}.
+     *
+     * @param k
+     *            kinds of the nodes
+     * @param a
+     *            args of the nodes
+     * @param at
+     *            the first node
+     * @param m
+     *            the number of nodes
+     * @param ids
+     *            the new index of each old one
+     * @updates a
+     */
+    private static void renumber(byte[] k, int[] a, int at, int m,
+            int[] ids) {
+        for (int i = at; i < at + m; i++) {
+            if (k[i] == CALL) {
+                a[i] = ids[a[i]];
+            }
+        }
+    }
+
+    /**
+     * Sets the representation of {@code this} to a copy of the subtree of
+     * {@code source} rooted at node {@code from}.
+     *
+     * @param source
+     *            the statement holding the subtree
+     * @param from
+     *            the root of the subtree
+     */
+    private void setRepToSubtree(FlatStatement source, int from) {
+        int to = from + source.sizes[from];
+        this.setRep(Arrays.copyOfRange(source.kinds, from, to),
+                Arrays.copyOfRange(source.args, from, to),
+                Arrays.copyOfRange(source.sizes, from, to),
+                Arrays.copyOfRange(source.counts, from, to), source.names);
+    }
+
+    /**
+     * Sets the representation of {@code this} to a node of kind {@code kind}
+     * whose children are the given blocks.
+     *
+     * @param kind
+     *            the kind of the new root
+     * @param arg
+     *            the argument of the new root
+     * @param names
+     *            the names of the new root, if it is a CALL node
+     * @param blocks
+     *            the children of the new root
+     */
+    private void setRepToNode(byte kind, int arg, String[] names,
+            FlatStatement... blocks) {
+        int n = 1;
+        String[] table = names;
+        for (FlatStatement b : blocks) {
+            n += b.kinds.length;
+            if (table.length == 0) {
+                table = b.names;
+            }
+        }
+        byte[] k = new byte[n];
+        int[] a = new int[n];
+        int[] s = new int[n];
+        int[] c = new int[n];
+        k[0] = kind;
+        a[0] = arg;
+        s[0] = n;
+        c[0] = blocks.length;
+        int at = 1;
+        for (FlatStatement b : blocks) {
+            int m = b.kinds.length;
+            System.arraycopy(b.kinds, 0, k, at, m);
+            System.arraycopy(b.args, 0, a, at, m);
+            System.arraycopy(b.sizes, 0, s, at, m);
+            System.arraycopy(b.counts, 0, c, at, m);
+            if (b.names != table && b.names.length > 0) {
+                int[] ids = new int[b.names.length];
+                table = union(table, b.names, ids);
+                renumber(k, a, at, m, ids);
+            }
+            at += m;
+        }
+        this.setRep(k, a, s, c, table);
+    }
+
+    /**
+     * Returns the node of the child of the root at position {@code pos}.
+     *
+     * @param pos
+     *            the position of the child
+     * @return the index of the child's node
+     */
+    private int childNode(int pos) {
+        int node = 1;
+        for (int i = 0; i < pos; i++) {
+            node += this.sizes[node];
+        }
+        return node;
+    }
+
+    /**
+     * Casts {@code s} to {@code FlatStatement}.
+     *
+     * @param s
+     *            the statement
+     * @return s as a FlatStatement
+     */
+    private static FlatStatement flat(Statement s) {
+        assert s instanceof FlatStatement : ""
+                + "Violation of: s is of dynamic type FlatStatement";
+        return (FlatStatement) s;
+    }
+
+    /**
+     * {@code StatementBuilder} that appends nodes straight to growable
+     * arrays, keeping the open nodes on an explicit stack.
+     */
+    private static final class Builder implements StatementBuilder {
+
+        /**
+         * The statement being built.
+         */
+        private final FlatStatement target;
+
+        /**
+         * Whether {@code target} is to be a block.
+         */
+        private final boolean isBlock;
+
+        /**
+         * Kinds of the nodes built so far.
+         */
+        private byte[] kinds = new byte[INITIAL_CAPACITY];
+
+        /**
+         * Arguments of the nodes built so far.
+         */
+        private int[] args = new int[INITIAL_CAPACITY];
+
+        /**
+         * Subtree sizes of the closed nodes built so far.
+         */
+        private int[] sizes = new int[INITIAL_CAPACITY];
+
+        /**
+         * Child counts of the nodes built so far.
+         */
+        private int[] counts = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of nodes built so far.
+         */
+        private int length = 0;
+
+        /**
+         * Indexes of the names called so far.
+         */
+        private final HashMap<String, Integer> ids = new HashMap<>();
+
+        /**
+         * Names called so far, by index.
+         */
+        private String[] names = NO_NAMES;
+
+        /**
+         * The open nodes, outermost first.
+         */
+        private int[] open = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of open nodes.
+         */
+        private int depth = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param target
+         *            the statement to build into
+         * @param isBlock
+         *            whether target is to be a block
+         */
+        Builder(FlatStatement target, boolean isBlock) {
+            this.target = target;
+            this.isBlock = isBlock;
+            if (isBlock) {
+                this.push(this.append(BLOCK, 0));
+            }
+        }
+
+        /**
+         * Appends a node as the last child of the innermost open node.
+         *
+         * @param kind
+         *            the kind of the node
+         * @param arg
+         *            the argument of the node
+         * @return the index of the node
+         */
+        private int append(byte kind, int arg) {
+            if (this.length == this.kinds.length) {
+                int capacity = 2 * this.length;
+                this.kinds = Arrays.copyOf(this.kinds, capacity);
+                this.args = Arrays.copyOf(this.args, capacity);
+                this.sizes = Arrays.copyOf(this.sizes, capacity);
+                this.counts = Arrays.copyOf(this.counts, capacity);
+            }
+            int node = this.length;
+            this.kinds[node] = kind;
+            this.args[node] = arg;
+            this.sizes[node] = 1;
+            this.counts[node] = 0;
+            if (this.depth > 0) {
+                this.counts[this.open[this.depth - 1]]++;
+            }
+            this.length++;
+            return node;
+        }
+
+        /**
+         * Opens {@code node}.
+         *
+         * @param node
+         *            the node to open
+         */
+        private void push(int node) {
+            if (this.depth == this.open.length) {
+                this.open = Arrays.copyOf(this.open, 2 * this.depth);
+            }
+            this.open[this.depth] = node;
+            this.depth++;
+        }
+
+        /**
+         * Closes the innermost open node, fixing its subtree size.
+         *
+         * @return the closed node
+         */
+        private int close() {
+            this.depth--;
+            int node = this.open[this.depth];
+            this.sizes[node] = this.length - node;
+            return node;
+        }
+
+        @Override
+        public void call(String instruction) {
+            Integer id = this.ids.get(instruction);
+            if (id == null) {
+                id = this.ids.size();
+                if (id == this.names.length) {
+                    this.names = Arrays.copyOf(this.names,
+                            Math.max(INITIAL_CAPACITY, 2 * id));
+                }
+                this.names[id] = instruction;
+                this.ids.put(instruction, id);
+            }
+            this.append(CALL, id);
+        }
+
+        @Override
+        public void beginIf(Condition condition) {
+            this.push(this.append(IF, condition.ordinal()));
+            this.push(this.append(BLOCK, 0));
+        }
+
+        @Override
+        public void beginElse() {
+            this.close();
+            this.kinds[this.open[this.depth - 1]] = IF_ELSE;
+            this.push(this.append(BLOCK, 0));
+        }
+
+        @Override
+        public void endIf() {
+            this.close();
+            this.close();
+        }
+
+        @Override
+        public void beginWhile(Condition condition) {
+            this.push(this.append(WHILE, condition.ordinal()));
+            this.push(this.append(BLOCK, 0));
+        }
+
+        @Override
+        public void endWhile() {
+            this.close();
+            this.close();
+        }
+
+        @Override
+        public void finish() {
+            if (this.isBlock) {
+                this.close();
+            }
+            assert this.depth == 0 : "Violation of: all statements ended";
+            assert this.length > 0 : "Violation of: a statement was built";
+            int n = this.length;
+            this.target.setRep(Arrays.copyOf(this.kinds, n),
+                    Arrays.copyOf(this.args, n), Arrays.copyOf(this.sizes, n),
+                    Arrays.copyOf(this.counts, n),
+                    Arrays.copyOf(this.names, this.ids.size()));
+        }
+
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Returns a builder whose {@code finish} replaces {@code this} with the
+     * statement built.
+     *
+     * @param isBlock
+     *            whether this is to be a block rather than a single statement
+     * @return the builder
+     */
+    StatementBuilder builder(boolean isBlock) {
+        return new Builder(this, isBlock);
+    }
+
+    /**
+     * Reports the number of nodes in {@code this}.
+     *
+     * @return the number of nodes, blocks included
+     */
+    int nodeCount() {
+        return this.kinds.length;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public FlatStatement() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public Statement newInstance() {
+        return new FlatStatement();
+    }
+
+    @Override
+    public void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public void transferFrom(Statement source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        FlatStatement localSource = flat(source);
+        this.setRep(localSource.kinds, localSource.args, localSource.sizes,
+                localSource.counts, localSource.names);
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public Kind kind() {
+        return KINDS[this.kinds[0]];
+    }
+
+    @Override
+    public void addToBlock(int pos, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert this.kinds[0] == BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos && pos <= this.counts[0] : ""
+                + "Violation of: 0 <= pos <= [length of this BLOCK]";
+        assert s.kind() != Kind.BLOCK : ""
+                + "Violation of: [s is not a BLOCK statement]";
+        FlatStatement child = flat(s);
+        int at = this.childNode(pos);
+        int n = this.kinds.length;
+        int m = child.kinds.length;
+        byte[] k = new byte[n + m];
+        int[] a = new int[n + m];
+        int[] z = new int[n + m];
+        int[] c = new int[n + m];
+        System.arraycopy(this.kinds, 0, k, 0, at);
+        System.arraycopy(this.args, 0, a, 0, at);
+        System.arraycopy(this.sizes, 0, z, 0, at);
+        System.arraycopy(this.counts, 0, c, 0, at);
+        System.arraycopy(child.kinds, 0, k, at, m);
+        System.arraycopy(child.args, 0, a, at, m);
+        System.arraycopy(child.sizes, 0, z, at, m);
+        System.arraycopy(child.counts, 0, c, at, m);
+        System.arraycopy(this.kinds, at, k, at + m, n - at);
+        System.arraycopy(this.args, at, a, at + m, n - at);
+        System.arraycopy(this.sizes, at, z, at + m, n - at);
+        System.arraycopy(this.counts, at, c, at + m, n - at);
+        z[0] += m;
+        c[0]++;
+        String[] table = this.names;
+        if (table.length == 0) {
+            table = child.names;
+        } else if (child.names != table && child.names.length > 0) {
+            int[] ids = new int[child.names.length];
+            table = union(table, child.names, ids);
+            renumber(k, a, at, m, ids);
+        }
+        this.setRep(k, a, z, c, table);
+        child.createNewRep();
+    }
+
+    @Override
+    public Statement removeFromBlock(int pos) {
+        assert this.kinds[0] == BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos && pos < this.counts[0] : ""
+                + "Violation of: 0 <= pos < [length of this BLOCK]";
+        int at = this.childNode(pos);
+        int m = this.sizes[at];
+        FlatStatement child = new FlatStatement();
+        child.setRepToSubtree(this, at);
+        int n = this.kinds.length - m;
+        byte[] k = Arrays.copyOf(this.kinds, n);
+        int[] a = Arrays.copyOf(this.args, n);
+        int[] z = Arrays.copyOf(this.sizes, n);
+        int[] c = Arrays.copyOf(this.counts, n);
+        System.arraycopy(this.kinds, at + m, k, at, n - at);
+        System.arraycopy(this.args, at + m, a, at, n - at);
+        System.arraycopy(this.sizes, at + m, z, at, n - at);
+        System.arraycopy(this.counts, at + m, c, at, n - at);
+        z[0] -= m;
+        c[0]--;
+        this.setRep(k, a, z, c, this.names);
+        return child;
+    }
+
+    @Override
+    public int lengthOfBlock() {
+        assert this.kinds[0] == BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        return this.counts[0];
+    }
+
+    @Override
+    public void assembleIf(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+        FlatStatement block = flat(s);
+        this.setRepToNode(IF, c.ordinal(), NO_NAMES, block);
+        block.createNewRep();
+    }
+
+    @Override
+    public Condition disassembleIf(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert this.kinds[0] == IF : ""
+                + "Violation of: [this is an IF statement]";
+        Condition c = CONDITIONS[this.args[0]];
+        flat(s).setRepToSubtree(this, 1);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public void assembleIfElse(Condition c, Statement s1, Statement s2) {
+        assert c != null : "Violation of: c is not null";
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1.kind() == Kind.BLOCK : ""
+                + "Violation of: [s1 is a BLOCK statement]";
+        assert s2.kind() == Kind.BLOCK : ""
+                + "Violation of: [s2 is a BLOCK statement]";
+        FlatStatement thenBlock = flat(s1);
+        FlatStatement elseBlock = flat(s2);
+        this.setRepToNode(IF_ELSE, c.ordinal(), NO_NAMES, thenBlock,
+                elseBlock);
+        thenBlock.createNewRep();
+        elseBlock.createNewRep();
+    }
+
+    @Override
+    public Condition disassembleIfElse(Statement s1, Statement s2) {
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert this.kinds[0] == IF_ELSE : ""
+                + "Violation of: [this is an IF_ELSE statement]";
+        Condition c = CONDITIONS[this.args[0]];
+        flat(s1).setRepToSubtree(this, 1);
+        flat(s2).setRepToSubtree(this, 1 + this.sizes[1]);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public void assembleWhile(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+        FlatStatement block = flat(s);
+        this.setRepToNode(WHILE, c.ordinal(), NO_NAMES, block);
+        block.createNewRep();
+    }
+
+    @Override
+    public Condition disassembleWhile(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert this.kinds[0] == WHILE : ""
+                + "Violation of: [this is a WHILE statement]";
+        Condition c = CONDITIONS[this.args[0]];
+        flat(s).setRepToSubtree(this, 1);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public void assembleCall(String inst) {
+        assert inst != null : "Violation of: inst is not null";
+        this.setRepToNode(CALL, 0, new String[] { inst });
+    }
+
+    @Override
+    public String disassembleCall() {
+        assert this.kinds[0] == CALL : ""
+                + "Violation of: [this is a CALL statement]";
+        String inst = this.names[this.args[0]];
+        this.createNewRep();
+        return inst;
+    }
+
+    /*
+     * Secondary methods ------------------------------------------------------
+     */
+
+    @Override
+    public void parse(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+
+        Statement1Parse1.parseStatement(new QueueTokenStream(tokens), this,
+                Diagnostics.FATAL);
+    }
+
+    @Override
+    public void parseBlock(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+
+        Statement1Parse1.parseBlock(new QueueTokenStream(tokens), this,
+                Diagnostics.FATAL);
+    }
+
+}
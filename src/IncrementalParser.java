@@ -0,0 +1,992 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * Parser for the text of a BL program that is being edited, which after each
+ * edit re-lexes only the lines the edit touched and reparses only the parts
+ * of the program those lines belong to.
+ *
+ * <p>
+ * The text is held with its tokens, each with its offset in the text, and
+ * the offsets at which its lines start. An edit replaces the tokens and line
+ * starts of the lines it touched and shifts the offsets after them. The
+ * parsed program is held as segments, in preorder: one per
+ * {@code INSTRUCTION} definition and one per statement, at any depth, each
+ * with the range of tokens it was parsed from and the number of segments
+ * nested in it. After an edit the program is parsed again, but whenever the
+ * parser reaches the start of a segment whose tokens, and the token after
+ * them, were not touched, the segment and all those nested in it are reused
+ * as they are. An edit inside a long loop thus reparses only the statements
+ * around it, not the loop. Segments hold no {@code Statement}s; a
+ * {@code Program} is built from them only when {@code program} is called.
+ *
+ * <p>
+ * Errors are reported exactly as {@code Program1Parse1.parse(tokens,
+ * diagnostics)} reports them for the same text. Lines end at {@code '\n'};
+ * any other line terminator is only whitespace.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class IncrementalParser {
+
+    /**
+     * Initial capacity of the token and line tables.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Character that starts a comment.
+     */
+    private static final char COMMENT = '#';
+
+    /**
+     * An {@code INSTRUCTION} definition or a statement, as parsed from a
+     * range of tokens.
+     */
+    private static final class Segment {
+
+        /**
+         * Index of the first token.
+         */
+        private int start;
+
+        /**
+         * Index of the token after the last one.
+         */
+        private int end;
+
+        /**
+         * Kind of the statement, or null for an INSTRUCTION definition.
+         */
+        private Statement.Kind kind;
+
+        /**
+         * Condition of an IF, IF_ELSE, or WHILE statement.
+         */
+        private Statement.Condition condition;
+
+        /**
+         * Name of the instruction defined or called.
+         */
+        private String name;
+
+        /**
+         * Number of segments from this one to the end of those nested in it.
+         */
+        private int size = 1;
+
+        /**
+         * Offset from this segment of the first segment of the ELSE block of
+         * an IF_ELSE statement.
+         */
+        private int elseAt;
+
+        /**
+         * The error found in an INSTRUCTION definition, or null.
+         */
+        private String error;
+
+        /**
+         * Index of the token at which the error was found, relative to
+         * {@code start}.
+         */
+        private int errorOffset;
+
+    }
+
+    /**
+     * {@code StatementBuilder} that records the statements parsed as
+     * segments, and offers the parser every segment of the last parse that
+     * can be reused.
+     */
+    private final class SegmentBuilder implements StatementBuilder {
+
+        /**
+         * The segments of the last parse.
+         */
+        private final ArrayList<Segment> old;
+
+        /**
+         * Index in {@code old} of the first segment not yet passed.
+         */
+        private int next = 0;
+
+        /**
+         * Index of the first token replaced.
+         */
+        private final int from;
+
+        /**
+         * Index of the token after the last one replaced, before the edit.
+         */
+        private final int oldTo;
+
+        /**
+         * The change in the number of tokens.
+         */
+        private final int delta;
+
+        /**
+         * The tokens.
+         */
+        private final Cursor tokens;
+
+        /**
+         * The segments of this parse.
+         */
+        private final ArrayList<Segment> segments = new ArrayList<>();
+
+        /**
+         * Indexes in {@code segments} of the open statements, innermost
+         * last.
+         */
+        private final ArrayList<Integer> open = new ArrayList<>();
+
+        /**
+         * Index of the first token of the statement being parsed.
+         */
+        private int start;
+
+        /**
+         * Constructor.
+         *
+         * @param old
+         *            the segments of the last parse
+         * @param from
+         *            index of the first token replaced
+         * @param oldTo
+         *            index of the token after the last one replaced, before
+         * @param delta
+         *            the change in the number of tokens
+         * @param tokens
+         *            the tokens
+         */
+        SegmentBuilder(ArrayList<Segment> old, int from, int oldTo, int delta,
+                Cursor tokens) {
+            this.old = old;
+            this.from = from;
+            this.oldTo = oldTo;
+            this.delta = delta;
+            this.tokens = tokens;
+        }
+
+        /**
+         * Returns the index at which {@code seg}, of the last parse, starts
+         * now, or {@code from} if it starts among the tokens replaced.
+         *
+         * @param seg
+         *            the segment
+         * @return the new start of seg
+         */
+        private int newStart(Segment seg) {
+            int result;
+            if (seg.start < this.from) {
+                result = seg.start;
+            } else if (seg.start >= this.oldTo) {
+                result = seg.start + this.delta;
+            } else {
+                result = this.from;
+            }
+            return result;
+        }
+
+        /**
+         * Returns the segment of the last parse that starts at token
+         * {@code i} and can be reused, or null if there is none. Calls must
+         * come with increasing {@code i}.
+         *
+         * @param i
+         *            the token index
+         * @return the reusable segment at i, or null
+         * @updates this
+         */
+        Segment find(int i) {
+            /*
+             * Segments are in preorder, so their new starts only grow
+             */
+            while (this.next < this.old.size()
+                    && this.newStart(this.old.get(this.next)) < i) {
+                this.next++;
+            }
+            Segment result = null;
+            if (this.next < this.old.size()) {
+                Segment seg = this.old.get(this.next);
+                /*
+                 * The token after a segment decides where it ends, so it must
+                 * be untouched too
+                 */
+                if ((seg.end < this.from || seg.start >= this.oldTo)
+                        && this.newStart(seg) == i) {
+                    result = seg;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Adds {@code seg}, found by {@code find}, and the segments nested in
+         * it to this parse, and moves the tokens past it.
+         *
+         * @param seg
+         *            the segment
+         * @updates this
+         */
+        void take(Segment seg) {
+            int n = seg.size;
+            boolean shifted = seg.start >= this.oldTo;
+            for (int k = this.next; k < this.next + n; k++) {
+                Segment nested = this.old.get(k);
+                if (shifted) {
+                    nested.start += this.delta;
+                    nested.end += this.delta;
+                }
+                this.segments.add(nested);
+            }
+            this.next += n;
+            this.tokens.seek(seg.end);
+            IncrementalParser.this.reused++;
+        }
+
+        /**
+         * Adds a new segment of kind {@code kind} starting at {@code start}.
+         *
+         * @param kind
+         *            the kind
+         * @return the segment
+         * @updates this
+         */
+        Segment add(Statement.Kind kind) {
+            Segment seg = new Segment();
+            seg.start = this.start;
+            seg.kind = kind;
+            this.segments.add(seg);
+            return seg;
+        }
+
+        /**
+         * Drops the segments from index {@code mark} on, and every open
+         * statement, after a parse error.
+         *
+         * @param mark
+         *            the number of segments kept
+         * @updates this
+         */
+        void truncate(int mark) {
+            while (this.segments.size() > mark) {
+                this.segments.remove(this.segments.size() - 1);
+            }
+            this.open.clear();
+        }
+
+        /**
+         * Closes the innermost open statement.
+         */
+        private void close() {
+            int i = this.open.remove(this.open.size() - 1);
+            Segment seg = this.segments.get(i);
+            seg.end = this.tokens.frontIndex();
+            seg.size = this.segments.size() - i;
+        }
+
+        @Override
+        public boolean reuse(TokenStream t) {
+            assert t == this.tokens : "Violation of: t is the cursor";
+            int i = this.tokens.frontIndex();
+            Segment seg = this.find(i);
+            if (seg != null && seg.kind != null) {
+                this.take(seg);
+                return true;
+            }
+            this.start = i;
+            return false;
+        }
+
+        @Override
+        public void call(String instruction) {
+            Segment seg = this.add(Statement.Kind.CALL);
+            seg.name = instruction;
+            seg.end = this.tokens.frontIndex();
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition) {
+            this.open.add(this.segments.size());
+            this.add(Statement.Kind.IF).condition = condition;
+        }
+
+        @Override
+        public void beginElse() {
+            int i = this.open.get(this.open.size() - 1);
+            Segment seg = this.segments.get(i);
+            seg.kind = Statement.Kind.IF_ELSE;
+            seg.elseAt = this.segments.size() - i;
+        }
+
+        @Override
+        public void endIf() {
+            this.close();
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition) {
+            this.open.add(this.segments.size());
+            this.add(Statement.Kind.WHILE).condition = condition;
+        }
+
+        @Override
+        public void endWhile() {
+            this.close();
+        }
+
+        @Override
+        public void finish() {
+            assert this.open.isEmpty() : "Violation of: no statement is open";
+        }
+
+    }
+
+    /**
+     * {@code TokenStream} over the token table, from any index.
+     */
+    private final class Cursor implements TokenStream {
+
+        /**
+         * Index of the front token.
+         */
+        private int index;
+
+        /**
+         * Moves the front to the token with index {@code i}.
+         *
+         * @param i
+         *            the new front index
+         */
+        private void seek(int i) {
+            this.index = i;
+        }
+
+        @Override
+        public String front() {
+            if (this.index < IncrementalParser.this.tokenCount) {
+                return IncrementalParser.this.texts[this.index];
+            }
+            return Tokenizer.END_OF_INPUT;
+        }
+
+        @Override
+        public TokenKind frontKind() {
+            if (this.index < IncrementalParser.this.tokenCount) {
+                return IncrementalParser.this.kinds[this.index];
+            }
+            return TokenKind.END_OF_INPUT;
+        }
+
+        @Override
+        public int frontIndex() {
+            return this.index;
+        }
+
+        @Override
+        public int frontLine() {
+            return IncrementalParser.this.lineOfToken(this.index);
+        }
+
+        @Override
+        public int frontColumn() {
+            return IncrementalParser.this.columnOfToken(this.index);
+        }
+
+        @Override
+        public String dequeue() {
+            String token = this.front();
+            if (this.index < IncrementalParser.this.tokenCount) {
+                this.index++;
+            }
+            return token;
+        }
+
+    }
+
+    /**
+     * The text.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Number of tokens in the text.
+     */
+    private int tokenCount = 0;
+
+    /**
+     * Offsets of the tokens in the text.
+     */
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Canonical texts of the tokens.
+     */
+    private String[] texts = new String[INITIAL_CAPACITY];
+
+    /**
+     * Kinds of the tokens.
+     */
+    private TokenKind[] kinds = new TokenKind[INITIAL_CAPACITY];
+
+    /**
+     * Canonical instances of the tokens seen so far.
+     */
+    private final HashMap<String, String> interned = new HashMap<>();
+
+    /**
+     * Number of lines in the text.
+     */
+    private int lineCount = 1;
+
+    /**
+     * Offsets at which the lines of the text start.
+     */
+    private int[] lineStarts = new int[INITIAL_CAPACITY];
+
+    /**
+     * The segments parsed, in preorder: the INSTRUCTION definitions, each
+     * followed by the statements of its body, then the statements of the
+     * program body.
+     */
+    private ArrayList<Segment> segments = new ArrayList<>();
+
+    /**
+     * Index in {@code segments} of the first statement of the program body.
+     */
+    private int bodyAt = 0;
+
+    /**
+     * Name of the program, or null if the header had an error.
+     */
+    private String programName = null;
+
+    /**
+     * The errors found by the last parse.
+     */
+    private Diagnostics diagnostics = new Diagnostics();
+
+    /**
+     * Number of segments reused by the last parse.
+     */
+    private int reused = 0;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; parses {@code text}.
+     *
+     * @param text
+     *            the text of a BL program
+     */
+    public IncrementalParser(String text) {
+        assert text != null : "Violation of: text is not null";
+        this.lineStarts[0] = 0;
+        this.edit(0, 0, text);
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the index of the first of the {@code n} sorted values in
+     * {@code a} that is at least {@code key}, or n if there is none.
+     *
+     * @param a
+     *            the sorted values
+     * @param n
+     *            the number of values
+     * @param key
+     *            the value searched for
+     * @return the index of the first value >= key
+     */
+    private static int firstAtLeast(int[] a, int n, int key) {
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the line of the token with index {@code i}, as
+     * {@code ReaderTokenStream} numbers it.
+     *
+     * @param i
+     *            the token index
+     * @return the line of the token, counting from 1
+     */
+    private int lineOfToken(int i) {
+        if (i >= this.tokenCount) {
+            /*
+             * As for a SimpleReader, a last line that is empty is no line
+             */
+            int length = this.text.length();
+            int lines = this.lineCount;
+            if (length == 0 || this.text.charAt(length - 1) == '\n') {
+                lines--;
+            }
+            return lines + 1;
+        }
+        return firstAtLeast(this.lineStarts, this.lineCount,
+                this.starts[i] + 1);
+    }
+
+    /**
+     * Returns the column of the token with index {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the column of the token, counting from 1
+     */
+    private int columnOfToken(int i) {
+        if (i >= this.tokenCount) {
+            return 1;
+        }
+        int line = this.lineOfToken(i);
+        return this.starts[i] - this.lineStarts[line - 1] + 1;
+    }
+
+    /**
+     * Moves the tokens from index {@code i} on by {@code n} places in the
+     * token table, overwriting the {@code -n} tokens before them if n is
+     * negative.
+     *
+     * @param i
+     *            index of the first token moved
+     * @param n
+     *            the number of places to move by
+     * @requires i + n >= 0
+     */
+    private void spliceTokens(int i, int n) {
+        int count = this.tokenCount + n;
+        if (count > this.starts.length) {
+            int capacity = Math.max(count, 2 * this.starts.length);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.texts = Arrays.copyOf(this.texts, capacity);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+        }
+        int moved = this.tokenCount - i;
+        System.arraycopy(this.starts, i, this.starts, i + n, moved);
+        System.arraycopy(this.texts, i, this.texts, i + n, moved);
+        System.arraycopy(this.kinds, i, this.kinds, i + n, moved);
+        if (count < this.tokenCount) {
+            Arrays.fill(this.texts, count, this.tokenCount, null);
+        }
+        this.tokenCount = count;
+    }
+
+    /**
+     * Moves the line starts from index {@code i} on by {@code n} places in
+     * the line table, overwriting the {@code -n} line starts before them if n
+     * is negative.
+     *
+     * @param i
+     *            index of the first line start moved
+     * @param n
+     *            the number of places to move by
+     * @requires i + n >= 0
+     */
+    private void spliceLines(int i, int n) {
+        int count = this.lineCount + n;
+        if (count > this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts,
+                    Math.max(count, 2 * this.lineStarts.length));
+        }
+        System.arraycopy(this.lineStarts, i, this.lineStarts, i + n,
+                this.lineCount - i);
+        this.lineCount = count;
+    }
+
+    /**
+     * Replaces the tokens and line starts of the text between offsets
+     * {@code from} and {@code oldTo}, before an edit, with those of the text
+     * between {@code from} and {@code to}, after it; {@code from} must be the
+     * start of a line and {@code to} the end of one.
+     *
+     * @param from
+     *            offset of the first line touched
+     * @param oldTo
+     *            offset of the end of the last line touched, before the edit
+     * @param to
+     *            offset of the end of the last line touched, after the edit
+     * @return the index of the first token replaced
+     * @updates this
+     */
+    private int relex(int from, int oldTo, int to) {
+        int delta = to - oldTo;
+        /*
+         * Line starts in (from, oldTo] are replaced, later ones shifted
+         */
+        int firstLine = firstAtLeast(this.lineStarts, this.lineCount,
+                from + 1);
+        int endLine = firstAtLeast(this.lineStarts, this.lineCount,
+                oldTo + 1);
+        int newLines = 0;
+        for (int k = from; k < to; k++) {
+            if (this.text.charAt(k) == '\n') {
+                newLines++;
+            }
+        }
+        this.spliceLines(endLine, newLines - (endLine - firstLine));
+        int line = firstLine;
+        for (int k = from; k < to; k++) {
+            if (this.text.charAt(k) == '\n') {
+                this.lineStarts[line] = k + 1;
+                line++;
+            }
+        }
+        for (int k = line; k < this.lineCount; k++) {
+            this.lineStarts[k] += delta;
+        }
+        /*
+         * Tokens starting in [from, oldTo) are replaced, later ones shifted
+         */
+        int firstToken = firstAtLeast(this.starts, this.tokenCount, from);
+        int endToken = firstAtLeast(this.starts, this.tokenCount, oldTo);
+        ArrayList<Integer> newStarts = new ArrayList<>();
+        ArrayList<String> newTexts = new ArrayList<>();
+        int pos = from;
+        while (pos < to) {
+            char c = this.text.charAt(pos);
+            if (c == COMMENT) {
+                while (pos < to && this.text.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (TokenKind.isSeparator(c)) {
+                pos++;
+            } else {
+                int start = pos;
+                while (pos < to
+                        && !TokenKind.isSeparator(this.text.charAt(pos))
+                        && this.text.charAt(pos) != COMMENT) {
+                    pos++;
+                }
+                newStarts.add(start);
+                newTexts.add(this.text.substring(start, pos));
+            }
+        }
+        int n = newStarts.size();
+        this.spliceTokens(endToken, n - (endToken - firstToken));
+        for (int k = 0; k < n; k++) {
+            String token = newTexts.get(k);
+            TokenKind kind = TokenKind.of(token);
+            if (kind != TokenKind.ERROR) {
+                String canonical = this.interned.putIfAbsent(token, token);
+                if (canonical != null) {
+                    token = canonical;
+                }
+            }
+            this.starts[firstToken + k] = newStarts.get(k);
+            this.texts[firstToken + k] = token;
+            this.kinds[firstToken + k] = kind;
+        }
+        for (int k = firstToken + n; k < this.tokenCount; k++) {
+            this.starts[k] += delta;
+        }
+        return firstToken;
+    }
+
+    /**
+     * Records the error {@code message} at the token with index {@code i} in
+     * {@code d}.
+     *
+     * @param d
+     *            the diagnostics
+     * @param i
+     *            the token index
+     * @param message
+     *            the error message
+     * @updates d
+     */
+    private void record(Diagnostics d, int i, String message) {
+        try {
+            d.report(i, this.lineOfToken(i), this.columnOfToken(i), message);
+        } catch (Diagnostics.Abort e) {
+            /*
+             * Recorded; the caller carries on with the next segment
+             */
+            return;
+        }
+    }
+
+    /**
+     * Parses the INSTRUCTION definition at the front of {@code tokens} into
+     * {@code b}.
+     *
+     * @param tokens
+     *            the tokens
+     * @param b
+     *            receives the segments parsed
+     * @return the segment of the definition
+     * @updates tokens, b
+     */
+    private static Segment parseInstruction(Cursor tokens, SegmentBuilder b) {
+        Segment seg = new Segment();
+        seg.start = tokens.frontIndex();
+        int mark = b.segments.size();
+        b.segments.add(seg);
+        Diagnostics d = new Diagnostics();
+        try {
+            seg.name = Program1Parse1.parseInstruction(tokens, b, d);
+        } catch (Diagnostics.Abort e) {
+            b.truncate(mark + 1);
+            Program1Parse1.skipToInstructionOrBegin(tokens);
+            Diagnostic error = d.list().get(0);
+            seg.error = error.message();
+            seg.errorOffset = error.tokenIndex() - seg.start;
+        }
+        seg.end = tokens.frontIndex();
+        seg.size = b.segments.size() - mark;
+        return seg;
+    }
+
+    /**
+     * Parses the text after the tokens with indexes in [{@code from},
+     * {@code oldTo}) were replaced by the tokens with indexes in
+     * [{@code from}, {@code to}), reusing the segments of the last parse
+     * outside that range.
+     *
+     * @param from
+     *            index of the first token replaced
+     * @param oldTo
+     *            index of the token after the last one replaced, before
+     * @param to
+     *            index of the token after the last one replaced, after
+     * @updates this
+     */
+    private void reparse(int from, int oldTo, int to) {
+        Cursor tokens = new Cursor();
+        SegmentBuilder b = new SegmentBuilder(this.segments, from, oldTo,
+                to - oldTo, tokens);
+        Diagnostics d = new Diagnostics();
+        this.programName = null;
+        this.reused = 0;
+        this.bodyAt = 0;
+        try {
+            String name = Program1Parse1.parseHeader(tokens, d);
+            HashSet<String> names = new HashSet<>();
+            while (tokens.frontKind() == TokenKind.INSTRUCTION) {
+                Segment seg = b.find(tokens.frontIndex());
+                if (seg != null && seg.kind == null) {
+                    b.take(seg);
+                } else {
+                    seg = parseInstruction(tokens, b);
+                }
+                if (seg.error != null) {
+                    this.record(d, seg.start + seg.errorOffset, seg.error);
+                } else if (!names.add(seg.name)) {
+                    this.record(d, seg.start,
+                            "More than one user-defined instruction has the same name: "
+                                    + seg.name);
+                }
+            }
+            d.check(tokens.frontKind() == TokenKind.BEGIN, tokens,
+                    "Missing keyword \"INSTRUCTION\" or \"BEGIN\"");
+            tokens.dequeue();
+            this.bodyAt = b.segments.size();
+            try {
+                Statement1Parse1.parseBlock(tokens, b, d);
+            } finally {
+                /*
+                 * Keep the complete statements for the next parse
+                 */
+                if (!b.open.isEmpty()) {
+                    b.truncate(b.open.get(0));
+                }
+            }
+            Program1Parse1.parseEnd(tokens, name, d);
+            this.programName = name;
+        } catch (Diagnostics.Abort e) {
+            /*
+             * Error already recorded; the segments parsed so far are kept
+             */
+            assert !d.isEmpty() : ""
+                    + "Violation of: errors are recorded before aborting";
+        }
+        this.segments = b.segments;
+        this.diagnostics = d;
+    }
+
+    /**
+     * Builds into {@code block} the statements of the segments with indexes
+     * in [{@code from}, {@code to}).
+     *
+     * @param from
+     *            index of the first segment
+     * @param to
+     *            index of the segment after the last one
+     * @param block
+     *            the block built
+     * @replaces block
+     */
+    private void build(int from, int to, Statement block) {
+        StatementBuilder b = Statement1Parse1.builderFor(block, true);
+        ArrayList<Integer> open = new ArrayList<>();
+        ArrayList<Boolean> inElse = new ArrayList<>();
+        int i = from;
+        while (i < to || !open.isEmpty()) {
+            int top = open.size() - 1;
+            Segment seg = null;
+            if (top >= 0) {
+                seg = this.segments.get(open.get(top));
+            }
+            if (seg != null && seg.kind == Statement.Kind.IF_ELSE
+                    && !inElse.get(top) && i == open.get(top) + seg.elseAt) {
+                b.beginElse();
+                inElse.set(top, true);
+            } else if (seg != null && i == open.get(top) + seg.size) {
+                open.remove(top);
+                inElse.remove(top);
+                if (seg.kind == Statement.Kind.WHILE) {
+                    b.endWhile();
+                } else {
+                    b.endIf();
+                }
+            } else {
+                seg = this.segments.get(i);
+                switch (seg.kind) {
+                    case CALL:
+                        b.call(seg.name);
+                        break;
+                    case WHILE:
+                        b.beginWhile(seg.condition);
+                        open.add(i);
+                        inElse.add(false);
+                        break;
+                    default:
+                        b.beginIf(seg.condition);
+                        open.add(i);
+                        inElse.add(false);
+                        break;
+                }
+                i++;
+            }
+        }
+        b.finish();
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Replaces the {@code removed} characters of the text at {@code offset}
+     * with {@code inserted}, and parses the new text.
+     *
+     * @param offset
+     *            offset of the first character replaced
+     * @param removed
+     *            number of characters replaced
+     * @param inserted
+     *            the text inserted in their place
+     * @updates this
+     * @requires 0 <= offset and 0 <= removed and offset + removed <=
+     *           |this.text|
+     * @ensures this.text = #this.text[0, offset) * inserted *
+     *          #this.text[offset + removed, |#this.text|)
+     */
+    public void edit(int offset, int removed, String inserted) {
+        assert inserted != null : "Violation of: inserted is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        assert 0 <= removed : "Violation of: 0 <= removed";
+        assert offset + removed <= this.text.length() : ""
+                + "Violation of: offset + removed <= |this.text|";
+
+        int from = this.text.lastIndexOf("\n", offset - 1) + 1;
+        int delta = inserted.length() - removed;
+        this.text.replace(offset, offset + removed, inserted);
+        int to = this.text.indexOf("\n", offset + inserted.length());
+        if (to < 0) {
+            to = this.text.length();
+        }
+        int oldTokenCount = this.tokenCount;
+        int oldTo = firstAtLeast(this.starts, this.tokenCount, to - delta);
+        int firstToken = this.relex(from, to - delta, to);
+        int tokenDelta = this.tokenCount - oldTokenCount;
+        this.reparse(firstToken, oldTo, oldTo + tokenDelta);
+    }
+
+    /**
+     * Reports the text.
+     *
+     * @return the text
+     */
+    public String text() {
+        return this.text.toString();
+    }
+
+    /**
+     * Reports the errors found in the text, as
+     * {@code Program1Parse1.parse(tokens, diagnostics)} would report them.
+     *
+     * @return an unmodifiable view of the errors, in the order they were
+     *         found
+     */
+    public List<Diagnostic> diagnostics() {
+        return this.diagnostics.list();
+    }
+
+    /**
+     * Reports the number of INSTRUCTION definitions and statements of the
+     * program body that the last edit did not need to reparse.
+     *
+     * @return the number of segments reused
+     */
+    public int reused() {
+        return this.reused;
+    }
+
+    /**
+     * Builds the program parsed from the text into {@code p}.
+     *
+     * @param p
+     *            the program
+     * @replaces p
+     * @requires diagnostics() is empty
+     * @ensures p = [Program corresponding to this.text]
+     */
+    public void program(Program p) {
+        assert p != null : "Violation of: p is not null";
+        assert this.diagnostics.isEmpty() : ""
+                + "Violation of: diagnostics() is empty";
+
+        Map<String, Statement> context = p.newContext();
+        int i = 0;
+        while (i < this.bodyAt) {
+            Segment seg = this.segments.get(i);
+            Statement body = p.newBody();
+            this.build(i + 1, i + seg.size, body);
+            context.add(seg.name, body);
+            i += seg.size;
+        }
+        Statement body = p.newBody();
+        this.build(this.bodyAt, this.segments.size(), body);
+        p.replaceName(this.programName);
+        p.replaceContext(context);
+        p.replaceBody(body);
+    }
+
+}
@@ -0,0 +1,678 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Interpreter of a parsed BL program driving one {@code Bug}.
+ *
+ * <p>
+ * The program is first resolved into a {@code Code}: a tree of nodes in
+ * which every CALL of a primitive instruction is an opcode, every CALL of a
+ * user-defined instruction is a direct reference to the instruction's
+ * resolved body, and every condition is compiled to a sensor mask by
+ * {@code Sensors}, so execution never looks up a string. A {@code Code} is
+ * immutable and may be shared by the interpreters of any number of bugs, on
+ * any threads.
+ *
+ * <p>
+ * An interpreter keeps its position in the program on its own stack, so
+ * {@code run} can stop after a given number of turns, each ending with a
+ * primitive instruction or after {@code Bug.TURN_LIMIT} jumps without one,
+ * and later resume exactly where it stopped, e.g., one turn per bug.
+ * Conditions are evaluated by the {@code Bug} passed to {@code run}, which is
+ * therefore the pluggable source of sensor readings. A {@code SensingBug} is
+ * sensed once per turn, and each condition of the turn but {@code random} is
+ * a mask test of that snapshot; any other condition, or any condition on any
+ * other bug, asks for the one sensor it reads.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class Interpreter {
+
+    /*
+     * Opcodes of nodes -------------------------------------------------------
+     */
+
+    /**
+     * Primitive instruction move.
+     */
+    private static final int MOVE = 0;
+
+    /**
+     * Primitive instruction turnleft.
+     */
+    private static final int TURNLEFT = 1;
+
+    /**
+     * Primitive instruction turnright.
+     */
+    private static final int TURNRIGHT = 2;
+
+    /**
+     * Primitive instruction infect.
+     */
+    private static final int INFECT = 3;
+
+    /**
+     * Primitive instruction skip.
+     */
+    private static final int SKIP = 4;
+
+    /**
+     * Call of a user-defined instruction.
+     */
+    private static final int CALL = 5;
+
+    /**
+     * IF statement.
+     */
+    private static final int IF = 6;
+
+    /**
+     * IF_ELSE statement.
+     */
+    private static final int IF_ELSE = 7;
+
+    /**
+     * WHILE statement.
+     */
+    private static final int WHILE = 8;
+
+    /**
+     * Opcodes of the primitive instructions, keyed by name.
+     */
+    private static final HashMap<String, Integer> PRIMITIVES = new HashMap<>();
+
+    static {
+        PRIMITIVES.put("move", MOVE);
+        PRIMITIVES.put("turnleft", TURNLEFT);
+        PRIMITIVES.put("turnright", TURNRIGHT);
+        PRIMITIVES.put("infect", INFECT);
+        PRIMITIVES.put("skip", SKIP);
+    }
+
+    /**
+     * Initial capacity of the stack of an interpreter.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * A resolved statement.
+     */
+    private static final class Node {
+
+        /**
+         * Opcode of the statement.
+         */
+        private final int op;
+
+        /**
+         * Condition of an IF, IF_ELSE, or WHILE statement, compiled by
+         * {@code Sensors.compile}.
+         */
+        private final int condition;
+
+        /**
+         * THEN block or WHILE body; for a user-defined instruction, its body.
+         */
+        private Node[] block;
+
+        /**
+         * ELSE block.
+         */
+        private final Node[] elseBlock;
+
+        /**
+         * For a CALL, the instruction called.
+         */
+        private final Node target;
+
+        /**
+         * Constructor.
+         *
+         * @param op
+         *            opcode of the statement
+         * @param c
+         *            condition of the statement, or null
+         * @param block
+         *            THEN block or WHILE body, or null
+         * @param elseBlock
+         *            ELSE block, or null
+         * @param target
+         *            instruction called, or null
+         */
+        Node(int op, Statement.Condition c, Node[] block, Node[] elseBlock,
+                Node target) {
+            this.op = op;
+            this.block = block;
+            this.elseBlock = elseBlock;
+            this.target = target;
+            if (c == null) {
+                this.condition = Sensors.compile(Statement.Condition.TRUE);
+            } else {
+                this.condition = Sensors.compile(c);
+            }
+        }
+
+    }
+
+    /**
+     * A BL program resolved for execution.
+     */
+    public static final class Code {
+
+        /**
+         * Name of the program.
+         */
+        private final String name;
+
+        /**
+         * The resolved body.
+         */
+        private final Node[] body;
+
+        /**
+         * Number of nodes.
+         */
+        private final int size;
+
+        /**
+         * Constructor.
+         *
+         * @param name
+         *            name of the program
+         * @param body
+         *            the resolved body
+         * @param size
+         *            number of nodes
+         */
+        private Code(String name, Node[] body, int size) {
+            this.name = name;
+            this.body = body;
+            this.size = size;
+        }
+
+        /**
+         * Reports the name of the program.
+         *
+         * @return the name
+         */
+        public String name() {
+            return this.name;
+        }
+
+        /**
+         * Reports the number of resolved statements, those of each
+         * user-defined instruction counted once.
+         *
+         * @return the number of statements
+         */
+        public int size() {
+            return this.size;
+        }
+
+    }
+
+    /**
+     * A block being resolved: the nodes of its statements so far, and what is
+     * needed to resolve the statement it belongs to once it is complete.
+     */
+    private static final class Level {
+
+        /**
+         * Opcode of the statement the block belongs to, or CALL for the
+         * outermost block.
+         */
+        private final int op;
+
+        /**
+         * Condition of the statement, or null.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * Nodes of the statements of the block.
+         */
+        private Node[] nodes;
+
+        /**
+         * Number of entries of {@code nodes} filled in.
+         */
+        private int length;
+
+        /**
+         * Nodes of the THEN block of an IF_ELSE statement, once complete.
+         */
+        private Node[] thenBlock;
+
+        /**
+         * Constructor.
+         *
+         * @param op
+         *            opcode of the statement
+         * @param condition
+         *            condition of the statement, or null
+         * @param length
+         *            number of statements in the block
+         */
+        Level(int op, Statement.Condition condition, int length) {
+            this.op = op;
+            this.condition = condition;
+            this.nodes = new Node[length];
+            this.length = 0;
+            this.thenBlock = null;
+        }
+
+    }
+
+    /**
+     * Resolver of the statements of one program. Blocks are resolved by a
+     * walk that keeps the open blocks on an explicit stack, so statements may
+     * be nested as deeply as the parser allows.
+     */
+    private static final class Resolver
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * The user-defined instructions, with bodies not yet resolved.
+         */
+        private final HashMap<String, Node> instructions = new HashMap<>();
+
+        /**
+         * The blocks being resolved, the outermost first.
+         */
+        private final ArrayList<Level> open = new ArrayList<>();
+
+        /**
+         * Number of nodes resolved.
+         */
+        private int size = 0;
+
+        /**
+         * Resolves the block {@code s}.
+         *
+         * @param s
+         *            the block
+         * @return the resolved statements of s
+         * @restores s
+         */
+        Node[] block(Statement s) {
+            this.open.clear();
+            this.open.add(new Level(CALL, null, s.lengthOfBlock()));
+            StatementWalker.walk(s, this);
+            return this.open.remove(0).nodes;
+        }
+
+        /**
+         * Records {@code n} as the next statement of the innermost open
+         * block.
+         *
+         * @param n
+         *            the resolved statement
+         */
+        private void add(Node n) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.nodes[top.length] = n;
+            top.length++;
+            this.size++;
+        }
+
+        @Override
+        public void call(String instruction) {
+            Integer primitive = PRIMITIVES.get(instruction);
+            Node node;
+            if (primitive != null) {
+                node = new Node(primitive, null, null, null, null);
+            } else {
+                Node target = this.instructions.get(instruction);
+                Reporter.assertElseFatalError(target != null,
+                        "Call of undefined instruction: " + instruction);
+                node = new Node(CALL, null, null, null, target);
+            }
+            this.add(node);
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            this.open.add(new Level(IF, condition, length));
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.open.add(new Level(IF_ELSE, condition, length));
+        }
+
+        @Override
+        public void beginElse(int length) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.thenBlock = top.nodes;
+            top.nodes = new Node[length];
+            top.length = 0;
+        }
+
+        @Override
+        public void endIf() {
+            Level top = this.open.remove(this.open.size() - 1);
+            if (top.op == IF) {
+                this.add(new Node(IF, top.condition, top.nodes, null, null));
+            } else {
+                this.add(new Node(IF_ELSE, top.condition, top.thenBlock,
+                        top.nodes, null));
+            }
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            this.open.add(new Level(WHILE, condition, length));
+        }
+
+        @Override
+        public void endWhile() {
+            Level top = this.open.remove(this.open.size() - 1);
+            this.add(new Node(WHILE, top.condition, top.nodes, null, null));
+        }
+
+    }
+
+    /**
+     * The program executed.
+     */
+    private final Code code;
+
+    /**
+     * Blocks being executed, outermost first.
+     */
+    private Node[][] blocks;
+
+    /**
+     * Index of the next statement of each block being executed.
+     */
+    private int[] next;
+
+    /**
+     * WHILE statement whose body each block is, or null.
+     */
+    private Node[] loops;
+
+    /**
+     * Number of blocks being executed.
+     */
+    private int depth;
+
+    /**
+     * Snapshot of the current turn, if sensed.
+     */
+    private int snapshot;
+
+    /**
+     * Whether the bug has been sensed in the current turn.
+     */
+    private boolean sensed;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; the new interpreter is at the start of the program.
+     *
+     * @param code
+     *            the program to execute
+     */
+    public Interpreter(Code code) {
+        assert code != null : "Violation of: code is not null";
+        this.code = code;
+        this.blocks = new Node[INITIAL_DEPTH][];
+        this.next = new int[INITIAL_DEPTH];
+        this.loops = new Node[INITIAL_DEPTH];
+        this.reset();
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Starts executing {@code block}.
+     *
+     * @param block
+     *            the block
+     * @param loop
+     *            the WHILE statement whose body block is, or null
+     */
+    private void push(Node[] block, Node loop) {
+        if (this.depth == this.blocks.length) {
+            int capacity = 2 * this.depth;
+            this.blocks = Arrays.copyOf(this.blocks, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.loops = Arrays.copyOf(this.loops, capacity);
+        }
+        this.blocks[this.depth] = block;
+        this.next[this.depth] = 0;
+        this.loops[this.depth] = loop;
+        this.depth++;
+    }
+
+    /**
+     * Evaluates the condition of {@code n}: with a mask test against the
+     * snapshot of the current turn if {@code sensing} is not null and the
+     * condition is not {@code random}, and by calling the one sensor of
+     * {@code bug} it reads otherwise; {@code true} reads no sensor.
+     *
+     * @param n
+     *            an IF, IF_ELSE, or WHILE statement
+     * @param bug
+     *            the bug sensing
+     * @param sensing
+     *            bug, if it is a SensingBug, or null
+     * @return whether the condition holds
+     * @updates this
+     */
+    private boolean test(Node n, Bug bug, SensingBug sensing) {
+        int reading = 0;
+        if (sensing == null || (n.condition & Sensors.RANDOM) != 0) {
+            reading = Sensors.read(bug, n.condition);
+        } else if ((n.condition & Sensors.SENSORS) != 0) {
+            if (!this.sensed) {
+                this.snapshot = sensing.sense();
+                this.sensed = true;
+            }
+            reading = this.snapshot;
+        }
+        return Sensors.holds(reading, n.condition);
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Resolves {@code p} for execution. p is restored even if it cannot be
+     * resolved.
+     *
+     * @param p
+     *            the program
+     * @return the resolved program
+     * @restores p
+     * @requires [every instruction called in p is primitive or defined in the
+     *           context of p]
+     */
+    public static Code resolve(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            Resolver resolver = new Resolver();
+            for (Map.Pair<String, Statement> pair : context) {
+                resolver.instructions.put(pair.key(),
+                        new Node(CALL, null, null, null, null));
+            }
+            for (Map.Pair<String, Statement> pair : context) {
+                resolver.instructions.get(pair.key()).block = resolver
+                        .block(pair.value());
+            }
+            Node[] nodes = resolver.block(body);
+            return new Code(p.name(), nodes, resolver.size);
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+    /**
+     * Reports the program executed.
+     *
+     * @return the program
+     */
+    public Code code() {
+        return this.code;
+    }
+
+    /**
+     * Moves {@code this} back to the start of the program.
+     */
+    public void reset() {
+        Arrays.fill(this.blocks, null);
+        Arrays.fill(this.loops, null);
+        this.depth = 0;
+        this.push(this.code.body, null);
+    }
+
+    /**
+     * Reports whether the body of the program has completed.
+     *
+     * @return true iff the body has completed
+     */
+    public boolean isDone() {
+        return this.depth == 0;
+    }
+
+    /**
+     * Executes the program on {@code bug} until {@code budget} turns have
+     * been taken or the body completes, whichever is first. A turn ends with
+     * a primitive instruction, or without one after {@code Bug.TURN_LIMIT}
+     * entries of WHILE bodies (the first entry of a {@code WHILE true} body
+     * excepted) and calls of user-defined instructions, so every call
+     * returns. A later call resumes where this one stopped.
+     *
+     * @param bug
+     *            the bug to drive
+     * @param budget
+     *            the largest number of turns to take
+     * @return the number of turns taken
+     * @requires budget >= 0
+     */
+    public int run(Bug bug, int budget) {
+        assert bug != null : "Violation of: bug is not null";
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        SensingBug sensing = null;
+        if (bug instanceof SensingBug) {
+            sensing = (SensingBug) bug;
+        }
+        this.sensed = false;
+        int steps = 0;
+        int jumps = 0;
+        while (steps < budget && this.depth > 0) {
+            if (jumps == Bug.TURN_LIMIT) {
+                /*
+                 * End the turn without a primitive instruction
+                 */
+                steps++;
+                jumps = 0;
+                this.sensed = false;
+                continue;
+            }
+            int top = this.depth - 1;
+            Node[] block = this.blocks[top];
+            int i = this.next[top];
+            if (i == block.length) {
+                /*
+                 * End of a block: loop again or return to the enclosing one
+                 */
+                Node loop = this.loops[top];
+                if (loop != null && this.test(loop, bug, sensing)) {
+                    this.next[top] = 0;
+                    jumps++;
+                } else {
+                    this.blocks[top] = null;
+                    this.loops[top] = null;
+                    this.depth = top;
+                }
+                continue;
+            }
+            Node n = block[i];
+            this.next[top] = i + 1;
+            switch (n.op) {
+                case MOVE:
+                    bug.move();
+                    steps++;
+                    jumps = 0;
+                    this.sensed = false;
+                    break;
+                case TURNLEFT:
+                    bug.turnLeft();
+                    steps++;
+                    jumps = 0;
+                    this.sensed = false;
+                    break;
+                case TURNRIGHT:
+                    bug.turnRight();
+                    steps++;
+                    jumps = 0;
+                    this.sensed = false;
+                    break;
+                case INFECT:
+                    bug.infect();
+                    steps++;
+                    jumps = 0;
+                    this.sensed = false;
+                    break;
+                case SKIP:
+                    bug.skip();
+                    steps++;
+                    jumps = 0;
+                    this.sensed = false;
+                    break;
+                case CALL:
+                    this.push(n.target.block, null);
+                    jumps++;
+                    break;
+                case IF:
+                    if (this.test(n, bug, sensing)) {
+                        this.push(n.block, null);
+                    }
+                    break;
+                case IF_ELSE:
+                    if (this.test(n, bug, sensing)) {
+                        this.push(n.block, null);
+                    } else {
+                        this.push(n.elseBlock, null);
+                    }
+                    break;
+                default:
+                    if (this.test(n, bug, sensing)) {
+                        this.push(n.block, n);
+                        if ((n.condition & Sensors.SENSORS) != 0) {
+                            /*
+                             * A jump back to the body, as in the code of
+                             * CodeGenerator; WHILE true falls into it
+                             */
+                            jumps++;
+                        }
+                    }
+                    break;
+            }
+        }
+        return steps;
+    }
+
+}
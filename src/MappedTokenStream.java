@@ -0,0 +1,563 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenStream} that lexes a BL source file in place through a
+ * memory-mapped {@code FileChannel}.
+ *
+ * <p>
+ * The file is scanned as ASCII bytes and each token is recognized as an
+ * (offset, length, kind) triple without copying it out of the mapping.
+ * Content already in memory can be lexed the same way from a byte array.
+ * Keywords and conditions are matched against a table of their canonical
+ * {@code String}s, and identifiers are interned in the same table the first
+ * time they are seen, so the only {@code String}s allocated while lexing a
+ * valid program are one per distinct identifier.
+ *
+ * <p>
+ * Tokens are separated by ASCII whitespace, as defined by
+ * {@code TokenKind.isSeparator}, and a {@code #} starts a comment that runs to
+ * the end of the line, exactly as in {@code ReaderTokenStream}. Files larger
+ * than the mapping window are mapped one window at a time.
+ *
+ * <p>
+ * A file that cannot be opened, mapped, or closed is reported with an
+ * {@code UncheckedIOException}, since {@code TokenStream} methods cannot throw
+ * {@code IOException}; callers that read many files can catch it and go on.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class MappedTokenStream implements TokenStream, AutoCloseable {
+
+    /**
+     * Largest number of bytes mapped at once.
+     */
+    private static final int WINDOW = 1 << 30;
+
+    /**
+     * Initial number of slots in the intern table; always a power of 2.
+     */
+    private static final int INITIAL_SLOTS = 64;
+
+    /**
+     * Byte that starts a comment.
+     */
+    private static final byte COMMENT = '#';
+
+    /**
+     * Byte that ends a comment.
+     */
+    private static final byte NEWLINE = '\n';
+
+    /**
+     * The channel being read, or null if the content is held in memory.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Size of the file in bytes.
+     */
+    private final long size;
+
+    /**
+     * The mapped window of the file.
+     */
+    private ByteBuffer window;
+
+    /**
+     * File offset of the first byte of {@code window}.
+     */
+    private long base;
+
+    /**
+     * Offset in {@code window} of the first byte not yet scanned.
+     */
+    private int pos;
+
+    /**
+     * Number of newlines before {@code pos}.
+     */
+    private int newlines;
+
+    /**
+     * File offset of the first byte of the line containing {@code pos}.
+     */
+    private long lineStart;
+
+    /**
+     * File offset of the front token.
+     */
+    private long frontOffset;
+
+    /**
+     * Length in bytes of the front token.
+     */
+    private int frontLength;
+
+    /**
+     * Index of the front token in the whole token string.
+     */
+    private int frontIndex;
+
+    /**
+     * Line of the front token.
+     */
+    private int frontLine;
+
+    /**
+     * Kind of the front token.
+     */
+    private TokenKind frontKind;
+
+    /**
+     * Canonical text of the front token, or {@code null} if it is an
+     * {@code ERROR} token whose text has not been asked for.
+     */
+    private String frontText;
+
+    /**
+     * Open-addressing intern table of token texts, indexed by
+     * {@code String.hashCode} of the text.
+     */
+    private String[] texts;
+
+    /**
+     * Kinds of the entries of {@code texts}.
+     */
+    private TokenKind[] kinds;
+
+    /**
+     * Number of entries in {@code texts}.
+     */
+    private int count;
+
+    /**
+     * Constructor from a file name.
+     *
+     * @param fileName
+     *            the name of the BL source file to lex
+     * @throws UncheckedIOException
+     *             if the file cannot be opened or mapped
+     * @ensures [this is the token string of the file named fileName followed
+     *          by Tokenizer.END_OF_INPUT]
+     */
+    public MappedTokenStream(String fileName) {
+        assert fileName != null : "Violation of: fileName is not null";
+        FileChannel ch = null;
+        long sz = 0;
+        try {
+            ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+            sz = ch.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(
+                    "Cannot read file: " + fileName + " (" + e.getMessage()
+                            + ")",
+                    e);
+        }
+        this.channel = ch;
+        this.size = sz;
+        this.initialize();
+        try {
+            this.map(0);
+        } catch (UncheckedIOException e) {
+            try {
+                ch.close();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+        this.advance();
+    }
+
+    /**
+     * Constructor from the content of a source file already in memory.
+     *
+     * @param content
+     *            the BL source text, in ASCII or UTF-8
+     * @ensures [this is the token string of content followed by
+     *          Tokenizer.END_OF_INPUT]
+     */
+    public MappedTokenStream(byte[] content) {
+        assert content != null : "Violation of: content is not null";
+        this.channel = null;
+        this.size = content.length;
+        this.initialize();
+        this.base = 0;
+        this.pos = 0;
+        this.window = ByteBuffer.wrap(content);
+        ParseMetrics.read(content.length);
+        this.advance();
+    }
+
+    /**
+     * Fills the intern table with the keywords and conditions, and sets the
+     * scan to the start of the input.
+     *
+     * @updates this
+     */
+    private void initialize() {
+        this.texts = new String[INITIAL_SLOTS];
+        this.kinds = new TokenKind[INITIAL_SLOTS];
+        this.count = 0;
+        for (TokenKind k : TokenKind.values()) {
+            if (k.isKeyword()) {
+                this.insert(k.name(), k);
+            }
+        }
+        for (String c : TokenKind.CONDITION_TEXTS) {
+            this.insert(c, TokenKind.CONDITION);
+        }
+        this.newlines = 0;
+        this.lineStart = 0;
+        this.frontIndex = 0;
+    }
+
+    /**
+     * Maps the window of the file starting at file offset {@code offset}.
+     *
+     * @param offset
+     *            the file offset of the new window
+     * @updates this
+     */
+    private void map(long offset) {
+        this.base = offset;
+        this.pos = 0;
+        long length = Math.min(WINDOW, this.size - offset);
+        try {
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset, length);
+            ParseMetrics.read(length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(
+                    "Cannot map file (" + e.getMessage() + ")", e);
+        }
+    }
+
+    /**
+     * Reports whether the whole file has been mapped up to the end of the
+     * current window.
+     *
+     * @return true iff the current window ends at the end of the file
+     */
+    private boolean lastWindow() {
+        return this.base + this.window.limit() == this.size;
+    }
+
+    /**
+     * Reports whether {@code b} may start an identifier.
+     *
+     * @param b
+     *            the byte to check
+     * @return true iff b is an ASCII letter
+     */
+    private static boolean isIdentifierStart(byte b) {
+        return ('a' <= b && b <= 'z') || ('A' <= b && b <= 'Z');
+    }
+
+    /**
+     * Reports whether {@code b} may appear after the first byte of an
+     * identifier.
+     *
+     * @param b
+     *            the byte to check
+     * @return true iff b is an ASCII letter, an ASCII digit, or '-'
+     */
+    private static boolean isIdentifierPart(byte b) {
+        return isIdentifierStart(b) || ('0' <= b && b <= '9') || b == '-';
+    }
+
+    /**
+     * Scans the next token of the file into the front of {@code this}.
+     *
+     * @updates this
+     */
+    private void advance() {
+        ByteBuffer w = this.window;
+        int limit = w.limit();
+        int p = this.pos;
+        while (true) {
+            /*
+             * Skip whitespace and comments
+             */
+            while (p < limit) {
+                byte b = w.get(p);
+                if (b == COMMENT) {
+                    int comment = p;
+                    while (p < limit && w.get(p) != NEWLINE) {
+                        p++;
+                    }
+                    if (p == limit && !this.lastWindow() && comment > 0) {
+                        /*
+                         * Comment may continue past the window; remap from
+                         * its start
+                         */
+                        this.map(this.base + comment);
+                        w = this.window;
+                        limit = w.limit();
+                        p = 0;
+                    }
+                } else if (b == NEWLINE) {
+                    p++;
+                    this.newlines++;
+                    this.lineStart = this.base + p;
+                } else if (TokenKind.isSeparator(b)) {
+                    p++;
+                } else {
+                    break;
+                }
+            }
+            if (p == limit) {
+                if (this.lastWindow()) {
+                    this.pos = p;
+                    this.frontOffset = this.size;
+                    this.frontLength = 0;
+                    this.frontLine = this.newlines + 1;
+                    this.frontKind = TokenKind.END_OF_INPUT;
+                    this.frontText = Tokenizer.END_OF_INPUT;
+                    return;
+                }
+                this.map(this.base + p);
+                w = this.window;
+                limit = w.limit();
+                p = 0;
+                continue;
+            }
+            /*
+             * Scan one token, hashing it as String.hashCode would
+             */
+            int start = p;
+            int hash = 0;
+            boolean identifier = isIdentifierStart(w.get(p));
+            while (p < limit) {
+                byte b = w.get(p);
+                if (b == COMMENT || TokenKind.isSeparator(b)) {
+                    break;
+                }
+                identifier = identifier && isIdentifierPart(b);
+                hash = 31 * hash + (b & 0xFF);
+                p++;
+            }
+            if (p == limit && !this.lastWindow() && start > 0) {
+                /*
+                 * Token may continue past the window; remap from its start
+                 */
+                this.map(this.base + start);
+                w = this.window;
+                limit = w.limit();
+                p = 0;
+                continue;
+            }
+            this.pos = p;
+            this.frontOffset = this.base + start;
+            this.frontLength = p - start;
+            this.frontLine = this.newlines + 1;
+            this.classify(start, hash, identifier);
+            return;
+        }
+    }
+
+    /**
+     * Sets the kind and text of the front token, whose bytes are at
+     * {@code start} in the current window and whose {@code String.hashCode}
+     * is {@code hash}.
+     *
+     * @param start
+     *            offset of the front token in the current window
+     * @param hash
+     *            hash code of the front token
+     * @param identifier
+     *            whether the front token is spelled like an identifier
+     * @updates this
+     */
+    private void classify(int start, int hash, boolean identifier) {
+        int mask = this.texts.length - 1;
+        int slot = hash & mask;
+        String text = this.texts[slot];
+        while (text != null) {
+            if (text.hashCode() == hash && this.matches(text, start)) {
+                this.frontKind = this.kinds[slot];
+                this.frontText = text;
+                return;
+            }
+            slot = (slot + 1) & mask;
+            text = this.texts[slot];
+        }
+        if (identifier) {
+            text = this.copy(start, this.frontLength);
+            this.insert(text, TokenKind.IDENTIFIER);
+            this.frontKind = TokenKind.IDENTIFIER;
+            this.frontText = text;
+        } else {
+            this.frontKind = TokenKind.ERROR;
+            this.frontText = null;
+        }
+    }
+
+    /**
+     * Reports whether the front token, at {@code start} in the current window,
+     * is spelled {@code text}.
+     *
+     * @param text
+     *            the text to compare with
+     * @param start
+     *            offset of the front token in the current window
+     * @return true iff the front token is spelled text
+     */
+    private boolean matches(String text, int start) {
+        int length = this.frontLength;
+        if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) != (this.window.get(start + i) & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies {@code length} bytes at {@code start} in the current window into
+     * a new {@code String}.
+     *
+     * @param start
+     *            offset of the first byte in the current window
+     * @param length
+     *            number of bytes to copy
+     * @return the bytes as a String
+     */
+    private String copy(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = this.window.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Adds {@code text} with kind {@code kind} to the intern table.
+     *
+     * @param text
+     *            the token text
+     * @param kind
+     *            the token kind
+     * @updates this
+     * @requires text is not in the intern table
+     */
+    private void insert(String text, TokenKind kind) {
+        if (2 * (this.count + 1) > this.texts.length) {
+            String[] oldTexts = this.texts;
+            TokenKind[] oldKinds = this.kinds;
+            this.texts = new String[2 * oldTexts.length];
+            this.kinds = new TokenKind[2 * oldTexts.length];
+            this.count = 0;
+            for (int i = 0; i < oldTexts.length; i++) {
+                if (oldTexts[i] != null) {
+                    this.insert(oldTexts[i], oldKinds[i]);
+                }
+            }
+        }
+        int mask = this.texts.length - 1;
+        int slot = text.hashCode() & mask;
+        while (this.texts[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        this.texts[slot] = text;
+        this.kinds[slot] = kind;
+        this.count++;
+    }
+
+    /**
+     * Reports the file offset of the front token.
+     *
+     * @return the byte offset of the front token in the file
+     * @ensures <pre>
+     * [frontOffset is the offset of the first byte of the front token, or the
+     *  size of the file if the front is Tokenizer.END_OF_INPUT]
+     * </pre>
+     */
+    public long frontOffset() {
+        return this.frontOffset;
+    }
+
+    /**
+     * Reports the length in bytes of the front token.
+     *
+     * @return the length of the front token
+     * @ensures <pre>
+     * [frontLength is the number of bytes in the front token, or 0 if the
+     *  front is Tokenizer.END_OF_INPUT]
+     * </pre>
+     */
+    public int frontLength() {
+        return this.frontLength;
+    }
+
+    @Override
+    public String front() {
+        if (this.frontText == null) {
+            /*
+             * Error tokens are only turned into Strings when asked for
+             */
+            this.frontText = this.copy(
+                    (int) (this.frontOffset - this.base), this.frontLength);
+        }
+        return this.frontText;
+    }
+
+    @Override
+    public TokenKind frontKind() {
+        return this.frontKind;
+    }
+
+    @Override
+    public int frontIndex() {
+        return this.frontIndex;
+    }
+
+    @Override
+    public int frontLine() {
+        return this.frontLine;
+    }
+
+    @Override
+    public int frontColumn() {
+        return (int) (this.frontOffset - this.lineStart) + 1;
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.front();
+        if (this.frontKind != TokenKind.END_OF_INPUT) {
+            this.frontIndex++;
+            this.advance();
+        }
+        return token;
+    }
+
+    /**
+     * Closes the file being read, if any.
+     */
+    @Override
+    public void close() {
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(
+                        "Cannot close file (" + e.getMessage() + ")", e);
+            }
+        }
+    }
+
+}
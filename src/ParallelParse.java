@@ -0,0 +1,319 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Parallel mode for {@code Program1Parse1}: parses the {@code INSTRUCTION}
+ * definitions of one BL program on the threads of a {@code ForkJoinPool}.
+ *
+ * <p>
+ * A pre-scan over the token kinds splits the tokens after the program header
+ * at each {@code INSTRUCTION} keyword, up to {@code BEGIN}: neither keyword
+ * can appear inside an instruction, so each piece holds one instruction and
+ * can be parsed on its own. The pieces are parsed in parallel, each with its
+ * own view of the tokens, and the results are then merged in order into the
+ * context, checking for duplicate names as the sequential parser does. The
+ * program body is parsed sequentially. The program and errors are exactly
+ * those of {@code Program1Parse1.parse(tokens, diagnostics)}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParallelParse {
+
+    /**
+     * Number of instructions below which a task parses its instructions
+     * itself instead of splitting them.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ParallelParse() {
+    }
+
+    /**
+     * Outcome of parsing one instruction.
+     */
+    private static final class Piece {
+
+        /**
+         * Index of the INSTRUCTION keyword.
+         */
+        private final int start;
+
+        /**
+         * Index of the next INSTRUCTION or BEGIN keyword, or of the end of
+         * input.
+         */
+        private final int limit;
+
+        /**
+         * The instruction body; empty until parsed.
+         */
+        private final Statement body;
+
+        /**
+         * Name of the instruction, or null after an error.
+         */
+        private String name;
+
+        /**
+         * Index of the token after the instruction, if parsed successfully.
+         */
+        private int end;
+
+        /**
+         * The error found, or null.
+         */
+        private Diagnostic error;
+
+        /**
+         * Constructor.
+         *
+         * @param start
+         *            index of the INSTRUCTION keyword
+         * @param limit
+         *            index of the keyword that ends the piece
+         * @param body
+         *            an empty instruction body
+         */
+        Piece(int start, int limit, Statement body) {
+            this.start = start;
+            this.limit = limit;
+            this.body = body;
+        }
+
+    }
+
+    /**
+     * Task that parses a range of pieces, splitting the range in half until
+     * it is small enough to parse sequentially.
+     */
+    private static final class ParseTask extends RecursiveAction {
+
+        /**
+         * Serialization version; tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tokens.
+         */
+        private final TokenArray tokens;
+
+        /**
+         * All pieces of the program.
+         */
+        private final Piece[] pieces;
+
+        /**
+         * First index of the range, inclusive.
+         */
+        private final int lo;
+
+        /**
+         * Last index of the range, exclusive.
+         */
+        private final int hi;
+
+        /**
+         * Constructor.
+         *
+         * @param tokens
+         *            the tokens
+         * @param pieces
+         *            all pieces of the program
+         * @param lo
+         *            first index of the range, inclusive
+         * @param hi
+         *            last index of the range, exclusive
+         */
+        ParseTask(TokenArray tokens, Piece[] pieces, int lo, int hi) {
+            this.tokens = tokens;
+            this.pieces = pieces;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.lo; i < this.hi; i++) {
+                    parsePiece(this.tokens, this.pieces[i]);
+                }
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new ParseTask(this.tokens, this.pieces, this.lo, mid),
+                        new ParseTask(this.tokens, this.pieces, mid, this.hi));
+            }
+        }
+
+    }
+
+    /**
+     * Parses the instruction of {@code piece}.
+     *
+     * @param tokens
+     *            the tokens
+     * @param piece
+     *            the piece to parse
+     * @updates piece
+     */
+    private static void parsePiece(TokenArray tokens, Piece piece) {
+        TokenStream view = tokens.view(piece.start);
+        Diagnostics diagnostics = new Diagnostics();
+        try {
+            piece.name = Program1Parse1.parseInstruction(view, piece.body,
+                    diagnostics);
+            piece.end = view.frontIndex();
+        } catch (Diagnostics.Abort e) {
+            piece.error = diagnostics.list().get(0);
+        }
+    }
+
+    /**
+     * Returns the index of the first token at or after {@code i} that is an
+     * INSTRUCTION or BEGIN keyword, or the end of input.
+     *
+     * @param tokens
+     *            the tokens
+     * @param i
+     *            the index to start from
+     * @return the index of the next boundary
+     */
+    private static int nextBoundary(TokenArray tokens, int i) {
+        int j = i;
+        TokenKind kind = tokens.kind(j);
+        while (kind != TokenKind.INSTRUCTION && kind != TokenKind.BEGIN
+                && kind != TokenKind.END_OF_INPUT) {
+            j++;
+            kind = tokens.kind(j);
+        }
+        return j;
+    }
+
+    /**
+     * Reports the error {@code d} to {@code diagnostics}, and carries on.
+     *
+     * @param diagnostics
+     *            where the error is reported
+     * @param d
+     *            the error
+     * @updates diagnostics
+     */
+    private static void record(Diagnostics diagnostics, Diagnostic d) {
+        try {
+            diagnostics.report(d.tokenIndex(), d.line(), d.column(),
+                    d.message());
+        } catch (Diagnostics.Abort e) {
+            /*
+             * Recorded; the caller carries on with the next instruction
+             */
+            return;
+        }
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code p}, parsing its
+     * instructions in parallel on {@code pool}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param p
+     *            the parsed program
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @param pool
+     *            the pool to parse on
+     * @updates p, tokens, diagnostics
+     * @ensures [p and diagnostics are as updated by
+     *          Program1Parse1.parseProgram(#tokens, #p, #diagnostics)]
+     */
+    public static void parse(TokenArray tokens, Program p,
+            Diagnostics diagnostics, ForkJoinPool pool) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert p != null : "Violation of: p is not null";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        int errorsBefore = diagnostics.size();
+        try {
+            String programName = Program1Parse1.parseHeader(tokens,
+                    diagnostics);
+            /*
+             * Split the instructions at their keywords, and parse them
+             */
+            int count = 0;
+            int i = tokens.frontIndex();
+            while (tokens.kind(i) == TokenKind.INSTRUCTION) {
+                count++;
+                i = nextBoundary(tokens, i + 1);
+            }
+            Piece[] pieces = new Piece[count];
+            i = tokens.frontIndex();
+            for (int k = 0; k < count; k++) {
+                int limit = nextBoundary(tokens, i + 1);
+                pieces[k] = new Piece(i, limit, p.newBody());
+                i = limit;
+            }
+            pool.invoke(new ParseTask(tokens, pieces, 0, count));
+            /*
+             * Merge the instructions in order, as the sequential parser
+             * would have found them
+             */
+            Map<String, Statement> ctxt = p.newContext();
+            for (Piece piece : pieces) {
+                boolean skipped = true;
+                if (piece.error != null) {
+                    record(diagnostics, piece.error);
+                } else if (ctxt.hasKey(piece.name)) {
+                    long position = tokens.position(piece.start);
+                    record(diagnostics, new Diagnostic(
+                            "More than one user-defined instruction has the same name: "
+                                    + piece.name,
+                            piece.start, TokenArray.lineOf(position),
+                            TokenArray.columnOf(position)));
+                } else {
+                    long added = ParseMetrics.start();
+                    ctxt.add(piece.name, piece.body);
+                    ParseMetrics.stop(ParseMetrics.Phase.CONTEXT, added);
+                    skipped = false;
+                }
+                if (!skipped && piece.end != piece.limit) {
+                    /*
+                     * Something other than an instruction follows it, where
+                     * the sequential parser expects INSTRUCTION or BEGIN; an
+                     * instruction with an error is skipped up to the limit
+                     */
+                    tokens.seek(piece.end);
+                    break;
+                }
+                tokens.seek(piece.limit);
+            }
+            diagnostics.check(tokens.frontKind() == TokenKind.BEGIN, tokens,
+                    "Missing keyword \"INSTRUCTION\" or \"BEGIN\"");
+            tokens.dequeue();
+            Statement body = p.newBody();
+            Statement1Parse1.parseBlock(tokens, body, diagnostics);
+            Program1Parse1.parseEnd(tokens, programName, diagnostics);
+            if (diagnostics.size() == errorsBefore) {
+                p.replaceContext(ctxt);
+                p.replaceBody(body);
+                p.replaceName(programName);
+            }
+        } catch (Diagnostics.Abort e) {
+            /*
+             * Error already recorded; p is left unchanged
+             */
+            assert diagnostics.size() > errorsBefore : ""
+                    + "Violation of: errors are recorded before aborting";
+        }
+    }
+
+}
@@ -0,0 +1,413 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import components.utilities.Reporter;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Optional timers and counters of the lexers and parsers.
+ *
+ * <p>
+ * Metrics are enabled by starting the JVM with {@code -Dbl.metrics=true}.
+ * Every call site is guarded by {@link #ENABLED}, a {@code static final}
+ * field that the JIT compiler treats as a constant, so when metrics are off
+ * the guarded code is removed and costs nothing. When they are on, each
+ * phase records a histogram of its times, the statement parser counts the
+ * statements it builds and their nesting depth, and the lexers count the
+ * characters they read. The metrics are published through the MXBean
+ * {@code bl:type=ParseMetrics}, and each timed phase emits a JFR event
+ * {@code bl.Parse} when recording is on.
+ *
+ * <p>
+ * Phases nest: the time of an instruction includes the time of its block,
+ * and the time of a program includes both. Only phases that complete
+ * without a syntax error are timed.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParseMetrics {
+
+    /**
+     * Timed phases.
+     */
+    public enum Phase {
+
+        /**
+         * Reading and tokenizing a whole input into a {@code TokenArray}.
+         */
+        LEX,
+
+        /**
+         * Parsing a program.
+         */
+        PROGRAM,
+
+        /**
+         * Parsing an instruction.
+         */
+        INSTRUCTION,
+
+        /**
+         * Adding an instruction to the context.
+         */
+        CONTEXT,
+
+        /**
+         * Parsing a block or a single statement.
+         */
+        BLOCK;
+
+    }
+
+    /**
+     * Whether metrics are recorded.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("bl.metrics");
+
+    /**
+     * Name of the MXBean.
+     */
+    public static final String OBJECT_NAME = "bl:type=ParseMetrics";
+
+    /**
+     * All phases, indexed by ordinal.
+     */
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Number of buckets of a histogram: one for 0, and one per bit length of
+     * a positive {@code long}.
+     */
+    private static final int BUCKETS = Long.SIZE;
+
+    /**
+     * Histograms of the phases, one after the other, indexed by ordinal.
+     */
+    private static final AtomicLongArray HISTOGRAMS = new AtomicLongArray(
+            PHASES.length * BUCKETS);
+
+    /**
+     * Total times of the phases, indexed by ordinal.
+     */
+    private static final AtomicLongArray TOTALS = new AtomicLongArray(
+            PHASES.length);
+
+    /**
+     * Number of IF and IF_ELSE statements.
+     */
+    private static final LongAdder IFS = new LongAdder();
+
+    /**
+     * Number of WHILE statements.
+     */
+    private static final LongAdder WHILES = new LongAdder();
+
+    /**
+     * Number of CALL statements.
+     */
+    private static final LongAdder CALLS = new LongAdder();
+
+    /**
+     * Greatest nesting depth.
+     */
+    private static final AtomicInteger MAX_DEPTH = new AtomicInteger();
+
+    /**
+     * Number of characters read.
+     */
+    private static final LongAdder BYTES_READ = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                Reporter.fatalErrorToConsole("Cannot register MXBean: "
+                        + OBJECT_NAME + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ParseMetrics() {
+    }
+
+    /**
+     * JFR event emitted for each timed phase.
+     */
+    @Name("bl.Parse")
+    @Label("BL Parse Phase")
+    @Category("BL")
+    @Description("A lexing or parsing phase of a BL program")
+    static final class ParseEvent extends Event {
+
+        /**
+         * Name of the phase.
+         */
+        @Label("Phase")
+        String phase;
+
+        /**
+         * Time of the phase.
+         */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+    }
+
+    /**
+     * The published MXBean; reads the static metrics.
+     */
+    private static final class Bean implements ParseMetricsMXBean {
+
+        @Override
+        public String[] getPhases() {
+            String[] names = new String[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                names[i] = PHASES[i].name();
+            }
+            return names;
+        }
+
+        @Override
+        public long getCount(String phase) {
+            return count(Phase.valueOf(phase));
+        }
+
+        @Override
+        public long getTotalNanos(String phase) {
+            return totalNanos(Phase.valueOf(phase));
+        }
+
+        @Override
+        public long[] getHistogram(String phase) {
+            return histogram(Phase.valueOf(phase));
+        }
+
+        @Override
+        public long getIfCount() {
+            return IFS.sum();
+        }
+
+        @Override
+        public long getWhileCount() {
+            return WHILES.sum();
+        }
+
+        @Override
+        public long getCallCount() {
+            return CALLS.sum();
+        }
+
+        @Override
+        public int getMaxDepth() {
+            return MAX_DEPTH.get();
+        }
+
+        @Override
+        public long getBytesRead() {
+            return BYTES_READ.sum();
+        }
+
+        @Override
+        public void reset() {
+            ParseMetrics.reset();
+        }
+
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Returns the histogram bucket of the time {@code nanos}.
+     *
+     * @param nanos
+     *            the time
+     * @return the bit length of nanos
+     * @requires nanos >= 0
+     * @ensures 2^(bucketOf-1) <= nanos < 2^bucketOf
+     */
+    static int bucketOf(long nanos) {
+        return Long.SIZE - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the start time of a phase.
+     *
+     * @return System.nanoTime(), or 0 if metrics are off
+     */
+    public static long start() {
+        long start = 0L;
+        if (ENABLED) {
+            start = System.nanoTime();
+        }
+        return start;
+    }
+
+    /**
+     * Records the end of {@code phase}, started at {@code start}.
+     *
+     * @param phase
+     *            the phase
+     * @param start
+     *            the start time, as returned by start()
+     */
+    public static void stop(Phase phase, long start) {
+        if (ENABLED) {
+            long elapsed = Math.max(System.nanoTime() - start, 0L);
+            int i = phase.ordinal();
+            HISTOGRAMS.incrementAndGet(i * BUCKETS + bucketOf(elapsed));
+            TOTALS.addAndGet(i, elapsed);
+            ParseEvent event = new ParseEvent();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.elapsed = elapsed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records statements parsed.
+     *
+     * @param ifs
+     *            the number of IF and IF_ELSE statements
+     * @param whiles
+     *            the number of WHILE statements
+     * @param calls
+     *            the number of CALL statements
+     * @param depth
+     *            their greatest nesting depth
+     */
+    public static void statements(int ifs, int whiles, int calls, int depth) {
+        if (ENABLED) {
+            IFS.add(ifs);
+            WHILES.add(whiles);
+            CALLS.add(calls);
+            MAX_DEPTH.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    /**
+     * Records characters read.
+     *
+     * @param n
+     *            the number of characters
+     */
+    public static void read(long n) {
+        if (ENABLED) {
+            BYTES_READ.add(n);
+        }
+    }
+
+    /**
+     * Returns the number of times {@code phase} completed.
+     *
+     * @param phase
+     *            the phase
+     * @return the count
+     */
+    public static long count(Phase phase) {
+        long count = 0;
+        int base = phase.ordinal() * BUCKETS;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += HISTOGRAMS.get(base + b);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total time spent in {@code phase}, in nanoseconds.
+     *
+     * @param phase
+     *            the phase
+     * @return the total time
+     */
+    public static long totalNanos(Phase phase) {
+        return TOTALS.get(phase.ordinal());
+    }
+
+    /**
+     * Returns the histogram of the times of {@code phase}.
+     *
+     * @param phase
+     *            the phase
+     * @return the histogram, as in ParseMetricsMXBean.getHistogram
+     */
+    public static long[] histogram(Phase phase) {
+        long[] histogram = new long[BUCKETS];
+        int base = phase.ordinal() * BUCKETS;
+        for (int b = 0; b < BUCKETS; b++) {
+            histogram[b] = HISTOGRAMS.get(base + b);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the numbers of IF and IF_ELSE, WHILE, and CALL statements
+     * parsed.
+     *
+     * @return the counts, in that order
+     */
+    public static long[] statementCounts() {
+        return new long[] { IFS.sum(), WHILES.sum(), CALLS.sum() };
+    }
+
+    /**
+     * Returns the greatest nesting depth of the statements parsed.
+     *
+     * @return the depth
+     */
+    public static int maxDepth() {
+        return MAX_DEPTH.get();
+    }
+
+    /**
+     * Returns the number of characters read by the lexers.
+     *
+     * @return the count
+     */
+    public static long bytesRead() {
+        return BYTES_READ.sum();
+    }
+
+    /**
+     * Resets all timers and counters to zero.
+     */
+    public static void reset() {
+        for (int i = 0; i < HISTOGRAMS.length(); i++) {
+            HISTOGRAMS.set(i, 0L);
+        }
+        for (int i = 0; i < TOTALS.length(); i++) {
+            TOTALS.set(i, 0L);
+        }
+        IFS.reset();
+        WHILES.reset();
+        CALLS.reset();
+        MAX_DEPTH.set(0);
+        BYTES_READ.reset();
+    }
+
+}
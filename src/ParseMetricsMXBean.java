@@ -0,0 +1,91 @@
+/**
+ * Management interface of {@code ParseMetrics}, published on the platform
+ * MBean server as {@code bl:type=ParseMetrics} when metrics are enabled.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public interface ParseMetricsMXBean {
+
+    /**
+     * Returns the names of the timed phases.
+     *
+     * @return the names, e.g., "BLOCK"
+     */
+    String[] getPhases();
+
+    /**
+     * Returns the number of times {@code phase} completed.
+     *
+     * @param phase
+     *            the name of the phase
+     * @return the count
+     * @requires [phase is one of getPhases()]
+     */
+    long getCount(String phase);
+
+    /**
+     * Returns the total time spent in {@code phase}, in nanoseconds.
+     *
+     * @param phase
+     *            the name of the phase
+     * @return the total time
+     * @requires [phase is one of getPhases()]
+     */
+    long getTotalNanos(String phase);
+
+    /**
+     * Returns the histogram of the times of {@code phase}: entry {@code i}
+     * counts the times t with {@code 2^(i-1) <= t < 2^i} nanoseconds (entry
+     * 0 counts times of 0).
+     *
+     * @param phase
+     *            the name of the phase
+     * @return the histogram
+     * @requires [phase is one of getPhases()]
+     */
+    long[] getHistogram(String phase);
+
+    /**
+     * Returns the number of IF and IF_ELSE statements parsed.
+     *
+     * @return the count
+     */
+    long getIfCount();
+
+    /**
+     * Returns the number of WHILE statements parsed.
+     *
+     * @return the count
+     */
+    long getWhileCount();
+
+    /**
+     * Returns the number of CALL statements parsed.
+     *
+     * @return the count
+     */
+    long getCallCount();
+
+    /**
+     * Returns the greatest nesting depth of the statements parsed.
+     *
+     * @return the depth
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns the number of characters read by the lexers (bytes, for
+     * {@code MappedTokenStream}).
+     *
+     * @return the count
+     */
+    long getBytesRead();
+
+    /**
+     * Resets all timers and counters to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,365 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.utilities.Reporter;
+
+/**
+ * Daemon mode for {@code Program1Parse1}: a parser kept resident and warmed
+ * up, serving parse requests over a Unix domain socket or a localhost TCP
+ * port, so that validating a file costs neither JVM start-up nor JIT
+ * warm-up.
+ *
+ * <p>
+ * Each client is served on its own thread, and may send any number of
+ * requests on one connection. All numbers are big-endian. A request is
+ *
+ * <pre>
+ * byte   format: 0 for diagnostics only, 1 for ProgramCodec bytes,
+ *                2 for a pretty print
+ * int    n, the length of the source
+ * byte[] n bytes of BL program text, in UTF-8
+ * </pre>
+ *
+ * and its response is
+ *
+ * <pre>
+ * int    d, the number of syntax errors
+ * d times:
+ *   int    line
+ *   int    column
+ *   int    k, the length of the message
+ *   byte[] k bytes of message, in UTF-8
+ * int    m, the length of the output (0 if d > 0 or format is 0)
+ * byte[] m bytes of output: ProgramCodec bytes, or the pretty print in UTF-8
+ * </pre>
+ *
+ * A response is built in full before any of it is sent, so a client never
+ * sees part of one. A request that is not well formed closes the connection.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParseServer implements AutoCloseable {
+
+    /**
+     * Format of a response with diagnostics only.
+     */
+    public static final byte DIAGNOSTICS = 0;
+
+    /**
+     * Format of a response with the program encoded by {@code ProgramCodec}.
+     */
+    public static final byte CODEC = 1;
+
+    /**
+     * Format of a response with the pretty-printed program.
+     */
+    public static final byte PRETTY_PRINT = 2;
+
+    /**
+     * Largest source accepted, in bytes.
+     */
+    public static final int MAX_SOURCE = 64 * 1024 * 1024;
+
+    /**
+     * Number of programs parsed to warm up the parser.
+     */
+    private static final int WARM_UP_PROGRAMS = 200;
+
+    /**
+     * Size of the stream buffers of a connection.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Pretty printer of each thread, reused across requests.
+     */
+    private static final ThreadLocal<PrettyPrinter> PRINTER = ThreadLocal
+            .withInitial(() -> new PrettyPrinter(BUFFER_SIZE));
+
+    /**
+     * The listening channel.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * The socket file, or null for TCP.
+     */
+    private final Path socketFile;
+
+    /**
+     * Threads serving the clients.
+     */
+    private final ExecutorService clients;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; listens at {@code address}: a port number for localhost
+     * TCP (0 for any free port), or else the path of a Unix domain socket.
+     *
+     * @param address
+     *            the port or socket path
+     * @throws IOException
+     *             if the address cannot be bound
+     */
+    public ParseServer(String address) throws IOException {
+        assert address != null : "Violation of: address is not null";
+
+        if (address.matches("[0-9]+")) {
+            this.socketFile = null;
+            this.server = ServerSocketChannel.open();
+            this.server.bind(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address)));
+        } else {
+            this.socketFile = Paths.get(address);
+            this.server = ServerSocketChannel
+                    .open(StandardProtocolFamily.UNIX);
+            this.server.bind(UnixDomainSocketAddress.of(this.socketFile));
+        }
+        this.clients = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ParseServer client");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the pretty print of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @return the pretty print, in UTF-8
+     * @throws IOException
+     *             never, as the printer keeps its output in memory
+     */
+    private static byte[] prettyPrint(Program p) throws IOException {
+        PrettyPrinter printer = PRINTER.get();
+        printer.reset();
+        printer.print(p);
+        ByteBuffer output = printer.output();
+        byte[] result = new byte[output.remaining()];
+        output.get(result);
+        return result;
+    }
+
+    /**
+     * Serves the requests of one client until it closes the connection or
+     * sends a request that is not well formed.
+     *
+     * @param client
+     *            the connection
+     */
+    private static void serve(SocketChannel client) {
+        try (SocketChannel c = client;
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Channels.newInputStream(c),
+                                BUFFER_SIZE));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(c),
+                                BUFFER_SIZE))) {
+            while (true) {
+                int format = in.read();
+                if (format < 0) {
+                    break;
+                }
+                int n = in.readInt();
+                if (format > PRETTY_PRINT || n < 0 || n > MAX_SOURCE) {
+                    break;
+                }
+                byte[] source = new byte[n];
+                in.readFully(source);
+                respond((byte) format, source, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            /*
+             * Connection lost or truncated request; nothing to answer
+             */
+            return;
+        }
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Parses {@code source} and writes the response in {@code format} to
+     * {@code out}.
+     *
+     * @param format
+     *            the format of the response
+     * @param source
+     *            the BL program text, in UTF-8
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if out cannot be written
+     * @updates out
+     * @requires format is DIAGNOSTICS, CODEC, or PRETTY_PRINT
+     */
+    static void respond(byte format, byte[] source, DataOutputStream out)
+            throws IOException {
+        IncrementalParser parser = new IncrementalParser(
+                new String(source, StandardCharsets.UTF_8));
+        List<Diagnostic> errors = parser.diagnostics();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream response = new DataOutputStream(buffer);
+        response.writeInt(errors.size());
+        for (Diagnostic d : errors) {
+            byte[] message = d.message().getBytes(StandardCharsets.UTF_8);
+            response.writeInt(d.line());
+            response.writeInt(d.column());
+            response.writeInt(message.length);
+            response.write(message);
+        }
+        byte[] output = new byte[0];
+        if (errors.isEmpty() && format != DIAGNOSTICS) {
+            Program p = new Program1Parse1();
+            parser.program(p);
+            if (format == CODEC) {
+                output = ProgramCodec.encode(p);
+            } else {
+                output = prettyPrint(p);
+            }
+        }
+        response.writeInt(output.length);
+        response.write(output);
+        buffer.writeTo(out);
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Parses generated programs until the parser is compiled by the JIT.
+     */
+    public static void warmUp() {
+        try {
+            StringWriter text = new StringWriter();
+            new ProgramGenerator(0, WARM_UP_PROGRAMS, 3, 3).generate(text);
+            byte[] source = text.toString().getBytes(StandardCharsets.UTF_8);
+            DataOutputStream sink = new DataOutputStream(
+                    OutputStream.nullOutputStream());
+            for (int i = 0; i < WARM_UP_PROGRAMS; i++) {
+                respond((byte) (i % (PRETTY_PRINT + 1)), source, sink);
+            }
+        } catch (IOException e) {
+            /*
+             * Warm-up is only an optimization
+             */
+            return;
+        }
+    }
+
+    /**
+     * Returns the address the server listens at.
+     *
+     * @return the address
+     * @throws IOException
+     *             if the server is closed
+     */
+    public SocketAddress address() throws IOException {
+        return this.server.getLocalAddress();
+    }
+
+    /**
+     * Accepts clients and serves each on its own thread, until
+     * {@code this} is closed.
+     *
+     * @throws IOException
+     *             if a client cannot be accepted
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel client = this.server.accept();
+                this.clients.execute(() -> serve(client));
+            }
+        } catch (ClosedChannelException e) {
+            /*
+             * Closed by close(); stop accepting
+             */
+            return;
+        }
+    }
+
+    /**
+     * Stops accepting clients and removes the socket file, if any.
+     * Connections already open are served until their clients close them.
+     *
+     * @throws IOException
+     *             if the socket file cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        this.server.close();
+        this.clients.shutdown();
+        if (this.socketFile != null) {
+            Files.deleteIfExists(this.socketFile);
+        }
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: the port or socket path
+     */
+    public static void main(String[] args) {
+        Reporter.assertElseFatalError(args.length == 1,
+                "Usage: ParseServer <port | socket path>");
+        warmUp();
+        try (ParseServer server = new ParseServer(args[0])) {
+            SimpleWriter out = new SimpleWriter1L();
+            out.println("Listening at " + server.address());
+            out.close();
+            server.serve();
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole(
+                    "Cannot serve at: " + args[0] + " (" + e.getMessage()
+                            + ")");
+        }
+    }
+
+}
@@ -0,0 +1,525 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Pretty printer writing the UTF-8 text of {@code Program}s and
+ * {@code Statement}s straight into a {@code ByteBuffer}, in the same layout
+ * as their {@code prettyPrint} methods, with lines ending in '\n'.
+ *
+ * <p>
+ * Keywords, with their spaces and line ends, and the heads of IF and WHILE
+ * lines for every condition, are encoded once into byte arrays, and
+ * indentation is copied from a slab of spaces, so printing makes no
+ * {@code String}s; names are encoded one character at a time. A printer
+ * either keeps its output in memory, in a buffer that grows as needed and is
+ * reused after {@code reset}, or drains a direct buffer of fixed capacity
+ * into a channel, such as a {@code FileChannel}, whenever it fills.
+ *
+ * <p>
+ * A printer is not safe for use by more than one thread at a time.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class PrettyPrinter {
+
+    /**
+     * Default capacity of the buffer, in bytes.
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * Smallest capacity of the buffer, in bytes; enough for any character.
+     */
+    public static final int MIN_CAPACITY = 16;
+
+    /**
+     * Spaces copied for indentation.
+     */
+    private static final byte[] SPACES = bytesOf(" ".repeat(256));
+
+    /**
+     * "PROGRAM ".
+     */
+    private static final byte[] PROGRAM = bytesOf("PROGRAM ");
+
+    /**
+     * " IS" and a line end.
+     */
+    private static final byte[] IS = bytesOf(" IS\n");
+
+    /**
+     * An empty line and the head of an instruction.
+     */
+    private static final byte[] INSTRUCTION = bytesOf("\n  INSTRUCTION ");
+
+    /**
+     * The indented end of an instruction.
+     */
+    private static final byte[] END_INSTRUCTION = bytesOf("  END ");
+
+    /**
+     * An empty line and "BEGIN".
+     */
+    private static final byte[] BEGIN = bytesOf("\nBEGIN\n");
+
+    /**
+     * "END ".
+     */
+    private static final byte[] END = bytesOf("END ");
+
+    /**
+     * "ELSE" and a line end.
+     */
+    private static final byte[] ELSE = bytesOf("ELSE\n");
+
+    /**
+     * "END IF" and a line end.
+     */
+    private static final byte[] END_IF = bytesOf("END IF\n");
+
+    /**
+     * "END WHILE" and a line end.
+     */
+    private static final byte[] END_WHILE = bytesOf("END WHILE\n");
+
+    /**
+     * "IF c THEN" and a line end, by ordinal of condition c.
+     */
+    private static final byte[][] IF = new byte[Statement.Condition
+            .values().length][];
+
+    /**
+     * "WHILE c DO" and a line end, by ordinal of condition c.
+     */
+    private static final byte[][] WHILE = new byte[Statement.Condition
+            .values().length][];
+
+    static {
+        for (Statement.Condition c : Statement.Condition.values()) {
+            String condition = c.name().toLowerCase().replace('_', '-');
+            IF[c.ordinal()] = bytesOf("IF " + condition + " THEN\n");
+            WHILE[c.ordinal()] = bytesOf("WHILE " + condition + " DO\n");
+        }
+    }
+
+    /**
+     * The buffer, in write mode.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The channel the buffer is drained into, or null to keep the output in
+     * memory.
+     */
+    private final WritableByteChannel channel;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor for a printer keeping its output in memory, starting with
+     * a buffer of {@code capacity} bytes.
+     *
+     * @param capacity
+     *            the initial capacity
+     * @requires capacity >= MIN_CAPACITY
+     */
+    public PrettyPrinter(int capacity) {
+        assert capacity >= MIN_CAPACITY : "Violation of: "
+                + "capacity >= MIN_CAPACITY";
+
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.channel = null;
+    }
+
+    /**
+     * Constructor for a printer writing into {@code channel} through a
+     * direct buffer of {@code capacity} bytes.
+     *
+     * @param channel
+     *            the channel
+     * @param capacity
+     *            the capacity
+     * @requires channel is open and capacity >= MIN_CAPACITY
+     */
+    public PrettyPrinter(WritableByteChannel channel, int capacity) {
+        assert channel != null : "Violation of: channel is not null";
+        assert capacity >= MIN_CAPACITY : "Violation of: "
+                + "capacity >= MIN_CAPACITY";
+
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.channel = channel;
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the UTF-8 encoding of {@code s}.
+     *
+     * @param s
+     *            the string
+     * @return the encoding
+     */
+    private static byte[] bytesOf(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room in the buffer: drains it into the channel, or else doubles
+     * its capacity.
+     *
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    private void drain() throws IOException {
+        if (this.channel != null) {
+            this.flush();
+        } else {
+            ByteBuffer larger = ByteBuffer
+                    .allocate(2 * this.buffer.capacity());
+            this.buffer.flip();
+            larger.put(this.buffer);
+            this.buffer = larger;
+        }
+    }
+
+    /**
+     * Writes {@code length} bytes of {@code bytes}.
+     *
+     * @param bytes
+     *            the bytes
+     * @param length
+     *            the number of bytes
+     * @throws IOException
+     *             if the channel cannot be written
+     * @requires length <= |bytes|
+     */
+    private void put(byte[] bytes, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            if (!this.buffer.hasRemaining()) {
+                this.drain();
+            }
+            int n = Math.min(length - done, this.buffer.remaining());
+            this.buffer.put(bytes, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Writes {@code bytes}.
+     *
+     * @param bytes
+     *            the bytes
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    private void put(byte[] bytes) throws IOException {
+        this.put(bytes, bytes.length);
+    }
+
+    /**
+     * Writes {@code offset} spaces.
+     *
+     * @param offset
+     *            the number of spaces
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    private void indent(int offset) throws IOException {
+        int left = offset;
+        while (left > 0) {
+            int n = Math.min(left, SPACES.length);
+            this.put(SPACES, n);
+            left -= n;
+        }
+    }
+
+    /**
+     * Writes the UTF-8 encoding of {@code name}.
+     *
+     * @param name
+     *            the name
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    private void putName(String name) throws IOException {
+        final int longest = 4;
+        for (int i = 0; i < name.length(); i++) {
+            if (this.buffer.remaining() < longest) {
+                this.drain();
+            }
+            int c = name.codePointAt(i);
+            if (c < 0x80) {
+                this.buffer.put((byte) c);
+            } else if (c < 0x800) {
+                this.buffer.put((byte) (0xc0 | (c >>> 6)));
+                this.buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else if (c < 0x10000) {
+                this.buffer.put((byte) (0xe0 | (c >>> 12)));
+                this.buffer.put((byte) (0x80 | ((c >>> 6) & 0x3f)));
+                this.buffer.put((byte) (0x80 | (c & 0x3f)));
+            } else {
+                this.buffer.put((byte) (0xf0 | (c >>> 18)));
+                this.buffer.put((byte) (0x80 | ((c >>> 12) & 0x3f)));
+                this.buffer.put((byte) (0x80 | ((c >>> 6) & 0x3f)));
+                this.buffer.put((byte) (0x80 | (c & 0x3f)));
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Visitor writing the statements of a walk, each indented by the depth
+     * of its nesting.
+     */
+    private final class Writer
+            implements StatementWalker.Visitor<IOException> {
+
+        /**
+         * Indentation added by each level of nesting.
+         */
+        private static final int STEP = 4;
+
+        /**
+         * Indentation of the statements of the innermost open block.
+         */
+        private int offset;
+
+        /**
+         * Constructor.
+         *
+         * @param offset
+         *            indentation of the outermost statements
+         */
+        Writer(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public void call(String instruction) throws IOException {
+            PrettyPrinter.this.indent(this.offset);
+            PrettyPrinter.this.putName(instruction);
+            PrettyPrinter.this.newLine();
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length)
+                throws IOException {
+            PrettyPrinter.this.indent(this.offset);
+            PrettyPrinter.this.put(IF[condition.ordinal()]);
+            this.offset += STEP;
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length)
+                throws IOException {
+            this.beginIf(condition, length);
+        }
+
+        @Override
+        public void beginElse(int length) throws IOException {
+            PrettyPrinter.this.indent(this.offset - STEP);
+            PrettyPrinter.this.put(ELSE);
+        }
+
+        @Override
+        public void endIf() throws IOException {
+            this.offset -= STEP;
+            PrettyPrinter.this.indent(this.offset);
+            PrettyPrinter.this.put(END_IF);
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length)
+                throws IOException {
+            PrettyPrinter.this.indent(this.offset);
+            PrettyPrinter.this.put(WHILE[condition.ordinal()]);
+            this.offset += STEP;
+        }
+
+        @Override
+        public void endWhile() throws IOException {
+            this.offset -= STEP;
+            PrettyPrinter.this.indent(this.offset);
+            PrettyPrinter.this.put(END_WHILE);
+        }
+
+    }
+
+    /**
+     * Writes {@code s}, indented by {@code offset} spaces. The walk keeps
+     * its open statements on an explicit stack, so s may be nested as deeply
+     * as the parser allows.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the indentation
+     * @throws IOException
+     *             if the channel cannot be written
+     * @restores s
+     */
+    private void write(Statement s, int offset) throws IOException {
+        StatementWalker.walk(s, new Writer(offset));
+    }
+
+    /**
+     * Writes a line end.
+     *
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    private void newLine() throws IOException {
+        if (!this.buffer.hasRemaining()) {
+            this.drain();
+        }
+        this.buffer.put((byte) '\n');
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Writes {@code p}.
+     *
+     * @param p
+     *            the program
+     * @throws IOException
+     *             if the channel cannot be written
+     * @restores p
+     */
+    public void print(Program p) throws IOException {
+        assert p != null : "Violation of: p is not null";
+
+        final int instructionOffset = 4;
+        final int bodyOffset = 2;
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            this.put(PROGRAM);
+            this.putName(p.name());
+            this.put(IS);
+            for (Map.Pair<String, Statement> pair : context) {
+                this.put(INSTRUCTION);
+                this.putName(pair.key());
+                this.put(IS);
+                this.write(pair.value(), instructionOffset);
+                this.put(END_INSTRUCTION);
+                this.putName(pair.key());
+                this.newLine();
+            }
+            this.put(BEGIN);
+            this.write(body, bodyOffset);
+            this.put(END);
+            this.putName(p.name());
+            this.newLine();
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+    /**
+     * Writes {@code s}, indented by {@code offset} spaces.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the indentation
+     * @throws IOException
+     *             if the channel cannot be written
+     * @restores s
+     * @requires offset >= 0
+     */
+    public void print(Statement s, int offset) throws IOException {
+        assert s != null : "Violation of: s is not null";
+        assert offset >= 0 : "Violation of: offset >= 0";
+
+        this.write(s, offset);
+    }
+
+    /**
+     * Writes everything in the buffer into the channel, leaving the buffer
+     * empty; does nothing if this keeps its output in memory.
+     *
+     * @throws IOException
+     *             if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        if (this.channel != null) {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+
+    /**
+     * Returns a read-only view of the output so far, from its first byte to
+     * its last; valid until the next call of a method of this.
+     *
+     * @return the output
+     * @requires [this keeps its output in memory]
+     */
+    public ByteBuffer output() {
+        assert this.channel == null : "Violation of: "
+                + "[this keeps its output in memory]";
+        return this.buffer.asReadOnlyBuffer().flip();
+    }
+
+    /**
+     * Discards the output so far, keeping the buffer for reuse.
+     */
+    public void reset() {
+        this.buffer.clear();
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Pretty prints the BL program in the file named by {@code args[0]} into
+     * the file named by {@code args[1]}.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        Reporter.assertElseFatalError(args.length == 2,
+                "Usage: PrettyPrinter input.bl output.bl");
+        Program1Parse1 p = new Program1Parse1();
+        MappedTokenStream in = new MappedTokenStream(args[0]);
+        p.parse(in);
+        in.close();
+        try (FileChannel out = FileChannel.open(Paths.get(args[1]),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            PrettyPrinter printer = new PrettyPrinter(out, DEFAULT_CAPACITY);
+            printer.print(p);
+            printer.flush();
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole(
+                    "Cannot write " + args[1] + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -7,8 +7,6 @@ import components.simplereader.SimpleReader1L;
 import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 import components.statement.Statement;
-import components.utilities.Reporter;
-import components.utilities.Tokenizer;
 
 /**
  * Layered implementation of secondary method {@code parse} for {@code Program}.
@@ -23,6 +21,34 @@ public final class Program1Parse1 extends Program1 {
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * Reports whether {@code name} is the name of a primitive BL instruction.
+     *
+     * @param name
+     *            the name to check
+     * @return true iff name is one of the primitive instruction names
+     * @ensures <pre>
+     * isPrimitiveInstruction =
+     *   name is in {"move", "turnleft", "turnright", "infect", "skip"}
+     * </pre>
+     */
+    private static boolean isPrimitiveInstruction(String name) {
+        switch (name) {
+            case "move":
+            case "turnleft":
+            case "turnright":
+            case "infect":
+            case "skip":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
     /**
      * Parses a single BL instruction from {@code tokens} returning the
      * instruction name as the value of the function and the body of the
@@ -32,6 +58,8 @@ public final class Program1Parse1 extends Program1 {
      *            the input tokens
      * @param body
      *            the instruction body
+     * @param diagnostics
+     *            where syntax errors are reported
      * @return the instruction name
      * @replaces body
      * @updates tokens
@@ -45,62 +73,304 @@ public final class Program1Parse1 extends Program1 {
      *          instruction at start of #tokens]  and
      *  #tokens = [instruction string at start of #tokens] * tokens
      * else
-     *  [reports an appropriate error message to the console and terminates client]
+     *  [reports an appropriate error message to diagnostics]
+     *          </pre>
+     */
+    static String parseInstruction(TokenStream tokens,
+            Statement body, Diagnostics diagnostics) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert body != null : "Violation of: body is not null";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+
+        StatementBuilder b = Statement1Parse1.builderFor(body, true);
+        String nameOfInstr = parseInstruction(tokens, b, diagnostics);
+        b.finish();
+        return nameOfInstr;
+    }
+
+    /**
+     * Parses a single BL instruction from {@code tokens} returning the
+     * instruction name as the value of the function and passing the
+     * statements of its body to {@code body}, which is not finished.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param body
+     *            receives the statements of the instruction body
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @return the instruction name
+     * @updates tokens, body
+     * @requires [<"INSTRUCTION"> is a proper prefix of tokens]
+     * @ensures
+     *
+     *          <pre>
+     * if [an instruction string is a proper prefix of #tokens] then
+     *  parseInstruction = [name of instruction at start of #tokens]  and
+     *  body = #body * [Statements corresponding to statement string of body
+     *          of instruction at start of #tokens]  and
+     *  #tokens = [instruction string at start of #tokens] * tokens
+     * else
+     *  [reports an appropriate error message to diagnostics]
      *          </pre>
      */
-    private static String parseInstruction(Queue<String> tokens,
-            Statement body) {
+    static String parseInstruction(TokenStream tokens,
+            StatementBuilder body, Diagnostics diagnostics) {
         assert tokens != null : "Violation of: tokens is not null";
         assert body != null : "Violation of: body is not null";
-        assert tokens.length() > 0 && tokens.front().equals("INSTRUCTION") : ""
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+        assert tokens.frontKind() == TokenKind.INSTRUCTION : ""
                 + "Violation of: <\"INSTRUCTION\"> is proper prefix of tokens";
+        long start = ParseMetrics.start();
         /*
          * Removing keyword INSTRUCTION from tokens
          */
         tokens.dequeue();
-        /*
-         * Removing the name of the instruction
-         */
-        String nameOfInstr = tokens.dequeue();
         /*
          * Checking if the name of the instruction is an identifier and is not
          * the same as a primitive instruction
          */
-        Reporter.assertElseFatalError(Tokenizer.isIdentifier(nameOfInstr),
-                "Name of instruction is not a valid identifier: "
-                        + nameOfInstr);
-        Reporter.assertElseFatalError(
-                !(nameOfInstr.equals("move") || nameOfInstr.equals("turnright")
-                        || nameOfInstr.equals("turnleft")
-                        || nameOfInstr.equals("skip")
-                        || nameOfInstr.equals("infect")),
-                "Cannot redefine primitive instruction: " + nameOfInstr);
+        if (tokens.frontKind() != TokenKind.IDENTIFIER) {
+            diagnostics.report(tokens,
+                    "Name of instruction is not a valid identifier: "
+                            + tokens.front());
+        }
+        if (isPrimitiveInstruction(tokens.front())) {
+            diagnostics.report(tokens,
+                    "Cannot redefine primitive instruction: "
+                            + tokens.front());
+        }
+        /*
+         * Removing the name of the instruction
+         */
+        String nameOfInstr = tokens.dequeue();
         /*
          * Checking if name is followed by keyword IS
          */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("IS"),
-                "Keyword \"IS\" should follow name of the instruction: "
-                        + nameOfInstr);
+        if (tokens.frontKind() != TokenKind.IS) {
+            diagnostics.report(tokens,
+                    "Keyword \"IS\" should follow name of the instruction: "
+                            + nameOfInstr);
+        }
+        tokens.dequeue();
         /*
          * Parsing the instruction body
          */
-        body.parseBlock(tokens);
+        Statement1Parse1.parseBlock(tokens, body, diagnostics);
         /*
          * Checking if the instruction body is followed by keyword END
          */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("END"),
-                "Keyword \"END\" missing at the end of instruction: "
-                        + nameOfInstr);
+        if (tokens.frontKind() != TokenKind.END) {
+            diagnostics.report(tokens,
+                    "Keyword \"END\" missing at the end of instruction: "
+                            + nameOfInstr);
+        }
+        tokens.dequeue();
         /*
          * Checking if keyword END is followed by the name of the instruction
          */
-        Reporter.assertElseFatalError(tokens.dequeue().equals(nameOfInstr),
-                "Name of instruction at the end does not match name of instruction at the beginning: "
-                        + nameOfInstr);
+        if (!tokens.front().equals(nameOfInstr)) {
+            diagnostics.report(tokens,
+                    "Name of instruction at the end does not match name of instruction at the beginning: "
+                            + nameOfInstr);
+        }
+        tokens.dequeue();
 
+        ParseMetrics.stop(ParseMetrics.Phase.INSTRUCTION, start);
         return nameOfInstr;
     }
 
+    /**
+     * Discards tokens from the front of {@code tokens} up to the start of the
+     * next instruction or of the program body, so that parsing can resume
+     * after an error.
+     *
+     * @param tokens
+     *            the input tokens
+     * @updates tokens
+     * @ensures <pre>
+     * #tokens = [discarded tokens] * tokens  and
+     * [the front of tokens is "INSTRUCTION", "BEGIN", or
+     *  Tokenizer.END_OF_INPUT, and no discarded token is]
+     * </pre>
+     */
+    static void skipToInstructionOrBegin(TokenStream tokens) {
+        TokenKind kind = tokens.frontKind();
+        while (kind != TokenKind.INSTRUCTION && kind != TokenKind.BEGIN
+                && kind != TokenKind.END_OF_INPUT) {
+            tokens.dequeue();
+            kind = tokens.frontKind();
+        }
+    }
+
+    /**
+     * Parses the header {@code PROGRAM name IS} of a BL program from
+     * {@code tokens}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @return the program name
+     * @updates tokens
+     * @ensures <pre>
+     * if [a program header is a prefix of #tokens] then
+     *  parseHeader = [name of the program]  and
+     *  #tokens = [program header] * tokens
+     * else
+     *  [reports an appropriate error message to diagnostics]
+     * </pre>
+     */
+    static String parseHeader(TokenStream tokens, Diagnostics diagnostics) {
+        /*
+         * Checking if the program starts with keyword PROGRAM
+         */
+        diagnostics.check(tokens.frontKind() == TokenKind.PROGRAM, tokens,
+                "Keyword PROGRAM missing");
+        tokens.dequeue();
+        /*
+         * Removing program name and checking it is an identifier
+         */
+        diagnostics.check(tokens.frontKind() == TokenKind.IDENTIFIER, tokens,
+                "Program name is not an identifier");
+        String programName = tokens.dequeue();
+        /*
+         * Checking if program name is followed by keyword IS
+         */
+        diagnostics.check(tokens.frontKind() == TokenKind.IS, tokens,
+                "Keyword \"IS\" missing after program name");
+        tokens.dequeue();
+        return programName;
+    }
+
+    /**
+     * Parses the end {@code END programName} of a BL program from
+     * {@code tokens}, which must be followed by nothing else.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param programName
+     *            the name of the program
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @updates tokens
+     * @ensures <pre>
+     * if #tokens = <"END", programName, Tokenizer.END_OF_INPUT> then
+     *  tokens = <Tokenizer.END_OF_INPUT>
+     * else
+     *  [reports an appropriate error message to diagnostics]
+     * </pre>
+     */
+    static void parseEnd(TokenStream tokens, String programName,
+            Diagnostics diagnostics) {
+        /*
+         * Checking if the body is followed by keyword END and the program
+         * name (and nothing else)
+         */
+        diagnostics.check(tokens.frontKind() == TokenKind.END, tokens,
+                "Keyword \"END\" missing at end of program");
+        tokens.dequeue();
+        diagnostics.check(tokens.front().equals(programName), tokens,
+                "Program name at the end does not match program name at the beginning");
+        tokens.dequeue();
+        diagnostics.check(tokens.frontKind() == TokenKind.END_OF_INPUT, tokens,
+                "Extra code appears after end of program.");
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code p}, exactly as
+     * {@code parse(tokens, diagnostics)} does for a {@code Program1Parse1}.
+     * Instruction bodies and the program body are created with
+     * {@code p.newBody()}, so they have whatever {@code Statement}
+     * representation {@code p} uses; a {@code FlatStatement} body is filled in
+     * directly by the statement parser.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param p
+     *            the parsed program
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @updates p, tokens, diagnostics
+     * @ensures
+     *
+     *          <pre>
+     * if [a program string is a prefix of #tokens followed by
+     *     Tokenizer.END_OF_INPUT] then
+     *  p = [Program corresponding to that program string]  and
+     *  diagnostics = #diagnostics
+     * else
+     *  p = #p  and
+     *  [reports appropriate error messages to diagnostics]
+     *          </pre>
+     */
+    static void parseProgram(TokenStream tokens, Program p,
+            Diagnostics diagnostics) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert p != null : "Violation of: p is not null";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+        int errorsBefore = diagnostics.size();
+        long start = ParseMetrics.start();
+        try {
+            String programName = parseHeader(tokens, diagnostics);
+            /*
+             * Adding instructions to context
+             */
+            Map<String, Statement> ctxt = p.newContext();
+            while (tokens.frontKind() == TokenKind.INSTRUCTION) {
+                try {
+                    int index = tokens.frontIndex();
+                    int line = tokens.frontLine();
+                    int column = tokens.frontColumn();
+                    Statement instr = p.newBody();
+                    String nameOfInstr = parseInstruction(tokens, instr,
+                            diagnostics);
+                    long added = ParseMetrics.start();
+                    if (ctxt.hasKey(nameOfInstr)) {
+                        diagnostics.report(index, line, column,
+                                "More than one user-defined instruction has the same name: "
+                                        + nameOfInstr);
+                    }
+                    ctxt.add(nameOfInstr, instr);
+                    ParseMetrics.stop(ParseMetrics.Phase.CONTEXT, added);
+                } catch (Diagnostics.Abort e) {
+                    /*
+                     * Error already recorded; resume at the next instruction
+                     */
+                    skipToInstructionOrBegin(tokens);
+                }
+            }
+            /*
+             * Removing keyword BEGIN
+             */
+            diagnostics.check(tokens.frontKind() == TokenKind.BEGIN, tokens,
+                    "Missing keyword \"INSTRUCTION\" or \"BEGIN\"");
+            tokens.dequeue();
+            /*
+             * Parsing the body of p
+             */
+            Statement body = p.newBody();
+            Statement1Parse1.parseBlock(tokens, body, diagnostics);
+            parseEnd(tokens, programName, diagnostics);
+            /*
+             * Adding the new context and body to p and changing the program
+             * name of p, unless an instruction had an error
+             */
+            if (diagnostics.size() == errorsBefore) {
+                p.replaceContext(ctxt);
+                p.replaceBody(body);
+                p.replaceName(programName);
+                ParseMetrics.stop(ParseMetrics.Phase.PROGRAM, start);
+            }
+        } catch (Diagnostics.Abort e) {
+            /*
+             * Error already recorded; p is left unchanged
+             */
+            assert diagnostics.size() > errorsBefore : ""
+                    + "Violation of: errors are recorded before aborting";
+        }
+    }
+
     /*
      * Constructors -----------------------------------------------------------
      */
@@ -116,12 +386,67 @@ public final class Program1Parse1 extends Program1 {
      * Public methods ---------------------------------------------------------
      */
 
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}.
+     *
+     * @param tokens
+     *            the input tokens
+     * @replaces this
+     * @updates tokens
+     * @ensures
+     *
+     *          <pre>
+     * if [a program string is a prefix of #tokens followed by
+     *     Tokenizer.END_OF_INPUT] then
+     *  this = [Program corresponding to that program string]
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     *          </pre>
+     */
+    public void parse(TokenStream tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        this.parse(tokens, Diagnostics.FATAL);
+    }
+
+    /**
+     * Parses a BL program from {@code tokens} into {@code this}, reporting
+     * syntax errors to {@code diagnostics}.
+     *
+     * <p>
+     * When {@code diagnostics} records errors instead of terminating the
+     * client, parsing resumes after an error in an instruction at the next
+     * {@code INSTRUCTION} or {@code BEGIN}, so one pass can report an error in
+     * each instruction; an error anywhere else ends the parse. {@code this} is
+     * changed only if no error is found.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @updates this, tokens, diagnostics
+     * @ensures
+     *
+     *          <pre>
+     * if [a program string is a prefix of #tokens followed by
+     *     Tokenizer.END_OF_INPUT] then
+     *  this = [Program corresponding to that program string]  and
+     *  diagnostics = #diagnostics
+     * else
+     *  this = #this  and
+     *  [reports appropriate error messages to diagnostics]
+     *          </pre>
+     */
+    public void parse(TokenStream tokens, Diagnostics diagnostics) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+        parseProgram(tokens, this, diagnostics);
+    }
+
     @Override
     public void parse(SimpleReader in) {
         assert in != null : "Violation of: in is not null";
         assert in.isOpen() : "Violation of: in.is_open";
-        Queue<String> tokens = Tokenizer.tokens(in);
-        this.parse(tokens);
+        this.parse(new ReaderTokenStream(in));
     }
 
     @Override
@@ -129,64 +454,7 @@ public final class Program1Parse1 extends Program1 {
         assert tokens != null : "Violation of: tokens is not null";
         assert tokens.length() > 0 : ""
                 + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
-        /*
-         * Checking if the program starts with keyword PROGRAM
-         */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("PROGRAM"),
-                "Keyword PROGRAM missing");
-        /*
-         * Removing program name and checking it is an identifier
-         */
-        String programName = tokens.dequeue();
-        Reporter.assertElseFatalError(Tokenizer.isIdentifier(programName),
-                "Program name is not an identifier");
-        /*
-         * Checking if program name is followed by keyword IS
-         */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("IS"),
-                "Keyword \"IS\" missing after program name");
-        /*
-         * Adding instructions to context
-         */
-        Map<String, Statement> ctxt = this.newContext();
-        while (tokens.front().equals("INSTRUCTION")) {
-            Statement instr = this.newBody();
-            String nameOfInstr = parseInstruction(tokens, instr);
-            Reporter.assertElseFatalError(!ctxt.hasKey(nameOfInstr),
-                    "More than one user-defined instruction has the same name: "
-                            + nameOfInstr);
-            ctxt.add(nameOfInstr, instr);
-        }
-        /*
-         * Adding the new context to this
-         */
-        this.replaceContext(ctxt);
-        /*
-         * Removing keyword BEGIN
-         */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("BEGIN"),
-                "Missing keyword \"INSTRUCTION\" or \"BEGIN\"");
-        /*
-         * Parsing the body of this
-         */
-        Statement body = this.newBody();
-        body.parseBlock(tokens);
-        /*
-         * Checking if the body of this is followed by keyword END and the
-         * program name (and nothing else)
-         */
-        Reporter.assertElseFatalError(tokens.dequeue().equals("END"),
-                "Keyword \"END\" missing at end of program");
-        Reporter.assertElseFatalError(tokens.dequeue().equals(programName),
-                "Program name at the end does not match program name at the beginning");
-        Reporter.assertElseFatalError(
-                tokens.dequeue().equals(Tokenizer.END_OF_INPUT),
-                "Extra code appears after end of program.");
-        /*
-         * Adding the new body to this and changing the program name of this
-         */
-        this.replaceBody(body);
-        this.replaceName(programName);
+        this.parse(new QueueTokenStream(tokens));
     }
 
     /*
@@ -212,11 +480,10 @@ public final class Program1Parse1 extends Program1 {
          * Parse input file
          */
         out.println("*** Parsing input file ***");
-        Program p = new Program1Parse1();
-        SimpleReader file = new SimpleReader1L(fileName);
-        Queue<String> tokens = Tokenizer.tokens(file);
+        Program1Parse1 p = new Program1Parse1();
+        MappedTokenStream file = new MappedTokenStream(fileName);
+        p.parse(file);
         file.close();
-        p.parse(tokens);
         /*
          * Pretty print the program
          */
@@ -0,0 +1,344 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import components.program.Program;
+import components.utilities.Reporter;
+
+/**
+ * Cache in front of {@code Program1Parse1.parse}, keyed by a SHA-256 hash of
+ * the content of the BL source file, so that a file already seen is not
+ * lexed or parsed again.
+ *
+ * <p>
+ * Parsed programs are held in memory in encoded form, in a bounded LRU map,
+ * and each lookup decodes a new {@code Program}, so callers may change what
+ * they get without affecting the cache. If a directory is given, every
+ * program parsed is also written there, in a file named by its hash, and a
+ * program missing from memory is read from there before falling back to
+ * parsing, so the cache survives across runs.
+ *
+ * <p>
+ * Each file is read once, and a program missing from the cache is parsed
+ * from the same bytes that were hashed, so the key always matches what was
+ * parsed. Methods may be called from any number of threads.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCache {
+
+    /**
+     * Suffix of cache file names.
+     */
+    private static final String SUFFIX = ".blc";
+
+    /**
+     * Digits of a hexadecimal number.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Largest number of programs held in memory.
+     */
+    private final int capacity;
+
+    /**
+     * Directory holding cache files, or null.
+     */
+    private final Path directory;
+
+    /**
+     * Encoded programs in least-recently-used order, keyed by content hash;
+     * guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, byte[]> programs;
+
+    /**
+     * Number of lookups found in memory.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of lookups found on disk.
+     */
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * Number of lookups that had to parse.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Number of programs evicted from memory.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor for a cache held only in memory.
+     *
+     * @param capacity
+     *            largest number of programs held in memory
+     * @requires capacity > 0
+     */
+    public ProgramCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructor for a cache held in memory and persisted in
+     * {@code directory}, which is created if needed.
+     *
+     * @param capacity
+     *            largest number of programs held in memory
+     * @param directory
+     *            directory holding cache files, or null for none
+     * @requires capacity > 0
+     */
+    public ProgramCache(int capacity, Path directory) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+        this.capacity = capacity;
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                Reporter.fatalErrorToConsole("Cannot create cache directory: "
+                        + directory + " (" + e.getMessage() + ")");
+            }
+        }
+        this.programs = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+
+            /**
+             * Serialization version; the map is never serialized.
+             */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    java.util.Map.Entry<String, byte[]> eldest) {
+                boolean full = this.size() > ProgramCache.this.capacity;
+                if (full) {
+                    ProgramCache.this.evictions.incrementAndGet();
+                }
+                return full;
+            }
+
+        };
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the SHA-256 hash of {@code content} in hexadecimal.
+     *
+     * @param content
+     *            the content
+     * @return the hash
+     */
+    private static String hash(byte[] content) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+        char[] hex = new char[2 * digest.length];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >>> 4) & 0xF];
+            hex[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Returns the cache file of the program with hash {@code key}.
+     *
+     * @param key
+     *            the content hash
+     * @return the cache file
+     */
+    private Path fileOf(String key) {
+        return this.directory.resolve(key + SUFFIX);
+    }
+
+    /**
+     * Reads the encoded program with hash {@code key} from disk into
+     * {@code p}. A cache file that cannot be read or decoded, e.g., one
+     * written in an older format, is ignored.
+     *
+     * @param key
+     *            the content hash
+     * @param p
+     *            the program read
+     * @return the encoded program, or null if it is not on disk
+     * @updates p
+     */
+    private byte[] readFromDisk(String key, Program p) {
+        Path file = this.fileOf(key);
+        byte[] encoding = null;
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = new BufferedInputStream(
+                    Files.newInputStream(file))) {
+                encoding = in.readAllBytes();
+                ProgramCodec.decode(encoding, p);
+            } catch (IOException e) {
+                encoding = null;
+            }
+        }
+        return encoding;
+    }
+
+    /**
+     * Writes the encoded program with hash {@code key} to disk, replacing the
+     * cache file atomically so that readers never see a partial file.
+     *
+     * @param key
+     *            the content hash
+     * @param encoding
+     *            the encoded program
+     */
+    private void writeToDisk(String key, byte[] encoding) {
+        try {
+            Path temp = Files.createTempFile(this.directory, key, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(temp))) {
+                out.write(encoding);
+            }
+            Files.move(temp, this.fileOf(key),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            /*
+             * The disk cache is an optimization; the program stays cached in
+             * memory
+             */
+            return;
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the BL program in the file named {@code fileName}, parsing the
+     * file only if a file with the same content has not been parsed before.
+     *
+     * @param fileName
+     *            the name of the BL source file
+     * @return a new Program equal to the program in the file
+     * @ensures <pre>
+     * if [the file contains a valid BL program] then
+     *  parse = [Program corresponding to the file]
+     * else
+     *  [reports an appropriate error message to the console and terminates client]
+     * </pre>
+     */
+    public Program parse(String fileName) {
+        assert fileName != null : "Violation of: fileName is not null";
+
+        byte[] content = null;
+        try {
+            content = Files.readAllBytes(Paths.get(fileName));
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Cannot read file: " + fileName
+                    + " (" + e.getMessage() + ")");
+        }
+        String key = hash(content);
+        byte[] encoding;
+        synchronized (this) {
+            encoding = this.programs.get(key);
+        }
+        Program1Parse1 p = new Program1Parse1();
+        if (encoding != null) {
+            this.hits.incrementAndGet();
+            try {
+                ProgramCodec.decode(encoding, p);
+            } catch (IOException e) {
+                throw new AssertionError("Cached program is corrupt", e);
+            }
+        } else {
+            if (this.directory != null) {
+                encoding = this.readFromDisk(key, p);
+            }
+            if (encoding != null) {
+                this.diskHits.incrementAndGet();
+            } else {
+                this.misses.incrementAndGet();
+                p.parse(new MappedTokenStream(content));
+                encoding = ProgramCodec.encode(p);
+                if (this.directory != null) {
+                    this.writeToDisk(key, encoding);
+                }
+            }
+            synchronized (this) {
+                this.programs.put(key, encoding);
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Reports the number of programs held in memory.
+     *
+     * @return the number of programs in memory
+     */
+    public synchronized int size() {
+        return this.programs.size();
+    }
+
+    /**
+     * Reports the number of lookups found in memory.
+     *
+     * @return the number of memory hits
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Reports the number of lookups not in memory but found on disk.
+     *
+     * @return the number of disk hits
+     */
+    public long diskHits() {
+        return this.diskHits.get();
+    }
+
+    /**
+     * Reports the number of lookups that parsed the file.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Reports the number of programs evicted from memory.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return this.evictions.get();
+    }
+
+}
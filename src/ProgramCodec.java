@@ -0,0 +1,710 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Compact, versioned binary encoding of BL {@code Program}s and
+ * {@code Statement}s, so that parsed programs can be stored or sent to
+ * another process and read back without parsing text again.
+ *
+ * <p>
+ * A stream starts with the bytes {@code 'B' 'L' 'C'} and the format version,
+ * followed by any number of records, each a program or a statement. All
+ * numbers are unsigned varints (seven bits per byte, least significant
+ * first, high bit set on all bytes but the last). Statements are written in
+ * preorder, each as its kind followed by its condition and the lengths of
+ * its blocks, or by the instruction name for a CALL. Names are shared by all
+ * the records of a stream: the first occurrence of a name is written as 0,
+ * its length, and its UTF-8 bytes, and each later one as its index in the
+ * stream plus one.
+ *
+ * <p>
+ * Statements are written and read without recursion, through
+ * {@code StatementWalker} and the same builder as the parser, so both
+ * handle nesting as deep as the parser does.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCodec {
+
+    /**
+     * The current format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * First bytes of a stream.
+     */
+    private static final byte[] MAGIC = { 'B', 'L', 'C' };
+
+    /**
+     * Record tag of a program.
+     */
+    private static final int PROGRAM = 1;
+
+    /**
+     * Record tag of a statement.
+     */
+    private static final int STATEMENT = 2;
+
+    /**
+     * Node kind of a BLOCK; appears only as the root of a statement record.
+     */
+    private static final int BLOCK = 0;
+
+    /**
+     * Node kind of an IF statement.
+     */
+    private static final int IF = 1;
+
+    /**
+     * Node kind of an IF_ELSE statement.
+     */
+    private static final int IF_ELSE = 2;
+
+    /**
+     * Node kind of a WHILE statement.
+     */
+    private static final int WHILE = 3;
+
+    /**
+     * Node kind of a CALL statement.
+     */
+    private static final int CALL = 4;
+
+    /**
+     * Conditions, indexed by their code in the format; the order is part of
+     * the format and must not change.
+     */
+    private static final Statement.Condition[] CONDITIONS = {
+            Statement.Condition.NEXT_IS_EMPTY,
+            Statement.Condition.NEXT_IS_NOT_EMPTY,
+            Statement.Condition.NEXT_IS_WALL,
+            Statement.Condition.NEXT_IS_NOT_WALL,
+            Statement.Condition.NEXT_IS_FRIEND,
+            Statement.Condition.NEXT_IS_NOT_FRIEND,
+            Statement.Condition.NEXT_IS_ENEMY,
+            Statement.Condition.NEXT_IS_NOT_ENEMY,
+            Statement.Condition.RANDOM, Statement.Condition.TRUE };
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ProgramCodec() {
+    }
+
+    /**
+     * Returns the code of {@code c} in the format.
+     *
+     * @param c
+     *            the condition
+     * @return the code of c
+     */
+    private static int codeOf(Statement.Condition c) {
+        int i = 0;
+        while (CONDITIONS[i] != c) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Writer of a stream of encoded programs and statements.
+     */
+    public static final class Writer implements Closeable, Flushable {
+
+        /**
+         * The output.
+         */
+        private final OutputStream out;
+
+        /**
+         * Indexes of the names written so far.
+         */
+        private final HashMap<String, Integer> names = new HashMap<>();
+
+        /**
+         * Writer of the statements of a walk.
+         */
+        private final Encoder encoder = new Encoder();
+
+        /**
+         * Constructor; writes the stream header to {@code out}.
+         *
+         * @param out
+         *            the output, owned by the new writer from now on
+         * @throws IOException
+         *             if out cannot be written
+         */
+        public Writer(OutputStream out) throws IOException {
+            assert out != null : "Violation of: out is not null";
+            this.out = new BufferedOutputStream(out);
+            this.out.write(MAGIC);
+            this.writeVarint(VERSION);
+        }
+
+        /**
+         * Writes {@code n} as a varint.
+         *
+         * @param n
+         *            the number
+         * @throws IOException
+         *             if the output cannot be written
+         * @requires n >= 0
+         */
+        private void writeVarint(int n) throws IOException {
+            int rest = n;
+            while ((rest & ~0x7F) != 0) {
+                this.out.write((rest & 0x7F) | 0x80);
+                rest >>>= 7;
+            }
+            this.out.write(rest);
+        }
+
+        /**
+         * Writes {@code name}, or its index if it was written before.
+         *
+         * @param name
+         *            the name
+         * @throws IOException
+         *             if the output cannot be written
+         */
+        private void writeName(String name) throws IOException {
+            Integer index = this.names.get(name);
+            if (index != null) {
+                this.writeVarint(index + 1);
+            } else {
+                this.names.put(name, this.names.size());
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                this.writeVarint(0);
+                this.writeVarint(bytes.length);
+                this.out.write(bytes);
+            }
+        }
+
+        /**
+         * Visitor writing the statements of a walk, each as its kind
+         * followed by its condition and the length of its first block, or by
+         * its name.
+         */
+        private final class Encoder
+                implements StatementWalker.Visitor<IOException> {
+
+            @Override
+            public void call(String instruction) throws IOException {
+                Writer.this.writeVarint(CALL);
+                Writer.this.writeName(instruction);
+            }
+
+            @Override
+            public void beginIf(Statement.Condition condition, int length)
+                    throws IOException {
+                Writer.this.writeVarint(IF);
+                Writer.this.writeVarint(codeOf(condition));
+                Writer.this.writeVarint(length);
+            }
+
+            @Override
+            public void beginIfElse(Statement.Condition condition, int length)
+                    throws IOException {
+                Writer.this.writeVarint(IF_ELSE);
+                Writer.this.writeVarint(codeOf(condition));
+                Writer.this.writeVarint(length);
+            }
+
+            @Override
+            public void beginElse(int length) throws IOException {
+                Writer.this.writeVarint(length);
+            }
+
+            @Override
+            public void endIf() {
+            }
+
+            @Override
+            public void beginWhile(Statement.Condition condition, int length)
+                    throws IOException {
+                Writer.this.writeVarint(WHILE);
+                Writer.this.writeVarint(codeOf(condition));
+                Writer.this.writeVarint(length);
+            }
+
+            @Override
+            public void endWhile() {
+            }
+
+        }
+
+        /**
+         * Writes the length of the block {@code s} and its statements.
+         *
+         * @param s
+         *            the block
+         * @throws IOException
+         *             if the output cannot be written
+         * @restores s
+         */
+        private void writeBlock(Statement s) throws IOException {
+            this.writeVarint(s.lengthOfBlock());
+            StatementWalker.walk(s, this.encoder);
+        }
+
+        /**
+         * Writes {@code p} as the next record.
+         *
+         * @param p
+         *            the program
+         * @throws IOException
+         *             if the output cannot be written
+         * @restores p
+         */
+        public void writeProgram(Program p) throws IOException {
+            assert p != null : "Violation of: p is not null";
+
+            Map<String, Statement> context = p.replaceContext(p.newContext());
+            Statement body = p.replaceBody(p.newBody());
+            try {
+                this.writeVarint(PROGRAM);
+                this.writeName(p.name());
+                this.writeVarint(context.size());
+                for (Map.Pair<String, Statement> pair : context) {
+                    this.writeName(pair.key());
+                    this.writeBlock(pair.value());
+                }
+                this.writeBlock(body);
+            } finally {
+                p.replaceContext(context);
+                p.replaceBody(body);
+            }
+        }
+
+        /**
+         * Writes {@code s} as the next record.
+         *
+         * @param s
+         *            the statement
+         * @throws IOException
+         *             if the output cannot be written
+         * @restores s
+         */
+        public void writeStatement(Statement s) throws IOException {
+            assert s != null : "Violation of: s is not null";
+
+            this.writeVarint(STATEMENT);
+            if (s.kind() == Statement.Kind.BLOCK) {
+                this.writeVarint(BLOCK);
+                this.writeBlock(s);
+            } else {
+                StatementWalker.walk(s, this.encoder);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+
+    }
+
+    /**
+     * Reader of a stream written by {@code Writer}.
+     */
+    public static final class Reader implements Closeable {
+
+        /**
+         * Initial capacity of the stack of open statements.
+         */
+        private static final int INITIAL_DEPTH = 16;
+
+        /**
+         * Largest length of a name, in bytes.
+         */
+        private static final int MAX_NAME_LENGTH = 1 << 16;
+
+        /**
+         * Open statement: the root of a record.
+         */
+        private static final byte ROOT = 0;
+
+        /**
+         * Open statement: IF, in its block.
+         */
+        private static final byte IN_IF = 1;
+
+        /**
+         * Open statement: IF_ELSE, in its THEN block.
+         */
+        private static final byte IN_THEN = 2;
+
+        /**
+         * Open statement: IF_ELSE, in its ELSE block.
+         */
+        private static final byte IN_ELSE = 3;
+
+        /**
+         * Open statement: WHILE, in its block.
+         */
+        private static final byte IN_WHILE = 4;
+
+        /**
+         * The input.
+         */
+        private final InputStream in;
+
+        /**
+         * The names read so far, by index.
+         */
+        private final ArrayList<String> names = new ArrayList<>();
+
+        /**
+         * Kinds of the open statements.
+         */
+        private byte[] open = new byte[INITIAL_DEPTH];
+
+        /**
+         * Numbers of statements left to read in the open blocks.
+         */
+        private int[] left = new int[INITIAL_DEPTH];
+
+        /**
+         * Constructor; reads and checks the stream header from {@code in}.
+         *
+         * @param in
+         *            the input, owned by the new reader from now on
+         * @throws IOException
+         *             if in cannot be read or does not start with a header
+         *             of this version
+         */
+        public Reader(InputStream in) throws IOException {
+            assert in != null : "Violation of: in is not null";
+            this.in = new BufferedInputStream(in);
+            for (byte b : MAGIC) {
+                if (this.in.read() != b) {
+                    throw new IOException("Not an encoded program stream");
+                }
+            }
+            int version = this.readVarint();
+            if (version != VERSION) {
+                throw new IOException("Unsupported format version "
+                        + version + " (expected " + VERSION + ")");
+            }
+        }
+
+        /**
+         * Reads a varint.
+         *
+         * @return the number read
+         * @throws IOException
+         *             if the input cannot be read or is not a varint
+         */
+        private int readVarint() throws IOException {
+            int n = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = this.in.read();
+                if (b < 0) {
+                    throw new EOFException("Unexpected end of stream");
+                }
+                if (shift > 28 || (shift == 28 && (b & 0x78) != 0)) {
+                    throw new IOException("Varint too large");
+                }
+                n |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return n;
+        }
+
+        /**
+         * Reads a name.
+         *
+         * @return the name read
+         * @throws IOException
+         *             if the input cannot be read or is not a name
+         */
+        private String readName() throws IOException {
+            int ref = this.readVarint();
+            String name;
+            if (ref == 0) {
+                int length = this.readVarint();
+                if (length > MAX_NAME_LENGTH) {
+                    throw new IOException("Name too long: " + length);
+                }
+                byte[] bytes = this.in.readNBytes(length);
+                if (bytes.length < length) {
+                    throw new EOFException("Unexpected end of stream");
+                }
+                name = new String(bytes, StandardCharsets.UTF_8);
+                this.names.add(name);
+            } else if (ref <= this.names.size()) {
+                name = this.names.get(ref - 1);
+            } else {
+                throw new IOException("Unknown name index " + (ref - 1));
+            }
+            return name;
+        }
+
+        /**
+         * Reads a condition.
+         *
+         * @return the condition read
+         * @throws IOException
+         *             if the input cannot be read or is not a condition
+         */
+        private Statement.Condition readCondition() throws IOException {
+            int code = this.readVarint();
+            if (code >= CONDITIONS.length) {
+                throw new IOException("Unknown condition " + code);
+            }
+            return CONDITIONS[code];
+        }
+
+        /**
+         * Reads a statement into {@code s}. If {@code isBlock}, the
+         * statement read is the statements of a block, preceded by their
+         * number; otherwise it is a single node of any kind.
+         *
+         * @param s
+         *            the statement read
+         * @param isBlock
+         *            whether to read a block
+         * @throws IOException
+         *             if the input cannot be read or is not a statement
+         * @replaces s
+         */
+        private void readTree(Statement s, boolean isBlock)
+                throws IOException {
+            int kind = -1;
+            boolean block = isBlock;
+            if (!block) {
+                kind = this.readVarint();
+                block = kind == BLOCK;
+                if (block) {
+                    kind = -1;
+                }
+            }
+            StatementBuilder b = Statement1Parse1.builderFor(s, block);
+            int depth = 1;
+            this.open[0] = ROOT;
+            if (block) {
+                this.left[0] = this.readVarint();
+            } else {
+                this.left[0] = 1;
+            }
+            while (depth > 0) {
+                int top = depth - 1;
+                if (this.left[top] == 0) {
+                    switch (this.open[top]) {
+                        case IN_THEN:
+                            b.beginElse();
+                            this.open[top] = IN_ELSE;
+                            this.left[top] = this.readVarint();
+                            break;
+                        case IN_IF:
+                        case IN_ELSE:
+                            b.endIf();
+                            depth--;
+                            break;
+                        case IN_WHILE:
+                            b.endWhile();
+                            depth--;
+                            break;
+                        default:
+                            depth--;
+                            break;
+                    }
+                } else {
+                    this.left[top]--;
+                    if (kind < 0) {
+                        kind = this.readVarint();
+                    }
+                    byte opened;
+                    switch (kind) {
+                        case CALL:
+                            b.call(this.readName());
+                            opened = ROOT;
+                            break;
+                        case IF:
+                            b.beginIf(this.readCondition());
+                            opened = IN_IF;
+                            break;
+                        case IF_ELSE:
+                            b.beginIf(this.readCondition());
+                            opened = IN_THEN;
+                            break;
+                        case WHILE:
+                            b.beginWhile(this.readCondition());
+                            opened = IN_WHILE;
+                            break;
+                        default:
+                            throw new IOException(
+                                    "Unexpected node kind " + kind);
+                    }
+                    kind = -1;
+                    if (opened != ROOT) {
+                        if (depth == this.open.length) {
+                            this.open = Arrays.copyOf(this.open, 2 * depth);
+                            this.left = Arrays.copyOf(this.left, 2 * depth);
+                        }
+                        this.open[depth] = opened;
+                        this.left[depth] = this.readVarint();
+                        depth++;
+                    }
+                }
+            }
+            b.finish();
+        }
+
+        /**
+         * Reads the tag of the next record and checks that it is
+         * {@code expected}.
+         *
+         * @param expected
+         *            the expected tag
+         * @throws IOException
+         *             if the input cannot be read or the next record is not
+         *             of the expected kind
+         */
+        private void readTag(int expected) throws IOException {
+            int tag = this.readVarint();
+            if (tag != expected) {
+                throw new IOException("Unexpected record tag " + tag);
+            }
+        }
+
+        /**
+         * Reports whether there is another record in the stream.
+         *
+         * @return true iff another record follows
+         * @throws IOException
+         *             if the input cannot be read
+         */
+        public boolean hasNext() throws IOException {
+            this.in.mark(1);
+            int b = this.in.read();
+            this.in.reset();
+            return b >= 0;
+        }
+
+        /**
+         * Reads the next record, a program, into {@code p}.
+         *
+         * @param p
+         *            the program read
+         * @throws IOException
+         *             if the input cannot be read or the next record is not
+         *             a program
+         * @replaces p
+         */
+        public void readProgram(Program p) throws IOException {
+            assert p != null : "Violation of: p is not null";
+
+            this.readTag(PROGRAM);
+            String name = this.readName();
+            Map<String, Statement> context = p.newContext();
+            int n = this.readVarint();
+            for (int i = 0; i < n; i++) {
+                String instruction = this.readName();
+                if (context.hasKey(instruction)) {
+                    throw new IOException(
+                            "Instruction defined twice: " + instruction);
+                }
+                Statement s = p.newBody();
+                this.readTree(s, true);
+                context.add(instruction, s);
+            }
+            Statement body = p.newBody();
+            this.readTree(body, true);
+            p.replaceName(name);
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+
+        /**
+         * Reads the next record, a statement, into {@code s}.
+         *
+         * @param s
+         *            the statement read
+         * @throws IOException
+         *             if the input cannot be read or the next record is not
+         *             a statement
+         * @replaces s
+         */
+        public void readStatement(Statement s) throws IOException {
+            assert s != null : "Violation of: s is not null";
+
+            this.readTag(STATEMENT);
+            this.readTree(s, false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+    }
+
+    /**
+     * Returns {@code p} encoded as a stream of one record.
+     *
+     * @param p
+     *            the program
+     * @return the encoding of p
+     * @restores p
+     */
+    public static byte[] encode(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new Writer(bytes)) {
+            out.writeProgram(p);
+        } catch (IOException e) {
+            throw new AssertionError("Cannot write to memory", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads into {@code p} the program encoded in {@code encoding}, as
+     * returned by {@code encode}.
+     *
+     * @param encoding
+     *            the encoding
+     * @param p
+     *            the program read
+     * @throws IOException
+     *             if encoding is not an encoded program
+     * @replaces p
+     */
+    public static void decode(byte[] encoding, Program p) throws IOException {
+        assert encoding != null : "Violation of: encoding is not null";
+        assert p != null : "Violation of: p is not null";
+
+        try (Reader in = new Reader(new ByteArrayInputStream(encoding))) {
+            in.readProgram(p);
+        }
+    }
+
+}
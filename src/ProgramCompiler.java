@@ -0,0 +1,936 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Compiles a parsed BL {@code Program} into a JVM class implementing
+ * {@code CompiledProgram}, so that bug behavior runs as bytecode the JIT can
+ * optimize rather than as a walk over a {@code Statement} tree.
+ *
+ * <p>
+ * Each user-defined instruction of the context becomes a private static
+ * method taking the {@code Bug}, and so does the body; a call of a
+ * user-defined instruction is an {@code invokestatic}, a primitive
+ * instruction is an {@code invokeinterface} on the {@code Bug}, and a
+ * condition is a call of the corresponding {@code Bug} sensor followed by a
+ * conditional branch. The class file is written directly, in version 49
+ * format so that no stack map frames are needed, and each compiled program
+ * is defined by its own class loader so it can be unloaded.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCompiler {
+
+    /*
+     * Class file constants ---------------------------------------------------
+     */
+
+    /**
+     * Class file magic number.
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Class file major version (Java 5, verified by type inference).
+     */
+    private static final int MAJOR_VERSION = 49;
+
+    /**
+     * Access flag public.
+     */
+    private static final int ACC_PUBLIC = 0x0001;
+
+    /**
+     * Access flag private.
+     */
+    private static final int ACC_PRIVATE = 0x0002;
+
+    /**
+     * Access flag static.
+     */
+    private static final int ACC_STATIC = 0x0008;
+
+    /**
+     * Access flag final.
+     */
+    private static final int ACC_FINAL = 0x0010;
+
+    /**
+     * Access flag super.
+     */
+    private static final int ACC_SUPER = 0x0020;
+
+    /**
+     * Constant pool tag of a UTF-8 string.
+     */
+    private static final int CONSTANT_UTF8 = 1;
+
+    /**
+     * Constant pool tag of a class.
+     */
+    private static final int CONSTANT_CLASS = 7;
+
+    /**
+     * Constant pool tag of a string.
+     */
+    private static final int CONSTANT_STRING = 8;
+
+    /**
+     * Constant pool tag of a method of a class.
+     */
+    private static final int CONSTANT_METHODREF = 10;
+
+    /**
+     * Constant pool tag of a method of an interface.
+     */
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    /**
+     * Constant pool tag of a name and type.
+     */
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /**
+     * Opcode aload_0.
+     */
+    private static final int ALOAD_0 = 0x2A;
+
+    /**
+     * Opcode aload_1.
+     */
+    private static final int ALOAD_1 = 0x2B;
+
+    /**
+     * Opcode ldc_w.
+     */
+    private static final int LDC_W = 0x13;
+
+    /**
+     * Opcode ifeq.
+     */
+    private static final int IFEQ = 0x99;
+
+    /**
+     * Opcode ifne.
+     */
+    private static final int IFNE = 0x9A;
+
+    /**
+     * Opcode goto.
+     */
+    private static final int GOTO = 0xA7;
+
+    /**
+     * Opcode areturn.
+     */
+    private static final int ARETURN = 0xB0;
+
+    /**
+     * Opcode return.
+     */
+    private static final int RETURN = 0xB1;
+
+    /**
+     * Opcode invokespecial.
+     */
+    private static final int INVOKESPECIAL = 0xB7;
+
+    /**
+     * Opcode invokestatic.
+     */
+    private static final int INVOKESTATIC = 0xB8;
+
+    /**
+     * Opcode invokeinterface.
+     */
+    private static final int INVOKEINTERFACE = 0xB9;
+
+    /**
+     * Largest code length of a method.
+     */
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    /**
+     * Internal name of {@code Bug}.
+     */
+    private static final String BUG = "Bug";
+
+    /**
+     * Descriptor of the generated static methods.
+     */
+    private static final String BUG_METHOD = "(LBug;)V";
+
+    /**
+     * Name of the static method holding the program body; cannot clash with
+     * an instruction method, as those are prefixed.
+     */
+    private static final String BODY_METHOD = "body";
+
+    /**
+     * Prefix of the name of the method of a user-defined instruction.
+     */
+    private static final String INSTRUCTION_PREFIX = "bl$";
+
+    /**
+     * {@code Bug} actuators keyed by the primitive instruction they execute.
+     */
+    private static final HashMap<String, String> ACTUATORS = new HashMap<>();
+
+    static {
+        ACTUATORS.put("move", "move");
+        ACTUATORS.put("turnleft", "turnLeft");
+        ACTUATORS.put("turnright", "turnRight");
+        ACTUATORS.put("infect", "infect");
+        ACTUATORS.put("skip", "skip");
+    }
+
+    /**
+     * Number of programs compiled, used to give each class a unique name.
+     */
+    private static final AtomicInteger COMPILED = new AtomicInteger();
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ProgramCompiler() {
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Growable big-endian byte buffer.
+     */
+    private static final class Bytes {
+
+        /**
+         * The bytes written; only the first {@code length} are meaningful.
+         */
+        private byte[] data = new byte[256];
+
+        /**
+         * Number of bytes written.
+         */
+        private int length = 0;
+
+        /**
+         * Makes room for {@code n} more bytes.
+         *
+         * @param n
+         *            the number of bytes
+         */
+        private void ensure(int n) {
+            if (this.length + n > this.data.length) {
+                this.data = Arrays.copyOf(this.data,
+                        Math.max(2 * this.data.length, this.length + n));
+            }
+        }
+
+        /**
+         * Writes one byte.
+         *
+         * @param b
+         *            the byte, in its low 8 bits
+         */
+        void u1(int b) {
+            this.ensure(1);
+            this.data[this.length] = (byte) b;
+            this.length++;
+        }
+
+        /**
+         * Writes two bytes.
+         *
+         * @param v
+         *            the value, in its low 16 bits
+         */
+        void u2(int v) {
+            this.u1(v >>> 8);
+            this.u1(v);
+        }
+
+        /**
+         * Writes four bytes.
+         *
+         * @param v
+         *            the value
+         */
+        void u4(int v) {
+            this.u2(v >>> 16);
+            this.u2(v);
+        }
+
+        /**
+         * Writes the bytes of {@code b}.
+         *
+         * @param b
+         *            the bytes
+         */
+        void append(Bytes b) {
+            this.ensure(b.length);
+            System.arraycopy(b.data, 0, this.data, this.length, b.length);
+            this.length += b.length;
+        }
+
+        /**
+         * Overwrites two bytes at {@code at}.
+         *
+         * @param at
+         *            the position
+         * @param v
+         *            the value, in its low 16 bits
+         */
+        void set2(int at, int v) {
+            this.data[at] = (byte) (v >>> 8);
+            this.data[at + 1] = (byte) v;
+        }
+
+        /**
+         * Returns the bytes written.
+         *
+         * @return a copy of the bytes written
+         */
+        byte[] toArray() {
+            return Arrays.copyOf(this.data, this.length);
+        }
+
+    }
+
+    /**
+     * An open IF, IF_ELSE, or WHILE statement whose code is being emitted.
+     */
+    private static final class Pending {
+
+        /**
+         * Position of the branch to patch with the position after the current
+         * block, or -1 if there is none.
+         */
+        private int branch;
+
+        /**
+         * Position of the test of a WHILE statement.
+         */
+        private final int top;
+
+        /**
+         * Constructor.
+         *
+         * @param branch
+         *            position of the branch to patch, or -1
+         * @param top
+         *            position of the test of a WHILE statement
+         */
+        Pending(int branch, int top) {
+            this.branch = branch;
+            this.top = top;
+        }
+
+    }
+
+    /**
+     * Writer of one class file.
+     */
+    private static final class ClassWriter {
+
+        /**
+         * Internal name of the class.
+         */
+        private final String className;
+
+        /**
+         * Names of the user-defined instructions of the program.
+         */
+        private final Set<String> instructions;
+
+        /**
+         * Indices of the constant pool entries, keyed by tag and contents.
+         */
+        private final HashMap<String, Integer> constants = new HashMap<>();
+
+        /**
+         * The constant pool entries.
+         */
+        private final Bytes pool = new Bytes();
+
+        /**
+         * Number of constant pool entries plus one.
+         */
+        private int poolCount = 1;
+
+        /**
+         * The methods.
+         */
+        private final Bytes methods = new Bytes();
+
+        /**
+         * Number of methods.
+         */
+        private int methodCount = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param className
+         *            internal name of the class
+         * @param instructions
+         *            names of the user-defined instructions of the program
+         */
+        ClassWriter(String className, Set<String> instructions) {
+            this.className = className;
+            this.instructions = instructions;
+        }
+
+        /**
+         * Returns the index of a constant, adding it if needed.
+         *
+         * @param key
+         *            tag and contents of the constant
+         * @param tag
+         *            the tag of the constant
+         * @param a
+         *            first index referenced by the constant
+         * @param b
+         *            second index referenced by the constant, or -1
+         * @return the index of the constant
+         */
+        private int constant(String key, int tag, int a, int b) {
+            Integer index = this.constants.get(key);
+            if (index == null) {
+                this.pool.u1(tag);
+                this.pool.u2(a);
+                if (b >= 0) {
+                    this.pool.u2(b);
+                }
+                index = this.poolCount;
+                this.poolCount++;
+                this.constants.put(key, index);
+            }
+            return index;
+        }
+
+        /**
+         * Returns the index of a UTF-8 constant.
+         *
+         * @param s
+         *            the string
+         * @return the index of the constant
+         */
+        int utf8(String s) {
+            String key = CONSTANT_UTF8 + s;
+            Integer index = this.constants.get(key);
+            if (index == null) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                this.pool.u1(CONSTANT_UTF8);
+                this.pool.u2(b.length);
+                for (byte x : b) {
+                    this.pool.u1(x);
+                }
+                index = this.poolCount;
+                this.poolCount++;
+                this.constants.put(key, index);
+            }
+            return index;
+        }
+
+        /**
+         * Returns the index of a class constant.
+         *
+         * @param name
+         *            internal name of the class
+         * @return the index of the constant
+         */
+        int classRef(String name) {
+            return this.constant(CONSTANT_CLASS + name, CONSTANT_CLASS,
+                    this.utf8(name), -1);
+        }
+
+        /**
+         * Returns the index of a string constant.
+         *
+         * @param s
+         *            the string
+         * @return the index of the constant
+         */
+        int string(String s) {
+            return this.constant(CONSTANT_STRING + s, CONSTANT_STRING,
+                    this.utf8(s), -1);
+        }
+
+        /**
+         * Returns the index of a method constant.
+         *
+         * @param tag
+         *            CONSTANT_METHODREF or CONSTANT_INTERFACE_METHODREF
+         * @param owner
+         *            internal name of the owning class or interface
+         * @param name
+         *            name of the method
+         * @param descriptor
+         *            descriptor of the method
+         * @return the index of the constant
+         */
+        int methodRef(int tag, String owner, String name, String descriptor) {
+            int nameAndType = this.constant(
+                    CONSTANT_NAME_AND_TYPE + name + " " + descriptor,
+                    CONSTANT_NAME_AND_TYPE, this.utf8(name),
+                    this.utf8(descriptor));
+            return this.constant(tag + owner + "." + name + descriptor, tag,
+                    this.classRef(owner), nameAndType);
+        }
+
+        /**
+         * Adds a method.
+         *
+         * @param access
+         *            access flags of the method
+         * @param name
+         *            name of the method
+         * @param descriptor
+         *            descriptor of the method
+         * @param maxLocals
+         *            number of local variable slots of the method
+         * @param code
+         *            bytecode of the method
+         */
+        void method(int access, String name, String descriptor,
+                int maxLocals, Bytes code) {
+            if (code.length > MAX_CODE_LENGTH) {
+                Reporter.fatalErrorToConsole("Cannot compile " + name
+                        + ": bytecode exceeds " + MAX_CODE_LENGTH + " bytes");
+            }
+            this.methods.u2(access);
+            this.methods.u2(this.utf8(name));
+            this.methods.u2(this.utf8(descriptor));
+            this.methods.u2(1); // attributes: Code
+            this.methods.u2(this.utf8("Code"));
+            final int codeHeader = 12;
+            this.methods.u4(codeHeader + code.length);
+            this.methods.u2(1); // max stack
+            this.methods.u2(maxLocals);
+            this.methods.u4(code.length);
+            this.methods.append(code);
+            this.methods.u2(0); // exception table
+            this.methods.u2(0); // attributes
+            this.methodCount++;
+        }
+
+        /**
+         * Emits a branch whose offset is patched later.
+         *
+         * @param code
+         *            the code being emitted
+         * @param opcode
+         *            the branch opcode
+         * @return the position of the branch
+         */
+        private static int branch(Bytes code, int opcode) {
+            int at = code.length;
+            code.u1(opcode);
+            code.u2(0);
+            return at;
+        }
+
+        /**
+         * Sets the target of the branch at {@code at} to {@code target}.
+         *
+         * @param code
+         *            the code being emitted
+         * @param at
+         *            the position of the branch
+         * @param target
+         *            the position branched to
+         */
+        private static void patch(Bytes code, int at, int target) {
+            int offset = target - at;
+            if (offset != (short) offset) {
+                Reporter.fatalErrorToConsole(
+                        "Cannot compile: block too large for a branch");
+            }
+            code.set2(at + 1, offset);
+        }
+
+        /**
+         * Emits a test of {@code c} that branches when it does not hold.
+         *
+         * @param code
+         *            the code being emitted
+         * @param c
+         *            the condition
+         * @return the position of the branch, to be patched, or -1 if c always
+         *         holds
+         */
+        private int branchUnless(Bytes code, Statement.Condition c) {
+            String sensor;
+            boolean negated;
+            switch (c) {
+                case NEXT_IS_EMPTY:
+                case NEXT_IS_NOT_EMPTY:
+                    sensor = "nextIsEmpty";
+                    negated = c == Statement.Condition.NEXT_IS_NOT_EMPTY;
+                    break;
+                case NEXT_IS_WALL:
+                case NEXT_IS_NOT_WALL:
+                    sensor = "nextIsWall";
+                    negated = c == Statement.Condition.NEXT_IS_NOT_WALL;
+                    break;
+                case NEXT_IS_FRIEND:
+                case NEXT_IS_NOT_FRIEND:
+                    sensor = "nextIsFriend";
+                    negated = c == Statement.Condition.NEXT_IS_NOT_FRIEND;
+                    break;
+                case NEXT_IS_ENEMY:
+                case NEXT_IS_NOT_ENEMY:
+                    sensor = "nextIsEnemy";
+                    negated = c == Statement.Condition.NEXT_IS_NOT_ENEMY;
+                    break;
+                case RANDOM:
+                    sensor = "random";
+                    negated = false;
+                    break;
+                default:
+                    return -1;
+            }
+            code.u1(ALOAD_0);
+            code.u1(INVOKEINTERFACE);
+            code.u2(this.methodRef(CONSTANT_INTERFACE_METHODREF, BUG, sensor,
+                    "()Z"));
+            code.u1(1);
+            code.u1(0);
+            if (negated) {
+                return branch(code, IFNE);
+            }
+            return branch(code, IFEQ);
+        }
+
+        /**
+         * Emits a call of instruction {@code name}.
+         *
+         * @param code
+         *            the code being emitted
+         * @param name
+         *            the instruction called
+         */
+        private void call(Bytes code, String name) {
+            code.u1(ALOAD_0);
+            String actuator = ACTUATORS.get(name);
+            if (actuator != null) {
+                code.u1(INVOKEINTERFACE);
+                code.u2(this.methodRef(CONSTANT_INTERFACE_METHODREF, BUG,
+                        actuator, "()V"));
+                code.u1(1);
+                code.u1(0);
+            } else {
+                Reporter.assertElseFatalError(this.instructions.contains(name),
+                        "Call of undefined instruction: " + name);
+                code.u1(INVOKESTATIC);
+                code.u2(this.methodRef(CONSTANT_METHODREF, this.className,
+                        INSTRUCTION_PREFIX + name, BUG_METHOD));
+            }
+        }
+
+        /**
+         * Visitor emitting the code of the statements of a walk, with the
+         * statements whose branches are still to be patched on an explicit
+         * stack. The ELSE block of an IF_ELSE statement whose condition is
+         * {@code true} emits no code: while in it, statements only count
+         * their nesting.
+         */
+        private final class Emitter
+                implements StatementWalker.Visitor<RuntimeException> {
+
+            /**
+             * The code being emitted.
+             */
+            private final Bytes code;
+
+            /**
+             * The open statements, the outermost first.
+             */
+            private final ArrayList<Pending> open = new ArrayList<>();
+
+            /**
+             * Number of statements open in an ELSE block that emits no code,
+             * counting the IF_ELSE statement itself, or 0 if not in one.
+             */
+            private int dead = 0;
+
+            /**
+             * Constructor.
+             *
+             * @param code
+             *            the code being emitted
+             */
+            Emitter(Bytes code) {
+                this.code = code;
+            }
+
+            @Override
+            public void call(String instruction) {
+                if (this.dead == 0) {
+                    ClassWriter.this.call(this.code, instruction);
+                }
+            }
+
+            @Override
+            public void beginIf(Statement.Condition condition, int length) {
+                if (this.dead > 0) {
+                    this.dead++;
+                } else {
+                    int skip = ClassWriter.this.branchUnless(this.code,
+                            condition);
+                    this.open.add(new Pending(skip, -1));
+                }
+            }
+
+            @Override
+            public void beginIfElse(Statement.Condition condition,
+                    int length) {
+                this.beginIf(condition, length);
+            }
+
+            @Override
+            public void beginElse(int length) {
+                if (this.dead == 0) {
+                    Pending top = this.open.get(this.open.size() - 1);
+                    if (top.branch < 0) {
+                        this.dead = 1;
+                    } else {
+                        int end = branch(this.code, GOTO);
+                        patch(this.code, top.branch, this.code.length);
+                        top.branch = end;
+                    }
+                }
+            }
+
+            @Override
+            public void endIf() {
+                if (this.dead > 1) {
+                    this.dead--;
+                } else {
+                    this.dead = 0;
+                    Pending top = this.open.remove(this.open.size() - 1);
+                    if (top.branch >= 0) {
+                        patch(this.code, top.branch, this.code.length);
+                    }
+                }
+            }
+
+            @Override
+            public void beginWhile(Statement.Condition condition,
+                    int length) {
+                if (this.dead > 0) {
+                    this.dead++;
+                } else {
+                    int top = this.code.length;
+                    int exit = ClassWriter.this.branchUnless(this.code,
+                            condition);
+                    this.open.add(new Pending(exit, top));
+                }
+            }
+
+            @Override
+            public void endWhile() {
+                if (this.dead > 0) {
+                    this.dead--;
+                } else {
+                    Pending top = this.open.remove(this.open.size() - 1);
+                    patch(this.code, branch(this.code, GOTO), top.top);
+                    if (top.branch >= 0) {
+                        patch(this.code, top.branch, this.code.length);
+                    }
+                }
+            }
+
+        }
+
+        /**
+         * Emits the code of {@code s}. The walk keeps its open statements on
+         * an explicit stack, so s may be nested as deeply as the parser
+         * allows, and puts s back together even if it cannot be compiled.
+         *
+         * @param code
+         *            the code being emitted
+         * @param s
+         *            the statement to compile
+         * @restores s
+         */
+        void statement(Bytes code, Statement s) {
+            StatementWalker.walk(s, new Emitter(code));
+        }
+
+        /**
+         * Adds the static method for block {@code block}.
+         *
+         * @param name
+         *            the name of the method
+         * @param block
+         *            the block to compile
+         * @restores block
+         */
+        void blockMethod(String name, Statement block) {
+            Bytes code = new Bytes();
+            this.statement(code, block);
+            code.u1(RETURN);
+            this.method(ACC_PRIVATE | ACC_STATIC, name, BUG_METHOD, 1, code);
+        }
+
+        /**
+         * Adds the constructor, {@code name}, and {@code run}, and returns the
+         * class file.
+         *
+         * @param programName
+         *            the name of the program
+         * @return the class file
+         */
+        byte[] finish(String programName) {
+            Bytes init = new Bytes();
+            init.u1(ALOAD_0);
+            init.u1(INVOKESPECIAL);
+            init.u2(this.methodRef(CONSTANT_METHODREF, "java/lang/Object",
+                    "<init>", "()V"));
+            init.u1(RETURN);
+            this.method(ACC_PUBLIC, "<init>", "()V", 1, init);
+
+            Bytes name = new Bytes();
+            name.u1(LDC_W);
+            name.u2(this.string(programName));
+            name.u1(ARETURN);
+            this.method(ACC_PUBLIC, "name", "()Ljava/lang/String;", 1, name);
+
+            Bytes run = new Bytes();
+            run.u1(ALOAD_1);
+            run.u1(INVOKESTATIC);
+            run.u2(this.methodRef(CONSTANT_METHODREF, this.className,
+                    BODY_METHOD, BUG_METHOD));
+            run.u1(RETURN);
+            this.method(ACC_PUBLIC, "run", BUG_METHOD, 2, run);
+
+            int thisClass = this.classRef(this.className);
+            int superClass = this.classRef("java/lang/Object");
+            int compiledProgram = this.classRef("CompiledProgram");
+            Bytes file = new Bytes();
+            file.u4(MAGIC);
+            file.u2(0);
+            file.u2(MAJOR_VERSION);
+            file.u2(this.poolCount);
+            file.append(this.pool);
+            file.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            file.u2(thisClass);
+            file.u2(superClass);
+            file.u2(1); // interfaces
+            file.u2(compiledProgram);
+            file.u2(0); // fields
+            file.u2(this.methodCount);
+            file.append(this.methods);
+            file.u2(0); // attributes
+            return file.toArray();
+        }
+
+    }
+
+    /**
+     * Class loader defining one compiled program, so that the class can be
+     * unloaded once the program is unreachable.
+     */
+    private static final class Loader extends ClassLoader {
+
+        /**
+         * Constructor.
+         */
+        Loader() {
+            super(ProgramCompiler.class.getClassLoader());
+        }
+
+        /**
+         * Defines the class with binary name {@code name} from
+         * {@code classFile}.
+         *
+         * @param name
+         *            binary name of the class
+         * @param classFile
+         *            the class file
+         * @return the class
+         */
+        Class<?> define(String name, byte[] classFile) {
+            return this.defineClass(name, classFile, 0, classFile.length);
+        }
+
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the class file of {@code p} compiled into class
+     * {@code className}. p is restored even if it cannot be compiled.
+     *
+     * @param p
+     *            the program to compile
+     * @param className
+     *            binary name of the class, in the unnamed package
+     * @return the class file
+     * @restores p
+     * @requires [every instruction called in p is primitive or defined in the
+     *           context of p]
+     */
+    public static byte[] toClassFile(Program p, String className) {
+        assert p != null : "Violation of: p is not null";
+        assert className != null : "Violation of: className is not null";
+
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            Set<String> names = new HashSet<>();
+            for (Map.Pair<String, Statement> pair : context) {
+                names.add(pair.key());
+            }
+            ClassWriter writer = new ClassWriter(className, names);
+            for (Map.Pair<String, Statement> pair : context) {
+                writer.blockMethod(INSTRUCTION_PREFIX + pair.key(),
+                        pair.value());
+            }
+            writer.blockMethod(BODY_METHOD, body);
+            return writer.finish(p.name());
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+    /**
+     * Compiles {@code p} and loads the result.
+     *
+     * @param p
+     *            the program to compile
+     * @return a new instance of the compiled program
+     * @restores p
+     * @requires [every instruction called in p is primitive or defined in the
+     *           context of p]
+     */
+    public static CompiledProgram compile(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        String className = "BL$" + COMPILED.incrementAndGet() + "$" + p.name();
+        byte[] classFile = toClassFile(p, className);
+        try {
+            return (CompiledProgram) new Loader().define(className, classFile)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("Cannot instantiate compiled program", e);
+        }
+    }
+
+}
@@ -0,0 +1,662 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+
+import components.statement.Statement;
+import components.utilities.Reporter;
+
+/**
+ * Seeded generator of BL program text for scale and stress testing, valid or
+ * with one error at a chosen place.
+ *
+ * <p>
+ * A generated program has a chosen number of instructions; each block of
+ * each instruction and of the body holds a chosen number of statements
+ * (its width), one of which is an IF, IF_ELSE, or WHILE statement nesting
+ * one level deeper, down to a chosen depth. Other statements call a
+ * primitive instruction or an instruction defined before, so that the
+ * program is not recursive. Conditions are drawn with chosen weights. The
+ * text is written as it is generated, so it can be far larger than memory;
+ * the same seed and settings always give the same text. Open blocks are kept
+ * on an explicit stack and indentation stops growing after
+ * {@code MAX_INDENT} levels, so any depth can be generated and the text grows
+ * linearly with it.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramGenerator {
+
+    /**
+     * Defects that can be placed in a generated program.
+     */
+    public enum Defect {
+
+        /**
+         * No defect.
+         */
+        NONE,
+
+        /**
+         * An instruction without IS after its name.
+         */
+        MISSING_IS,
+
+        /**
+         * An instruction whose END is followed by the wrong name.
+         */
+        MISNAMED_END,
+
+        /**
+         * An instruction named like a primitive instruction.
+         */
+        PRIMITIVE_NAME,
+
+        /**
+         * An instruction with the same name as the one before it.
+         */
+        DUPLICATE_NAME,
+
+        /**
+         * A condition that is not a BL condition.
+         */
+        INVALID_CONDITION,
+
+        /**
+         * An IF statement ending with END and no IF.
+         */
+        MISSING_END_IF,
+
+        /**
+         * A WHILE statement without DO after its condition.
+         */
+        MISSING_DO;
+
+    }
+
+    /**
+     * Name of the generated programs.
+     */
+    private static final String NAME = "Generated";
+
+    /**
+     * The primitive instructions.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * All conditions, indexed by ordinal.
+     */
+    private static final Statement.Condition[] CONDITIONS = Statement.Condition
+            .values();
+
+    /**
+     * One in this many calls is of a user-defined instruction, if there is
+     * one.
+     */
+    private static final int USER_CALL_ODDS = 4;
+
+    /**
+     * Indentation per level.
+     */
+    private static final String INDENT = "  ";
+
+    /**
+     * Deepest level of indentation written.
+     */
+    private static final int MAX_INDENT = 32;
+
+    /**
+     * A block being generated, and the statement it belongs to.
+     */
+    private static final class Frame {
+
+        /**
+         * Indentation level of the statements of the block.
+         */
+        private final int level;
+
+        /**
+         * Number of levels of nesting of the block.
+         */
+        private final int levels;
+
+        /**
+         * Index of the statement of the block that is compound, or -1.
+         */
+        private final int nested;
+
+        /**
+         * Index of the next statement of the block to generate.
+         */
+        private int next;
+
+        /**
+         * Kind of the statement the block belongs to: 0 for IF, 1 for
+         * IF_ELSE, 2 for WHILE, or -1 for an instruction or the body.
+         */
+        private final int kind;
+
+        /**
+         * Defect placed in the statement the block belongs to.
+         */
+        private final Defect placed;
+
+        /**
+         * Whether the block is the THEN block of an IF_ELSE statement.
+         */
+        private final boolean inThen;
+
+        /**
+         * Constructor.
+         *
+         * @param level
+         *            the indentation level
+         * @param levels
+         *            the number of levels of nesting
+         * @param nested
+         *            index of the compound statement, or -1
+         * @param kind
+         *            kind of the statement the block belongs to, or -1
+         * @param placed
+         *            defect placed in that statement
+         * @param inThen
+         *            whether the block is the THEN block of an IF_ELSE
+         */
+        Frame(int level, int levels, int nested, int kind, Defect placed,
+                boolean inThen) {
+            this.level = level;
+            this.levels = levels;
+            this.nested = nested;
+            this.next = 0;
+            this.kind = kind;
+            this.placed = placed;
+            this.inThen = inThen;
+        }
+
+    }
+
+    /**
+     * Source of randomness.
+     */
+    private final Random random;
+
+    /**
+     * Number of instructions.
+     */
+    private final int instructions;
+
+    /**
+     * Nesting depth of each instruction and the body.
+     */
+    private final int depth;
+
+    /**
+     * Number of statements in each block.
+     */
+    private final int width;
+
+    /**
+     * Cumulative weights of the conditions, indexed by ordinal.
+     */
+    private final int[] cumulativeWeights = new int[CONDITIONS.length];
+
+    /**
+     * The defect to place.
+     */
+    private Defect error = Defect.NONE;
+
+    /**
+     * Index of the instruction where the defect is placed, or the number of
+     * instructions for the body.
+     */
+    private int errorAt = 0;
+
+    /**
+     * Index of the instruction being generated, or the number of
+     * instructions for the body.
+     */
+    private int current;
+
+    /**
+     * Whether the defect has still to be placed in the current instruction or
+     * body.
+     */
+    private boolean pending;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; the new generator draws all conditions with the same
+     * weight and places no defect.
+     *
+     * @param seed
+     *            the seed of the generator
+     * @param instructions
+     *            the number of instructions
+     * @param depth
+     *            the nesting depth of each instruction and the body
+     * @param width
+     *            the number of statements in each block
+     * @requires instructions >= 0 and depth >= 0 and width > 0
+     */
+    public ProgramGenerator(long seed, int instructions, int depth,
+            int width) {
+        assert instructions >= 0 : "Violation of: instructions >= 0";
+        assert depth >= 0 : "Violation of: depth >= 0";
+        assert width > 0 : "Violation of: width > 0";
+        this.random = new Random(seed);
+        this.instructions = instructions;
+        this.depth = depth;
+        this.width = width;
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            this.cumulativeWeights[i] = i + 1;
+        }
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the BL text of {@code c}.
+     *
+     * @param c
+     *            the condition
+     * @return the text of c, e.g., "next-is-not-empty"
+     */
+    private static String textOf(Statement.Condition c) {
+        return c.name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Returns the name of instruction {@code i}.
+     *
+     * @param i
+     *            the instruction index
+     * @return the name
+     */
+    private static String nameOf(int i) {
+        return "instruction" + i;
+    }
+
+    /**
+     * Returns whether {@code d} is placed in a statement rather than an
+     * instruction header or end.
+     *
+     * @param d
+     *            the defect
+     * @return true iff d is INVALID_CONDITION, MISSING_END_IF, or MISSING_DO
+     */
+    private static boolean isStatementDefect(Defect d) {
+        return d == Defect.INVALID_CONDITION || d == Defect.MISSING_END_IF
+                || d == Defect.MISSING_DO;
+    }
+
+    /**
+     * Returns a random condition, drawn with the weights.
+     *
+     * @return the condition
+     */
+    private Statement.Condition nextCondition() {
+        int total = this.cumulativeWeights[CONDITIONS.length - 1];
+        int r = this.random.nextInt(total);
+        int i = 0;
+        while (this.cumulativeWeights[i] <= r) {
+            i++;
+        }
+        return CONDITIONS[i];
+    }
+
+    /**
+     * Writes {@code level} indentations, but no more than
+     * {@code MAX_INDENT}, to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @param level
+     *            the indentation level
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private static void indent(Writer out, int level) throws IOException {
+        int n = Math.min(level, MAX_INDENT);
+        for (int i = 0; i < n; i++) {
+            out.write(INDENT);
+        }
+    }
+
+    /**
+     * Writes a call statement to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @param level
+     *            the indentation level
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private void call(Writer out, int level) throws IOException {
+        indent(out, level);
+        if (this.current > 0 && this.random.nextInt(USER_CALL_ODDS) == 0) {
+            out.write(nameOf(this.random.nextInt(this.current)));
+        } else {
+            out.write(PRIMITIVES[this.random.nextInt(PRIMITIVES.length)]);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Returns the frame of a block nesting {@code levels} levels deep,
+     * choosing which of its statements is compound.
+     *
+     * @param level
+     *            the indentation level
+     * @param levels
+     *            the number of levels of nesting
+     * @param kind
+     *            kind of the statement the block belongs to, or -1
+     * @param placed
+     *            defect placed in that statement
+     * @param inThen
+     *            whether the block is the THEN block of an IF_ELSE
+     * @return the frame
+     */
+    private Frame open(int level, int levels, int kind, Defect placed,
+            boolean inThen) {
+        int nested = -1;
+        if (levels > 0) {
+            nested = this.random.nextInt(this.width);
+            if (this.pending) {
+                /*
+                 * Place a statement error first, so nothing comes before it
+                 */
+                nested = 0;
+            }
+        }
+        return new Frame(level, levels, nested, kind, placed, inThen);
+    }
+
+    /**
+     * Writes the head of an IF, IF_ELSE, or WHILE statement in block
+     * {@code f} to {@code out}, places a pending statement error in it, and
+     * returns the frame of its first block.
+     *
+     * @param out
+     *            the output
+     * @param f
+     *            the frame of the block containing the statement
+     * @return the frame of the first block of the statement
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private Frame compound(Writer out, Frame f) throws IOException {
+        int kind = this.random.nextInt(3);
+        Defect placed = Defect.NONE;
+        if (this.pending) {
+            placed = this.error;
+            this.pending = false;
+            if (placed == Defect.MISSING_END_IF) {
+                kind = 0;
+            } else if (placed == Defect.MISSING_DO) {
+                kind = 2;
+            }
+        }
+        String condition = textOf(this.nextCondition());
+        if (placed == Defect.INVALID_CONDITION) {
+            condition = "next-is-nothing";
+        }
+        indent(out, f.level);
+        if (kind == 2) {
+            out.write("WHILE " + condition);
+            if (placed != Defect.MISSING_DO) {
+                out.write(" DO");
+            }
+            out.write('\n');
+        } else {
+            out.write("IF " + condition + " THEN\n");
+        }
+        return this.open(f.level + 1, f.levels - 1, kind, placed, kind == 1);
+    }
+
+    /**
+     * Writes the end of the statement to which the block of {@code f}
+     * belongs to {@code out}, and returns the frame of its ELSE block if f
+     * is the THEN block of an IF_ELSE statement, or else null.
+     *
+     * @param out
+     *            the output
+     * @param f
+     *            the frame of the last block generated
+     * @return the frame of the ELSE block, or null
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private Frame close(Writer out, Frame f) throws IOException {
+        Frame result = null;
+        int level = f.level - 1;
+        indent(out, level);
+        if (f.kind == 2) {
+            out.write("END WHILE\n");
+        } else if (f.inThen) {
+            out.write("ELSE\n");
+            result = this.open(f.level, 0, f.kind, f.placed, false);
+        } else if (f.placed == Defect.MISSING_END_IF) {
+            out.write("END\n");
+        } else {
+            out.write("END IF\n");
+        }
+        return result;
+    }
+
+    /**
+     * Writes a block nesting {@code levels} levels deep to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @param level
+     *            the indentation level
+     * @param levels
+     *            the number of levels of nesting
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private void block(Writer out, int level, int levels) throws IOException {
+        ArrayList<Frame> open = new ArrayList<>();
+        open.add(this.open(level, levels, -1, Defect.NONE, false));
+        while (!open.isEmpty()) {
+            Frame f = open.get(open.size() - 1);
+            if (f.next < this.width) {
+                int i = f.next;
+                f.next++;
+                if (i == f.nested) {
+                    open.add(this.compound(out, f));
+                } else {
+                    this.call(out, f.level);
+                }
+            } else {
+                open.remove(open.size() - 1);
+                if (f.kind >= 0) {
+                    Frame elseBlock = this.close(out, f);
+                    if (elseBlock != null) {
+                        open.add(elseBlock);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes instruction {@code i} to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @param i
+     *            the instruction index
+     * @throws IOException
+     *             if out cannot be written
+     */
+    private void instruction(Writer out, int i) throws IOException {
+        this.current = i;
+        Defect placed = Defect.NONE;
+        if (this.errorAt == i) {
+            placed = this.error;
+        }
+        this.pending = isStatementDefect(placed);
+        String name = nameOf(i);
+        if (placed == Defect.PRIMITIVE_NAME) {
+            name = "move";
+        } else if (placed == Defect.DUPLICATE_NAME) {
+            name = nameOf(i - 1);
+        }
+        indent(out, 1);
+        out.write("INSTRUCTION " + name);
+        if (placed != Defect.MISSING_IS) {
+            out.write(" IS");
+        }
+        out.write('\n');
+        this.block(out, 2, this.depth);
+        indent(out, 1);
+        out.write("END ");
+        if (placed == Defect.MISNAMED_END) {
+            out.write(name + "x");
+        } else {
+            out.write(name);
+        }
+        out.write("\n\n");
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Sets the weights with which conditions are drawn.
+     *
+     * @param weights
+     *            the weights, indexed by condition ordinal
+     * @updates this
+     * @requires |weights| = |Statement.Condition.values()| and [every weight
+     *           is >= 0] and [some weight is > 0]
+     */
+    public void setConditionWeights(int[] weights) {
+        assert weights != null : "Violation of: weights is not null";
+        assert weights.length == CONDITIONS.length : ""
+                + "Violation of: |weights| = |Statement.Condition.values()|";
+        int total = 0;
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            assert weights[i] >= 0 : "Violation of: every weight is >= 0";
+            total += weights[i];
+            this.cumulativeWeights[i] = total;
+        }
+        assert total > 0 : "Violation of: some weight is > 0";
+    }
+
+    /**
+     * Sets the defect to place in the generated programs, and where.
+     *
+     * @param e
+     *            the defect
+     * @param at
+     *            index of the instruction where the defect is placed, or the
+     *            number of instructions to place it in the body
+     * @updates this
+     * @requires <pre>
+     * 0 <= at <= instructions  and
+     * [if e is MISSING_IS, MISNAMED_END, PRIMITIVE_NAME, or DUPLICATE_NAME then
+     *  at < instructions]  and
+     * [if e is DUPLICATE_NAME then at > 0]  and
+     * [if e is INVALID_CONDITION, MISSING_END_IF, or MISSING_DO then
+     *  depth > 0]
+     * </pre>
+     */
+    public void setDefect(Defect e, int at) {
+        assert e != null : "Violation of: e is not null";
+        assert 0 <= at && at <= this.instructions : ""
+                + "Violation of: 0 <= at <= instructions";
+        this.error = e;
+        this.errorAt = at;
+    }
+
+    /**
+     * Writes a generated program to {@code out}.
+     *
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if out cannot be written
+     * @updates out
+     */
+    public void generate(Writer out) throws IOException {
+        assert out != null : "Violation of: out is not null";
+
+        out.write("PROGRAM " + NAME + " IS\n\n");
+        for (int i = 0; i < this.instructions; i++) {
+            this.instruction(out, i);
+        }
+        this.current = this.instructions;
+        this.pending = this.errorAt == this.instructions
+                && isStatementDefect(this.error);
+        out.write("BEGIN\n");
+        this.block(out, 1, this.depth);
+        out.write("END " + NAME + "\n");
+    }
+
+    /**
+     * Writes a generated program to the file {@code file}.
+     *
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void generate(Path file) throws IOException {
+        assert file != null : "Violation of: file is not null";
+
+        try (Writer out = Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8)) {
+            this.generate(out);
+        }
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments: the output file, the seed, the
+     *            number of instructions, the depth, and the width, optionally
+     *            followed by a defect and the index of the instruction where
+     *            it is placed
+     */
+    public static void main(String[] args) {
+        Reporter.assertElseFatalError(args.length == 5 || args.length == 7,
+                "Usage: ProgramGenerator <file> <seed> <instructions> <depth>"
+                        + " <width> [<defect> <at>]");
+        ProgramGenerator g = new ProgramGenerator(Long.parseLong(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]));
+        if (args.length == 7) {
+            g.setDefect(Defect.valueOf(args[5]), Integer.parseInt(args[6]));
+        }
+        try {
+            g.generate(Paths.get(args[0]));
+        } catch (IOException e) {
+            Reporter.fatalErrorToConsole("Cannot write file: " + args[0]
+                    + " (" + e.getMessage() + ")");
+        }
+    }
+
+}
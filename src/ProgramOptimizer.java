@@ -0,0 +1,505 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Optimization pass over a parsed BL {@code Program}, reducing the number of
+ * statements executed per primitive instruction without changing the
+ * sequence of primitive instructions the program executes:
+ * <ul>
+ * <li>calls of small user-defined instructions that are not recursive are
+ * replaced by the (optimized) bodies of the instructions;</li>
+ * <li>IF statements with empty blocks are removed, and an IF_ELSE statement
+ * with an empty block becomes an IF statement;</li>
+ * <li>IF and IF_ELSE statements whose condition is {@code true} are replaced
+ * by their THEN blocks;</li>
+ * <li>statements following a {@code WHILE true} statement in a block, which
+ * can never execute, are removed.</li>
+ * </ul>
+ * Removing a test removes its sensor reading, so a program that tests
+ * {@code random} in an empty IF draws fewer random values.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramOptimizer {
+
+    /**
+     * Default largest number of statements in an instruction body that is
+     * inlined.
+     */
+    public static final int DEFAULT_INLINE_LIMIT = 16;
+
+    /**
+     * Negation of each condition, for the conditions that have one.
+     */
+    private static final HashMap<Statement.Condition, Statement.Condition> NEGATIONS =
+            new HashMap<>();
+
+    static {
+        Statement.Condition[][] pairs = {
+                { Statement.Condition.NEXT_IS_EMPTY,
+                        Statement.Condition.NEXT_IS_NOT_EMPTY },
+                { Statement.Condition.NEXT_IS_WALL,
+                        Statement.Condition.NEXT_IS_NOT_WALL },
+                { Statement.Condition.NEXT_IS_FRIEND,
+                        Statement.Condition.NEXT_IS_NOT_FRIEND },
+                { Statement.Condition.NEXT_IS_ENEMY,
+                        Statement.Condition.NEXT_IS_NOT_ENEMY } };
+        for (Statement.Condition[] pair : pairs) {
+            NEGATIONS.put(pair[0], pair[1]);
+            NEGATIONS.put(pair[1], pair[0]);
+        }
+    }
+
+    /**
+     * Original bodies of the user-defined instructions, keyed by name.
+     */
+    private final HashMap<String, Statement> original = new HashMap<>();
+
+    /**
+     * Optimized bodies of the user-defined instructions optimized so far.
+     */
+    private final HashMap<String, Statement> optimized = new HashMap<>();
+
+    /**
+     * Number of statements in each optimized body, recorded with it.
+     */
+    private final HashMap<String, Integer> sizes = new HashMap<>();
+
+    /**
+     * Names of the user-defined instructions that can call themselves.
+     */
+    private final Set<String> recursive = new HashSet<>();
+
+    /**
+     * Largest number of statements in an instruction body that is inlined.
+     */
+    private final int inlineLimit;
+
+    /**
+     * Constructor.
+     *
+     * @param inlineLimit
+     *            largest number of statements in an inlined body
+     */
+    private ProgramOptimizer(int inlineLimit) {
+        this.inlineLimit = inlineLimit;
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Visitor counting the statements of a walk, blocks excluded.
+     */
+    private static final class Counter
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * Number of statements counted.
+         */
+        private int count = 0;
+
+        @Override
+        public void call(String instruction) {
+            this.count++;
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            this.count++;
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.count++;
+        }
+
+        @Override
+        public void beginElse(int length) {
+        }
+
+        @Override
+        public void endIf() {
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            this.count++;
+        }
+
+        @Override
+        public void endWhile() {
+        }
+
+    }
+
+    /**
+     * A block being optimized: the statements still to optimize, the
+     * optimized statements so far, and the statement taken apart to which
+     * the block belongs.
+     */
+    private static final class Frame {
+
+        /**
+         * The statements still to optimize.
+         */
+        private Statement block;
+
+        /**
+         * The optimized statements so far.
+         */
+        private Statement result;
+
+        /**
+         * Whether {@code result} ends with {@code WHILE true}.
+         */
+        private boolean endless;
+
+        /**
+         * The statement taken apart, or null for the outermost block.
+         */
+        private final Statement statement;
+
+        /**
+         * Kind of the statement before it was taken apart.
+         */
+        private final Statement.Kind kind;
+
+        /**
+         * Condition of the statement.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * The ELSE block of an IF_ELSE statement while its THEN block is
+         * optimized, and then the optimized THEN block.
+         */
+        private Statement other;
+
+        /**
+         * Whether {@code block} is the THEN block of an IF_ELSE statement.
+         */
+        private boolean inThen;
+
+        /**
+         * Constructor.
+         *
+         * @param block
+         *            the block
+         * @param statement
+         *            the statement taken apart, or null
+         * @param kind
+         *            kind of the statement, or null
+         * @param condition
+         *            condition of the statement, or null
+         */
+        Frame(Statement block, Statement statement, Statement.Kind kind,
+                Statement.Condition condition) {
+            this.block = block;
+            this.result = block.newInstance();
+            this.endless = false;
+            this.statement = statement;
+            this.kind = kind;
+            this.condition = condition;
+            this.other = null;
+            this.inThen = false;
+        }
+
+    }
+
+    /**
+     * Reports the number of statements in {@code s}, blocks excluded.
+     *
+     * @param s
+     *            the statement
+     * @return the number of statements
+     * @restores s
+     */
+    private static int size(Statement s) {
+        Counter counter = new Counter();
+        StatementWalker.walk(s, counter);
+        return counter.count;
+    }
+
+    /**
+     * Returns the optimized body of user-defined instruction {@code name},
+     * optimizing it first if needed, and records its size. {@code optimize}
+     * optimizes callees before their callers, so optimizing one body never
+     * has to optimize another.
+     *
+     * @param name
+     *            the instruction
+     * @return the optimized body, owned by this
+     */
+    private Statement optimizedBody(String name) {
+        Statement body = this.optimized.get(name);
+        if (body == null) {
+            body = this.original.get(name);
+            this.optimizeBlock(body);
+            this.optimized.put(name, body);
+            this.sizes.put(name, size(body));
+        }
+        return body;
+    }
+
+    /**
+     * Reports whether calls of {@code name} are to be inlined.
+     *
+     * @param name
+     *            the instruction called
+     * @return true iff inlining is enabled and name is a small,
+     *         non-recursive user-defined instruction
+     */
+    private boolean isInlined(String name) {
+        boolean inlined = this.inlineLimit > 0
+                && this.original.containsKey(name)
+                && !this.recursive.contains(name);
+        if (inlined) {
+            this.optimizedBody(name);
+            inlined = this.sizes.get(name) <= this.inlineLimit;
+        }
+        return inlined;
+    }
+
+    /**
+     * Appends the statements of {@code block} to {@code result}.
+     *
+     * @param result
+     *            the block appended to
+     * @param block
+     *            the block appended
+     * @clears block
+     * @return true iff an appended statement is {@code WHILE true}
+     */
+    private static boolean appendAll(Statement result, Statement block) {
+        boolean endless = false;
+        while (block.lengthOfBlock() > 0 && !endless) {
+            endless = append(result, block.removeFromBlock(0));
+        }
+        block.clear();
+        return endless;
+    }
+
+    /**
+     * Appends {@code s} to {@code result}.
+     *
+     * @param result
+     *            the block appended to
+     * @param s
+     *            the statement appended
+     * @clears s
+     * @return true iff s is {@code WHILE true}
+     */
+    private static boolean append(Statement result, Statement s) {
+        boolean endless = false;
+        if (s.kind() == Statement.Kind.WHILE) {
+            Statement b = s.newInstance();
+            Statement.Condition c = s.disassembleWhile(b);
+            endless = c == Statement.Condition.TRUE;
+            s.assembleWhile(c, b);
+        }
+        result.addToBlock(result.lengthOfBlock(), s);
+        return endless;
+    }
+
+    /**
+     * Appends the optimized statement of {@code f}, whose blocks have all
+     * been optimized, to the result of {@code parent}.
+     *
+     * @param parent
+     *            the frame of the block containing the statement
+     * @param f
+     *            the frame of the last block of the statement
+     * @updates parent
+     */
+    private static void finish(Frame parent, Frame f) {
+        Statement s = f.statement;
+        Statement.Condition c = f.condition;
+        Statement result = parent.result;
+        boolean endless = false;
+        switch (f.kind) {
+            case IF: {
+                Statement b = f.block;
+                if (c == Statement.Condition.TRUE) {
+                    endless = appendAll(result, b);
+                } else if (b.lengthOfBlock() > 0) {
+                    s.assembleIf(c, b);
+                    endless = append(result, s);
+                }
+                break;
+            }
+            case IF_ELSE: {
+                Statement b1 = f.other;
+                Statement b2 = f.block;
+                Statement.Condition notC = NEGATIONS.get(c);
+                if (c == Statement.Condition.TRUE) {
+                    endless = appendAll(result, b1);
+                } else if (b2.lengthOfBlock() == 0) {
+                    if (b1.lengthOfBlock() > 0) {
+                        s.assembleIf(c, b1);
+                        endless = append(result, s);
+                    }
+                } else if (b1.lengthOfBlock() == 0 && notC != null) {
+                    s.assembleIf(notC, b2);
+                    endless = append(result, s);
+                } else {
+                    s.assembleIfElse(c, b1, b2);
+                    endless = append(result, s);
+                }
+                break;
+            }
+            default: {
+                s.assembleWhile(c, f.block);
+                endless = append(result, s);
+                break;
+            }
+        }
+        parent.endless = endless;
+    }
+
+    /**
+     * Optimizes the block {@code block}. Statements are taken apart onto an
+     * explicit stack, so block may be nested as deeply as the parser allows.
+     *
+     * @param block
+     *            the block
+     * @updates block
+     */
+    private void optimizeBlock(Statement block) {
+        ArrayList<Frame> open = new ArrayList<>();
+        open.add(new Frame(block, null, null, null));
+        while (!open.isEmpty()) {
+            Frame f = open.get(open.size() - 1);
+            if (!f.endless && f.block.lengthOfBlock() > 0) {
+                Statement s = f.block.removeFromBlock(0);
+                switch (s.kind()) {
+                    case IF: {
+                        Statement b = s.newInstance();
+                        Statement.Condition c = s.disassembleIf(b);
+                        open.add(new Frame(b, s, Statement.Kind.IF, c));
+                        break;
+                    }
+                    case IF_ELSE: {
+                        Statement b1 = s.newInstance();
+                        Statement b2 = s.newInstance();
+                        Statement.Condition c = s.disassembleIfElse(b1, b2);
+                        Frame then = new Frame(b1, s, Statement.Kind.IF_ELSE,
+                                c);
+                        then.other = b2;
+                        then.inThen = true;
+                        open.add(then);
+                        break;
+                    }
+                    case WHILE: {
+                        Statement b = s.newInstance();
+                        Statement.Condition c = s.disassembleWhile(b);
+                        open.add(new Frame(b, s, Statement.Kind.WHILE, c));
+                        break;
+                    }
+                    default: {
+                        String name = s.disassembleCall();
+                        if (this.isInlined(name)) {
+                            f.endless = appendAll(f.result, StatementWalker
+                                    .copy(this.optimizedBody(name)));
+                        } else {
+                            s.assembleCall(name);
+                            f.endless = append(f.result, s);
+                        }
+                        break;
+                    }
+                }
+            } else {
+                f.block.transferFrom(f.result);
+                if (f.inThen) {
+                    /*
+                     * THEN block done; optimize the ELSE block next
+                     */
+                    Statement elseBlock = f.other;
+                    f.other = f.block;
+                    f.block = elseBlock;
+                    f.result = elseBlock.newInstance();
+                    f.endless = false;
+                    f.inThen = false;
+                } else {
+                    open.remove(open.size() - 1);
+                    if (f.statement != null) {
+                        finish(open.get(open.size() - 1), f);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Optimizes {@code p}, inlining instructions of at most
+     * {@code DEFAULT_INLINE_LIMIT} statements.
+     *
+     * @param p
+     *            the program
+     * @updates p
+     * @ensures [p executes the same primitive instructions as #p, in the
+     *          same order, for the same sensor readings]
+     */
+    public static void optimize(Program p) {
+        optimize(p, DEFAULT_INLINE_LIMIT);
+    }
+
+    /**
+     * Optimizes {@code p}, inlining instructions of at most
+     * {@code inlineLimit} statements.
+     *
+     * @param p
+     *            the program
+     * @param inlineLimit
+     *            largest number of statements in an inlined body; 0 disables
+     *            inlining
+     * @updates p
+     * @requires inlineLimit >= 0
+     * @ensures [p executes the same primitive instructions as #p, in the
+     *          same order, for the same sensor readings]
+     */
+    public static void optimize(Program p, int inlineLimit) {
+        assert p != null : "Violation of: p is not null";
+        assert inlineLimit >= 0 : "Violation of: inlineLimit >= 0";
+
+        ProgramOptimizer optimizer = new ProgramOptimizer(inlineLimit);
+        CallGraph graph = new CallGraph(p);
+        for (int id = 0; id < graph.size(); id++) {
+            if (graph.isRecursive(id)) {
+                optimizer.recursive.add(graph.name(id));
+            }
+        }
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        while (context.size() > 0) {
+            Map.Pair<String, Statement> pair = context.removeAny();
+            optimizer.original.put(pair.key(), pair.value());
+        }
+        /*
+         * Callees first, so no body is optimized while another is
+         */
+        for (int id : graph.topologicalOrder()) {
+            optimizer.optimizedBody(graph.name(id));
+        }
+        for (String name : optimizer.original.keySet()) {
+            context.add(name, optimizer.optimizedBody(name));
+        }
+        Statement body = p.replaceBody(p.newBody());
+        optimizer.optimizeBlock(body);
+        p.replaceBody(body);
+        p.replaceContext(context);
+    }
+
+}
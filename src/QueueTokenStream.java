@@ -0,0 +1,100 @@
+import components.queue.Queue;
+
+/**
+ * {@code TokenStream} view of an already tokenized {@code Queue<String>}, as
+ * returned by {@code Tokenizer.tokens}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class QueueTokenStream implements TokenStream {
+
+    /**
+     * The tokens being viewed.
+     */
+    private final Queue<String> tokens;
+
+    /**
+     * Kind of the front of {@code tokens}, or {@code null} if it has not been
+     * computed yet.
+     */
+    private TokenKind frontKind;
+
+    /**
+     * Number of tokens dequeued so far.
+     */
+    private int index;
+
+    /**
+     * Constructor from a token queue; dequeuing from {@code this} dequeues
+     * from {@code tokens}.
+     *
+     * @param tokens
+     *            the tokens to view
+     * @requires Tokenizer.END_OF_INPUT is a suffix of tokens
+     */
+    public QueueTokenStream(Queue<String> tokens) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert tokens.length() > 0 : ""
+                + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
+        this.tokens = tokens;
+        this.index = 0;
+    }
+
+    @Override
+    public String front() {
+        return this.tokens.front();
+    }
+
+    @Override
+    public TokenKind frontKind() {
+        if (this.frontKind == null) {
+            this.frontKind = TokenKind.of(this.tokens.front());
+        }
+        return this.frontKind;
+    }
+
+    @Override
+    public int frontIndex() {
+        return this.index;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * A token queue does not record where its tokens came from, so this is
+     * always 0.
+     */
+    @Override
+    public int frontLine() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * A token queue does not record where its tokens came from, so this is
+     * always 0.
+     */
+    @Override
+    public int frontColumn() {
+        return 0;
+    }
+
+    @Override
+    public String dequeue() {
+        if (this.tokens.length() == 1) {
+            /*
+             * Only END_OF_INPUT is left; it stays in the queue
+             */
+            return this.tokens.front();
+        }
+        this.frontKind = null;
+        this.index++;
+        return this.tokens.dequeue();
+    }
+
+}
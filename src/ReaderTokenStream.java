@@ -0,0 +1,188 @@
+import java.util.HashMap;
+
+import components.simplereader.SimpleReader;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code TokenStream} that tokenizes a {@code SimpleReader} lazily, reading
+ * one line at a time and splitting off one token at a time as the parser asks
+ * for it. Only the current line and the front token are ever held in memory,
+ * so memory use does not depend on the length of the input.
+ *
+ * <p>
+ * Tokens are separated by ASCII whitespace, as defined by
+ * {@code TokenKind.isSeparator}, and a {@code #} starts a comment that runs to
+ * the end of the line, as in {@code Tokenizer.tokens}. Each token is
+ * classified once, as it is split off, and equal tokens are returned as the
+ * same {@code String} instance, so a parsed program shares one copy of each
+ * instruction name.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ReaderTokenStream implements TokenStream {
+
+    /**
+     * Character that starts a comment.
+     */
+    private static final char COMMENT = '#';
+
+    /**
+     * The input being tokenized; it is not closed by {@code this}.
+     */
+    private final SimpleReader in;
+
+    /**
+     * The line currently being tokenized, or {@code null} once the input is
+     * exhausted.
+     */
+    private String line;
+
+    /**
+     * Position in {@code line} of the first character not yet tokenized.
+     */
+    private int pos;
+
+    /**
+     * Number of lines read so far, i.e., the line number of {@code line}.
+     */
+    private int lineNumber;
+
+    /**
+     * The front token.
+     */
+    private String front;
+
+    /**
+     * The kind of the front token.
+     */
+    private TokenKind frontKind;
+
+    /**
+     * Index of the front token in the whole token string.
+     */
+    private int frontIndex;
+
+    /**
+     * Line of the front token.
+     */
+    private int frontLine;
+
+    /**
+     * Column of the front token.
+     */
+    private int frontColumn;
+
+    /**
+     * Canonical instances of the tokens seen so far.
+     */
+    private final HashMap<String, String> interned;
+
+    /**
+     * Constructor from an open input; tokens are read from {@code in} as they
+     * are needed, so {@code in} must stay open while {@code this} is in use.
+     *
+     * @param in
+     *            the input to tokenize
+     * @requires in.is_open
+     */
+    public ReaderTokenStream(SimpleReader in) {
+        assert in != null : "Violation of: in is not null";
+        assert in.isOpen() : "Violation of: in.is_open";
+        this.in = in;
+        this.interned = new HashMap<>();
+        this.line = "";
+        this.pos = 0;
+        this.lineNumber = 0;
+        this.frontIndex = 0;
+        this.advance();
+    }
+
+    /**
+     * Scans the next token from the input into {@code front}, reading more
+     * lines as needed.
+     *
+     * @updates this
+     */
+    private void advance() {
+        while (this.line != null) {
+            int length = this.line.length();
+            while (this.pos < length
+                    && TokenKind.isSeparator(this.line.charAt(this.pos))) {
+                this.pos++;
+            }
+            if (this.pos < length && this.line.charAt(this.pos) != COMMENT) {
+                int start = this.pos;
+                while (this.pos < length
+                        && !TokenKind.isSeparator(this.line.charAt(this.pos))
+                        && this.line.charAt(this.pos) != COMMENT) {
+                    this.pos++;
+                }
+                String token = this.line.substring(start, this.pos);
+                this.frontLine = this.lineNumber;
+                this.frontColumn = start + 1;
+                this.frontKind = TokenKind.of(token);
+                if (this.frontKind != TokenKind.ERROR) {
+                    String canonical = this.interned.putIfAbsent(token, token);
+                    if (canonical != null) {
+                        token = canonical;
+                    }
+                }
+                this.front = token;
+                return;
+            }
+            /*
+             * Rest of the line is blank or a comment; move on to the next one
+             */
+            if (this.in.atEOS()) {
+                this.line = null;
+            } else {
+                this.line = this.in.nextLine();
+                ParseMetrics.read(this.line.length() + 1);
+                this.pos = 0;
+                this.lineNumber++;
+            }
+        }
+        this.front = Tokenizer.END_OF_INPUT;
+        this.frontKind = TokenKind.END_OF_INPUT;
+        this.frontLine = this.lineNumber + 1;
+        this.frontColumn = 1;
+    }
+
+    @Override
+    public String front() {
+        return this.front;
+    }
+
+    @Override
+    public TokenKind frontKind() {
+        return this.frontKind;
+    }
+
+    @Override
+    public int frontIndex() {
+        return this.frontIndex;
+    }
+
+    @Override
+    public int frontLine() {
+        return this.frontLine;
+    }
+
+    @Override
+    public int frontColumn() {
+        return this.frontColumn;
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.front;
+        if (this.line != null) {
+            this.frontIndex++;
+            this.advance();
+        }
+        return token;
+    }
+
+}
@@ -0,0 +1,27 @@
+/**
+ * A {@code Bug} that can sense all of its surroundings at once: at the start
+ * of each turn, i.e., before the next primitive instruction, an executor
+ * asks for one snapshot and evaluates every condition of the turn against
+ * it with a mask test, instead of calling a sensor per condition. A
+ * {@code random} condition is not in the snapshot; it calls {@code random}
+ * each time it is evaluated.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public interface SensingBug extends Bug {
+
+    /**
+     * Returns a snapshot of the bug's surroundings for the current turn.
+     *
+     * @return the snapshot
+     * @ensures <pre>
+     * [sense has bit Sensors.EMPTY iff nextIsEmpty() holds, Sensors.WALL iff
+     *  nextIsWall() holds, Sensors.FRIEND iff nextIsFriend() holds,
+     *  Sensors.ENEMY iff nextIsEnemy() holds, and no other bit]
+     * </pre>
+     */
+    int sense();
+
+}
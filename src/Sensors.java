@@ -0,0 +1,200 @@
+import components.statement.Statement;
+
+/**
+ * Bitmask encoding of sensor readings and conditions.
+ *
+ * <p>
+ * A snapshot has one bit per sensor that reads true. A condition compiles to
+ * the bit of the sensor it reads, plus the sign bit if it is negated, so
+ * every condition is evaluated by one mask test:
+ * {@code ((snapshot & condition & SENSORS) != 0) != (condition < 0)}.
+ * {@code true} is the negation of no sensor. A snapshot never has the
+ * {@code RANDOM} bit: {@code Bug.random} is called on every evaluation of a
+ * {@code random} condition, so two of them in one turn may differ.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class Sensors {
+
+    /**
+     * Bit of sensor {@code Bug.nextIsEmpty}.
+     */
+    public static final int EMPTY = 1;
+
+    /**
+     * Bit of sensor {@code Bug.nextIsWall}.
+     */
+    public static final int WALL = 1 << 1;
+
+    /**
+     * Bit of sensor {@code Bug.nextIsFriend}.
+     */
+    public static final int FRIEND = 1 << 2;
+
+    /**
+     * Bit of sensor {@code Bug.nextIsEnemy}.
+     */
+    public static final int ENEMY = 1 << 3;
+
+    /**
+     * Bit of sensor {@code Bug.random}.
+     */
+    public static final int RANDOM = 1 << 4;
+
+    /**
+     * Bits of all sensors.
+     */
+    public static final int SENSORS = EMPTY | WALL | FRIEND | ENEMY | RANDOM;
+
+    /**
+     * Bits of the sensors in a snapshot.
+     */
+    public static final int SNAPSHOT = EMPTY | WALL | FRIEND | ENEMY;
+
+    /**
+     * Bit of a negated condition.
+     */
+    public static final int NEGATED = Integer.MIN_VALUE;
+
+    /**
+     * Compiled conditions, indexed by ordinal.
+     */
+    private static final int[] COMPILED = new int[Statement.Condition
+            .values().length];
+
+    static {
+        for (Statement.Condition c : Statement.Condition.values()) {
+            int bits;
+            switch (c) {
+                case NEXT_IS_EMPTY:
+                case NEXT_IS_NOT_EMPTY:
+                    bits = EMPTY;
+                    break;
+                case NEXT_IS_WALL:
+                case NEXT_IS_NOT_WALL:
+                    bits = WALL;
+                    break;
+                case NEXT_IS_FRIEND:
+                case NEXT_IS_NOT_FRIEND:
+                    bits = FRIEND;
+                    break;
+                case NEXT_IS_ENEMY:
+                case NEXT_IS_NOT_ENEMY:
+                    bits = ENEMY;
+                    break;
+                case RANDOM:
+                    bits = RANDOM;
+                    break;
+                default:
+                    /*
+                     * true: the negation of no sensor
+                     */
+                    bits = NEGATED;
+                    break;
+            }
+            if (c.name().contains("_NOT_")) {
+                bits |= NEGATED;
+            }
+            COMPILED[c.ordinal()] = bits;
+        }
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Sensors() {
+    }
+
+    /**
+     * Returns the compiled form of {@code c}.
+     *
+     * @param c
+     *            the condition
+     * @return the bit of the sensor c reads, with NEGATED if c is negated
+     */
+    public static int compile(Statement.Condition c) {
+        assert c != null : "Violation of: c is not null";
+        return COMPILED[c.ordinal()];
+    }
+
+    /**
+     * Reports whether {@code condition} holds in {@code snapshot}.
+     *
+     * @param snapshot
+     *            the sensor readings
+     * @param condition
+     *            the compiled condition
+     * @return true iff the condition holds
+     * @requires [snapshot has the bit of the sensor condition reads]
+     */
+    public static boolean holds(int snapshot, int condition) {
+        return ((snapshot & condition & SENSORS) != 0) != (condition < 0);
+    }
+
+    /**
+     * Returns the reading of the one sensor {@code condition} reads, calling
+     * only that sensor of {@code bug}.
+     *
+     * @param bug
+     *            the bug
+     * @param condition
+     *            the compiled condition
+     * @return the bit of the sensor if it reads true, else 0
+     */
+    public static int read(Bug bug, int condition) {
+        boolean reading;
+        switch (condition & SENSORS) {
+            case EMPTY:
+                reading = bug.nextIsEmpty();
+                break;
+            case WALL:
+                reading = bug.nextIsWall();
+                break;
+            case FRIEND:
+                reading = bug.nextIsFriend();
+                break;
+            case ENEMY:
+                reading = bug.nextIsEnemy();
+                break;
+            case RANDOM:
+                reading = bug.random();
+                break;
+            default:
+                reading = false;
+                break;
+        }
+        int bit = 0;
+        if (reading) {
+            bit = condition & SENSORS;
+        }
+        return bit;
+    }
+
+    /**
+     * Returns a snapshot of {@code bug}, calling each of its sensors but
+     * {@code random} once.
+     *
+     * @param bug
+     *            the bug
+     * @return the snapshot, as SensingBug.sense
+     */
+    public static int snapshot(Bug bug) {
+        int s = 0;
+        if (bug.nextIsEmpty()) {
+            s |= EMPTY;
+        }
+        if (bug.nextIsWall()) {
+            s |= WALL;
+        }
+        if (bug.nextIsFriend()) {
+            s |= FRIEND;
+        }
+        if (bug.nextIsEnemy()) {
+            s |= ENEMY;
+        }
+        return s;
+    }
+
+}
@@ -0,0 +1,830 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.utilities.Reporter;
+
+/**
+ * Simulation of many bugs, each driven by a BL program, on a shared grid
+ * world whose border is a wall.
+ *
+ * <p>
+ * The simulation runs in rounds. In each round every bug takes one turn of
+ * its program on a {@code VirtualMachine}, a primitive instruction or
+ * {@code Bug.TURN_LIMIT} jumps without one, starting the program over when
+ * its body completes. Sensors read the world as it was at the start of the
+ * round, and the round's moves and infections then take effect together: a
+ * bug moves only into a cell that was empty, infects only a bug that was an
+ * enemy, and when several bugs move into the same cell or infect the same
+ * bug, the one with the lowest id wins. An infected bug takes the species
+ * and program of the bug that infected it, and starts that program from the
+ * beginning.
+ *
+ * <p>
+ * Rounds are computed in parallel: the rows of the world are split into
+ * stripes, and a first phase runs the bugs of each stripe in parallel,
+ * recording their moves and infections as intents. A second phase, also
+ * parallel, has each stripe resolve the intents aimed at its own cells,
+ * including those from bugs in the neighboring stripes. A move also empties
+ * the cell the bug leaves, which may be in the neighboring stripe, so a cell
+ * is not always written by its own stripe; but a bug moves only into a cell
+ * that was empty and makes at most one move a round, so no cell is written
+ * by two threads in one round. Because of the rules above, and because each
+ * bug has its own random sequence, the result does not depend on the number
+ * of stripes or threads. Bugs are sensed once per turn, except that each
+ * {@code random} condition draws from the bug's random sequence.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class Simulation {
+
+    /**
+     * Direction north, toward row 0.
+     */
+    public static final int NORTH = 0;
+
+    /**
+     * Direction east, toward the last column.
+     */
+    public static final int EAST = 1;
+
+    /**
+     * Direction south, toward the last row.
+     */
+    public static final int SOUTH = 2;
+
+    /**
+     * Direction west, toward column 0.
+     */
+    public static final int WEST = 3;
+
+    /**
+     * Content of an empty cell.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * Column offsets of the cell in front, indexed by direction.
+     */
+    private static final int[] DX = { 0, 1, 0, -1 };
+
+    /**
+     * Row offsets of the cell in front, indexed by direction.
+     */
+    private static final int[] DY = { -1, 0, 1, 0 };
+
+    /**
+     * Intent to move.
+     */
+    private static final int MOVE = 0;
+
+    /**
+     * Intent to infect.
+     */
+    private static final int INFECT = 1;
+
+    /**
+     * Initial number of bugs and of intents per stripe.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Multiplier of the random sequences (from SplittableRandom).
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Number of columns.
+     */
+    private final int width;
+
+    /**
+     * Number of rows.
+     */
+    private final int height;
+
+    /**
+     * Number of rows per stripe, except perhaps the last.
+     */
+    private final int stripeHeight;
+
+    /**
+     * Seed of the random sequences of the bugs.
+     */
+    private final long seed;
+
+    /**
+     * Id of the bug in each cell, or EMPTY, indexed by y * width + x.
+     */
+    private final int[] grid;
+
+    /**
+     * Code of each species' program.
+     */
+    private int[][] programs = new int[0][];
+
+    /**
+     * Number of bugs.
+     */
+    private int bugs = 0;
+
+    /**
+     * Cell of each bug.
+     */
+    private int[] cell = new int[INITIAL_CAPACITY];
+
+    /**
+     * Direction of each bug.
+     */
+    private int[] direction = new int[INITIAL_CAPACITY];
+
+    /**
+     * Species of each bug.
+     */
+    private int[] species = new int[INITIAL_CAPACITY];
+
+    /**
+     * State of the random sequence of each bug.
+     */
+    private long[] random = new long[INITIAL_CAPACITY];
+
+    /**
+     * Machine running the program of each bug.
+     */
+    private VirtualMachine[] machines = new VirtualMachine[INITIAL_CAPACITY];
+
+    /**
+     * Lowest id of a bug aiming at each cell in the current round, or
+     * Integer.MAX_VALUE.
+     */
+    private final int[] claims;
+
+    /**
+     * Intents recorded by each stripe in the current round.
+     */
+    private final Intents[] intents;
+
+    /**
+     * Number of rounds run.
+     */
+    private long rounds = 0;
+
+    /**
+     * Number of turns taken by all bugs.
+     */
+    private long steps = 0;
+
+    /**
+     * Moves and infections of the bugs of one stripe, in one round.
+     */
+    private static final class Intents {
+
+        /**
+         * Number of intents.
+         */
+        private int count;
+
+        /**
+         * Kind of each intent: MOVE or INFECT.
+         */
+        private int[] kind = new int[INITIAL_CAPACITY];
+
+        /**
+         * Bug of each intent.
+         */
+        private int[] bug = new int[INITIAL_CAPACITY];
+
+        /**
+         * Target cell of each intent.
+         */
+        private int[] target = new int[INITIAL_CAPACITY];
+
+        /**
+         * Species of the bug of each intent, at the start of the round.
+         */
+        private int[] species = new int[INITIAL_CAPACITY];
+
+        /**
+         * Bug in the target cell of each intent at the start of the round,
+         * or EMPTY.
+         */
+        private int[] victim = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of turns taken in the stripe.
+         */
+        private long steps;
+
+        /**
+         * Adds an intent.
+         *
+         * @param k
+         *            the kind
+         * @param b
+         *            the bug
+         * @param t
+         *            the target cell
+         * @param s
+         *            the species of b
+         * @param v
+         *            the bug in t, or EMPTY
+         */
+        void add(int k, int b, int t, int s, int v) {
+            if (this.count == this.kind.length) {
+                int n = 2 * this.count;
+                this.kind = Arrays.copyOf(this.kind, n);
+                this.bug = Arrays.copyOf(this.bug, n);
+                this.target = Arrays.copyOf(this.target, n);
+                this.species = Arrays.copyOf(this.species, n);
+                this.victim = Arrays.copyOf(this.victim, n);
+            }
+            this.kind[this.count] = k;
+            this.bug[this.count] = b;
+            this.target[this.count] = t;
+            this.species[this.count] = s;
+            this.victim[this.count] = v;
+            this.count++;
+        }
+
+    }
+
+    /**
+     * The {@code Bug} a machine drives in the first phase: reads the world
+     * and records intents, one bug at a time. It is sensed once per turn,
+     * from one read of the cell in front.
+     */
+    private final class Actor implements SensingBug {
+
+        /**
+         * Intents of the stripe.
+         */
+        private final Intents out;
+
+        /**
+         * The bug being run.
+         */
+        private int id;
+
+        /**
+         * Constructor.
+         *
+         * @param out
+         *            intents of the stripe
+         */
+        Actor(Intents out) {
+            this.out = out;
+        }
+
+        /**
+         * Returns the cell in front of the bug, or -1 if it is the wall.
+         *
+         * @return the cell in front
+         */
+        private int front() {
+            int c = Simulation.this.cell[this.id];
+            int d = Simulation.this.direction[this.id];
+            int x = c % Simulation.this.width + DX[d];
+            int y = c / Simulation.this.width + DY[d];
+            int front = -1;
+            if (0 <= x && x < Simulation.this.width && 0 <= y
+                    && y < Simulation.this.height) {
+                front = y * Simulation.this.width + x;
+            }
+            return front;
+        }
+
+        @Override
+        public int sense() {
+            int f = this.front();
+            int snapshot = Sensors.WALL;
+            if (f >= 0) {
+                int other = Simulation.this.grid[f];
+                if (other == EMPTY) {
+                    snapshot = Sensors.EMPTY;
+                } else if (Simulation.this.species[other]
+                        == Simulation.this.species[this.id]) {
+                    snapshot = Sensors.FRIEND;
+                } else {
+                    snapshot = Sensors.ENEMY;
+                }
+            }
+            return snapshot;
+        }
+
+        @Override
+        public boolean nextIsEmpty() {
+            int f = this.front();
+            return f >= 0 && Simulation.this.grid[f] == EMPTY;
+        }
+
+        @Override
+        public boolean nextIsWall() {
+            return this.front() < 0;
+        }
+
+        @Override
+        public boolean nextIsFriend() {
+            int f = this.front();
+            return f >= 0 && Simulation.this.grid[f] != EMPTY
+                    && Simulation.this.species[Simulation.this.grid[f]]
+                            == Simulation.this.species[this.id];
+        }
+
+        @Override
+        public boolean nextIsEnemy() {
+            int f = this.front();
+            return f >= 0 && Simulation.this.grid[f] != EMPTY
+                    && Simulation.this.species[Simulation.this.grid[f]]
+                            != Simulation.this.species[this.id];
+        }
+
+        @Override
+        public boolean random() {
+            long z = Simulation.this.random[this.id] + GOLDEN_GAMMA;
+            Simulation.this.random[this.id] = z;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return ((z ^ (z >>> 31)) & 1) == 1;
+        }
+
+        @Override
+        public void move() {
+            if (this.nextIsEmpty()) {
+                this.out.add(MOVE, this.id, this.front(),
+                        Simulation.this.species[this.id], EMPTY);
+            }
+        }
+
+        @Override
+        public void turnLeft() {
+            int[] d = Simulation.this.direction;
+            d[this.id] = (d[this.id] + 3) % 4;
+        }
+
+        @Override
+        public void turnRight() {
+            int[] d = Simulation.this.direction;
+            d[this.id] = (d[this.id] + 1) % 4;
+        }
+
+        @Override
+        public void infect() {
+            if (this.nextIsEnemy()) {
+                int f = this.front();
+                this.out.add(INFECT, this.id, f,
+                        Simulation.this.species[this.id],
+                        Simulation.this.grid[f]);
+            }
+        }
+
+        @Override
+        public void skip() {
+            /*
+             * Nothing to do
+             */
+        }
+
+    }
+
+    /**
+     * Task that runs one phase of a round on a range of stripes, splitting
+     * the range in half until it is one stripe.
+     */
+    private final class PhaseTask extends RecursiveAction {
+
+        /**
+         * Serialization version; tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Whether this is the second phase.
+         */
+        private final boolean resolve;
+
+        /**
+         * First stripe of the range, inclusive.
+         */
+        private final int lo;
+
+        /**
+         * Last stripe of the range, exclusive.
+         */
+        private final int hi;
+
+        /**
+         * Constructor.
+         *
+         * @param resolve
+         *            whether this is the second phase
+         * @param lo
+         *            first stripe of the range, inclusive
+         * @param hi
+         *            last stripe of the range, exclusive
+         */
+        PhaseTask(boolean resolve, int lo, int hi) {
+            this.resolve = resolve;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo == 1) {
+                if (this.resolve) {
+                    Simulation.this.resolve(this.lo);
+                } else {
+                    Simulation.this.act(this.lo);
+                }
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new PhaseTask(this.resolve, this.lo, mid),
+                        new PhaseTask(this.resolve, mid, this.hi));
+            }
+        }
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; the new world is empty.
+     *
+     * @param width
+     *            the number of columns
+     * @param height
+     *            the number of rows
+     * @param stripes
+     *            the number of stripes the rows are split into
+     * @param seed
+     *            the seed of the random sequences of the bugs
+     * @requires width > 0 and 0 < stripes <= height
+     */
+    public Simulation(int width, int height, int stripes, long seed) {
+        assert width > 0 : "Violation of: width > 0";
+        assert 0 < stripes && stripes <= height : ""
+                + "Violation of: 0 < stripes <= height";
+        this.width = width;
+        this.height = height;
+        this.stripeHeight = (height + stripes - 1) / stripes;
+        this.seed = seed;
+        this.grid = new int[width * height];
+        Arrays.fill(this.grid, EMPTY);
+        this.claims = new int[width * height];
+        Arrays.fill(this.claims, Integer.MAX_VALUE);
+        int n = (height + this.stripeHeight - 1) / this.stripeHeight;
+        this.intents = new Intents[n];
+        for (int s = 0; s < n; s++) {
+            this.intents[s] = new Intents();
+        }
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Runs one turn of each bug of stripe {@code s}, recording its intents.
+     * A turn always ends, so a bug whose program loops without a primitive
+     * instruction cannot hold up its stripe.
+     *
+     * @param s
+     *            the stripe
+     */
+    private void act(int s) {
+        Intents out = this.intents[s];
+        out.count = 0;
+        out.steps = 0;
+        Actor actor = new Actor(out);
+        int from = s * this.stripeHeight * this.width;
+        int to = Math.min((s + 1) * this.stripeHeight, this.height)
+                * this.width;
+        for (int c = from; c < to; c++) {
+            int id = this.grid[c];
+            if (id != EMPTY) {
+                actor.id = id;
+                VirtualMachine vm = this.machines[id];
+                int n = vm.run(actor, 1);
+                if (n == 0 && vm.isDone()) {
+                    vm.reset();
+                    n = vm.run(actor, 1);
+                }
+                out.steps += n;
+            }
+        }
+    }
+
+    /**
+     * Applies the intents aimed at the cells of stripe {@code s}. A bug
+     * that wins a move also leaves its cell empty, even if that cell is in
+     * a neighboring stripe.
+     *
+     * @param s
+     *            the stripe
+     */
+    private void resolve(int s) {
+        int from = s * this.stripeHeight * this.width;
+        int to = Math.min((s + 1) * this.stripeHeight, this.height)
+                * this.width;
+        int first = Math.max(s - 1, 0);
+        int last = Math.min(s + 1, this.intents.length - 1);
+        /*
+         * The lowest id aiming at each cell wins it
+         */
+        for (int k = first; k <= last; k++) {
+            Intents in = this.intents[k];
+            for (int i = 0; i < in.count; i++) {
+                int t = in.target[i];
+                if (from <= t && t < to && in.bug[i] < this.claims[t]) {
+                    this.claims[t] = in.bug[i];
+                }
+            }
+        }
+        for (int k = first; k <= last; k++) {
+            Intents in = this.intents[k];
+            for (int i = 0; i < in.count; i++) {
+                int t = in.target[i];
+                if (from <= t && t < to && in.bug[i] == this.claims[t]) {
+                    int id = in.bug[i];
+                    if (in.kind[i] == MOVE) {
+                        this.grid[this.cell[id]] = EMPTY;
+                        this.grid[t] = id;
+                        this.cell[id] = t;
+                    } else {
+                        /*
+                         * The victim may be moving away from t in this
+                         * round, so it is known by id, not by cell
+                         */
+                        int victim = in.victim[i];
+                        this.species[victim] = in.species[i];
+                        this.machines[victim] = new VirtualMachine(
+                                this.programs[in.species[i]]);
+                    }
+                }
+            }
+        }
+        for (int k = first; k <= last; k++) {
+            Intents in = this.intents[k];
+            for (int i = 0; i < in.count; i++) {
+                int t = in.target[i];
+                if (from <= t && t < to) {
+                    this.claims[t] = Integer.MAX_VALUE;
+                }
+            }
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Adds a species whose bugs run {@code p}.
+     *
+     * @param p
+     *            the program
+     * @return the number of the new species
+     * @restores p
+     * @requires [every instruction called in p is primitive or defined in the
+     *           context of p]
+     */
+    public int addSpecies(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        int n = this.programs.length;
+        this.programs = Arrays.copyOf(this.programs, n + 1);
+        this.programs[n] = CodeGenerator.generate(p);
+        return n;
+    }
+
+    /**
+     * Adds a bug of species {@code s} at column {@code x} and row {@code y},
+     * facing {@code d}, at the start of its program.
+     *
+     * @param s
+     *            the species
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @param d
+     *            the direction
+     * @return the id of the new bug
+     * @requires <pre>
+     * 0 <= s < [number of species]  and  0 <= x < width  and
+     * 0 <= y < height  and  occupant(x, y) = EMPTY  and  0 <= d < 4
+     * </pre>
+     */
+    public int addBug(int s, int x, int y, int d) {
+        assert 0 <= s && s < this.programs.length : ""
+                + "Violation of: 0 <= s < [number of species]";
+        assert this.occupant(x, y) == EMPTY : ""
+                + "Violation of: occupant(x, y) = EMPTY";
+        assert 0 <= d && d < 4 : "Violation of: 0 <= d < 4";
+
+        int id = this.bugs;
+        if (id == this.cell.length) {
+            int n = 2 * id;
+            this.cell = Arrays.copyOf(this.cell, n);
+            this.direction = Arrays.copyOf(this.direction, n);
+            this.species = Arrays.copyOf(this.species, n);
+            this.random = Arrays.copyOf(this.random, n);
+            this.machines = Arrays.copyOf(this.machines, n);
+        }
+        this.cell[id] = y * this.width + x;
+        this.direction[id] = d;
+        this.species[id] = s;
+        this.random[id] = this.seed + id * GOLDEN_GAMMA;
+        this.machines[id] = new VirtualMachine(this.programs[s]);
+        this.grid[this.cell[id]] = id;
+        this.bugs++;
+        return id;
+    }
+
+    /**
+     * Runs one round on the threads of {@code pool}.
+     *
+     * @param pool
+     *            the pool to run on
+     */
+    public void step(ForkJoinPool pool) {
+        assert pool != null : "Violation of: pool is not null";
+
+        int n = this.intents.length;
+        pool.invoke(new PhaseTask(false, 0, n));
+        pool.invoke(new PhaseTask(true, 0, n));
+        for (Intents in : this.intents) {
+            this.steps += in.steps;
+        }
+        this.rounds++;
+    }
+
+    /**
+     * Runs {@code n} rounds on the threads of {@code pool}.
+     *
+     * @param n
+     *            the number of rounds
+     * @param pool
+     *            the pool to run on
+     */
+    public void run(int n, ForkJoinPool pool) {
+        for (int i = 0; i < n; i++) {
+            this.step(pool);
+        }
+    }
+
+    /**
+     * Returns the id of the bug at column {@code x} and row {@code y}, or
+     * EMPTY.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @return the occupant
+     * @requires 0 <= x < width and 0 <= y < height
+     */
+    public int occupant(int x, int y) {
+        assert 0 <= x && x < this.width : "Violation of: 0 <= x < width";
+        assert 0 <= y && y < this.height : "Violation of: 0 <= y < height";
+        return this.grid[y * this.width + x];
+    }
+
+    /**
+     * Returns the number of bugs.
+     *
+     * @return the number of bugs
+     */
+    public int bugs() {
+        return this.bugs;
+    }
+
+    /**
+     * Returns the column of bug {@code id}.
+     *
+     * @param id
+     *            the bug
+     * @return the column
+     * @requires 0 <= id < bugs()
+     */
+    public int x(int id) {
+        return this.cell[id] % this.width;
+    }
+
+    /**
+     * Returns the row of bug {@code id}.
+     *
+     * @param id
+     *            the bug
+     * @return the row
+     * @requires 0 <= id < bugs()
+     */
+    public int y(int id) {
+        return this.cell[id] / this.width;
+    }
+
+    /**
+     * Returns the direction of bug {@code id}.
+     *
+     * @param id
+     *            the bug
+     * @return the direction
+     * @requires 0 <= id < bugs()
+     */
+    public int direction(int id) {
+        return this.direction[id];
+    }
+
+    /**
+     * Returns the species of bug {@code id}.
+     *
+     * @param id
+     *            the bug
+     * @return the species
+     * @requires 0 <= id < bugs()
+     */
+    public int species(int id) {
+        return this.species[id];
+    }
+
+    /**
+     * Returns the number of rounds run.
+     *
+     * @return the number of rounds
+     */
+    public long rounds() {
+        return this.rounds;
+    }
+
+    /**
+     * Returns the number of turns taken by all bugs.
+     *
+     * @return the number of bug-steps
+     */
+    public long steps() {
+        return this.steps;
+    }
+
+    /*
+     * Main test method -------------------------------------------------------
+     */
+
+    /**
+     * Main method; runs generated programs on a world with one bug in every
+     * fourth cell, on 1, 2, 4, ... threads, and prints the throughput.
+     *
+     * @param args
+     *            the command line arguments: the side of the world, the
+     *            number of species, and the number of rounds
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        Reporter.assertElseFatalError(args.length == 3,
+                "Usage: Simulation <side> <species> <rounds>");
+        int side = Integer.parseInt(args[0]);
+        int kinds = Integer.parseInt(args[1]);
+        int n = Integer.parseInt(args[2]);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            Simulation sim = new Simulation(side, side, Math.min(side,
+                    4 * cores), 0);
+            for (int k = 0; k < kinds; k++) {
+                StringWriter text = new StringWriter();
+                try {
+                    new ProgramGenerator(k, 4, 2, 3).generate(text);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+                IncrementalParser parser = new IncrementalParser(
+                        text.toString());
+                Program p = new Program1Parse1();
+                parser.program(p);
+                sim.addSpecies(p);
+            }
+            Random random = new Random(0);
+            for (int c = 0; c < side * side; c += 4) {
+                sim.addBug(random.nextInt(kinds), c % side, c / side,
+                        random.nextInt(4));
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long start = System.nanoTime();
+            sim.run(n, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+            out.println(String.format("%2d threads: %,.0f bug-steps/s",
+                    threads, sim.steps() / seconds));
+        }
+        out.close();
+    }
+
+}
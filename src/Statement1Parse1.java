@@ -1,3 +1,6 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
 import components.queue.Queue;
 import components.simplereader.SimpleReader;
 import components.simplereader.SimpleReader1L;
@@ -5,7 +8,6 @@ import components.simplewriter.SimpleWriter;
 import components.simplewriter.SimpleWriter1L;
 import components.statement.Statement;
 import components.statement.Statement1;
-import components.utilities.Reporter;
 import components.utilities.Tokenizer;
 
 /**
@@ -21,6 +23,38 @@ public final class Statement1Parse1 extends Statement1 {
      * Private members --------------------------------------------------------
      */
 
+    /**
+     * State of an open IF statement whose THEN block is being parsed.
+     */
+    private static final byte OPEN_IF = 0;
+
+    /**
+     * State of an open IF_ELSE statement whose ELSE block is being parsed.
+     */
+    private static final byte OPEN_ELSE = 1;
+
+    /**
+     * State of an open WHILE statement whose body is being parsed.
+     */
+    private static final byte OPEN_WHILE = 2;
+
+    /**
+     * Initial capacity of the stack of open statements.
+     */
+    private static final int INITIAL_DEPTH = 64;
+
+    /**
+     * Conditions keyed by their BL text, e.g., "next-is-empty".
+     */
+    private static final HashMap<String, Condition> CONDITIONS =
+            new HashMap<>();
+
+    static {
+        for (Condition c : Condition.values()) {
+            CONDITIONS.put(c.name().toLowerCase().replace('_', '-'), c);
+        }
+    }
+
     /**
      * Converts {@code c} into the corresponding {@code Condition}.
      *
@@ -33,145 +67,307 @@ public final class Statement1Parse1 extends Statement1 {
     private static Condition parseCondition(String c) {
         assert c != null : "Violation of: c is not null";
         assert Tokenizer.isCondition(c) : "Violation of: c is a condition string";
-        return Condition.valueOf(c.replace('-', '_').toUpperCase());
+        return CONDITIONS.get(c);
     }
 
     /**
-     * Parses an IF or IF_ELSE statement from {@code tokens} into {@code s}.
+     * Parses the head of an IF statement, up to and including "THEN".
      *
      * @param tokens
      *            the input tokens
-     * @param s
-     *            the parsed statement
-     * @replaces s
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @return the condition of the IF statement
      * @updates tokens
      * @requires [<"IF"> is a proper prefix of tokens]
-     * @ensures
-     *
-     *          <pre>
-     * if [an if string is a proper prefix of #tokens] then
-     *  s = [IF or IF_ELSE Statement corresponding to if string at start of #tokens]  and
-     *  #tokens = [if string at start of #tokens] * tokens
-     * else
-     *  [reports an appropriate error message to the console and terminates client]
-     * </pre>
      */
-    private static void parseIf(Queue<String> tokens, Statement s) {
-        assert tokens != null : "Violation of: tokens is not null";
-        assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0 && tokens.front().equals("IF") : ""
-        + "Violation of: <\"IF\"> is proper prefix of tokens";
-
+    private static Condition parseIfHead(TokenStream tokens,
+            Diagnostics diagnostics) {
         tokens.dequeue(); //remove "IF"
 
-        String condString = tokens.dequeue(); //remove condition
-        Reporter.assertElseFatalError(Tokenizer.isCondition(condString),
+        diagnostics.check(tokens.frontKind() == TokenKind.CONDITION, tokens,
                 "Expected a condition after \"IF\".");
-        Condition condition = parseCondition(condString); //parse condition
+        Condition condition = parseCondition(tokens.dequeue()); //condition
 
-        String then = tokens.dequeue(); //remove "THEN"
-        Reporter.assertElseFatalError(then.equals("THEN"),
+        diagnostics.check(tokens.frontKind() == TokenKind.THEN, tokens,
                 "Expected \"THEN\" after condition in IF statement.");
+        tokens.dequeue(); //remove "THEN"
+        return condition;
+    }
 
-        Statement thenBody = s.newInstance();
-        thenBody.parseBlock(tokens); //parse body after "THEN"
+    /**
+     * Parses the head of a WHILE statement, up to and including "DO".
+     *
+     * @param tokens
+     *            the input tokens
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @return the condition of the WHILE statement
+     * @updates tokens
+     * @requires [<"WHILE"> is a proper prefix of tokens]
+     */
+    private static Condition parseWhileHead(TokenStream tokens,
+            Diagnostics diagnostics) {
+        tokens.dequeue(); //remove "WHILE"
 
-        String next = tokens.dequeue(); //remove next token, "ELSE" or "END"
-        if (next.equals("ELSE")) {
-            Statement elseBody = s.newInstance();
-            elseBody.parseBlock(tokens); //parse body after "ELSE"
+        diagnostics.check(tokens.frontKind() == TokenKind.CONDITION, tokens,
+                "Expected a condition after \"WHILE\".");
+        Condition condition = parseCondition(tokens.dequeue()); //condition
 
-            s.assembleIfElse(condition, thenBody, elseBody); //assemble if-else in s
+        diagnostics.check(tokens.frontKind() == TokenKind.DO, tokens,
+                "Expected \"DO\" after condition in WHILE statement.");
+        tokens.dequeue(); //remove "DO"
+        return condition;
+    }
 
-            next = tokens.dequeue(); //remove next token, "END"
-        } else {
-            s.assembleIf(condition, thenBody); //assemble if in s
+    /**
+     * Parses BL statements from {@code tokens} into {@code b}: a single
+     * statement, or a maximal sequence of statements if {@code isBlock}.
+     *
+     * <p>
+     * Open IF and WHILE statements are kept on a stack in the heap rather
+     * than on the call stack, so nesting depth is limited only by memory.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param b
+     *            receives the parsed statements
+     * @param isBlock
+     *            whether to parse a block rather than a single statement
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @updates tokens, b
+     * @ensures
+     *
+     *          <pre>
+     * if [a statement string (block string if isBlock) s is a proper prefix
+     *     of #tokens, and is maximal if isBlock] then
+     *  b = #b * [Statements corresponding to s]  and
+     *  #tokens = s * tokens
+     * else
+     *  [reports an appropriate error message to diagnostics]
+     * </pre>
+     */
+    private static void parseStatements(TokenStream tokens,
+            StatementBuilder b, boolean isBlock, Diagnostics diagnostics) {
+        byte[] open = new byte[INITIAL_DEPTH];
+        int depth = 0;
+        int ifs = 0;
+        int whiles = 0;
+        int calls = 0;
+        int maxDepth = 0;
+        boolean done = false;
+        while (!done) {
+            TokenKind kind = tokens.frontKind();
+            if ((kind == TokenKind.IF || kind == TokenKind.WHILE
+                    || kind == TokenKind.IDENTIFIER) && b.reuse(tokens)) {
+                /*
+                 * The builder kept this statement from an earlier parse
+                 */
+                done = !isBlock && depth == 0;
+            } else if (kind == TokenKind.IF) {
+                b.beginIf(parseIfHead(tokens, diagnostics));
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, 2 * depth);
+                }
+                open[depth] = OPEN_IF;
+                depth++;
+                if (ParseMetrics.ENABLED) {
+                    ifs++;
+                    maxDepth = Math.max(maxDepth, depth);
+                }
+            } else if (kind == TokenKind.WHILE) {
+                b.beginWhile(parseWhileHead(tokens, diagnostics));
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, 2 * depth);
+                }
+                open[depth] = OPEN_WHILE;
+                depth++;
+                if (ParseMetrics.ENABLED) {
+                    whiles++;
+                    maxDepth = Math.max(maxDepth, depth);
+                }
+            } else {
+                if (kind == TokenKind.IDENTIFIER) {
+                    b.call(tokens.dequeue()); //CALL statement
+                    if (ParseMetrics.ENABLED) {
+                        calls++;
+                    }
+                } else if (depth == 0) {
+                    /*
+                     * End of the outermost block, or no statement at all
+                     */
+                    if (!isBlock) {
+                        diagnostics.report(tokens,
+                                "Expected \"IF\", \"WHILE\", or an identifier at beginning of statement.");
+                    }
+                    break;
+                } else if (open[depth - 1] == OPEN_IF
+                        && kind == TokenKind.ELSE) {
+                    tokens.dequeue(); //remove "ELSE"
+                    b.beginElse();
+                    open[depth - 1] = OPEN_ELSE;
+                    continue;
+                } else if (open[depth - 1] == OPEN_WHILE) {
+                    diagnostics.check(kind == TokenKind.END, tokens,
+                            "Expected \"END\" after block in WHILE statement.");
+                    tokens.dequeue(); //remove "END"
+
+                    diagnostics.check(tokens.frontKind() == TokenKind.WHILE,
+                            tokens,
+                            "Expected WHILE after \"END\" in WHILE statement.");
+                    tokens.dequeue(); //remove "WHILE"
+
+                    b.endWhile();
+                    depth--;
+                } else {
+                    diagnostics.check(kind == TokenKind.END, tokens,
+                            "Expected either \"ELSE\" or \"END\" after block in IF statement.");
+                    tokens.dequeue(); //remove "END"
+
+                    diagnostics.check(tokens.frontKind() == TokenKind.IF,
+                            tokens,
+                            "Expected \"IF\" after \"END\" in IF statement.");
+                    tokens.dequeue(); //remove "IF"
+
+                    b.endIf();
+                    depth--;
+                }
+                /*
+                 * A statement is complete; a single statement ends the parse
+                 * once nothing is open
+                 */
+                done = !isBlock && depth == 0;
+            }
         }
-        Reporter.assertElseFatalError(next.equals("END"),
-                "Expected either \"ELSE\" or \"END\" after block in IF statement.");
+        ParseMetrics.statements(ifs, whiles, calls, maxDepth);
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
 
-        String iF = tokens.dequeue();
-        Reporter.assertElseFatalError(iF.equals("IF"),
-                "Expected \"IF\" after \"END\" in IF statement.");
+    /**
+     * Returns a builder that builds into {@code s}: directly into its arrays
+     * if {@code s} is a {@code FlatStatement}, and with kernel methods
+     * otherwise. {@code finish} must be called on the builder once the last
+     * statement has been built.
+     *
+     * @param s
+     *            the statement to build into
+     * @param isBlock
+     *            whether s is to be a block rather than a single statement
+     * @return the builder
+     */
+    static StatementBuilder builderFor(Statement s, boolean isBlock) {
+        if (s instanceof FlatStatement) {
+            return ((FlatStatement) s).builder(isBlock);
+        }
+        return new StatementTreeBuilder(s, isBlock);
     }
 
     /**
-     * Parses a WHILE statement from {@code tokens} into {@code s}.
+     * Parses a single BL statement from {@code tokens} into {@code s}. Only
+     * kernel methods of {@code s} are used, so {@code s} may be any
+     * {@code Statement} implementation; a {@code FlatStatement} is filled in
+     * directly.
      *
      * @param tokens
      *            the input tokens
      * @param s
      *            the parsed statement
+     * @param diagnostics
+     *            where syntax errors are reported
      * @replaces s
      * @updates tokens
-     * @requires [<"WHILE"> is a proper prefix of tokens]
      * @ensures
      *
      *          <pre>
-     * if [a while string is a proper prefix of #tokens] then
-     *  s = [WHILE Statement corresponding to while string at start of #tokens]  and
-     *  #tokens = [while string at start of #tokens] * tokens
+     * if [a statement string is a proper prefix of #tokens] then
+     *  s = [Statement corresponding to statement string at start of #tokens]  and
+     *  #tokens = [statement string at start of #tokens] * tokens
      * else
-     *  [reports an appropriate error message to the console and terminates client]
+     *  [reports an appropriate error message to diagnostics]
      * </pre>
      */
-    private static void parseWhile(Queue<String> tokens, Statement s) {
+    static void parseStatement(TokenStream tokens, Statement s,
+            Diagnostics diagnostics) {
         assert tokens != null : "Violation of: tokens is not null";
         assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0 && tokens.front().equals("WHILE") : ""
-        + "Violation of: <\"WHILE\"> is proper prefix of tokens";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
 
-        tokens.dequeue(); //remove "WHILE"
-
-        String condString = tokens.dequeue(); //remove condition
-        Reporter.assertElseFatalError(Tokenizer.isCondition(condString),
-                "Expected a condition after \"WHILE\".");
-        Condition condition = parseCondition(condString); //parse condition
-
-        String dO = tokens.dequeue(); //remove "DO"
-        Reporter.assertElseFatalError(dO.equals("DO"),
-                "Expected \"DO\" after condition in WHILE statement.");
-
-        Statement body = s.newInstance();
-        body.parseBlock(tokens); //parse body
-
-        String end = tokens.dequeue(); //remove "END"
-        Reporter.assertElseFatalError(end.equals("END"),
-                "Expected \"END\" after block in WHILE statement.");
-
-        String wHile = tokens.dequeue(); //remove "WHILE"
-        Reporter.assertElseFatalError(wHile.equals("WHILE"),
-                "Expected WHILE after \"END\" in WHILE statement.");
-
-        s.assembleWhile(condition, body); //assemble while statement in s
+        long start = ParseMetrics.start();
+        StatementBuilder b = builderFor(s, false);
+        parseStatements(tokens, b, false, diagnostics);
+        b.finish();
+        ParseMetrics.stop(ParseMetrics.Phase.BLOCK, start);
     }
 
     /**
-     * Parses a CALL statement from {@code tokens} into {@code s}.
+     * Parses a maximal sequence of BL statements from {@code tokens} into the
+     * block {@code s}. Only kernel methods of {@code s} are used, so {@code s}
+     * may be any {@code Statement} implementation; a {@code FlatStatement} is
+     * filled in directly.
      *
      * @param tokens
      *            the input tokens
      * @param s
-     *            the parsed statement
+     *            the parsed block
+     * @param diagnostics
+     *            where syntax errors are reported
      * @replaces s
      * @updates tokens
-     * @requires [identifier string is a proper prefix of tokens]
      * @ensures
      *
      *          <pre>
-     * s =
-     *   [CALL Statement corresponding to identifier string at start of #tokens]  and
-     *  #tokens = [identifier string at start of #tokens] * tokens
+     * if [there is a block string b such that #tokens = b * tokens and the
+     *     front of tokens does not start a statement] then
+     *  s = [BLOCK Statement corresponding to b]
+     * else
+     *  [reports an appropriate error message to diagnostics]
      * </pre>
      */
-    private static void parseCall(Queue<String> tokens, Statement s) {
+    static void parseBlock(TokenStream tokens, Statement s,
+            Diagnostics diagnostics) {
         assert tokens != null : "Violation of: tokens is not null";
         assert s != null : "Violation of: s is not null";
-        assert tokens.length() > 0 && Tokenizer.isIdentifier(tokens.front()) : ""
-                + "Violation of: identifier string is proper prefix of tokens";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
+
+        StatementBuilder b = builderFor(s, true);
+        parseBlock(tokens, b, diagnostics);
+        b.finish();
+    }
+
+    /**
+     * Parses a maximal sequence of BL statements from {@code tokens} into the
+     * current block of {@code b}, without finishing b.
+     *
+     * @param tokens
+     *            the input tokens
+     * @param b
+     *            receives the parsed statements
+     * @param diagnostics
+     *            where syntax errors are reported
+     * @updates tokens, b
+     * @ensures
+     *
+     *          <pre>
+     * if [there is a block string s such that #tokens = s * tokens and the
+     *     front of tokens does not start a statement] then
+     *  b = #b * [Statements corresponding to s]
+     * else
+     *  [reports an appropriate error message to diagnostics]
+     * </pre>
+     */
+    static void parseBlock(TokenStream tokens, StatementBuilder b,
+            Diagnostics diagnostics) {
+        assert tokens != null : "Violation of: tokens is not null";
+        assert b != null : "Violation of: b is not null";
+        assert diagnostics != null : "Violation of: diagnostics is not null";
 
-        String identifier = tokens.dequeue(); //remove identifier
-        s.assembleCall(identifier);
+        long start = ParseMetrics.start();
+        parseStatements(tokens, b, true, diagnostics);
+        ParseMetrics.stop(ParseMetrics.Phase.BLOCK, start);
     }
 
     /*
@@ -195,18 +391,8 @@ public final class Statement1Parse1 extends Statement1 {
         assert tokens.length() > 0 : ""
         + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
 
-        Reporter.assertElseFatalError(
-                tokens.front().equals("IF") || tokens.front().equals("WHILE")
-                || Tokenizer.isIdentifier(tokens.front()),
-                "Expected \"IF\", \"WHILE\", or an identifier at beginning of statement.");
-
-        if (tokens.front().equals("IF")) {
-            parseIf(tokens, this);
-        } else if (tokens.front().equals("WHILE")) {
-            parseWhile(tokens, this);
-        } else {
-            parseCall(tokens, this);
-        }
+        parseStatement(new QueueTokenStream(tokens), this,
+                Diagnostics.FATAL);
     }
 
     @Override
@@ -215,13 +401,8 @@ public final class Statement1Parse1 extends Statement1 {
         assert tokens.length() > 0 : ""
         + "Violation of: Tokenizer.END_OF_INPUT is a suffix of tokens";
 
-        this.clear();
-        while (tokens.front().equals("WHILE") || tokens.front().equals("IF")
-                || Tokenizer.isIdentifier(tokens.front())) {
-            Statement child = this.newInstance();
-            child.parse(tokens); //parse statement
-            this.addToBlock(this.lengthOfBlock(), child); //add statement to block
-        }
+        parseBlock(new QueueTokenStream(tokens), this,
+                Diagnostics.FATAL);
     }
 
     /*
@@ -247,10 +428,9 @@ public final class Statement1Parse1 extends Statement1 {
          */
         out.println("*** Parsing input file ***");
         Statement s = new Statement1Parse1();
-        SimpleReader file = new SimpleReader1L(fileName);
-        Queue<String> tokens = Tokenizer.tokens(file);
+        MappedTokenStream file = new MappedTokenStream(fileName);
+        parseStatement(file, s, Diagnostics.FATAL); // or parseBlock
         file.close();
-        s.parse(tokens); // replace with parseBlock to test other method
         /*
          * Pretty print the statement(s)
          */
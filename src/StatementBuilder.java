@@ -0,0 +1,88 @@
+import components.statement.Statement;
+
+/**
+ * Receiver of the statements recognized by the BL statement parser, in
+ * source order. Separating recognition from construction lets the parser
+ * build any {@code Statement} representation without going through
+ * intermediate {@code Statement} objects.
+ *
+ * <p>
+ * Calls follow the structure of the source: {@code beginIf} and
+ * {@code beginWhile} open a nested block that receives the statements up to
+ * the matching {@code beginElse}, {@code endIf}, or {@code endWhile}, and
+ * {@code finish} is called once, after the last statement. Before each
+ * statement the parser calls {@code reuse}, which lets an incremental
+ * builder keep statements it built before instead of having them parsed
+ * again.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+interface StatementBuilder {
+
+    /**
+     * Adds a CALL statement to the current block.
+     *
+     * @param instruction
+     *            the name of the instruction called
+     */
+    void call(String instruction);
+
+    /**
+     * Starts an IF or IF_ELSE statement in the current block; the THEN block
+     * becomes the current block.
+     *
+     * @param condition
+     *            the condition of the statement
+     */
+    void beginIf(Statement.Condition condition);
+
+    /**
+     * Ends the THEN block of the innermost open IF statement, making it an
+     * IF_ELSE statement; the ELSE block becomes the current block.
+     */
+    void beginElse();
+
+    /**
+     * Ends the innermost open IF or IF_ELSE statement.
+     */
+    void endIf();
+
+    /**
+     * Starts a WHILE statement in the current block; its body becomes the
+     * current block.
+     *
+     * @param condition
+     *            the condition of the statement
+     */
+    void beginWhile(Statement.Condition condition);
+
+    /**
+     * Ends the innermost open WHILE statement.
+     */
+    void endWhile();
+
+    /**
+     * Completes construction after the last statement.
+     */
+    void finish();
+
+    /**
+     * Offers the builder the statement at the front of {@code tokens}, just
+     * before the parser would parse it. A builder that already holds that
+     * statement, from an earlier parse of the same tokens, may add it to the
+     * current block, advance {@code tokens} past it, and return true, and
+     * the parser then goes on after it; otherwise it returns false, and the
+     * parser parses the statement as usual.
+     *
+     * @param tokens
+     *            the input tokens
+     * @return whether the statement was added without parsing it
+     * @updates tokens
+     */
+    default boolean reuse(TokenStream tokens) {
+        return false;
+    }
+
+}
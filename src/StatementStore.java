@@ -0,0 +1,924 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Hash-consing store of parsed programs, in which structurally identical
+ * subtrees are held once and shared by every program containing them.
+ *
+ * <p>
+ * A statement is interned as an immutable {@code Node} whose children are
+ * themselves interned, so two nodes of one store are structurally equal iff
+ * they are the same object, and interning a node costs a single lookup of
+ * its kind, condition, name, and the identities of its children. A program
+ * is interned as a {@code Shape} in the same way, so a submission identical
+ * to one already stored is found in constant time, and only the statements
+ * that differ from stored ones take new memory. {@code build} turns a node
+ * or shape back into a {@code Statement} or {@code Program}.
+ *
+ * <p>
+ * The hash of a node is {@code StructuralHash.of} of its statement, and the
+ * hash of a shape is {@code StructuralHash.of} of its program without
+ * renaming. Methods may be called from any number of threads.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class StatementStore {
+
+    /**
+     * Interned statement.
+     */
+    public static final class Node {
+
+        /**
+         * The kind of the statement.
+         */
+        private final Statement.Kind kind;
+
+        /**
+         * The condition of an IF, IF_ELSE, or WHILE statement, or null.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * The name called by a CALL statement, or null.
+         */
+        private final String name;
+
+        /**
+         * The statements of a BLOCK, or the blocks of a compound statement.
+         */
+        private final Node[] children;
+
+        /**
+         * The structural hash of the statement.
+         */
+        private final long hash;
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            the kind
+         * @param condition
+         *            the condition, or null
+         * @param name
+         *            the called name, or null
+         * @param children
+         *            the children, already interned
+         */
+        private Node(Statement.Kind kind, Statement.Condition condition,
+                String name, Node[] children) {
+            this.kind = kind;
+            this.condition = condition;
+            this.name = name;
+            this.children = children;
+            switch (kind) {
+                case BLOCK: {
+                    long[] hashes = new long[children.length];
+                    for (int i = 0; i < children.length; i++) {
+                        hashes[i] = children[i].hash;
+                    }
+                    this.hash = StructuralHash.ofBlock(hashes);
+                    break;
+                }
+                case IF: {
+                    this.hash = StructuralHash.ofIf(condition,
+                            children[0].hash);
+                    break;
+                }
+                case IF_ELSE: {
+                    this.hash = StructuralHash.ofIfElse(condition,
+                            children[0].hash, children[1].hash);
+                    break;
+                }
+                case WHILE: {
+                    this.hash = StructuralHash.ofWhile(condition,
+                            children[0].hash);
+                    break;
+                }
+                default: {
+                    this.hash = StructuralHash
+                            .ofCall(StructuralHash.ofName(name));
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Returns the kind of the statement.
+         *
+         * @return the kind
+         */
+        public Statement.Kind kind() {
+            return this.kind;
+        }
+
+        /**
+         * Returns the condition of the statement.
+         *
+         * @return the condition
+         * @requires [kind is IF, IF_ELSE, or WHILE]
+         */
+        public Statement.Condition condition() {
+            assert this.condition != null : "Violation of: "
+                    + "[kind is IF, IF_ELSE, or WHILE]";
+            return this.condition;
+        }
+
+        /**
+         * Returns the name called by the statement.
+         *
+         * @return the name
+         * @requires [kind is CALL]
+         */
+        public String name() {
+            assert this.name != null : "Violation of: [kind is CALL]";
+            return this.name;
+        }
+
+        /**
+         * Returns the number of children: statements of a BLOCK, one block of
+         * an IF or WHILE, two of an IF_ELSE, and none of a CALL.
+         *
+         * @return the number of children
+         */
+        public int size() {
+            return this.children.length;
+        }
+
+        /**
+         * Returns child {@code i}.
+         *
+         * @param i
+         *            the position
+         * @return the child
+         * @requires 0 <= i < size
+         */
+        public Node child(int i) {
+            assert 0 <= i && i < this.children.length : "Violation of: "
+                    + "0 <= i < size";
+            return this.children[i];
+        }
+
+        /**
+         * Returns the structural hash of the statement.
+         *
+         * @return the hash
+         */
+        public long hash() {
+            return this.hash;
+        }
+
+        /*
+         * Children are compared by identity, which within a store is
+         * structural equality
+         */
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Node)) {
+                return false;
+            }
+            Node other = (Node) obj;
+            boolean result = this.hash == other.hash
+                    && this.kind == other.kind
+                    && this.condition == other.condition
+                    && this.children.length == other.children.length
+                    && (this.name == null ? other.name == null
+                            : this.name.equals(other.name));
+            for (int i = 0; result && i < this.children.length; i++) {
+                result = this.children[i] == other.children[i];
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.hash);
+        }
+
+    }
+
+    /**
+     * Interned program.
+     */
+    public static final class Shape {
+
+        /**
+         * The name of the program.
+         */
+        private final String name;
+
+        /**
+         * The names of the instructions, in increasing order.
+         */
+        private final String[] instructions;
+
+        /**
+         * The bodies of the instructions, in the order of their names.
+         */
+        private final Node[] bodies;
+
+        /**
+         * The body of the program.
+         */
+        private final Node body;
+
+        /**
+         * The structural hash of the program.
+         */
+        private final long hash;
+
+        /**
+         * Constructor.
+         *
+         * @param name
+         *            the name
+         * @param instructions
+         *            the instruction names, in increasing order
+         * @param bodies
+         *            the instruction bodies, already interned
+         * @param body
+         *            the body, already interned
+         */
+        private Shape(String name, String[] instructions, Node[] bodies,
+                Node body) {
+            this.name = name;
+            this.instructions = instructions;
+            this.bodies = bodies;
+            this.body = body;
+            long sum = 0;
+            for (int i = 0; i < instructions.length; i++) {
+                sum += StructuralHash.ofInstruction(instructions[i],
+                        bodies[i].hash);
+            }
+            this.hash = StructuralHash.ofProgram(name, sum, body.hash);
+        }
+
+        /**
+         * Returns the name of the program.
+         *
+         * @return the name
+         */
+        public String name() {
+            return this.name;
+        }
+
+        /**
+         * Returns the body of the program.
+         *
+         * @return the body
+         */
+        public Node body() {
+            return this.body;
+        }
+
+        /**
+         * Returns the structural hash of the program.
+         *
+         * @return the hash
+         */
+        public long hash() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            Shape other = (Shape) obj;
+            boolean result = this.hash == other.hash
+                    && this.body == other.body
+                    && this.name.equals(other.name)
+                    && Arrays.equals(this.instructions, other.instructions);
+            for (int i = 0; result && i < this.bodies.length; i++) {
+                result = this.bodies[i] == other.bodies[i];
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.hash);
+        }
+
+    }
+
+    /**
+     * Children of a CALL.
+     */
+    private static final Node[] NONE = {};
+
+    /**
+     * Interned nodes, each mapped to itself.
+     */
+    private final HashMap<Node, Node> nodes = new HashMap<>();
+
+    /**
+     * Interned shapes, each mapped to itself.
+     */
+    private final HashMap<Shape, Shape> shapes = new HashMap<>();
+
+    /**
+     * Interned names.
+     */
+    private final HashMap<String, String> names = new HashMap<>();
+
+    /**
+     * Number of nodes found already interned.
+     */
+    private long shared;
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the interned copy of {@code name}.
+     *
+     * @param name
+     *            the name
+     * @return the interned name
+     */
+    private String name(String name) {
+        String result = this.names.putIfAbsent(name, name);
+        if (result == null) {
+            result = name;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the interned node equal to {@code n}, interning n if there is
+     * none.
+     *
+     * @param n
+     *            the node
+     * @return the interned node
+     */
+    private Node node(Node n) {
+        Node result = this.nodes.putIfAbsent(n, n);
+        if (result == null) {
+            result = n;
+        } else {
+            this.shared++;
+        }
+        return result;
+    }
+
+    /**
+     * A block being interned: the nodes of its statements so far, and what
+     * is needed to intern the statement it belongs to once it is complete.
+     */
+    private static final class Level {
+
+        /**
+         * Kind of the statement the block belongs to, or BLOCK for the
+         * outermost level.
+         */
+        private final Statement.Kind kind;
+
+        /**
+         * Condition of the statement, or null for the outermost level.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * Nodes of the statements of the block.
+         */
+        private Node[] children;
+
+        /**
+         * Number of entries of {@code children} filled in.
+         */
+        private int length;
+
+        /**
+         * Whether a statement of the block has no node.
+         */
+        private boolean missing;
+
+        /**
+         * Node of the THEN block of an IF_ELSE statement, once complete.
+         */
+        private Node thenBlock;
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            kind of the statement
+         * @param condition
+         *            condition of the statement
+         * @param length
+         *            number of statements in the block
+         */
+        Level(Statement.Kind kind, Statement.Condition condition,
+                int length) {
+            this.kind = kind;
+            this.condition = condition;
+            this.children = new Node[length];
+            this.length = 0;
+            this.missing = false;
+            this.thenBlock = null;
+        }
+
+    }
+
+    /**
+     * Visitor finding or interning the nodes of the statements of a walk,
+     * bottom up, with the open blocks on an explicit stack. When only
+     * finding, a statement with no node makes every statement containing it
+     * have none.
+     */
+    private final class Interner
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * Whether to intern nodes not yet in the store, rather than only
+         * find them.
+         */
+        private final boolean intern;
+
+        /**
+         * The blocks being interned, the outermost first.
+         */
+        private final ArrayList<Level> open;
+
+        /**
+         * Constructor.
+         *
+         * @param intern
+         *            whether to intern nodes not yet in the store
+         * @param length
+         *            number of statements reported at the outermost level
+         */
+        Interner(boolean intern, int length) {
+            this.intern = intern;
+            this.open = new ArrayList<>();
+            this.open.add(new Level(Statement.Kind.BLOCK, null, length));
+        }
+
+        /**
+         * Returns the node in the store equal to {@code n}, interning n if
+         * there is none and {@code intern}, and else null.
+         *
+         * @param n
+         *            the node
+         * @return the node in the store, or null
+         */
+        private Node resolve(Node n) {
+            Node result;
+            if (this.intern) {
+                result = StatementStore.this.node(n);
+            } else {
+                result = StatementStore.this.nodes.get(n);
+            }
+            return result;
+        }
+
+        /**
+         * Records {@code n} as the node of the next statement of the
+         * innermost open block.
+         *
+         * @param n
+         *            the node, or null
+         */
+        private void add(Node n) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.children[top.length] = n;
+            top.length++;
+            top.missing |= n == null;
+        }
+
+        /**
+         * Returns the node of the block of {@code level}, or null if it has
+         * none.
+         *
+         * @param level
+         *            the level
+         * @return the node, or null
+         */
+        private Node block(Level level) {
+            Node result = null;
+            if (!level.missing) {
+                result = this.resolve(new Node(Statement.Kind.BLOCK, null,
+                        null, level.children));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the node of the statement reported at the outermost level,
+         * or of the block of them, once the walk is complete.
+         *
+         * @param isBlock
+         *            whether the outermost level is a block
+         * @return the node, or null
+         */
+        Node result(boolean isBlock) {
+            Level outermost = this.open.get(0);
+            Node result;
+            if (isBlock) {
+                result = this.block(outermost);
+            } else {
+                result = outermost.children[0];
+            }
+            return result;
+        }
+
+        @Override
+        public void call(String instruction) {
+            String name = instruction;
+            if (this.intern) {
+                name = StatementStore.this.name(instruction);
+            }
+            this.add(this.resolve(
+                    new Node(Statement.Kind.CALL, null, name, NONE)));
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            this.open.add(new Level(Statement.Kind.IF, condition, length));
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.open.add(
+                    new Level(Statement.Kind.IF_ELSE, condition, length));
+        }
+
+        @Override
+        public void beginElse(int length) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.thenBlock = this.block(top);
+            top.children = new Node[length];
+            top.length = 0;
+            top.missing = top.thenBlock == null;
+        }
+
+        @Override
+        public void endIf() {
+            Level top = this.open.remove(this.open.size() - 1);
+            Node b = this.block(top);
+            Node n = null;
+            if (b != null) {
+                Node[] blocks;
+                if (top.kind == Statement.Kind.IF) {
+                    blocks = new Node[] { b };
+                } else {
+                    blocks = new Node[] { top.thenBlock, b };
+                }
+                n = this.resolve(new Node(top.kind, top.condition, null,
+                        blocks));
+            }
+            this.add(n);
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            this.open.add(new Level(Statement.Kind.WHILE, condition, length));
+        }
+
+        @Override
+        public void endWhile() {
+            Level top = this.open.remove(this.open.size() - 1);
+            Node b = this.block(top);
+            Node n = null;
+            if (b != null) {
+                n = this.resolve(new Node(Statement.Kind.WHILE, top.condition,
+                        null, new Node[] { b }));
+            }
+            this.add(n);
+        }
+
+    }
+
+    /**
+     * A block being built by {@code build}.
+     */
+    private static final class Part {
+
+        /**
+         * The statement the block belongs to, or null for the outermost
+         * block.
+         */
+        private final Node statement;
+
+        /**
+         * The block.
+         */
+        private Node block;
+
+        /**
+         * Whether {@code block} is the THEN block of an IF_ELSE statement.
+         */
+        private boolean inThen;
+
+        /**
+         * Index of the next statement of {@code block} to build.
+         */
+        private int next;
+
+        /**
+         * Constructor.
+         *
+         * @param statement
+         *            the statement, or null
+         * @param block
+         *            the block
+         */
+        Part(Node statement, Node block) {
+            this.statement = statement;
+            this.block = block;
+            this.inThen = statement != null
+                    && statement.kind == Statement.Kind.IF_ELSE;
+            this.next = 0;
+        }
+
+    }
+
+    /**
+     * Returns the node of {@code s}, interning it and its subtrees if
+     * {@code intern}, and else only finding it, or null if it is not in
+     * this. The walk keeps its open statements on an explicit stack, so s
+     * may be nested as deeply as the parser allows.
+     *
+     * @param s
+     *            the statement
+     * @param intern
+     *            whether to intern nodes not yet in this
+     * @return the node, or null
+     * @restores s
+     */
+    private Node walk(Statement s, boolean intern) {
+        boolean isBlock = s.kind() == Statement.Kind.BLOCK;
+        int length = 1;
+        if (isBlock) {
+            length = s.lengthOfBlock();
+        }
+        Interner interner = new Interner(intern, length);
+        StatementWalker.walk(s, interner);
+        return interner.result(isBlock);
+    }
+
+    /**
+     * Returns the interned node of {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @return the node
+     * @restores s
+     */
+    private Node internStatement(Statement s) {
+        return this.walk(s, true);
+    }
+
+    /**
+     * Returns the interned node of {@code s}, or null if there is none,
+     * without interning anything.
+     *
+     * @param s
+     *            the statement
+     * @return the node, or null
+     * @restores s
+     */
+    private Node find(Statement s) {
+        return this.walk(s, false);
+    }
+
+    /**
+     * Reports the start of {@code n}, an IF, IF_ELSE, or WHILE node, to
+     * {@code b}.
+     *
+     * @param n
+     *            the node
+     * @param b
+     *            the builder
+     */
+    private static void begin(Node n, StatementBuilder b) {
+        if (n.kind == Statement.Kind.WHILE) {
+            b.beginWhile(n.condition);
+        } else {
+            b.beginIf(n.condition);
+        }
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the interned node of {@code s}, interning its subtrees not
+     * already in this.
+     *
+     * @param s
+     *            the statement
+     * @return the node
+     * @restores s
+     */
+    public synchronized Node intern(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        return this.internStatement(s);
+    }
+
+    /**
+     * Returns the interned shape of {@code p}, interning its subtrees not
+     * already in this. The shape returned is the one returned for every
+     * earlier program equal to p.
+     *
+     * @param p
+     *            the program
+     * @return the shape
+     * @restores p
+     */
+    public synchronized Shape intern(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            String[] instructions = new String[context.size()];
+            int i = 0;
+            for (Map.Pair<String, Statement> pair : context) {
+                instructions[i] = this.name(pair.key());
+                i++;
+            }
+            Arrays.sort(instructions);
+            Node[] bodies = new Node[instructions.length];
+            for (i = 0; i < instructions.length; i++) {
+                bodies[i] = this
+                        .internStatement(context.value(instructions[i]));
+            }
+            Shape shape = new Shape(this.name(p.name()), instructions, bodies,
+                    this.internStatement(body));
+            Shape result = this.shapes.putIfAbsent(shape, shape);
+            if (result == null) {
+                result = shape;
+            }
+            return result;
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+    /**
+     * Reports whether a program equal to {@code p} has been interned, without
+     * interning anything.
+     *
+     * @param p
+     *            the program
+     * @return true iff a program equal to p is in this
+     * @restores p
+     */
+    public synchronized boolean contains(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            String[] instructions = new String[context.size()];
+            int i = 0;
+            for (Map.Pair<String, Statement> pair : context) {
+                instructions[i] = pair.key();
+                i++;
+            }
+            Arrays.sort(instructions);
+            Node[] bodies = new Node[instructions.length];
+            boolean found = true;
+            for (i = 0; found && i < instructions.length; i++) {
+                bodies[i] = this.find(context.value(instructions[i]));
+                found = bodies[i] != null;
+            }
+            Node b = null;
+            if (found) {
+                b = this.find(body);
+            }
+            return b != null && this.shapes.containsKey(
+                    new Shape(p.name(), instructions, bodies, b));
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+    /**
+     * Returns the number of distinct statements in this.
+     *
+     * @return the number of nodes
+     */
+    public synchronized int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Returns the number of distinct programs in this.
+     *
+     * @return the number of shapes
+     */
+    public synchronized int programs() {
+        return this.shapes.size();
+    }
+
+    /**
+     * Returns the number of statements interned that were already in this,
+     * and so took no new memory.
+     *
+     * @return the number of statements shared
+     */
+    public synchronized long shared() {
+        return this.shared;
+    }
+
+    /**
+     * Replaces {@code s} with the statement of {@code n}.
+     *
+     * @param n
+     *            the node
+     * @param s
+     *            the statement
+     * @replaces s
+     * @ensures [s is the statement of n]
+     */
+    public static void build(Node n, Statement s) {
+        assert n != null : "Violation of: n is not null";
+        assert s != null : "Violation of: s is not null";
+
+        boolean isBlock = n.kind == Statement.Kind.BLOCK;
+        StatementBuilder b = Statement1Parse1.builderFor(s, isBlock);
+        ArrayList<Part> open = new ArrayList<>();
+        if (isBlock) {
+            open.add(new Part(null, n));
+        } else if (n.kind == Statement.Kind.CALL) {
+            b.call(n.name);
+        } else {
+            begin(n, b);
+            open.add(new Part(n, n.children[0]));
+        }
+        while (!open.isEmpty()) {
+            Part top = open.get(open.size() - 1);
+            if (top.next < top.block.children.length) {
+                Node child = top.block.children[top.next];
+                top.next++;
+                if (child.kind == Statement.Kind.CALL) {
+                    b.call(child.name);
+                } else {
+                    begin(child, b);
+                    open.add(new Part(child, child.children[0]));
+                }
+            } else if (top.inThen) {
+                b.beginElse();
+                top.block = top.statement.children[1];
+                top.inThen = false;
+                top.next = 0;
+            } else {
+                open.remove(open.size() - 1);
+                if (top.statement != null) {
+                    if (top.statement.kind == Statement.Kind.WHILE) {
+                        b.endWhile();
+                    } else {
+                        b.endIf();
+                    }
+                }
+            }
+        }
+        b.finish();
+    }
+
+    /**
+     * Replaces {@code p} with the program of {@code shape}.
+     *
+     * @param shape
+     *            the shape
+     * @param p
+     *            the program
+     * @replaces p
+     * @ensures [p is the program of shape]
+     */
+    public static void build(Shape shape, Program p) {
+        assert shape != null : "Violation of: shape is not null";
+        assert p != null : "Violation of: p is not null";
+
+        p.setName(shape.name);
+        Map<String, Statement> context = p.newContext();
+        for (int i = 0; i < shape.instructions.length; i++) {
+            Statement b = p.newBody();
+            build(shape.bodies[i], b);
+            context.add(shape.instructions[i], b);
+        }
+        p.swapContext(context);
+        Statement body = p.newBody();
+        build(shape.body, body);
+        p.swapBody(body);
+    }
+
+}
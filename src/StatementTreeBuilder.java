@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+
+import components.statement.Statement;
+
+/**
+ * {@code StatementBuilder} that assembles a tree with the kernel methods of
+ * {@code Statement}, so it works for any {@code Statement} implementation.
+ * Open statements are kept on an explicit stack rather than on the call
+ * stack.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+final class StatementTreeBuilder implements StatementBuilder {
+
+    /**
+     * An IF, IF_ELSE, or WHILE statement that has been started but not
+     * ended, or the outermost block.
+     */
+    private static final class Frame {
+
+        /**
+         * The block receiving statements.
+         */
+        private Statement block;
+
+        /**
+         * Condition of the statement.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * The THEN block of an IF_ELSE statement, or null.
+         */
+        private Statement thenBlock;
+
+        /**
+         * Constructor.
+         *
+         * @param block
+         *            the block receiving statements
+         * @param condition
+         *            condition of the statement, or null for the outermost
+         *            block
+         */
+        Frame(Statement block, Statement.Condition condition) {
+            this.block = block;
+            this.condition = condition;
+            this.thenBlock = null;
+        }
+
+    }
+
+    /**
+     * The statement being built.
+     */
+    private final Statement root;
+
+    /**
+     * Whether {@code root} receives a block rather than a single statement.
+     */
+    private final boolean isBlock;
+
+    /**
+     * The open statements, outermost first.
+     */
+    private final ArrayList<Frame> open;
+
+    /**
+     * Constructor.
+     *
+     * @param root
+     *            the statement to build into
+     * @param isBlock
+     *            whether root is to be a block of statements rather than a
+     *            single statement
+     * @replaces root
+     */
+    StatementTreeBuilder(Statement root, boolean isBlock) {
+        this.root = root;
+        this.isBlock = isBlock;
+        this.open = new ArrayList<>();
+        root.clear();
+        Statement outer;
+        if (isBlock) {
+            outer = root;
+        } else {
+            outer = root.newInstance();
+        }
+        this.open.add(new Frame(outer, null));
+    }
+
+    /**
+     * Adds {@code s} to the end of the current block.
+     *
+     * @param s
+     *            the statement to add
+     * @clears s
+     */
+    private void add(Statement s) {
+        Statement block = this.open.get(this.open.size() - 1).block;
+        block.addToBlock(block.lengthOfBlock(), s);
+    }
+
+    /**
+     * Removes the innermost open statement.
+     *
+     * @return the frame of the innermost open statement
+     */
+    private Frame pop() {
+        return this.open.remove(this.open.size() - 1);
+    }
+
+    @Override
+    public void call(String instruction) {
+        Statement s = this.root.newInstance();
+        s.assembleCall(instruction);
+        this.add(s);
+    }
+
+    @Override
+    public void beginIf(Statement.Condition condition) {
+        this.open.add(new Frame(this.root.newInstance(), condition));
+    }
+
+    @Override
+    public void beginElse() {
+        Frame top = this.open.get(this.open.size() - 1);
+        top.thenBlock = top.block;
+        top.block = this.root.newInstance();
+    }
+
+    @Override
+    public void endIf() {
+        Frame top = this.pop();
+        Statement s = this.root.newInstance();
+        if (top.thenBlock == null) {
+            s.assembleIf(top.condition, top.block);
+        } else {
+            s.assembleIfElse(top.condition, top.thenBlock, top.block);
+        }
+        this.add(s);
+    }
+
+    @Override
+    public void beginWhile(Statement.Condition condition) {
+        this.open.add(new Frame(this.root.newInstance(), condition));
+    }
+
+    @Override
+    public void endWhile() {
+        Frame top = this.pop();
+        Statement s = this.root.newInstance();
+        s.assembleWhile(top.condition, top.block);
+        this.add(s);
+    }
+
+    @Override
+    public void finish() {
+        assert this.open.size() == 1 : "Violation of: all statements ended";
+        if (!this.isBlock) {
+            Statement outer = this.open.get(0).block;
+            assert outer.lengthOfBlock() == 1 : ""
+                    + "Violation of: exactly one statement was built";
+            this.root.transferFrom(outer.removeFromBlock(0));
+        }
+    }
+
+}
@@ -0,0 +1,450 @@
+import java.util.ArrayList;
+
+import components.statement.Statement;
+
+/**
+ * Preorder walk of a {@code Statement} with the kernel methods, the
+ * counterpart of {@code StatementTreeBuilder}: each statement is taken apart
+ * to report it to a {@code Visitor} and put back together once its blocks
+ * have been walked. Open statements are kept on an explicit stack rather
+ * than on the call stack, so a walk, and {@code copy}, which is built on
+ * one, handle nesting as deep as the parser does.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+final class StatementWalker {
+
+    /**
+     * Receiver of the statements of a walk, in source order.
+     *
+     * @param <E>
+     *            type of exception the visitor may throw
+     */
+    interface Visitor<E extends Exception> {
+
+        /**
+         * Visits a CALL statement.
+         *
+         * @param instruction
+         *            the name of the instruction called
+         * @throws E
+         *             if the visitor fails
+         */
+        void call(String instruction) throws E;
+
+        /**
+         * Starts an IF statement; the statements of its block follow.
+         *
+         * @param condition
+         *            the condition of the statement
+         * @param length
+         *            the number of statements in its block
+         * @throws E
+         *             if the visitor fails
+         */
+        void beginIf(Statement.Condition condition, int length) throws E;
+
+        /**
+         * Starts an IF_ELSE statement; the statements of its THEN block
+         * follow.
+         *
+         * @param condition
+         *            the condition of the statement
+         * @param length
+         *            the number of statements in its THEN block
+         * @throws E
+         *             if the visitor fails
+         */
+        void beginIfElse(Statement.Condition condition, int length) throws E;
+
+        /**
+         * Ends the THEN block of the innermost open IF_ELSE statement; the
+         * statements of its ELSE block follow.
+         *
+         * @param length
+         *            the number of statements in the ELSE block
+         * @throws E
+         *             if the visitor fails
+         */
+        void beginElse(int length) throws E;
+
+        /**
+         * Ends the innermost open IF or IF_ELSE statement.
+         *
+         * @throws E
+         *             if the visitor fails
+         */
+        void endIf() throws E;
+
+        /**
+         * Starts a WHILE statement; the statements of its block follow.
+         *
+         * @param condition
+         *            the condition of the statement
+         * @param length
+         *            the number of statements in its block
+         * @throws E
+         *             if the visitor fails
+         */
+        void beginWhile(Statement.Condition condition, int length) throws E;
+
+        /**
+         * Ends the innermost open WHILE statement.
+         *
+         * @throws E
+         *             if the visitor fails
+         */
+        void endWhile() throws E;
+
+    }
+
+    /**
+     * A block being walked: the outermost block, or a block of a statement
+     * that has been taken apart.
+     */
+    private static final class Frame {
+
+        /**
+         * The statement taken apart, or null for the outermost block.
+         */
+        private final Statement statement;
+
+        /**
+         * Kind of the statement before it was taken apart.
+         */
+        private final Statement.Kind kind;
+
+        /**
+         * Condition of the statement.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * The block being walked.
+         */
+        private Statement block;
+
+        /**
+         * The other block of an IF_ELSE statement, or null.
+         */
+        private Statement other;
+
+        /**
+         * Whether {@code block} is the THEN block of an IF_ELSE statement.
+         */
+        private boolean inThen;
+
+        /**
+         * Index of the next statement of {@code block} to walk.
+         */
+        private int next;
+
+        /**
+         * The statement removed from {@code block} at {@code next - 1} and
+         * being walked, or null.
+         */
+        private Statement child;
+
+        /**
+         * Constructor.
+         *
+         * @param statement
+         *            the statement taken apart, or null
+         * @param kind
+         *            kind of the statement, or null
+         * @param condition
+         *            condition of the statement, or null
+         * @param block
+         *            the block to walk
+         */
+        Frame(Statement statement, Statement.Kind kind,
+                Statement.Condition condition, Statement block) {
+            this.statement = statement;
+            this.kind = kind;
+            this.condition = condition;
+            this.block = block;
+            this.other = null;
+            this.inThen = false;
+            this.next = 0;
+            this.child = null;
+        }
+
+        /**
+         * Puts {@code statement} back together from the blocks of this.
+         */
+        void assemble() {
+            switch (this.kind) {
+                case IF:
+                    this.statement.assembleIf(this.condition, this.block);
+                    break;
+                case IF_ELSE:
+                    if (this.inThen) {
+                        this.statement.assembleIfElse(this.condition,
+                                this.block, this.other);
+                    } else {
+                        this.statement.assembleIfElse(this.condition,
+                                this.other, this.block);
+                    }
+                    break;
+                default:
+                    this.statement.assembleWhile(this.condition, this.block);
+                    break;
+            }
+        }
+
+        /**
+         * Puts {@code child} back into {@code block}, if it was removed.
+         */
+        void restoreChild() {
+            if (this.child != null) {
+                this.block.addToBlock(this.next - 1, this.child);
+                this.child = null;
+            }
+        }
+
+    }
+
+    /**
+     * Visitor passing the statements of a walk on to a builder.
+     */
+    private static final class Copier
+            implements Visitor<RuntimeException> {
+
+        /**
+         * The builder receiving the statements.
+         */
+        private final StatementBuilder b;
+
+        /**
+         * Constructor.
+         *
+         * @param b
+         *            the builder receiving the statements
+         */
+        Copier(StatementBuilder b) {
+            this.b = b;
+        }
+
+        @Override
+        public void call(String instruction) {
+            this.b.call(instruction);
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            this.b.beginIf(condition);
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.b.beginIf(condition);
+        }
+
+        @Override
+        public void beginElse(int length) {
+            this.b.beginElse();
+        }
+
+        @Override
+        public void endIf() {
+            this.b.endIf();
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            this.b.beginWhile(condition);
+        }
+
+        @Override
+        public void endWhile() {
+            this.b.endWhile();
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StatementWalker() {
+    }
+
+    /**
+     * Takes {@code s}, an IF, IF_ELSE, or WHILE statement, apart, reports it
+     * to {@code v}, and returns the frame of its first block.
+     *
+     * @param <E>
+     *            type of exception v may throw
+     * @param s
+     *            the statement
+     * @param v
+     *            the visitor
+     * @return the frame of the first block of s
+     * @throws E
+     *             if v fails; s is then put back together
+     */
+    private static <E extends Exception> Frame open(Statement s, Visitor<E> v)
+            throws E {
+        Statement.Kind kind = s.kind();
+        Frame f;
+        switch (kind) {
+            case IF: {
+                Statement b = s.newInstance();
+                f = new Frame(s, kind, s.disassembleIf(b), b);
+                break;
+            }
+            case IF_ELSE: {
+                Statement b1 = s.newInstance();
+                Statement b2 = s.newInstance();
+                f = new Frame(s, kind, s.disassembleIfElse(b1, b2), b1);
+                f.other = b2;
+                f.inThen = true;
+                break;
+            }
+            default: {
+                Statement b = s.newInstance();
+                f = new Frame(s, kind, s.disassembleWhile(b), b);
+                break;
+            }
+        }
+        try {
+            int length = f.block.lengthOfBlock();
+            switch (kind) {
+                case IF:
+                    v.beginIf(f.condition, length);
+                    break;
+                case IF_ELSE:
+                    v.beginIfElse(f.condition, length);
+                    break;
+                default:
+                    v.beginWhile(f.condition, length);
+                    break;
+            }
+        } catch (Exception e) {
+            f.assemble();
+            throw e;
+        }
+        return f;
+    }
+
+    /**
+     * Reports {@code s}, a CALL statement, to {@code v}.
+     *
+     * @param <E>
+     *            type of exception v may throw
+     * @param s
+     *            the statement
+     * @param v
+     *            the visitor
+     * @throws E
+     *             if v fails
+     * @restores s
+     */
+    private static <E extends Exception> void call(Statement s, Visitor<E> v)
+            throws E {
+        String name = s.disassembleCall();
+        s.assembleCall(name);
+        v.call(name);
+    }
+
+    /**
+     * Reports {@code s} to {@code v}: the statements of s if it is a BLOCK,
+     * and else s itself.
+     *
+     * @param <E>
+     *            type of exception v may throw
+     * @param s
+     *            the statement
+     * @param v
+     *            the visitor
+     * @throws E
+     *             if v fails; s is restored all the same
+     * @restores s
+     */
+    static <E extends Exception> void walk(Statement s, Visitor<E> v)
+            throws E {
+        assert s != null : "Violation of: s is not null";
+        assert v != null : "Violation of: v is not null";
+
+        ArrayList<Frame> open = new ArrayList<>();
+        switch (s.kind()) {
+            case BLOCK:
+                open.add(new Frame(null, null, null, s));
+                break;
+            case CALL:
+                call(s, v);
+                break;
+            default:
+                open.add(StatementWalker.open(s, v));
+                break;
+        }
+        try {
+            while (!open.isEmpty()) {
+                Frame f = open.get(open.size() - 1);
+                if (f.next < f.block.lengthOfBlock()) {
+                    Statement child = f.block.removeFromBlock(f.next);
+                    f.child = child;
+                    f.next++;
+                    if (child.kind() == Statement.Kind.CALL) {
+                        call(child, v);
+                        f.restoreChild();
+                    } else {
+                        open.add(StatementWalker.open(child, v));
+                    }
+                } else if (f.inThen) {
+                    Statement elseBlock = f.other;
+                    f.other = f.block;
+                    f.block = elseBlock;
+                    f.inThen = false;
+                    f.next = 0;
+                    v.beginElse(elseBlock.lengthOfBlock());
+                } else {
+                    open.remove(open.size() - 1);
+                    if (f.statement != null) {
+                        f.assemble();
+                        if (!open.isEmpty()) {
+                            open.get(open.size() - 1).restoreChild();
+                        }
+                        if (f.kind == Statement.Kind.WHILE) {
+                            v.endWhile();
+                        } else {
+                            v.endIf();
+                        }
+                    }
+                }
+            }
+        } finally {
+            /*
+             * Put back together whatever is still apart, innermost first
+             */
+            for (int k = open.size() - 1; k >= 0; k--) {
+                Frame f = open.get(k);
+                f.restoreChild();
+                if (f.statement != null) {
+                    f.assemble();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @return a new statement equal to s
+     * @restores s
+     */
+    static Statement copy(Statement s) {
+        assert s != null : "Violation of: s is not null";
+
+        Statement result = s.newInstance();
+        StatementBuilder b = Statement1Parse1.builderFor(result,
+                s.kind() == Statement.Kind.BLOCK);
+        walk(s, new Copier(b));
+        b.finish();
+        return result;
+    }
+
+}
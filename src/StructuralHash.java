@@ -0,0 +1,585 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Canonical 64-bit structural hashes of {@code Statement}s and
+ * {@code Program}s.
+ *
+ * <p>
+ * A hash depends only on the parsed structure (kinds, conditions, and called
+ * names), so it is the same for any two texts that differ only in
+ * whitespace and comments, and the hash of a program does not depend on the
+ * order of its context. With alpha-renaming, the names of the program and of
+ * its user-defined instructions are ignored: user-defined instructions are
+ * numbered in the order of their first call, reading the body and then each
+ * numbered instruction in turn, and a call hashes as the number of the
+ * instruction called. Instructions never called are numbered last, in the
+ * order of their hashes.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class StructuralHash {
+
+    /**
+     * Seed of a BLOCK statement.
+     */
+    private static final long BLOCK = 0x6a09e667f3bcc908L;
+
+    /**
+     * Seed of an IF statement.
+     */
+    private static final long IF = 0xbb67ae8584caa73bL;
+
+    /**
+     * Seed of an IF_ELSE statement.
+     */
+    private static final long IF_ELSE = 0x3c6ef372fe94f82bL;
+
+    /**
+     * Seed of a WHILE statement.
+     */
+    private static final long WHILE = 0xa54ff53a5f1d36f1L;
+
+    /**
+     * Seed of a CALL statement.
+     */
+    private static final long CALL = 0x510e527fade682d1L;
+
+    /**
+     * Seed of a program.
+     */
+    private static final long PROGRAM = 0x9b05688c2b3e6c1fL;
+
+    /**
+     * Seed of the number of an alpha-renamed instruction.
+     */
+    private static final long RENAMED = 0x1f83d9abfb41bd6bL;
+
+    /**
+     * Hash of a call of a user-defined instruction not yet numbered.
+     */
+    private static final long UNRESOLVED = 0x5be0cd19137e2179L;
+
+    /**
+     * Names of the primitive instructions, which are never renamed.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StructuralHash() {
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Reports whether {@code name} is a primitive instruction.
+     *
+     * @param name
+     *            the name
+     * @return true iff name is a primitive instruction
+     */
+    private static boolean isPrimitive(String name) {
+        boolean found = false;
+        for (String primitive : PRIMITIVES) {
+            found |= primitive.equals(name);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the hash of {@code name} under {@code numbers}: its own hash if
+     * numbers is null or name is primitive, and otherwise its number, which
+     * is assigned if name has none and {@code assign}.
+     *
+     * @param name
+     *            the called name
+     * @param numbers
+     *            numbers of the user-defined instructions, or null
+     * @param order
+     *            names in the order of their numbers
+     * @param assign
+     *            whether to number a name not yet numbered
+     * @return the hash of the name
+     * @updates numbers, order
+     */
+    private static long nameHash(String name, HashMap<String, Integer> numbers,
+            List<String> order, boolean assign) {
+        long h;
+        if (numbers == null || isPrimitive(name)) {
+            h = ofName(name);
+        } else {
+            Integer n = numbers.get(name);
+            if (n == null && assign) {
+                n = order.size();
+                numbers.put(name, n);
+                order.add(name);
+            }
+            if (n == null) {
+                h = UNRESOLVED;
+            } else {
+                h = mix(RENAMED, n);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * A block being hashed: the hashes of its statements so far, and what is
+     * needed to hash the statement it belongs to once it is complete.
+     */
+    private static final class Level {
+
+        /**
+         * Kind of the statement the block belongs to, or BLOCK for the
+         * outermost level.
+         */
+        private final Statement.Kind kind;
+
+        /**
+         * Condition of the statement, or null for the outermost level.
+         */
+        private final Statement.Condition condition;
+
+        /**
+         * Hashes of the statements of the block.
+         */
+        private long[] children;
+
+        /**
+         * Number of entries of {@code children} filled in.
+         */
+        private int length;
+
+        /**
+         * Hash of the THEN block of an IF_ELSE statement, once complete.
+         */
+        private long thenBlock;
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            kind of the statement
+         * @param condition
+         *            condition of the statement
+         * @param length
+         *            number of statements in the block
+         */
+        Level(Statement.Kind kind, Statement.Condition condition,
+                int length) {
+            this.kind = kind;
+            this.condition = condition;
+            this.children = new long[length];
+            this.length = 0;
+            this.thenBlock = 0;
+        }
+
+    }
+
+    /**
+     * Visitor computing the hashes of the statements of a walk, bottom up,
+     * with the open blocks on an explicit stack; calls hash as by
+     * {@code nameHash}.
+     */
+    private static final class Hasher
+            implements StatementWalker.Visitor<RuntimeException> {
+
+        /**
+         * Numbers of the user-defined instructions, or null.
+         */
+        private final HashMap<String, Integer> numbers;
+
+        /**
+         * Names in the order of their numbers.
+         */
+        private final List<String> order;
+
+        /**
+         * Whether to number names not yet numbered.
+         */
+        private final boolean assign;
+
+        /**
+         * The blocks being hashed, the outermost first.
+         */
+        private final ArrayList<Level> open;
+
+        /**
+         * Constructor.
+         *
+         * @param numbers
+         *            numbers of the user-defined instructions, or null
+         * @param order
+         *            names in the order of their numbers
+         * @param assign
+         *            whether to number names not yet numbered
+         * @param length
+         *            number of statements reported at the outermost level
+         */
+        Hasher(HashMap<String, Integer> numbers, List<String> order,
+                boolean assign, int length) {
+            this.numbers = numbers;
+            this.order = order;
+            this.assign = assign;
+            this.open = new ArrayList<>();
+            this.open.add(new Level(Statement.Kind.BLOCK, null, length));
+        }
+
+        /**
+         * Records {@code h} as the hash of the next statement of the
+         * innermost open block.
+         *
+         * @param h
+         *            the hash
+         */
+        private void add(long h) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.children[top.length] = h;
+            top.length++;
+        }
+
+        /**
+         * Returns the outermost level, once the walk is complete.
+         *
+         * @return the outermost level
+         */
+        Level outermost() {
+            return this.open.get(0);
+        }
+
+        @Override
+        public void call(String instruction) {
+            this.add(ofCall(nameHash(instruction, this.numbers, this.order,
+                    this.assign)));
+        }
+
+        @Override
+        public void beginIf(Statement.Condition condition, int length) {
+            this.open.add(new Level(Statement.Kind.IF, condition, length));
+        }
+
+        @Override
+        public void beginIfElse(Statement.Condition condition, int length) {
+            this.open.add(
+                    new Level(Statement.Kind.IF_ELSE, condition, length));
+        }
+
+        @Override
+        public void beginElse(int length) {
+            Level top = this.open.get(this.open.size() - 1);
+            top.thenBlock = ofBlock(top.children);
+            top.children = new long[length];
+            top.length = 0;
+        }
+
+        @Override
+        public void endIf() {
+            Level top = this.open.remove(this.open.size() - 1);
+            long block = ofBlock(top.children);
+            if (top.kind == Statement.Kind.IF) {
+                this.add(ofIf(top.condition, block));
+            } else {
+                this.add(ofIfElse(top.condition, top.thenBlock, block));
+            }
+        }
+
+        @Override
+        public void beginWhile(Statement.Condition condition, int length) {
+            this.open.add(new Level(Statement.Kind.WHILE, condition, length));
+        }
+
+        @Override
+        public void endWhile() {
+            Level top = this.open.remove(this.open.size() - 1);
+            this.add(ofWhile(top.condition, ofBlock(top.children)));
+        }
+
+    }
+
+    /**
+     * Returns the hash of {@code s}, calls hashing as by {@code nameHash}.
+     * The walk keeps its open statements on an explicit stack, so s may be
+     * nested as deeply as the parser allows.
+     *
+     * @param s
+     *            the statement
+     * @param numbers
+     *            numbers of the user-defined instructions, or null
+     * @param order
+     *            names in the order of their numbers
+     * @param assign
+     *            whether to number names not yet numbered
+     * @return the hash
+     * @restores s
+     * @updates numbers, order
+     */
+    private static long hash(Statement s, HashMap<String, Integer> numbers,
+            List<String> order, boolean assign) {
+        boolean isBlock = s.kind() == Statement.Kind.BLOCK;
+        int length = 1;
+        if (isBlock) {
+            length = s.lengthOfBlock();
+        }
+        Hasher hasher = new Hasher(numbers, order, assign, length);
+        StatementWalker.walk(s, hasher);
+        long[] outermost = hasher.outermost().children;
+        long h;
+        if (isBlock) {
+            h = ofBlock(outermost);
+        } else {
+            h = outermost[0];
+        }
+        return h;
+    }
+
+    /**
+     * Returns the alpha-renamed hash of the program with context
+     * {@code context} and body {@code body}.
+     *
+     * @param context
+     *            the context
+     * @param body
+     *            the body
+     * @return the hash
+     * @restores context, body
+     */
+    private static long renamed(Map<String, Statement> context,
+            Statement body) {
+        HashMap<String, Integer> numbers = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        long bodyHash = hash(body, numbers, order, true);
+        /*
+         * Number the instructions reached from the body, in the order of
+         * their first call
+         */
+        for (int i = 0; i < order.size(); i++) {
+            String name = order.get(i);
+            if (context.hasKey(name)) {
+                hash(context.value(name), numbers, order, true);
+            }
+        }
+        /*
+         * Number the instructions never called, in the order of their hashes
+         */
+        List<long[]> dead = new ArrayList<>();
+        List<String> deadNames = new ArrayList<>();
+        for (Map.Pair<String, Statement> pair : context) {
+            if (!numbers.containsKey(pair.key())) {
+                dead.add(new long[] {
+                        hash(pair.value(), numbers, order, false),
+                        deadNames.size() });
+                deadNames.add(pair.key());
+            }
+        }
+        dead.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] d : dead) {
+            String name = deadNames.get((int) d[1]);
+            numbers.put(name, order.size());
+            order.add(name);
+        }
+        long h = mix(PROGRAM, bodyHash);
+        for (String name : order) {
+            if (context.hasKey(name)) {
+                h = mix(h, hash(context.value(name), numbers, order, false));
+            }
+        }
+        return h;
+    }
+
+    /*
+     * Package-private members ------------------------------------------------
+     */
+
+    /**
+     * Returns a hash of {@code x} combined with {@code h}; the result depends
+     * on the order of the arguments.
+     *
+     * @param h
+     *            the hash so far
+     * @param x
+     *            the value to combine
+     * @return the combined hash
+     */
+    static long mix(long h, long x) {
+        long z = (h ^ (x * 0x9e3779b97f4a7c15L)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 29)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 32);
+    }
+
+    /**
+     * Returns the hash of {@code name} (FNV-1a over its characters).
+     *
+     * @param name
+     *            the name
+     * @return the hash
+     */
+    static long ofName(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the hash of a CALL statement.
+     *
+     * @param name
+     *            hash of the name called
+     * @return the hash
+     */
+    static long ofCall(long name) {
+        return mix(CALL, name);
+    }
+
+    /**
+     * Returns the hash of a BLOCK statement.
+     *
+     * @param children
+     *            hashes of its statements
+     * @return the hash
+     */
+    static long ofBlock(long[] children) {
+        long h = mix(BLOCK, children.length);
+        for (long child : children) {
+            h = mix(h, child);
+        }
+        return h;
+    }
+
+    /**
+     * Returns the hash of an IF statement.
+     *
+     * @param c
+     *            its condition
+     * @param block
+     *            hash of its block
+     * @return the hash
+     */
+    static long ofIf(Statement.Condition c, long block) {
+        return mix(mix(IF, ofName(c.name())), block);
+    }
+
+    /**
+     * Returns the hash of an IF_ELSE statement.
+     *
+     * @param c
+     *            its condition
+     * @param thenBlock
+     *            hash of its THEN block
+     * @param elseBlock
+     *            hash of its ELSE block
+     * @return the hash
+     */
+    static long ofIfElse(Statement.Condition c, long thenBlock,
+            long elseBlock) {
+        return mix(mix(mix(IF_ELSE, ofName(c.name())), thenBlock), elseBlock);
+    }
+
+    /**
+     * Returns the hash of a WHILE statement.
+     *
+     * @param c
+     *            its condition
+     * @param block
+     *            hash of its body
+     * @return the hash
+     */
+    static long ofWhile(Statement.Condition c, long block) {
+        return mix(mix(WHILE, ofName(c.name())), block);
+    }
+
+    /**
+     * Returns the hash of an instruction, whose combination with others by
+     * sum does not depend on their order.
+     *
+     * @param name
+     *            its name
+     * @param body
+     *            hash of its body
+     * @return the hash
+     */
+    static long ofInstruction(String name, long body) {
+        return mix(ofName(name), body);
+    }
+
+    /**
+     * Returns the hash of a program without alpha-renaming.
+     *
+     * @param name
+     *            its name
+     * @param instructions
+     *            sum of the hashes of its instructions
+     * @param body
+     *            hash of its body
+     * @return the hash
+     */
+    static long ofProgram(String name, long instructions, long body) {
+        return mix(mix(mix(PROGRAM, ofName(name)), instructions), body);
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Returns the structural hash of {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @return the hash
+     * @restores s
+     */
+    public static long of(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        return hash(s, null, null, false);
+    }
+
+    /**
+     * Returns the structural hash of {@code p}, alpha-renaming its program
+     * and instruction names if {@code rename}.
+     *
+     * @param p
+     *            the program
+     * @param rename
+     *            whether to ignore the names of p and of its instructions
+     * @return the hash
+     * @restores p
+     */
+    public static long of(Program p, boolean rename) {
+        assert p != null : "Violation of: p is not null";
+
+        Map<String, Statement> context = p.replaceContext(p.newContext());
+        Statement body = p.replaceBody(p.newBody());
+        try {
+            long h;
+            if (rename) {
+                h = renamed(context, body);
+            } else {
+                long instructions = 0;
+                for (Map.Pair<String, Statement> pair : context) {
+                    instructions += ofInstruction(pair.key(),
+                            of(pair.value()));
+                }
+                h = ofProgram(p.name(), instructions, of(body));
+            }
+            return h;
+        } finally {
+            p.replaceContext(context);
+            p.replaceBody(body);
+        }
+    }
+
+}
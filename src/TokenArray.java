@@ -0,0 +1,333 @@
+import java.util.Arrays;
+
+/**
+ * A whole token string held in parallel arrays: the canonical text of each
+ * token, its {@code TokenKind} as a byte, and its source line and column
+ * packed into a single {@code long}. Positions therefore cost 8 bytes per
+ * token and no objects, however many tokens there are.
+ *
+ * <p>
+ * A {@code TokenArray} is itself a {@code TokenStream} with a movable cursor,
+ * so the same tokens can be parsed from any index, any number of times.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class TokenArray implements TokenStream {
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Number of bits the line is shifted by in a packed position.
+     */
+    private static final int LINE_SHIFT = 32;
+
+    /**
+     * Mask for the column in a packed position.
+     */
+    private static final long COLUMN_MASK = 0xFFFFFFFFL;
+
+    /**
+     * All token kinds, indexed by ordinal.
+     */
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    /**
+     * {@code TokenStream} over the tokens of a {@code TokenArray}, with a
+     * cursor of its own.
+     */
+    private final class View implements TokenStream {
+
+        /**
+         * Index of the front token.
+         */
+        private int cursor;
+
+        /**
+         * Constructor.
+         *
+         * @param cursor
+         *            index of the front token
+         */
+        View(int cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public String front() {
+            return TokenArray.this.texts[this.cursor];
+        }
+
+        @Override
+        public TokenKind frontKind() {
+            return KINDS[TokenArray.this.kinds[this.cursor]];
+        }
+
+        @Override
+        public int frontIndex() {
+            return this.cursor;
+        }
+
+        @Override
+        public int frontLine() {
+            return lineOf(TokenArray.this.positions[this.cursor]);
+        }
+
+        @Override
+        public int frontColumn() {
+            return columnOf(TokenArray.this.positions[this.cursor]);
+        }
+
+        @Override
+        public String dequeue() {
+            String token = TokenArray.this.texts[this.cursor];
+            if (this.cursor < TokenArray.this.length - 1) {
+                this.cursor++;
+            }
+            return token;
+        }
+
+    }
+
+    /**
+     * Texts of the tokens.
+     */
+    private String[] texts;
+
+    /**
+     * Ordinals of the kinds of the tokens.
+     */
+    private byte[] kinds;
+
+    /**
+     * Packed positions of the tokens.
+     */
+    private long[] positions;
+
+    /**
+     * Number of tokens, including the final {@code Tokenizer.END_OF_INPUT}.
+     */
+    private int length;
+
+    /**
+     * Index of the front token.
+     */
+    private int cursor;
+
+    /**
+     * Constructor from a token stream; all of {@code source} is read, and the
+     * cursor of the new array is at its first token.
+     *
+     * @param source
+     *            the tokens to hold
+     * @updates source
+     * @ensures <pre>
+     * this = #source  and  source = <Tokenizer.END_OF_INPUT>  and
+     * [positions of this are those reported by #source]
+     * </pre>
+     */
+    public TokenArray(TokenStream source) {
+        assert source != null : "Violation of: source is not null";
+        this.texts = new String[INITIAL_CAPACITY];
+        this.kinds = new byte[INITIAL_CAPACITY];
+        this.positions = new long[INITIAL_CAPACITY];
+        this.length = 0;
+        this.cursor = 0;
+        long start = ParseMetrics.start();
+        while (true) {
+            TokenKind kind = source.frontKind();
+            this.add(source.front(), kind, source.frontLine(),
+                    source.frontColumn());
+            if (kind == TokenKind.END_OF_INPUT) {
+                break;
+            }
+            source.dequeue();
+        }
+        ParseMetrics.stop(ParseMetrics.Phase.LEX, start);
+    }
+
+    /**
+     * Packs {@code line} and {@code column} into one {@code long}.
+     *
+     * @param line
+     *            the line
+     * @param column
+     *            the column
+     * @return the packed position
+     * @requires line >= 0 and column >= 0
+     * @ensures line(pack) = line and column(pack) = column
+     */
+    public static long pack(int line, int column) {
+        assert line >= 0 : "Violation of: line >= 0";
+        assert column >= 0 : "Violation of: column >= 0";
+        return ((long) line << LINE_SHIFT) | column;
+    }
+
+    /**
+     * Reports the line of packed position {@code position}.
+     *
+     * @param position
+     *            the packed position
+     * @return the line
+     */
+    public static int lineOf(long position) {
+        return (int) (position >>> LINE_SHIFT);
+    }
+
+    /**
+     * Reports the column of packed position {@code position}.
+     *
+     * @param position
+     *            the packed position
+     * @return the column
+     */
+    public static int columnOf(long position) {
+        return (int) (position & COLUMN_MASK);
+    }
+
+    /**
+     * Appends a token to {@code this}, growing the arrays as needed.
+     *
+     * @param text
+     *            the text of the token
+     * @param kind
+     *            the kind of the token
+     * @param line
+     *            the line of the token
+     * @param column
+     *            the column of the token
+     * @updates this
+     */
+    private void add(String text, TokenKind kind, int line, int column) {
+        if (this.length == this.texts.length) {
+            int capacity = 2 * this.length;
+            this.texts = Arrays.copyOf(this.texts, capacity);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.positions = Arrays.copyOf(this.positions, capacity);
+        }
+        this.texts[this.length] = text;
+        this.kinds[this.length] = (byte) kind.ordinal();
+        this.positions[this.length] = pack(line, column);
+        this.length++;
+    }
+
+    /**
+     * Reports the number of tokens in {@code this}.
+     *
+     * @return the number of tokens, including the final
+     *         Tokenizer.END_OF_INPUT
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Reports the text of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the text of token i
+     * @requires 0 <= i < length
+     */
+    public String text(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < length";
+        return this.texts[i];
+    }
+
+    /**
+     * Reports the kind of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the kind of token i
+     * @requires 0 <= i < length
+     */
+    public TokenKind kind(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < length";
+        return KINDS[this.kinds[i]];
+    }
+
+    /**
+     * Reports the packed position of token {@code i}.
+     *
+     * @param i
+     *            the token index
+     * @return the packed position of token i
+     * @requires 0 <= i < length
+     */
+    public long position(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < length";
+        return this.positions[i];
+    }
+
+    /**
+     * Moves the cursor of {@code this} to token {@code i}.
+     *
+     * @param i
+     *            the new front index
+     * @updates this
+     * @requires 0 <= i < length
+     * @ensures frontIndex = i
+     */
+    public void seek(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < length";
+        this.cursor = i;
+    }
+
+    /**
+     * Returns a new stream over the tokens of {@code this} from token
+     * {@code i} on, with a cursor independent of the cursor of {@code this}
+     * and of every other view, so that several threads can each parse a
+     * different part of the same tokens. {@code this} must not change while
+     * the view is in use.
+     *
+     * @param i
+     *            index of the front token of the view
+     * @return the view
+     * @requires 0 <= i < length
+     * @ensures view = [tokens of this from index i on]
+     */
+    public TokenStream view(int i) {
+        assert 0 <= i && i < this.length : "Violation of: 0 <= i < length";
+        return new View(i);
+    }
+
+    @Override
+    public String front() {
+        return this.texts[this.cursor];
+    }
+
+    @Override
+    public TokenKind frontKind() {
+        return KINDS[this.kinds[this.cursor]];
+    }
+
+    @Override
+    public int frontIndex() {
+        return this.cursor;
+    }
+
+    @Override
+    public int frontLine() {
+        return lineOf(this.positions[this.cursor]);
+    }
+
+    @Override
+    public int frontColumn() {
+        return columnOf(this.positions[this.cursor]);
+    }
+
+    @Override
+    public String dequeue() {
+        String token = this.texts[this.cursor];
+        if (this.cursor < this.length - 1) {
+            this.cursor++;
+        }
+        return token;
+    }
+
+}
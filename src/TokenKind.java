@@ -0,0 +1,200 @@
+import java.util.HashMap;
+
+import components.utilities.Tokenizer;
+
+/**
+ * Kinds of BL tokens. A token's kind is computed once, when the token is
+ * produced, so that the parsers can dispatch on it with a {@code switch}
+ * instead of comparing strings or rerunning {@code Tokenizer.isIdentifier}
+ * and {@code Tokenizer.isCondition}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public enum TokenKind {
+
+    /**
+     * Keyword {@code PROGRAM}.
+     */
+    PROGRAM,
+
+    /**
+     * Keyword {@code IS}.
+     */
+    IS,
+
+    /**
+     * Keyword {@code BEGIN}.
+     */
+    BEGIN,
+
+    /**
+     * Keyword {@code END}.
+     */
+    END,
+
+    /**
+     * Keyword {@code INSTRUCTION}.
+     */
+    INSTRUCTION,
+
+    /**
+     * Keyword {@code IF}.
+     */
+    IF,
+
+    /**
+     * Keyword {@code THEN}.
+     */
+    THEN,
+
+    /**
+     * Keyword {@code ELSE}.
+     */
+    ELSE,
+
+    /**
+     * Keyword {@code WHILE}.
+     */
+    WHILE,
+
+    /**
+     * Keyword {@code DO}.
+     */
+    DO,
+
+    /**
+     * A condition, e.g., {@code next-is-empty} or {@code random}.
+     */
+    CONDITION,
+
+    /**
+     * An identifier, i.e., an instruction or program name.
+     */
+    IDENTIFIER,
+
+    /**
+     * {@code Tokenizer.END_OF_INPUT}.
+     */
+    END_OF_INPUT,
+
+    /**
+     * Anything else; never valid in a BL program.
+     */
+    ERROR;
+
+    /**
+     * Texts of all BL conditions.
+     */
+    static final String[] CONDITION_TEXTS = { "next-is-empty",
+            "next-is-not-empty", "next-is-wall", "next-is-not-wall",
+            "next-is-friend", "next-is-not-friend", "next-is-enemy",
+            "next-is-not-enemy", "random", "true" };
+
+    /**
+     * Kinds of all keywords, conditions, and {@code Tokenizer.END_OF_INPUT},
+     * keyed by their text.
+     */
+    private static final HashMap<String, TokenKind> RESERVED = new HashMap<>();
+
+    static {
+        for (TokenKind k : values()) {
+            if (k.isKeyword()) {
+                RESERVED.put(k.name(), k);
+            }
+        }
+        for (String c : CONDITION_TEXTS) {
+            RESERVED.put(c, CONDITION);
+        }
+        RESERVED.put(Tokenizer.END_OF_INPUT, END_OF_INPUT);
+    }
+
+    /**
+     * Reports whether {@code c} separates tokens. Only ASCII whitespace does,
+     * so a lexer reading bytes and one reading characters split any input the
+     * same way; every other character is part of a token.
+     *
+     * @param c
+     *            the character to check
+     * @return true iff c is an ASCII space, tab, line feed, vertical tab, form
+     *         feed, or carriage return
+     */
+    public static boolean isSeparator(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f'
+                || c == '\r';
+    }
+
+    /**
+     * Reports whether {@code c} may start an identifier.
+     *
+     * @param c
+     *            the character to check
+     * @return true iff c is an ASCII letter
+     */
+    private static boolean isIdentifierStart(char c) {
+        return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z');
+    }
+
+    /**
+     * Reports whether {@code c} may appear after the first character of an
+     * identifier.
+     *
+     * @param c
+     *            the character to check
+     * @return true iff c is an ASCII letter, an ASCII digit, or '-'
+     */
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || ('0' <= c && c <= '9') || c == '-';
+    }
+
+    /**
+     * Returns the kind of {@code token}.
+     *
+     * @param token
+     *            the token to classify
+     * @return the kind of token
+     * @ensures <pre>
+     * of = [kind of token, consistent with Tokenizer.isKeyword,
+     *       Tokenizer.isCondition, and Tokenizer.isIdentifier]
+     * </pre>
+     */
+    public static TokenKind of(String token) {
+        assert token != null : "Violation of: token is not null";
+        TokenKind kind = RESERVED.get(token);
+        if (kind != null) {
+            return kind;
+        }
+        int length = token.length();
+        if (length == 0 || !isIdentifierStart(token.charAt(0))) {
+            return ERROR;
+        }
+        for (int i = 1; i < length; i++) {
+            if (!isIdentifierPart(token.charAt(i))) {
+                return ERROR;
+            }
+        }
+        return IDENTIFIER;
+    }
+
+    /**
+     * Reports whether this is the kind of a keyword; the text of a keyword is
+     * the name of its kind.
+     *
+     * @return true iff this is one of PROGRAM, IS, BEGIN, END, INSTRUCTION,
+     *         IF, THEN, ELSE, WHILE, DO
+     */
+    public boolean isKeyword() {
+        return this.compareTo(DO) <= 0;
+    }
+
+    /**
+     * Reports whether a token of this kind can start a BL statement.
+     *
+     * @return true iff this is IF, WHILE, or IDENTIFIER
+     */
+    public boolean startsStatement() {
+        return this == IF || this == WHILE || this == IDENTIFIER;
+    }
+
+}
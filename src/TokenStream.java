@@ -0,0 +1,79 @@
+/**
+ * Pull-based source of BL tokens, consumed one token at a time by the
+ * {@code Program} and {@code Statement} parsers.
+ *
+ * <p>
+ * Unlike the {@code Queue<String>} returned by {@code Tokenizer.tokens}, a
+ * {@code TokenStream} need not hold the whole token string in memory: an
+ * implementation only has to be able to produce the front token on demand.
+ * The last token of every stream is {@code Tokenizer.END_OF_INPUT}, and once
+ * it is reached the stream stays there.
+ *
+ * <p>
+ * Every token comes with its {@code TokenKind}, computed once when the token
+ * is produced, so the parsers never have to reclassify a token, and with its
+ * position, so that errors can be reported where they occur.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public interface TokenStream {
+
+    /**
+     * Reports the front of {@code this}.
+     *
+     * @return the front token of {@code this}
+     * @ensures front = [the first token remaining in this]
+     */
+    String front();
+
+    /**
+     * Reports the kind of the front of {@code this}.
+     *
+     * @return the kind of the front token of {@code this}
+     * @ensures frontKind = TokenKind.of(front)
+     */
+    TokenKind frontKind();
+
+    /**
+     * Reports the index of the front of {@code this} in the whole token
+     * string, i.e., the number of tokens dequeued so far.
+     *
+     * @return the index of the front token, counting from 0
+     */
+    int frontIndex();
+
+    /**
+     * Reports the source line of the front of {@code this}.
+     *
+     * @return the line of the front token, counting from 1, or 0 if this
+     *         stream does not know where its tokens came from
+     */
+    int frontLine();
+
+    /**
+     * Reports the source column of the front of {@code this}.
+     *
+     * @return the column of the front token, counting from 1, or 0 if this
+     *         stream does not know where its tokens came from
+     */
+    int frontColumn();
+
+    /**
+     * Removes and returns the front token of {@code this}.
+     *
+     * @return the token removed
+     * @updates this
+     * @ensures
+     *
+     *          <pre>
+     * if #this = <Tokenizer.END_OF_INPUT> then
+     *  this = #this  and  dequeue = Tokenizer.END_OF_INPUT
+     * else
+     *  #this = <dequeue> * this
+     *          </pre>
+     */
+    String dequeue();
+
+}
@@ -0,0 +1,352 @@
+import java.util.Arrays;
+
+/**
+ * Virtual machine executing BL programs lowered by {@code CodeGenerator} into
+ * a flat {@code int[]} instruction stream, driving one {@code Bug}.
+ *
+ * <p>
+ * Each instruction is an opcode followed by at most one operand, the address
+ * of a jump or call target. Conditions are folded into the branch opcodes,
+ * one pair per sensor, so a test is one sensor call and one compare; a
+ * {@code SensingBug} is instead sensed once per turn, and each branch but a
+ * {@code random} one is a mask test of that snapshot, as in {@code Sensors}.
+ * Opcodes are dense from zero, so the dispatch {@code switch} compiles to a
+ * jump table. Like
+ * {@code Interpreter}, the machine keeps its state (program counter and
+ * return stack) in fields between calls of {@code run}, which can stop after
+ * any number of turns and resume later; a turn ends with a primitive
+ * instruction or after {@code Bug.TURN_LIMIT} backward jumps and calls.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class VirtualMachine {
+
+    /*
+     * Opcodes ----------------------------------------------------------------
+     */
+
+    /**
+     * Primitive instruction move.
+     */
+    static final int MOVE = 0;
+
+    /**
+     * Primitive instruction turnleft.
+     */
+    static final int TURNLEFT = 1;
+
+    /**
+     * Primitive instruction turnright.
+     */
+    static final int TURNRIGHT = 2;
+
+    /**
+     * Primitive instruction infect.
+     */
+    static final int INFECT = 3;
+
+    /**
+     * Primitive instruction skip.
+     */
+    static final int SKIP = 4;
+
+    /**
+     * Jump to the operand.
+     */
+    static final int JUMP = 5;
+
+    /**
+     * Jump to the operand if next-is-empty holds.
+     */
+    static final int JUMP_IF_EMPTY = 6;
+
+    /**
+     * Jump to the operand unless next-is-empty holds.
+     */
+    static final int JUMP_UNLESS_EMPTY = 7;
+
+    /**
+     * Jump to the operand if next-is-wall holds.
+     */
+    static final int JUMP_IF_WALL = 8;
+
+    /**
+     * Jump to the operand unless next-is-wall holds.
+     */
+    static final int JUMP_UNLESS_WALL = 9;
+
+    /**
+     * Jump to the operand if next-is-friend holds.
+     */
+    static final int JUMP_IF_FRIEND = 10;
+
+    /**
+     * Jump to the operand unless next-is-friend holds.
+     */
+    static final int JUMP_UNLESS_FRIEND = 11;
+
+    /**
+     * Jump to the operand if next-is-enemy holds.
+     */
+    static final int JUMP_IF_ENEMY = 12;
+
+    /**
+     * Jump to the operand unless next-is-enemy holds.
+     */
+    static final int JUMP_UNLESS_ENEMY = 13;
+
+    /**
+     * Jump to the operand if random holds.
+     */
+    static final int JUMP_IF_RANDOM = 14;
+
+    /**
+     * Jump to the operand unless random holds.
+     */
+    static final int JUMP_UNLESS_RANDOM = 15;
+
+    /**
+     * Call the user-defined instruction at the operand.
+     */
+    static final int CALL = 16;
+
+    /**
+     * Return from a user-defined instruction.
+     */
+    static final int RETURN = 17;
+
+    /**
+     * End of the program body.
+     */
+    static final int HALT = 18;
+
+    /**
+     * Initial capacity of the return stack.
+     */
+    private static final int INITIAL_DEPTH = 16;
+
+    /**
+     * Condition on which each branch opcode jumps, compiled as by
+     * {@code Sensors}, indexed by opcode - JUMP_IF_EMPTY.
+     */
+    private static final int[] BRANCH_CONDITIONS = { Sensors.EMPTY,
+            Sensors.EMPTY | Sensors.NEGATED, Sensors.WALL,
+            Sensors.WALL | Sensors.NEGATED, Sensors.FRIEND,
+            Sensors.FRIEND | Sensors.NEGATED, Sensors.ENEMY,
+            Sensors.ENEMY | Sensors.NEGATED, Sensors.RANDOM,
+            Sensors.RANDOM | Sensors.NEGATED };
+
+    /**
+     * The program executed.
+     */
+    private final int[] code;
+
+    /**
+     * Address of the next instruction.
+     */
+    private int pc;
+
+    /**
+     * Return addresses of the user-defined instructions being executed.
+     */
+    private int[] returns;
+
+    /**
+     * Number of return addresses.
+     */
+    private int sp;
+
+    /**
+     * Snapshot of the current turn, if {@code sensed}.
+     */
+    private int snapshot;
+
+    /**
+     * Whether the bug has been sensed in the current turn.
+     */
+    private boolean sensed;
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * Constructor; the new machine is at the start of the program.
+     *
+     * @param code
+     *            the program to execute, as generated by {@code CodeGenerator}
+     * @requires [code was generated by CodeGenerator]
+     */
+    public VirtualMachine(int[] code) {
+        assert code != null : "Violation of: code is not null";
+        this.code = code;
+        this.returns = new int[INITIAL_DEPTH];
+        this.reset();
+    }
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Returns the reading of the condition {@code condition} on {@code bug}:
+     * a mask test of the snapshot of the current turn if {@code sensing} is
+     * not null and the condition is not {@code random}, taking the snapshot
+     * if the turn has none, and else a call of the one sensor the condition
+     * reads.
+     *
+     * @param condition
+     *            the condition, compiled as by {@code Sensors}
+     * @param bug
+     *            the bug sensing
+     * @param sensing
+     *            bug, if it is a SensingBug, or null
+     * @return whether the condition holds
+     * @updates this
+     */
+    private boolean test(int condition, Bug bug, SensingBug sensing) {
+        int reading;
+        if (sensing == null || (condition & Sensors.RANDOM) != 0) {
+            reading = Sensors.read(bug, condition);
+        } else {
+            if (!this.sensed) {
+                this.snapshot = sensing.sense();
+                this.sensed = true;
+            }
+            reading = this.snapshot;
+        }
+        return Sensors.holds(reading, condition);
+    }
+
+    /*
+     * Public methods ---------------------------------------------------------
+     */
+
+    /**
+     * Moves {@code this} back to the start of the program.
+     */
+    public void reset() {
+        this.pc = 0;
+        this.sp = 0;
+    }
+
+    /**
+     * Reports whether the body of the program has completed.
+     *
+     * @return true iff the body has completed
+     */
+    public boolean isDone() {
+        return this.code[this.pc] == HALT;
+    }
+
+    /**
+     * Executes the program on {@code bug} until {@code budget} turns have
+     * been taken or the body completes, whichever is first. A turn ends with
+     * a primitive instruction, or without one after {@code Bug.TURN_LIMIT}
+     * backward jumps and calls, so every call returns. A later call resumes
+     * where this one stopped.
+     *
+     * @param bug
+     *            the bug to drive
+     * @param budget
+     *            the largest number of turns to take
+     * @return the number of turns taken
+     * @requires budget >= 0
+     */
+    public int run(Bug bug, int budget) {
+        assert bug != null : "Violation of: bug is not null";
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        SensingBug sensing = null;
+        if (bug instanceof SensingBug) {
+            sensing = (SensingBug) bug;
+        }
+        this.sensed = false;
+        final int[] c = this.code;
+        int pc = this.pc;
+        int steps = 0;
+        int jumps = 0;
+        loop: while (steps < budget) {
+            if (jumps == Bug.TURN_LIMIT) {
+                /*
+                 * End the turn without a primitive instruction
+                 */
+                steps++;
+                jumps = 0;
+                this.sensed = false;
+                continue;
+            }
+            int op = c[pc];
+            switch (op) {
+                case MOVE:
+                    bug.move();
+                    break;
+                case TURNLEFT:
+                    bug.turnLeft();
+                    break;
+                case TURNRIGHT:
+                    bug.turnRight();
+                    break;
+                case INFECT:
+                    bug.infect();
+                    break;
+                case SKIP:
+                    bug.skip();
+                    break;
+                case JUMP:
+                    if (c[pc + 1] <= pc) {
+                        jumps++;
+                    }
+                    pc = c[pc + 1];
+                    continue;
+                case JUMP_IF_EMPTY:
+                case JUMP_UNLESS_EMPTY:
+                case JUMP_IF_WALL:
+                case JUMP_UNLESS_WALL:
+                case JUMP_IF_FRIEND:
+                case JUMP_UNLESS_FRIEND:
+                case JUMP_IF_ENEMY:
+                case JUMP_UNLESS_ENEMY:
+                case JUMP_IF_RANDOM:
+                case JUMP_UNLESS_RANDOM:
+                    if (this.test(BRANCH_CONDITIONS[op - JUMP_IF_EMPTY], bug,
+                            sensing)) {
+                        if (c[pc + 1] <= pc) {
+                            jumps++;
+                        }
+                        pc = c[pc + 1];
+                    } else {
+                        pc += 2;
+                    }
+                    continue;
+                case CALL:
+                    if (this.sp == this.returns.length) {
+                        this.returns = Arrays.copyOf(this.returns, 2 * this.sp);
+                    }
+                    this.returns[this.sp] = pc + 2;
+                    this.sp++;
+                    pc = c[pc + 1];
+                    jumps++;
+                    continue;
+                case RETURN:
+                    this.sp--;
+                    pc = this.returns[this.sp];
+                    continue;
+                default:
+                    break loop;
+            }
+            /*
+             * A primitive instruction ends the turn
+             */
+            pc++;
+            steps++;
+            jumps = 0;
+            this.sensed = false;
+        }
+        this.pc = pc;
+        return steps;
+    }
+
+}
@@ -0,0 +1,102 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * JUnit test fixture for {@code BatchParse}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class BatchParseTest {
+
+    /**
+     * Test of findFiles on a glob.
+     *
+     * @throws IOException
+     *             if the test directory cannot be read
+     */
+    @Test
+    public void testFindFilesGlob() throws IOException {
+        List<Path> files = BatchParse.findFiles("test/program?.bl");
+        assertEquals(2, files.size());
+        assertEquals(Paths.get("test/program1.bl"), files.get(0));
+        assertEquals(Paths.get("test/program2.bl"), files.get(1));
+    }
+
+    /**
+     * Test of findFiles on a directory.
+     *
+     * @throws IOException
+     *             if the test directory cannot be read
+     */
+    @Test
+    public void testFindFilesDirectory() throws IOException {
+        List<Path> files = BatchParse.findFiles("test");
+        assertTrue(files.contains(Paths.get("test/program1.bl")));
+        assertTrue(files.contains(Paths.get("test/statement1.bl")));
+    }
+
+    /**
+     * Test that an invalid file does not stop the batch.
+     *
+     * @throws IOException
+     *             if the test directory cannot be read
+     */
+    @Test
+    public void testParseAllContinuesAfterError() throws IOException {
+        List<Path> files = BatchParse.findFiles("test/program*.bl");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        List<BatchParse.Result> results = BatchParse.parseAll(files, pool);
+        pool.shutdown();
+        assertEquals(files.size(), results.size());
+        for (int i = 0; i < files.size(); i++) {
+            BatchParse.Result r = results.get(i);
+            assertEquals(files.get(i), r.file());
+            String name = r.file().getFileName().toString();
+            if (name.equals("program1.bl")) {
+                assertTrue(r.isValid());
+            } else if (name.equals("program2.bl")) {
+                assertFalse(r.isValid());
+            }
+        }
+    }
+
+    /**
+     * Test that a file that cannot be read becomes a diagnostic instead of
+     * stopping the batch.
+     *
+     * @throws IOException
+     *             if a temporary directory cannot be made
+     */
+    @Test
+    public void testParseAllContinuesAfterUnreadableFile()
+            throws IOException {
+        Path unreadable = Files.createTempDirectory("batchparsetest");
+        try {
+            Path valid = Paths.get("test/program1.bl");
+            ForkJoinPool pool = new ForkJoinPool(2);
+            List<BatchParse.Result> results = BatchParse
+                    .parseAll(Arrays.asList(unreadable, valid), pool);
+            pool.shutdown();
+            assertEquals(2, results.size());
+            assertFalse(results.get(0).isValid());
+            assertEquals(1, results.get(0).diagnostics().size());
+            assertTrue(results.get(1).isValid());
+        } finally {
+            Files.delete(unreadable);
+        }
+    }
+
+}
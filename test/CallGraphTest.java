@@ -0,0 +1,196 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code CallGraph}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class CallGraphTest {
+
+    /**
+     * Number of instructions in the long chain of calls.
+     */
+    private static final int CHAIN = 50_000;
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * A program with an undefined call, a self-recursive instruction, a
+     * cycle of two, and an instruction never called.
+     */
+    private static final String PROBLEMS = "PROGRAM P IS\n"
+            + "  INSTRUCTION a IS\n    b\n    move\n  END a\n"
+            + "  INSTRUCTION b IS\n    IF random THEN\n      a\n"
+            + "    END IF\n  END b\n"
+            + "  INSTRUCTION c IS\n    WHILE true DO\n      c\n"
+            + "    END WHILE\n  END c\n"
+            + "  INSTRUCTION d IS\n    jump\n  END d\n"
+            + "  INSTRUCTION e IS\n    skip\n  END e\n"
+            + "BEGIN\n  a\n  c\n  d\n  fly\nEND P\n";
+
+    /**
+     * Checks that every instruction in {@code order} comes after every
+     * instruction it calls outside its own component.
+     *
+     * @param graph
+     *            the call graph
+     * @param order
+     *            the topological order
+     */
+    private static void assertTopological(CallGraph graph, int[] order) {
+        int[] position = new int[graph.size()];
+        Arrays.fill(position, -1);
+        for (int k = 0; k < order.length; k++) {
+            position[order[k]] = k;
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            assertTrue(position[id] >= 0);
+            for (int callee : graph.callees(id)) {
+                assertTrue(graph.component(callee) == graph.component(id)
+                        || position[callee] < position[id]);
+            }
+        }
+    }
+
+    @Test
+    public final void testProblems() {
+        Program p = TestPrograms.parse(PROBLEMS);
+        CallGraph graph = new CallGraph(p);
+        assertEquals(5, graph.size());
+        assertEquals(2, graph.undefinedCalls());
+        assertEquals("fly", graph.undefinedName(0));
+        assertEquals(CallGraph.BODY, graph.undefinedCaller(0));
+        assertEquals("jump", graph.undefinedName(1));
+        assertEquals(graph.id("d"), graph.undefinedCaller(1));
+        assertTrue(graph.isRecursive(graph.id("a")));
+        assertTrue(graph.isRecursive(graph.id("b")));
+        assertTrue(graph.isRecursive(graph.id("c")));
+        assertFalse(graph.isRecursive(graph.id("d")));
+        assertEquals(graph.component(graph.id("a")),
+                graph.component(graph.id("b")));
+        assertFalse(graph.isReachable(graph.id("e")));
+        assertTrue(graph.isReachable(graph.id("b")));
+        assertEquals(-1, graph.id("move"));
+        List<String> problems = graph.problems();
+        assertEquals(Arrays.asList(
+                "Call of undefined instruction fly in the body of P",
+                "Call of undefined instruction jump in d"),
+                problems.subList(0, 2));
+        assertTrue(problems.contains("Recursive instructions: c"));
+        assertTrue(problems.contains("Recursive instructions: b, a")
+                || problems.contains("Recursive instructions: a, b"));
+        assertTrue(problems.contains("Instruction never called: e"));
+        assertEquals(5, problems.size());
+        assertTopological(graph, graph.topologicalOrder());
+        assertEquals(TestPrograms.parse(PROBLEMS), p);
+    }
+
+    @Test
+    public final void testGeneratedProgramsHaveNoProblems()
+            throws IOException {
+        for (long seed = 0; seed < 5; seed++) {
+            StringWriter text = new StringWriter();
+            new ProgramGenerator(seed, 30, 3, 3).generate(text);
+            CallGraph graph = new CallGraph(
+                    TestPrograms.parse(text.toString()));
+            assertEquals(0, graph.undefinedCalls());
+            for (int id = 0; id < graph.size(); id++) {
+                assertFalse(graph.isRecursive(id));
+            }
+            assertTopological(graph, graph.topologicalOrder());
+        }
+    }
+
+    /**
+     * Returns a program of {@code CHAIN} instructions, each calling the next,
+     * the last calling the first if {@code closed} and else move, and a body
+     * calling the first.
+     *
+     * @param closed
+     *            whether the chain is a cycle
+     * @return the program
+     */
+    private static Program chain(boolean closed) {
+        Program p = new Program1Parse1();
+        Map<String, Statement> context = p.newContext();
+        for (int k = 0; k < CHAIN; k++) {
+            String callee = "i" + (k + 1);
+            if (k == CHAIN - 1) {
+                callee = closed ? "i0" : "move";
+            }
+            Statement body = p.newBody();
+            Statement call = body.newInstance();
+            call.assembleCall(callee);
+            body.addToBlock(0, call);
+            context.add("i" + k, body);
+        }
+        p.swapContext(context);
+        Statement body = p.newBody();
+        Statement call = body.newInstance();
+        call.assembleCall("i0");
+        body.addToBlock(0, call);
+        p.swapBody(body);
+        return p;
+    }
+
+    @Test
+    public final void testLongChain() {
+        CallGraph graph = new CallGraph(chain(false));
+        assertEquals(CHAIN, graph.size());
+        assertTrue(graph.problems().isEmpty());
+        int[] order = graph.topologicalOrder();
+        for (int k = 0; k < CHAIN; k++) {
+            assertEquals("i" + (CHAIN - 1 - k), graph.name(order[k]));
+        }
+    }
+
+    @Test
+    public final void testLongCycle() {
+        CallGraph graph = new CallGraph(chain(true));
+        for (int id = 0; id < graph.size(); id++) {
+            assertTrue(graph.isRecursive(id));
+            assertTrue(graph.isReachable(id));
+            assertEquals(0, graph.component(id));
+        }
+        assertEquals(1, graph.problems().size());
+    }
+
+    @Test
+    public final void testDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        CallGraph graph = new CallGraph(p);
+        assertEquals(1, graph.size());
+        assertTrue(graph.isReachable(graph.id("step")));
+        assertTrue(graph.problems().isEmpty());
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+    @Test
+    public final void testOptimizerDoesNotInlineRecursion() {
+        Program p = TestPrograms.parse(PROBLEMS.replace("jump", "turnleft")
+                .replace("  fly\n", ""));
+        ProgramOptimizer.optimize(p);
+        CallGraph graph = new CallGraph(p);
+        assertTrue(graph.isRecursive(graph.id("c")));
+        assertTrue(graph.isRecursive(graph.id("a")));
+    }
+
+}
@@ -0,0 +1,119 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for parsing with collecting {@code Diagnostics}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class DiagnosticsTest {
+
+    /**
+     * Names of files containing (possibly invalid) BL programs.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl",
+            FILE_NAME_2 = "test/program2.bl",
+            NO_IS_INSTR = "test/programNoIsInstr.bl",
+            TWO_BAD_INSTRUCTIONS = "test/programTwoBadInstructions.bl";
+
+    /**
+     * Parses {@code fileName} with a collecting {@code Diagnostics}.
+     *
+     * @param fileName
+     *            the file to parse
+     * @param p
+     *            the program to parse into
+     * @return the diagnostics
+     */
+    private static Diagnostics parse(String fileName, Program1Parse1 p) {
+        Diagnostics diagnostics = new Diagnostics();
+        SimpleReader file = new SimpleReader1L(fileName);
+        p.parse(new ReaderTokenStream(file), diagnostics);
+        file.close();
+        return diagnostics;
+    }
+
+    /**
+     * Test that a valid program records no errors.
+     */
+    @Test
+    public void testValidProgram() {
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pRef.parse(file);
+        file.close();
+        Program1Parse1 pTest = new Program1Parse1();
+        Diagnostics diagnostics = parse(FILE_NAME_1, pTest);
+        assertTrue(diagnostics.isEmpty());
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that an error is recorded instead of terminating, with its
+     * position, and that the program is left unchanged.
+     */
+    @Test
+    public void testExtraCode() {
+        Program1Parse1 pTest = new Program1Parse1();
+        Diagnostics diagnostics = parse(FILE_NAME_2, pTest);
+        assertEquals(1, diagnostics.size());
+        Diagnostic d = diagnostics.list().get(0);
+        assertEquals("Extra code appears after end of program.", d.message());
+        assertEquals(30, d.line());
+        assertEquals(1, d.column());
+        assertEquals(new Program1Parse1(), pTest);
+    }
+
+    /**
+     * Test that a fatal error message includes the position of the error.
+     */
+    @Test
+    public void testFatalMessageHasPosition() {
+        Program1Parse1 pTest = new Program1Parse1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_2);
+        String message = null;
+        try {
+            pTest.parse(new ReaderTokenStream(file));
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+        file.close();
+        assertTrue(message != null && message.contains("30:1: "));
+    }
+
+    /**
+     * Test of the position of an error inside an instruction.
+     */
+    @Test
+    public void testMissingIsPosition() {
+        Program1Parse1 pTest = new Program1Parse1();
+        Diagnostics diagnostics = parse(NO_IS_INSTR, pTest);
+        assertEquals(1, diagnostics.size());
+        Diagnostic d = diagnostics.list().get(0);
+        assertEquals(9, d.line());
+        assertEquals(5, d.column());
+    }
+
+    /**
+     * Test that parsing resumes after an error in an instruction, so errors
+     * in several instructions are reported in one pass.
+     */
+    @Test
+    public void testRecoveryAtInstructions() {
+        Program1Parse1 pTest = new Program1Parse1();
+        Diagnostics diagnostics = parse(TWO_BAD_INSTRUCTIONS, pTest);
+        assertEquals(2, diagnostics.size());
+        assertEquals(4, diagnostics.list().get(0).line());
+        assertEquals(10, diagnostics.list().get(1).line());
+    }
+
+}
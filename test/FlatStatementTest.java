@@ -0,0 +1,270 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.utilities.Tokenizer;
+
+/**
+ * Customized JUnit test fixture for {@code FlatStatement}: the parse tests of
+ * {@code StatementTest}, plus tests of the kernel methods on the flat
+ * representation.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class FlatStatementTest extends StatementTest {
+
+    /**
+     * The name of a file containing a sequence of valid BL statements.
+     */
+    private static final String FILE_NAME_1 = "test/statement1.bl";
+
+    /**
+     * The name of a file containing a block with one statement of each kind.
+     */
+    private static final String FILE_NAME_2 = "test/statementBlock_OneOfEach.bl";
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String PROGRAM_FILE_NAME = "test/program1.bl";
+
+    /**
+     * A {@code Program} whose bodies are {@code FlatStatement}s. Only the
+     * body methods that {@code Program1Parse1.parseProgram} uses are
+     * overridden.
+     */
+    private static final class FlatProgram extends Program1 {
+
+        /**
+         * The body.
+         */
+        private Statement flatBody = new FlatStatement();
+
+        @Override
+        public Statement newBody() {
+            return new FlatStatement();
+        }
+
+        @Override
+        public Statement replaceBody(Statement b) {
+            Statement old = this.flatBody;
+            this.flatBody = b;
+            return old;
+        }
+
+    }
+
+    @Override
+    protected Statement constructorTest() {
+        return new FlatStatement();
+    }
+
+    @Override
+    protected Statement constructorRef() {
+        return new Statement1();
+    }
+
+    /**
+     * Parses the block in {@code fileName} into {@code s}.
+     *
+     * @param fileName
+     *            the file to parse
+     * @param s
+     *            the parsed block
+     */
+    private static void parseBlockFrom(String fileName, Statement s) {
+        SimpleReader file = new SimpleReader1L(fileName);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        file.close();
+        s.parseBlock(tokens);
+    }
+
+    /**
+     * Test that a parsed block has one node per statement and block.
+     */
+    @Test
+    public void testNodeCount() {
+        FlatStatement s = new FlatStatement();
+        parseBlockFrom(FILE_NAME_2, s);
+        /*
+         * The block, 7 calls, 3 compound statements, and their 4 blocks
+         */
+        final int nodes = 15;
+        assertEquals(nodes, s.nodeCount());
+        assertEquals(nodes, countNodes(s));
+    }
+
+    /**
+     * Counts the nodes of {@code s} using only kernel methods.
+     *
+     * @param s
+     *            the statement
+     * @return the number of nodes, blocks included
+     */
+    private static int countNodes(Statement s) {
+        int n = 1;
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    n += countNodes(child);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement b = s.newInstance();
+                Statement.Condition c = s.disassembleIf(b);
+                n += countNodes(b);
+                s.assembleIf(c, b);
+                break;
+            }
+            case IF_ELSE: {
+                Statement b1 = s.newInstance();
+                Statement b2 = s.newInstance();
+                Statement.Condition c = s.disassembleIfElse(b1, b2);
+                n += countNodes(b1) + countNodes(b2);
+                s.assembleIfElse(c, b1, b2);
+                break;
+            }
+            case WHILE: {
+                Statement b = s.newInstance();
+                Statement.Condition c = s.disassembleWhile(b);
+                n += countNodes(b);
+                s.assembleWhile(c, b);
+                break;
+            }
+            default: {
+                break;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Test that taking a parsed block apart and putting it back together with
+     * kernel methods restores it.
+     */
+    @Test
+    public void testKernelRoundTrip() {
+        Statement sRef = new Statement1Parse1();
+        parseBlockFrom(FILE_NAME_1, sRef);
+        FlatStatement sTest = new FlatStatement();
+        parseBlockFrom(FILE_NAME_1, sTest);
+        int nodes = sTest.nodeCount();
+        assertEquals(nodes, countNodes(sTest));
+        assertEquals(nodes, sTest.nodeCount());
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test of addToBlock and removeFromBlock at the ends and in the middle of
+     * a block.
+     */
+    @Test
+    public void testAddRemove() {
+        FlatStatement s = new FlatStatement();
+        parseBlockFrom(FILE_NAME_2, s);
+        Statement sRef = new Statement1Parse1();
+        parseBlockFrom(FILE_NAME_2, sRef);
+        int length = s.lengthOfBlock();
+        Statement first = s.removeFromBlock(0);
+        Statement last = s.removeFromBlock(length - 2);
+        assertEquals(length - 2, s.lengthOfBlock());
+        assertEquals("move", first.disassembleCall());
+        Statement call = new FlatStatement();
+        call.assembleCall("look-around");
+        s.addToBlock(1, call);
+        assertEquals(Statement.Kind.BLOCK, call.kind());
+        assertEquals("look-around", s.removeFromBlock(1).disassembleCall());
+        first.assembleCall("move");
+        s.addToBlock(0, first);
+        s.addToBlock(length - 1, last);
+        assertEquals(sRef, s);
+    }
+
+    /**
+     * Test of transferFrom.
+     */
+    @Test
+    public void testTransferFrom() {
+        FlatStatement s = new FlatStatement();
+        parseBlockFrom(FILE_NAME_1, s);
+        Statement sRef = new Statement1Parse1();
+        parseBlockFrom(FILE_NAME_1, sRef);
+        Statement t = s.newInstance();
+        t.transferFrom(s);
+        assertEquals(sRef, t);
+        assertEquals(new Statement1(), s);
+        assertEquals(1, s.nodeCount());
+    }
+
+    /**
+     * Test that statements built separately, each with its own table of
+     * names, can be combined.
+     */
+    @Test
+    public void testCombineNames() {
+        Statement[] test = { new FlatStatement(), new FlatStatement() };
+        Statement[] ref = { new Statement1Parse1(), new Statement1Parse1() };
+        parseBlockFrom(FILE_NAME_1, test[0]);
+        parseBlockFrom(FILE_NAME_1, ref[0]);
+        parseBlockFrom(FILE_NAME_2, test[1]);
+        parseBlockFrom(FILE_NAME_2, ref[1]);
+        for (Statement[] s : new Statement[][] { test, ref }) {
+            s[0].addToBlock(0, s[1].removeFromBlock(s[1].lengthOfBlock() - 1));
+            s[1].addToBlock(1, s[0].removeFromBlock(s[0].lengthOfBlock() - 1));
+            Statement call = s[0].newInstance();
+            call.assembleCall("look-around");
+            s[1].addToBlock(0, call);
+            Statement pair = s[0].newInstance();
+            pair.assembleIfElse(Statement.Condition.RANDOM, s[0], s[1]);
+            s[0].addToBlock(0, pair);
+        }
+        assertEquals(ref[0], test[0]);
+        assertEquals(ref[1], test[1]);
+    }
+
+    /**
+     * Test that parsing a program whose {@code newBody} is a
+     * {@code FlatStatement} gives flat instruction bodies and body equal to
+     * those parsed into {@code Statement1Parse1}.
+     */
+    @Test
+    public void testParseProgramIntoFlatBodies() {
+        Program pRef = TestPrograms.read(PROGRAM_FILE_NAME);
+        Program pTest = new FlatProgram();
+        SimpleReader file = new SimpleReader1L(PROGRAM_FILE_NAME);
+        Diagnostics diagnostics = new Diagnostics();
+        Program1Parse1.parseProgram(new ReaderTokenStream(file), pTest,
+                diagnostics);
+        file.close();
+        assertEquals(0, diagnostics.size());
+        assertEquals(pRef.name(), pTest.name());
+        Map<String, Statement> contextRef = pRef
+                .replaceContext(pRef.newContext());
+        Map<String, Statement> contextTest = pTest
+                .replaceContext(pTest.newContext());
+        assertEquals(contextRef.size(), contextTest.size());
+        for (Map.Pair<String, Statement> instruction : contextTest) {
+            assertTrue(instruction.value() instanceof FlatStatement);
+            assertEquals(contextRef.value(instruction.key()),
+                    instruction.value());
+        }
+        Statement bodyTest = TestPrograms.bodyOf(pTest);
+        assertTrue(bodyTest instanceof FlatStatement);
+        assertEquals(TestPrograms.bodyOf(pRef), bodyTest);
+    }
+
+}
@@ -0,0 +1,197 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code IncrementalParser}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class IncrementalParserTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Characters inserted by random edits.
+     */
+    private static final String[] PIECES = { " ", "\n", "#", "x", "move",
+            "END", "IF", "INSTRUCTION", "turnleft\n", "\n  skip\n" };
+
+    /**
+     * Number of random edits.
+     */
+    private static final int EDITS = 200;
+
+    /**
+     * Returns the content of {@code fileName}.
+     *
+     * @param fileName
+     *            the file
+     * @return the content
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static String contentOf(String fileName) throws IOException {
+        return new String(Files.readAllBytes(Path.of(fileName)),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses {@code text} from scratch with {@code Program1Parse1} into
+     * {@code p}, returning the errors found.
+     *
+     * @param text
+     *            the text
+     * @param p
+     *            the program parsed
+     * @return the errors found
+     * @throws IOException
+     *             if a temporary file cannot be written
+     */
+    private static List<Diagnostic> parseFromScratch(String text,
+            Program1Parse1 p) throws IOException {
+        Path file = Files.createTempFile("incremental", ".bl");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            SimpleReader in = new SimpleReader1L(file.toString());
+            Diagnostics diagnostics = new Diagnostics();
+            p.parse(new ReaderTokenStream(in), diagnostics);
+            in.close();
+            return diagnostics.list();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks that {@code parser} agrees with a parse of its text from
+     * scratch.
+     *
+     * @param parser
+     *            the incremental parser
+     * @throws IOException
+     *             if a temporary file cannot be written
+     */
+    private static void assertAgrees(IncrementalParser parser)
+            throws IOException {
+        Program1Parse1 expected = new Program1Parse1();
+        List<Diagnostic> errors = parseFromScratch(parser.text(), expected);
+        assertEquals(errors, parser.diagnostics());
+        if (errors.isEmpty()) {
+            Program actual = new Program1Parse1();
+            parser.program(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public final void testInitialParse() throws IOException {
+        IncrementalParser parser = new IncrementalParser(
+                contentOf(FILE_NAME_1));
+        assertTrue(parser.diagnostics().isEmpty());
+        assertAgrees(parser);
+    }
+
+    @Test
+    public final void testEditInBodyReusesInstructions() throws IOException {
+        String text = contentOf(FILE_NAME_1);
+        IncrementalParser parser = new IncrementalParser(text);
+        int offset = text.indexOf("infect");
+        parser.edit(offset, "infect".length(), "skip");
+        /*
+         * Both instructions and the WHILE statement are reused
+         */
+        assertEquals(3, parser.reused());
+        assertTrue(parser.diagnostics().isEmpty());
+        assertAgrees(parser);
+    }
+
+    @Test
+    public final void testEditInLoopReusesNestedStatements()
+            throws IOException {
+        String text = contentOf(FILE_NAME_1);
+        IncrementalParser parser = new IncrementalParser(text);
+        int offset = text.indexOf("move", text.indexOf("BEGIN"));
+        parser.edit(offset, "move".length(), "skip");
+        /*
+         * Both instructions, infect, and the three calls in the WHILE
+         * statement around the edited IF statement are reused
+         */
+        assertEquals(6, parser.reused());
+        assertTrue(parser.diagnostics().isEmpty());
+        assertAgrees(parser);
+        parser.edit(offset, "skip".length(), "move");
+        assertEquals(text, parser.text());
+        assertAgrees(parser);
+    }
+
+    @Test
+    public final void testErrorThenFix() throws IOException {
+        String text = contentOf(FILE_NAME_1);
+        IncrementalParser parser = new IncrementalParser(text);
+        int offset = text.indexOf("IS", text.indexOf("INSTRUCTION"));
+        parser.edit(offset, 2, "I");
+        assertEquals(1, parser.diagnostics().size());
+        assertAgrees(parser);
+        parser.edit(offset, 1, "IS");
+        assertEquals(text, parser.text());
+        assertTrue(parser.diagnostics().isEmpty());
+        assertTrue(parser.reused() > 0);
+        assertAgrees(parser);
+    }
+
+    @Test
+    public final void testCommentAndNewline() throws IOException {
+        String text = contentOf(FILE_NAME_1);
+        IncrementalParser parser = new IncrementalParser(text);
+        int offset = text.indexOf("BEGIN");
+        parser.edit(offset, 0, "#");
+        assertAgrees(parser);
+        parser.edit(offset + 1, 0, "\n");
+        assertAgrees(parser);
+        parser.edit(offset, 2, "");
+        assertEquals(text, parser.text());
+        assertAgrees(parser);
+    }
+
+    @Test
+    public final void testRandomEdits() throws IOException {
+        String text = contentOf(FILE_NAME_1);
+        IncrementalParser parser = new IncrementalParser(text);
+        Random random = new Random(15);
+        for (int i = 0; i < EDITS; i++) {
+            String current = parser.text();
+            int offset = random.nextInt(current.length() + 1);
+            int removed = random.nextInt(Math.min(4,
+                    current.length() - offset) + 1);
+            String inserted = PIECES[random.nextInt(PIECES.length)];
+            if (random.nextBoolean()) {
+                inserted = "";
+            }
+            parser.edit(offset, removed, inserted);
+            assertEquals(
+                    current.substring(0, offset) + inserted
+                            + current.substring(offset + removed),
+                    parser.text());
+            assertAgrees(parser);
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code Interpreter}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class InterpreterTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * A program exercising every kind of statement and condition.
+     */
+    private static final String CONDITIONS = "PROGRAM C IS"
+            + " INSTRUCTION look IS IF random THEN turnright END IF END look"
+            + " BEGIN IF next-is-not-wall THEN move ELSE skip END IF"
+            + " WHILE next-is-friend DO turnleft look END WHILE"
+            + " IF next-is-not-enemy THEN infect END IF"
+            + " IF true THEN skip ELSE move END IF"
+            + " IF next-is-empty THEN move END IF END C";
+
+    /**
+     * A program whose loop executes no primitive instruction while
+     * next-is-enemy fails.
+     */
+    private static final String IDLE = "PROGRAM I IS BEGIN WHILE true DO"
+            + " IF next-is-enemy THEN infect END IF END WHILE END I";
+
+    /**
+     * A recursive program that executes no primitive instruction.
+     */
+    private static final String RECURSIVE = "PROGRAM R IS"
+            + " INSTRUCTION r IS r END r BEGIN r END R";
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Number of actions in a trace.
+     */
+    private static final int ACTIONS = 200;
+
+    /**
+     * Returns the trace of the compiled {@code p} on a bug with sensor seed
+     * {@code seed}.
+     *
+     * @param p
+     *            the program
+     * @param seed
+     *            the seed
+     * @return the trace
+     */
+    private static String compiledTrace(Program p, long seed) {
+        ScriptedBug bug = new ScriptedBug(ACTIONS, seed);
+        try {
+            ProgramCompiler.compile(p).run(bug);
+        } catch (ScriptedBug.Done e) {
+            // bug took all its actions
+        }
+        return bug.trace();
+    }
+
+    /**
+     * Returns the trace of the interpreted {@code p} on a bug with sensor
+     * seed {@code seed}, running {@code budget} steps at a time.
+     *
+     * @param p
+     *            the program
+     * @param seed
+     *            the seed
+     * @param budget
+     *            the steps per call of run
+     * @return the trace
+     */
+    private static String interpretedTrace(Program p, long seed, int budget) {
+        ScriptedBug bug = new ScriptedBug(ACTIONS, seed);
+        Interpreter interpreter = new Interpreter(Interpreter.resolve(p));
+        try {
+            while (!interpreter.isDone()) {
+                interpreter.run(bug, budget);
+            }
+        } catch (ScriptedBug.Done e) {
+            // bug took all its actions
+        }
+        return bug.trace();
+    }
+
+    /**
+     * Test that interpreting program1 matches running it compiled.
+     */
+    @Test
+    public void testMatchesCompiledProgram1() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        for (long seed = 0; seed < 5; seed++) {
+            assertEquals(compiledTrace(p, seed),
+                    interpretedTrace(p, seed, ACTIONS + 1));
+        }
+    }
+
+    /**
+     * Test that interpreting every kind of statement matches running it
+     * compiled.
+     */
+    @Test
+    public void testMatchesCompiledConditions() {
+        Program p = TestPrograms.parse(CONDITIONS);
+        for (long seed = 0; seed < 20; seed++) {
+            assertEquals(compiledTrace(p, seed),
+                    interpretedTrace(p, seed, ACTIONS + 1));
+        }
+    }
+
+    /**
+     * Test that running one step at a time resumes where the last run
+     * stopped.
+     */
+    @Test
+    public void testResume() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        final long seed = 7;
+        assertEquals(interpretedTrace(p, seed, ACTIONS + 1),
+                interpretedTrace(p, seed, 1));
+    }
+
+    /**
+     * Test of run, isDone, and reset on a program whose body completes.
+     */
+    @Test
+    public void testRunToCompletion() {
+        Interpreter.Code code = Interpreter.resolve(TestPrograms.parse(
+                "PROGRAM F IS INSTRUCTION two IS move move END two"
+                        + " BEGIN two infect two END F"));
+        assertEquals("F", code.name());
+        final int nodes = 5;
+        assertEquals(nodes, code.size());
+        Interpreter interpreter = new Interpreter(code);
+        ScriptedBug bug = new ScriptedBug(ACTIONS, true);
+        assertEquals(3, interpreter.run(bug, 3));
+        assertFalse(interpreter.isDone());
+        assertEquals(2, interpreter.run(bug, ACTIONS));
+        assertTrue(interpreter.isDone());
+        assertEquals(0, interpreter.run(bug, ACTIONS));
+        interpreter.reset();
+        final int steps = 5;
+        assertEquals(steps, interpreter.run(bug, ACTIONS));
+        assertEquals("move move infect move move move move infect move move",
+                bug.trace());
+    }
+
+    /**
+     * Test that a loop testing conditions without a primitive instruction
+     * still ends each turn.
+     */
+    @Test
+    public void testConditionOnlyLoopEndsTurns() {
+        Interpreter interpreter = new Interpreter(
+                Interpreter.resolve(TestPrograms.parse(IDLE)));
+        ScriptedBug bug = new ScriptedBug(ACTIONS, false);
+        assertEquals(3, interpreter.run(bug, 3));
+        assertFalse(interpreter.isDone());
+        assertFalse(bug.trace().contains("infect"));
+    }
+
+    /**
+     * Test that recursive calls without a primitive instruction still end
+     * each turn.
+     */
+    @Test
+    public void testRecursionEndsTurns() {
+        Interpreter interpreter = new Interpreter(
+                Interpreter.resolve(TestPrograms.parse(RECURSIVE)));
+        ScriptedBug bug = new ScriptedBug(ACTIONS, false);
+        assertEquals(2, interpreter.run(bug, 2));
+        assertEquals("", bug.trace());
+    }
+
+    /**
+     * Test that resolving a program restores it.
+     */
+    @Test
+    public void testResolveRestores() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        Interpreter.resolve(p);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p);
+    }
+
+    /**
+     * Test of resolve on a call of an undefined instruction.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testResolveUndefinedInstruction() {
+        Interpreter.resolve(
+                TestPrograms.parse("PROGRAM U IS BEGIN jump END U"));
+    }
+
+    /**
+     * Test of resolve and run on statements nested too deeply for the call
+     * stack.
+     */
+    @Test
+    public void testDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        Interpreter.Code code = Interpreter.resolve(p);
+        assertEquals(DEPTH + 2, code.size());
+        Interpreter interpreter = new Interpreter(code);
+        ScriptedBug bug = new ScriptedBug(ACTIONS, true);
+        assertEquals(3, interpreter.run(bug, 3));
+        assertEquals("move move move", bug.trace());
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+    /**
+     * Test that a program that cannot be resolved is left unchanged.
+     */
+    @Test
+    public void testResolveFailureRestoresProgram() {
+        String text = "PROGRAM U IS INSTRUCTION a IS WHILE true DO"
+                + " IF random THEN move ELSE jump END IF END WHILE END a"
+                + " BEGIN turnleft a END U";
+        Program p = TestPrograms.parse(text);
+        String message = null;
+        try {
+            Interpreter.resolve(p);
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+        assertTrue(message != null && message.contains("jump"));
+        assertEquals(TestPrograms.parse(text), p);
+    }
+
+}
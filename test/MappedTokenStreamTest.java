@@ -0,0 +1,204 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code MappedTokenStream}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class MappedTokenStreamTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Checks that lexing {@code fileName} with a {@code MappedTokenStream}
+     * gives the same tokens, with the same kinds, as {@code Tokenizer.tokens}.
+     *
+     * @param fileName
+     *            the file to lex
+     */
+    private static void checkSameTokens(String fileName) {
+        SimpleReader file = new SimpleReader1L(fileName);
+        Queue<String> expected = Tokenizer.tokens(file);
+        file.close();
+        MappedTokenStream tokens = new MappedTokenStream(fileName);
+        while (expected.length() > 0) {
+            String token = expected.dequeue();
+            assertEquals(fileName, TokenKind.of(token), tokens.frontKind());
+            assertEquals(fileName, token, tokens.dequeue());
+        }
+        assertEquals(fileName, TokenKind.END_OF_INPUT, tokens.frontKind());
+        tokens.close();
+    }
+
+    /**
+     * Test that every BL file in the test directory lexes the same way as
+     * with {@code Tokenizer.tokens}.
+     */
+    @Test
+    public void testSameTokensAsTokenizer() {
+        File[] files = new File("test").listFiles();
+        for (File f : files) {
+            if (f.getName().endsWith(".bl")) {
+                checkSameTokens(f.getPath());
+            }
+        }
+    }
+
+    /**
+     * Test that identifiers are interned.
+     */
+    @Test
+    public void testIdentifiersInterned() {
+        MappedTokenStream tokens = new MappedTokenStream(FILE_NAME_1);
+        String first = null;
+        String last = null;
+        while (tokens.frontKind() != TokenKind.END_OF_INPUT) {
+            String token = tokens.dequeue();
+            if (token.equals("Test")) {
+                if (first == null) {
+                    first = token;
+                } else {
+                    last = token;
+                }
+            }
+        }
+        tokens.close();
+        assertEquals(true, first == last);
+    }
+
+    /**
+     * Test of frontOffset and frontLength on the first token.
+     */
+    @Test
+    public void testFrontOffsetAndLength() {
+        MappedTokenStream tokens = new MappedTokenStream(FILE_NAME_1);
+        assertEquals(0, tokens.frontOffset());
+        assertEquals("PROGRAM".length(), tokens.frontLength());
+        tokens.close();
+    }
+
+    /**
+     * Test of parse from a {@code MappedTokenStream}.
+     */
+    @Test
+    public void testParseProgram() {
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pRef.parse(file);
+        file.close();
+        Program1Parse1 pTest = new Program1Parse1();
+        MappedTokenStream tokens = new MappedTokenStream(FILE_NAME_1);
+        pTest.parse(tokens);
+        tokens.close();
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that every BL file in the test directory lexes the same way from
+     * its content in memory as from the file.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public void testSameTokensFromContent() throws IOException {
+        File[] files = new File("test").listFiles();
+        for (File f : files) {
+            if (f.getName().endsWith(".bl")) {
+                String fileName = f.getPath();
+                MappedTokenStream expected = new MappedTokenStream(fileName);
+                MappedTokenStream tokens = new MappedTokenStream(
+                        Files.readAllBytes(Paths.get(fileName)));
+                while (expected.frontKind() != TokenKind.END_OF_INPUT) {
+                    assertEquals(fileName, expected.frontKind(),
+                            tokens.frontKind());
+                    assertEquals(fileName, expected.frontLine(),
+                            tokens.frontLine());
+                    assertEquals(fileName, expected.frontColumn(),
+                            tokens.frontColumn());
+                    assertEquals(fileName, expected.dequeue(),
+                            tokens.dequeue());
+                }
+                assertEquals(fileName, TokenKind.END_OF_INPUT,
+                        tokens.frontKind());
+                expected.close();
+                tokens.close();
+            }
+        }
+    }
+
+    /**
+     * Test that {@code MappedTokenStream} and {@code ReaderTokenStream} split
+     * text with control characters that are not ASCII whitespace the same
+     * way.
+     *
+     * @throws IOException
+     *             if a temporary file cannot be written
+     */
+    @Test
+    public void testSameTokensAsReaderTokenStream() throws IOException {
+        Path file = Files.createTempFile("controls", ".bl");
+        try {
+            Files.write(file,
+                    "PROGRAM\u001CTest IS\u000BBEGIN\n\u001Dmove\fEND\u001FTest\n"
+                            .getBytes(StandardCharsets.US_ASCII));
+            MappedTokenStream mapped = new MappedTokenStream(file.toString());
+            SimpleReader in = new SimpleReader1L(file.toString());
+            ReaderTokenStream read = new ReaderTokenStream(in);
+            int count = 0;
+            while (read.frontKind() != TokenKind.END_OF_INPUT) {
+                assertEquals(read.frontKind(), mapped.frontKind());
+                assertEquals(read.frontLine(), mapped.frontLine());
+                assertEquals(read.frontColumn(), mapped.frontColumn());
+                assertEquals(read.dequeue(), mapped.dequeue());
+                count++;
+            }
+            assertEquals(TokenKind.END_OF_INPUT, mapped.frontKind());
+            assertEquals(5, count);
+            in.close();
+            mapped.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test that a missing file is reported with an
+     * {@code UncheckedIOException}.
+     */
+    @Test
+    public void testMissingFile() {
+        String message = null;
+        try {
+            new MappedTokenStream("test/no-such-file.bl").close();
+        } catch (UncheckedIOException e) {
+            message = e.getMessage();
+        }
+        assertTrue(message != null
+                && message.contains("test/no-such-file.bl"));
+    }
+
+}
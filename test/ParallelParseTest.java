@@ -0,0 +1,156 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code ParallelParse}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParallelParseTest {
+
+    /**
+     * Files containing valid and invalid BL programs.
+     */
+    private static final String[] FILE_NAMES = { "test/program1.bl",
+            "test/program2.bl", "test/programDiffName.bl",
+            "test/programEmpty.bl", "test/programInstrDiffName.bl",
+            "test/programInstrMove.bl",
+            "test/programInstrNameNotIdentifier.bl",
+            "test/programInstrSameNames.bl", "test/programNoBegin.bl",
+            "test/programNoBody.bl", "test/programNoEndInstr.bl",
+            "test/programNoEndProgram.bl", "test/programNoInstr.bl",
+            "test/programNoInstructions.bl", "test/programNoIsInstr.bl",
+            "test/programNoIsProgram.bl", "test/programNoProgram.bl",
+            "test/programTwoBadInstructions.bl" };
+
+    /**
+     * Number of instructions in the generated program.
+     */
+    private static final int INSTRUCTIONS = 500;
+
+    /**
+     * Pool shared by the tests.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    /**
+     * Returns the tokens of {@code fileName}.
+     *
+     * @param fileName
+     *            the file
+     * @return the tokens
+     */
+    private static TokenArray tokensOf(String fileName) {
+        SimpleReader in = new SimpleReader1L(fileName);
+        TokenArray tokens = new TokenArray(new ReaderTokenStream(in));
+        in.close();
+        return tokens;
+    }
+
+    /**
+     * Checks that the parallel and sequential parsers agree on the program
+     * in {@code fileName}.
+     *
+     * @param fileName
+     *            the file
+     * @return whether the program is valid
+     */
+    private static boolean assertAgrees(String fileName) {
+        Program expected = new Program1Parse1();
+        Diagnostics expectedErrors = new Diagnostics();
+        Program1Parse1.parseProgram(tokensOf(fileName), expected,
+                expectedErrors);
+        Program actual = new Program1Parse1();
+        Diagnostics actualErrors = new Diagnostics();
+        ParallelParse.parse(tokensOf(fileName), actual, actualErrors, POOL);
+        assertEquals(fileName, expectedErrors.list(), actualErrors.list());
+        assertEquals(fileName, expected, actual);
+        return actualErrors.isEmpty();
+    }
+
+    @Test
+    public final void testTestFiles() {
+        for (String fileName : FILE_NAMES) {
+            assertAgrees(fileName);
+        }
+    }
+
+    @Test
+    public final void testManyInstructions() throws IOException {
+        StringBuilder text = new StringBuilder("PROGRAM Many IS\n");
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            text.append("INSTRUCTION i").append(i).append(" IS\n");
+            text.append("  WHILE next-is-empty DO move END WHILE\n");
+            if (i > 0) {
+                text.append("  i").append(i - 1).append('\n');
+            }
+            text.append("END i").append(i).append('\n');
+        }
+        text.append("BEGIN i").append(INSTRUCTIONS - 1).append(" END Many\n");
+        Path file = Files.createTempFile("parallel", ".bl");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            assertTrue(assertAgrees(file.toString()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public final void testErrorsInManyInstructions() throws IOException {
+        StringBuilder text = new StringBuilder("PROGRAM Many IS\n");
+        for (int i = 0; i < INSTRUCTIONS; i++) {
+            switch (i % 5) {
+                case 0:
+                    text.append("INSTRUCTION move IS skip END move\n");
+                    break;
+                case 1:
+                    text.append("INSTRUCTION dup IS skip END dup\n");
+                    break;
+                case 2:
+                    text.append("INSTRUCTION bad IS IF END bad\n");
+                    break;
+                default:
+                    text.append("INSTRUCTION i").append(i).append(" IS skip END i")
+                            .append(i).append('\n');
+                    break;
+            }
+        }
+        text.append("BEGIN END Many\n");
+        Path file = Files.createTempFile("parallel", ".bl");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            assertAgrees(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public final void testCodeBetweenInstructions() throws IOException {
+        Path file = Files.createTempFile("parallel", ".bl");
+        try {
+            Files.write(file, ("PROGRAM P IS INSTRUCTION a IS skip END a move"
+                    + " INSTRUCTION b IS skip END b BEGIN END P")
+                            .getBytes(StandardCharsets.UTF_8));
+            assertAgrees(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code ParseMetrics}; run with
+ * {@code -Dbl.metrics=true} to test the metrics themselves.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParseMetricsTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Lexes and parses {@code FILE_NAME_1}.
+     */
+    private static void parseProgram1() {
+        SimpleReader in = new SimpleReader1L(FILE_NAME_1);
+        TokenArray tokens = new TokenArray(new ReaderTokenStream(in));
+        in.close();
+        Program1Parse1 p = new Program1Parse1();
+        p.parse(tokens);
+    }
+
+    @Test
+    public final void testBucketOf() {
+        assertEquals(0, ParseMetrics.bucketOf(0));
+        assertEquals(1, ParseMetrics.bucketOf(1));
+        assertEquals(2, ParseMetrics.bucketOf(2));
+        assertEquals(2, ParseMetrics.bucketOf(3));
+        assertEquals(11, ParseMetrics.bucketOf(1024));
+        assertEquals(Long.SIZE - 1, ParseMetrics.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public final void testNothingRecordedWhenDisabled() {
+        if (!ParseMetrics.ENABLED) {
+            parseProgram1();
+            for (ParseMetrics.Phase phase : ParseMetrics.Phase.values()) {
+                assertEquals(0, ParseMetrics.count(phase));
+                assertEquals(0, ParseMetrics.totalNanos(phase));
+            }
+            assertTrue(Arrays.equals(new long[] { 0, 0, 0 },
+                    ParseMetrics.statementCounts()));
+            assertEquals(0, ParseMetrics.maxDepth());
+            assertEquals(0, ParseMetrics.bytesRead());
+        }
+    }
+
+    @Test
+    public final void testProgramRecorded() {
+        if (ParseMetrics.ENABLED) {
+            ParseMetrics.reset();
+            parseProgram1();
+            assertEquals(1, ParseMetrics.count(ParseMetrics.Phase.LEX));
+            assertEquals(1, ParseMetrics.count(ParseMetrics.Phase.PROGRAM));
+            assertEquals(2,
+                    ParseMetrics.count(ParseMetrics.Phase.INSTRUCTION));
+            assertEquals(2, ParseMetrics.count(ParseMetrics.Phase.CONTEXT));
+            assertEquals(3, ParseMetrics.count(ParseMetrics.Phase.BLOCK));
+            long[] counts = ParseMetrics.statementCounts();
+            assertTrue(counts[0] + counts[1] > 0);
+            assertTrue(counts[2] > 0);
+            assertTrue(ParseMetrics.maxDepth() > 0);
+            assertTrue(ParseMetrics.bytesRead() > 0);
+        }
+    }
+
+    @Test
+    public final void testMXBean() throws JMException {
+        if (ParseMetrics.ENABLED) {
+            ParseMetrics.reset();
+            parseProgram1();
+            ParseMetricsMXBean bean = JMX.newMXBeanProxy(
+                    ManagementFactory.getPlatformMBeanServer(),
+                    new ObjectName(ParseMetrics.OBJECT_NAME),
+                    ParseMetricsMXBean.class);
+            assertEquals(ParseMetrics.Phase.values().length,
+                    bean.getPhases().length);
+            assertEquals(1, bean.getCount("PROGRAM"));
+            assertTrue(Arrays.equals(
+                    ParseMetrics.histogram(ParseMetrics.Phase.BLOCK),
+                    bean.getHistogram("BLOCK")));
+            assertEquals(ParseMetrics.statementCounts()[2],
+                    bean.getCallCount());
+            bean.reset();
+            assertEquals(0, ParseMetrics.count(ParseMetrics.Phase.PROGRAM));
+        }
+    }
+
+}
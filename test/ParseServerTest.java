@@ -0,0 +1,303 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * JUnit test fixture for {@code ParseServer}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ParseServerTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * The name of a file containing an invalid BL program.
+     */
+    private static final String FILE_NAME_2 = "test/program2.bl";
+
+    /**
+     * Length of a name too long for {@code DataOutput.writeUTF}.
+     */
+    private static final int LONG_NAME = 70_000;
+
+    /**
+     * Number of concurrent clients.
+     */
+    private static final int CLIENTS = 8;
+
+    /**
+     * Number of requests sent by each concurrent client.
+     */
+    private static final int REQUESTS = 20;
+
+    /**
+     * A response of the server.
+     */
+    private static final class Response {
+
+        /**
+         * The lines of the errors.
+         */
+        private final List<Integer> lines = new ArrayList<>();
+
+        /**
+         * The messages of the errors.
+         */
+        private final List<String> messages = new ArrayList<>();
+
+        /**
+         * The output.
+         */
+        private byte[] output;
+
+    }
+
+    /**
+     * Starts {@code server} on a new thread.
+     *
+     * @param server
+     *            the server
+     */
+    private static void start(ParseServer server) {
+        Thread t = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Returns the content of {@code fileName}.
+     *
+     * @param fileName
+     *            the file
+     * @return the content
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static byte[] contentOf(String fileName) throws IOException {
+        return Files.readAllBytes(Path.of(fileName));
+    }
+
+    /**
+     * Sends a request to a server and reads its response.
+     *
+     * @param in
+     *            input from the server
+     * @param out
+     *            output to the server
+     * @param format
+     *            the format of the response
+     * @param source
+     *            the program text
+     * @return the response
+     * @throws IOException
+     *             if the connection fails
+     */
+    private static Response request(DataInputStream in, DataOutputStream out,
+            byte format, byte[] source) throws IOException {
+        out.writeByte(format);
+        out.writeInt(source.length);
+        out.write(source);
+        out.flush();
+        Response r = new Response();
+        int d = in.readInt();
+        for (int i = 0; i < d; i++) {
+            r.lines.add(in.readInt());
+            in.readInt();
+            byte[] message = new byte[in.readInt()];
+            in.readFully(message);
+            r.messages.add(new String(message, StandardCharsets.UTF_8));
+        }
+        r.output = new byte[in.readInt()];
+        in.readFully(r.output);
+        return r;
+    }
+
+    /**
+     * Returns the pretty print of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @return the pretty print
+     * @throws IOException
+     *             if a temporary file cannot be used
+     */
+    private static byte[] prettyPrintOf(Program p) throws IOException {
+        Path file = Files.createTempFile("parseservertest", ".bl");
+        try {
+            SimpleWriter out = new SimpleWriter1L(file.toString());
+            p.prettyPrint(out);
+            out.close();
+            return Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks the three formats of response for {@code FILE_NAME_1} and the
+     * errors of {@code FILE_NAME_2} on one connection.
+     *
+     * @param c
+     *            the connection
+     * @throws IOException
+     *             if the connection fails
+     */
+    private static void assertServes(SocketChannel c) throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(c));
+        DataOutputStream out = new DataOutputStream(
+                Channels.newOutputStream(c));
+        byte[] source = contentOf(FILE_NAME_1);
+        Program expected = TestPrograms.read(FILE_NAME_1);
+
+        Response r = request(in, out, ParseServer.DIAGNOSTICS, source);
+        assertTrue(r.lines.isEmpty());
+        assertEquals(0, r.output.length);
+
+        r = request(in, out, ParseServer.CODEC, source);
+        assertTrue(r.lines.isEmpty());
+        Program actual = new Program1Parse1();
+        ProgramCodec.decode(r.output, actual);
+        assertEquals(expected, actual);
+
+        r = request(in, out, ParseServer.PRETTY_PRINT, source);
+        assertEquals(
+                new String(prettyPrintOf(expected), StandardCharsets.UTF_8),
+                new String(r.output, StandardCharsets.UTF_8));
+
+        r = request(in, out, ParseServer.CODEC, contentOf(FILE_NAME_2));
+        assertEquals(1, r.lines.size());
+        assertEquals(0, r.output.length);
+    }
+
+    @Test
+    public final void testTcp() throws IOException {
+        try (ParseServer server = new ParseServer("0")) {
+            start(server);
+            try (SocketChannel c = SocketChannel.open(server.address())) {
+                assertServes(c);
+            }
+        }
+    }
+
+    @Test
+    public final void testUnixDomainSocket() throws IOException {
+        Path dir = Files.createTempDirectory("parseserver");
+        Path socket = dir.resolve("bl.sock");
+        try (ParseServer server = new ParseServer(socket.toString())) {
+            start(server);
+            try (SocketChannel c = SocketChannel
+                    .open(StandardProtocolFamily.UNIX)) {
+                c.connect(server.address());
+                assertServes(c);
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public final void testLongMessage() throws IOException {
+        String name = "x".repeat(LONG_NAME) + "!";
+        byte[] source = ("PROGRAM Long IS INSTRUCTION " + name + " IS move END "
+                + name + " BEGIN move END Long")
+                .getBytes(StandardCharsets.UTF_8);
+        try (ParseServer server = new ParseServer("0");
+                SocketChannel c = SocketChannel.open(server.address())) {
+            start(server);
+            DataInputStream in = new DataInputStream(
+                    Channels.newInputStream(c));
+            DataOutputStream out = new DataOutputStream(
+                    Channels.newOutputStream(c));
+            Response r = request(in, out, ParseServer.DIAGNOSTICS, source);
+            assertEquals(1, r.messages.size());
+            assertTrue(r.messages.get(0).endsWith(name));
+            r = request(in, out, ParseServer.CODEC, contentOf(FILE_NAME_1));
+            assertTrue(r.messages.isEmpty());
+        }
+    }
+
+    @Test
+    public final void testMalformedRequestClosesConnection()
+            throws IOException {
+        try (ParseServer server = new ParseServer("0");
+                SocketChannel c = SocketChannel.open(server.address())) {
+            start(server);
+            DataOutputStream out = new DataOutputStream(
+                    Channels.newOutputStream(c));
+            out.writeByte(ParseServer.PRETTY_PRINT + 1);
+            out.writeInt(0);
+            out.flush();
+            assertEquals(-1, Channels.newInputStream(c).read());
+        }
+    }
+
+    @Test
+    public final void testConcurrentClients() throws Exception {
+        byte[] source = contentOf(FILE_NAME_1);
+        byte[] expected = ProgramCodec.encode(TestPrograms.read(FILE_NAME_1));
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try (ParseServer server = new ParseServer("0")) {
+            start(server);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int k = 0; k < CLIENTS; k++) {
+                results.add(pool.submit(() -> {
+                    boolean same = true;
+                    try (SocketChannel c = SocketChannel
+                            .open(server.address())) {
+                        DataInputStream in = new DataInputStream(
+                                Channels.newInputStream(c));
+                        DataOutputStream out = new DataOutputStream(
+                                Channels.newOutputStream(c));
+                        for (int i = 0; i < REQUESTS; i++) {
+                            Response r = request(in, out, ParseServer.CODEC,
+                                    source);
+                            same &= Arrays.equals(expected,
+                                    r.output);
+                        }
+                    }
+                    return same;
+                }));
+            }
+            for (Future<Boolean> f : results) {
+                assertTrue(f.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
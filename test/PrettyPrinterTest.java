@@ -0,0 +1,199 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code PrettyPrinter}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class PrettyPrinterTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 10_000;
+
+    /**
+     * Returns a generated program.
+     *
+     * @param seed
+     *            the seed of the generator
+     * @return the program
+     * @throws IOException
+     *             never
+     */
+    private static Program generated(long seed) throws IOException {
+        StringWriter text = new StringWriter();
+        new ProgramGenerator(seed, 8, 4, 3).generate(text);
+        return TestPrograms.parse(text.toString());
+    }
+
+    /**
+     * Returns what {@code p.prettyPrint} writes.
+     *
+     * @param p
+     *            the program
+     * @return the pretty print
+     * @throws IOException
+     *             if a temporary file cannot be used
+     */
+    private static String prettyPrintOf(Program p) throws IOException {
+        Path file = Files.createTempFile("prettyprintertest", ".bl");
+        try {
+            SimpleWriter out = new SimpleWriter1L(file.toString());
+            p.prettyPrint(out);
+            out.close();
+            return Files.readString(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Returns the output of {@code printer}.
+     *
+     * @param printer
+     *            the printer
+     * @return the output, decoded
+     */
+    private static String outputOf(PrettyPrinter printer) {
+        return StandardCharsets.UTF_8.decode(printer.output()).toString();
+    }
+
+    @Test
+    public final void testMatchesPrettyPrint() throws IOException {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        PrettyPrinter printer = new PrettyPrinter(
+                PrettyPrinter.DEFAULT_CAPACITY);
+        printer.print(p);
+        assertEquals(prettyPrintOf(p), outputOf(printer));
+    }
+
+    @Test
+    public final void testGrowsAndIsReused() throws IOException {
+        PrettyPrinter printer = new PrettyPrinter(PrettyPrinter.MIN_CAPACITY);
+        for (long seed = 0; seed < 5; seed++) {
+            Program p = generated(seed);
+            Program expected = generated(seed);
+            printer.reset();
+            printer.print(p);
+            assertEquals(prettyPrintOf(p), outputOf(printer));
+            assertEquals(expected, p);
+        }
+    }
+
+    @Test
+    public final void testStatementOffset() throws IOException {
+        Program p = TestPrograms.parse("PROGRAM P IS BEGIN WHILE true DO"
+                + " IF next-is-wall THEN turnleft ELSE move END IF"
+                + " END WHILE END P");
+        Statement body = TestPrograms.bodyOf(p);
+        PrettyPrinter printer = new PrettyPrinter(PrettyPrinter.MIN_CAPACITY);
+        printer.print(body, 3);
+        assertEquals("   WHILE true DO\n       IF next-is-wall THEN\n"
+                + "           turnleft\n       ELSE\n           move\n"
+                + "       END IF\n   END WHILE\n", outputOf(printer));
+    }
+
+    @Test
+    public final void testNonAsciiName() throws IOException {
+        Program p = new Program1Parse1();
+        String name = "Caf\u00e9\u20ac\ud83d\udc1b";
+        p.setName(name);
+        PrettyPrinter printer = new PrettyPrinter(PrettyPrinter.MIN_CAPACITY);
+        printer.print(p);
+        assertEquals("PROGRAM " + name + " IS\n\nBEGIN\nEND " + name + "\n",
+                outputOf(printer));
+    }
+
+    @Test
+    public final void testFileChannel() throws IOException {
+        Program p = generated(7);
+        Path file = Files.createTempFile("prettyprinter", ".bl");
+        try {
+            try (FileChannel out = FileChannel.open(file,
+                    StandardOpenOption.WRITE)) {
+                PrettyPrinter printer = new PrettyPrinter(out,
+                        PrettyPrinter.MIN_CAPACITY);
+                printer.print(p);
+                printer.flush();
+            }
+            assertEquals(prettyPrintOf(p), Files.readString(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public final void testOutputIsReadOnlyView() throws IOException {
+        PrettyPrinter printer = new PrettyPrinter(PrettyPrinter.MIN_CAPACITY);
+        printer.print(generated(1));
+        ByteBuffer first = printer.output();
+        ByteBuffer second = printer.output();
+        assertEquals(first, second);
+        assertTrue(first.isReadOnly());
+    }
+
+    @Test
+    public final void testDeeplyNested() throws IOException {
+        Program p = TestPrograms.nested(DEPTH);
+        Statement body = TestPrograms.bodyOf(p);
+        long[] written = { 0 };
+        WritableByteChannel sink = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                src.position(src.limit());
+                written[0] += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        PrettyPrinter printer = new PrettyPrinter(sink,
+                PrettyPrinter.DEFAULT_CAPACITY);
+        printer.print(body, 0);
+        printer.flush();
+        /*
+         * Each level writes "WHILE true DO\n" and "END WHILE\n", indented by
+         * four spaces a level, around "step\n"
+         */
+        long depth = DEPTH;
+        long expected = 4 * depth * (depth - 1) + 24 * depth + 4 * depth + 5;
+        assertEquals(expected, written[0]);
+        p.swapBody(body);
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+}
@@ -0,0 +1,110 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code ProgramCache}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCacheTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * The name of a file containing a valid, empty BL program.
+     */
+    private static final String FILE_NAME_2 = "test/programEmpty.bl";
+
+    /**
+     * Deletes {@code directory} and the files in it.
+     *
+     * @param directory
+     *            the directory
+     * @throws IOException
+     *             if a file cannot be deleted
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public final void testMissThenHit() {
+        ProgramCache cache = new ProgramCache(4);
+        Program p1 = cache.parse(FILE_NAME_1);
+        Program p2 = cache.parse(FILE_NAME_1);
+        Program expected = TestPrograms.read(FILE_NAME_1);
+        assertEquals(expected, p1);
+        assertEquals(expected, p2);
+        assertNotSame(p1, p2);
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.diskHits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public final void testResultIndependentOfCache() {
+        ProgramCache cache = new ProgramCache(4);
+        Program p1 = cache.parse(FILE_NAME_1);
+        p1.clear();
+        Program p2 = cache.parse(FILE_NAME_1);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p2);
+    }
+
+    @Test
+    public final void testEviction() {
+        ProgramCache cache = new ProgramCache(1);
+        Program p1 = cache.parse(FILE_NAME_1);
+        Program p2 = cache.parse(FILE_NAME_2);
+        Program p3 = cache.parse(FILE_NAME_1);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p1);
+        assertEquals(TestPrograms.read(FILE_NAME_2), p2);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p3);
+        assertEquals(3, cache.misses());
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.evictions());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public final void testDiskHit() throws IOException {
+        Path directory = Files.createTempDirectory("programcache");
+        try {
+            ProgramCache cold = new ProgramCache(4, directory);
+            Program p1 = cold.parse(FILE_NAME_1);
+            assertEquals(1, cold.misses());
+            ProgramCache warm = new ProgramCache(4, directory);
+            Program p2 = warm.parse(FILE_NAME_1);
+            Program p3 = warm.parse(FILE_NAME_1);
+            Program expected = TestPrograms.read(FILE_NAME_1);
+            assertEquals(expected, p1);
+            assertEquals(expected, p2);
+            assertEquals(expected, p3);
+            assertEquals(0, warm.misses());
+            assertEquals(1, warm.diskHits());
+            assertEquals(1, warm.hits());
+        } finally {
+            delete(directory);
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code ProgramCodec}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCodecTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * The name of a file containing a block of one statement of each kind.
+     */
+    private static final String FILE_NAME_BLOCK = "test/statementBlock_OneOfEach.bl";
+
+    /**
+     * Nesting depth of the deeply nested statement.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Returns the block in {@code fileName}.
+     *
+     * @param fileName
+     *            the file to parse
+     * @return the block
+     */
+    private static Statement blockFrom(String fileName) {
+        Statement s = new Statement1Parse1();
+        SimpleReader file = new SimpleReader1L(fileName);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        file.close();
+        s.parseBlock(tokens);
+        return s;
+    }
+
+    @Test
+    public final void testProgramRoundTrip() throws IOException {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        byte[] encoding = ProgramCodec.encode(p);
+        Program q = new Program1Parse1();
+        ProgramCodec.decode(encoding, q);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p);
+        assertEquals(p, q);
+    }
+
+    @Test
+    public final void testStream() throws IOException {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        Statement block = blockFrom(FILE_NAME_BLOCK);
+        Statement single = block.removeFromBlock(0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProgramCodec.Writer out = new ProgramCodec.Writer(bytes)) {
+            out.writeProgram(p);
+            out.writeStatement(block);
+            out.writeStatement(single);
+            out.writeProgram(p);
+        }
+        try (ProgramCodec.Reader in = new ProgramCodec.Reader(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            Program q = new Program1Parse1();
+            Statement s = new Statement1();
+            assertTrue(in.hasNext());
+            in.readProgram(q);
+            assertEquals(p, q);
+            in.readStatement(s);
+            assertEquals(block, s);
+            in.readStatement(s);
+            assertEquals(single, s);
+            in.readProgram(q);
+            assertEquals(p, q);
+            assertFalse(in.hasNext());
+        }
+    }
+
+    @Test
+    public final void testNamesShared() throws IOException {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        ByteArrayOutputStream once = new ByteArrayOutputStream();
+        try (ProgramCodec.Writer out = new ProgramCodec.Writer(once)) {
+            out.writeProgram(p);
+        }
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        try (ProgramCodec.Writer out = new ProgramCodec.Writer(twice)) {
+            out.writeProgram(p);
+            out.writeProgram(p);
+        }
+        /*
+         * The second copy refers to the names of the first, so it is smaller
+         */
+        assertTrue(twice.size() - once.size() < once.size() - 4);
+    }
+
+    @Test
+    public final void testDeeplyNested() throws IOException {
+        /*
+         * Build the encoding by hand: header, a statement record, then
+         * blocks of one WHILE next-is-empty down to a block of one move
+         */
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[] { 'B', 'L', 'C', ProgramCodec.VERSION, 2, 0 });
+        for (int i = 0; i < DEPTH; i++) {
+            bytes.write(new byte[] { 1, 3, 0 });
+        }
+        bytes.write(new byte[] { 1, 4, 0, 4 });
+        bytes.write('m');
+        bytes.write('o');
+        bytes.write('v');
+        bytes.write('e');
+        Statement t = new Statement1Parse1();
+        try (ProgramCodec.Reader in = new ProgramCodec.Reader(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            in.readStatement(t);
+        }
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        try (ProgramCodec.Writer out = new ProgramCodec.Writer(again)) {
+            out.writeStatement(t);
+        }
+        assertTrue(Arrays.equals(bytes.toByteArray(), again.toByteArray()));
+        assertEquals(1, t.lengthOfBlock());
+        Statement loop = t.removeFromBlock(0);
+        assertEquals(Statement.Kind.WHILE, loop.kind());
+        assertEquals(Statement.Condition.NEXT_IS_EMPTY,
+                loop.disassembleWhile(loop.newInstance()));
+    }
+
+    @Test(expected = IOException.class)
+    public final void testBadVersion() throws IOException {
+        byte[] bytes = { 'B', 'L', 'C', ProgramCodec.VERSION + 1 };
+        new ProgramCodec.Reader(new ByteArrayInputStream(bytes)).close();
+    }
+
+    @Test(expected = IOException.class)
+    public final void testTruncated() throws IOException {
+        byte[] encoding = ProgramCodec.encode(TestPrograms.read(FILE_NAME_1));
+        byte[] truncated = new byte[encoding.length / 2];
+        System.arraycopy(encoding, 0, truncated, 0, truncated.length);
+        ProgramCodec.decode(truncated, new Program1Parse1());
+    }
+
+    @Test(expected = IOException.class)
+    public final void testWrongRecord() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProgramCodec.Writer out = new ProgramCodec.Writer(bytes)) {
+            out.writeStatement(blockFrom(FILE_NAME_BLOCK));
+        }
+        ProgramCodec.decode(bytes.toByteArray(), new Program1Parse1());
+    }
+
+}
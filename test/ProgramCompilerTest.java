@@ -0,0 +1,138 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code ProgramCompiler}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramCompilerTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Runs {@code c} on {@code bug} until it completes or {@code bug} stops
+     * it.
+     *
+     * @param c
+     *            the compiled program
+     * @param bug
+     *            the bug
+     * @return the trace of bug
+     */
+    private static String runUntilDone(CompiledProgram c, ScriptedBug bug) {
+        try {
+            c.run(bug);
+        } catch (ScriptedBug.Done e) {
+            // bug took all its actions
+        }
+        return bug.trace();
+    }
+
+    /**
+     * Test of compile on a program with nested user-defined instructions and
+     * an infinite loop.
+     */
+    @Test
+    public void testCompileProgram1() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        CompiledProgram c = ProgramCompiler.compile(p);
+        assertEquals("Test", c.name());
+        final int actions = 14;
+        String two = "move turnleft ?empty+ move turnleft move turnleft";
+        assertEquals("infect " + two + " ?empty+ move " + two,
+                runUntilDone(c, new ScriptedBug(actions, true)));
+    }
+
+    /**
+     * Test that compiling a program restores it.
+     */
+    @Test
+    public void testCompileRestores() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        ProgramCompiler.compile(p);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p);
+    }
+
+    /**
+     * Test of every condition, IF_ELSE, and a WHILE that ends.
+     */
+    @Test
+    public void testCompileConditions() {
+        Program p = TestPrograms.parse("PROGRAM C IS BEGIN"
+                + " IF next-is-not-wall THEN move ELSE skip END IF"
+                + " WHILE next-is-friend DO turnleft END WHILE"
+                + " IF next-is-not-enemy THEN infect END IF"
+                + " IF random THEN turnright END IF"
+                + " IF true THEN skip ELSE move END IF"
+                + " IF next-is-not-friend THEN move END IF END C");
+        CompiledProgram c = ProgramCompiler.compile(p);
+        final int actions = 100;
+        final int loopActions = 3;
+        assertEquals("?wall+ skip ?friend+ turnleft ?friend+ turnleft ?friend+",
+                runUntilDone(c, new ScriptedBug(loopActions, true)));
+        assertEquals("?wall- move ?friend- ?enemy- infect ?random- skip"
+                + " ?friend- move", runUntilDone(c,
+                        new ScriptedBug(actions, false)));
+    }
+
+    /**
+     * Test of compile on a call of an undefined instruction.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testCompileUndefinedInstruction() {
+        ProgramCompiler.compile(
+                TestPrograms.parse("PROGRAM U IS BEGIN jump END U"));
+    }
+
+    /**
+     * Test that a program that cannot be compiled is left unchanged.
+     */
+    @Test
+    public void testCompileFailureRestoresProgram() {
+        String text = "PROGRAM U IS INSTRUCTION a IS WHILE true DO"
+                + " IF random THEN move ELSE jump END IF END WHILE END a"
+                + " BEGIN turnleft a END U";
+        Program p = TestPrograms.parse(text);
+        String message = null;
+        try {
+            ProgramCompiler.toClassFile(p, "U");
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+        assertTrue(message != null && message.contains("jump"));
+        assertEquals(TestPrograms.parse(text), p);
+    }
+
+    /**
+     * Test that a program nested too deeply for a JVM method is reported
+     * cleanly and left unchanged.
+     */
+    @Test
+    public void testCompileDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        String message = null;
+        try {
+            ProgramCompiler.toClassFile(p, "D");
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+        assertTrue(message != null && message.contains("Cannot compile"));
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+}
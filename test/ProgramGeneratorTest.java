@@ -0,0 +1,190 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code ProgramGenerator}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramGeneratorTest {
+
+    /**
+     * Number of instructions of the programs with a defect.
+     */
+    private static final int INSTRUCTIONS = 6;
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Most characters a level of nesting may add to the text.
+     */
+    private static final int CHARS_PER_LEVEL = 400;
+
+    /**
+     * Returns the text generated by {@code g}.
+     *
+     * @param g
+     *            the generator
+     * @return the text
+     * @throws IOException
+     *             never
+     */
+    private static String textOf(ProgramGenerator g) throws IOException {
+        StringWriter out = new StringWriter();
+        g.generate(out);
+        return out.toString();
+    }
+
+    /**
+     * Parses the file written by {@code g}, returning the errors found.
+     *
+     * @param g
+     *            the generator
+     * @return the errors found
+     * @throws IOException
+     *             if a temporary file cannot be written
+     */
+    private static List<Diagnostic> parse(ProgramGenerator g)
+            throws IOException {
+        Path file = Files.createTempFile("generated", ".bl");
+        try {
+            g.generate(file);
+            SimpleReader in = new SimpleReader1L(file.toString());
+            Diagnostics diagnostics = new Diagnostics();
+            new Program1Parse1().parse(new ReaderTokenStream(in), diagnostics);
+            in.close();
+            return diagnostics.list();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Returns the number of the line of {@code text} where instruction
+     * {@code at} starts, or the body if {@code at} is the number of
+     * instructions, or the line after the text if it is greater.
+     *
+     * @param text
+     *            the program text
+     * @param at
+     *            the instruction index
+     * @return the line number, counting from 1
+     */
+    private static int startLine(String text, int at) {
+        String[] lines = text.split("\n", -1);
+        int units = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].startsWith("  INSTRUCTION ")
+                    || lines[i].equals("BEGIN")) {
+                if (units == at) {
+                    return i + 1;
+                }
+                units++;
+            }
+        }
+        return lines.length + 1;
+    }
+
+    /**
+     * Checks that a program generated with defect {@code d} at {@code at}
+     * has an error, and that the first is reported in instruction or body
+     * {@code at}.
+     *
+     * @param d
+     *            the defect
+     * @param at
+     *            the instruction index
+     * @throws IOException
+     *             if a temporary file cannot be written
+     */
+    private static void assertDefect(ProgramGenerator.Defect d, int at)
+            throws IOException {
+        ProgramGenerator g = new ProgramGenerator(at, INSTRUCTIONS, 3, 2);
+        g.setDefect(d, at);
+        String text = textOf(g);
+        g = new ProgramGenerator(at, INSTRUCTIONS, 3, 2);
+        g.setDefect(d, at);
+        List<Diagnostic> errors = parse(g);
+        assertFalse(d + " at " + at, errors.isEmpty());
+        int line = errors.get(0).line();
+        assertTrue(d + " at " + at + ": line " + line,
+                startLine(text, at) <= line
+                        && line < startLine(text, at + 1));
+    }
+
+    @Test
+    public final void testValidPrograms() throws IOException {
+        int[][] shapes = { { 0, 0, 1 }, { 1, 1, 1 }, { 10, 3, 4 },
+                { 50, 2, 2 }, { 0, 100, 1 }, { 3, 8, 3 } };
+        for (int[] shape : shapes) {
+            ProgramGenerator g = new ProgramGenerator(shape[0] + shape[1],
+                    shape[0], shape[1], shape[2]);
+            assertEquals(0, parse(g).size());
+        }
+    }
+
+    @Test
+    public final void testSameSeedSameText() throws IOException {
+        String text1 = textOf(new ProgramGenerator(42, 20, 4, 3));
+        String text2 = textOf(new ProgramGenerator(42, 20, 4, 3));
+        String text3 = textOf(new ProgramGenerator(43, 20, 4, 3));
+        assertEquals(text1, text2);
+        assertFalse(text1.equals(text3));
+    }
+
+    @Test
+    public final void testConditionWeights() throws IOException {
+        int[] weights = new int[Statement.Condition.values().length];
+        weights[Statement.Condition.NEXT_IS_ENEMY.ordinal()] = 1;
+        ProgramGenerator g = new ProgramGenerator(7, 10, 3, 2);
+        g.setConditionWeights(weights);
+        String text = textOf(g);
+        assertTrue(text.contains("next-is-enemy"));
+        assertFalse(text.contains("next-is-empty"));
+        assertFalse(text.contains("random"));
+    }
+
+    @Test
+    public final void testDefectsInInstructions() throws IOException {
+        for (ProgramGenerator.Defect d : ProgramGenerator.Defect.values()) {
+            if (d != ProgramGenerator.Defect.NONE) {
+                assertDefect(d, 1);
+                assertDefect(d, INSTRUCTIONS - 1);
+            }
+        }
+    }
+
+    @Test
+    public final void testDefectsInBody() throws IOException {
+        assertDefect(ProgramGenerator.Defect.INVALID_CONDITION, INSTRUCTIONS);
+        assertDefect(ProgramGenerator.Defect.MISSING_END_IF, INSTRUCTIONS);
+        assertDefect(ProgramGenerator.Defect.MISSING_DO, INSTRUCTIONS);
+    }
+
+    @Test
+    public final void testDeeplyNested() throws IOException {
+        String text = textOf(new ProgramGenerator(1, 0, DEPTH, 1));
+        assertTrue(text.length() < DEPTH * CHARS_PER_LEVEL);
+        assertEquals(0, parse(new ProgramGenerator(1, 0, DEPTH, 1)).size());
+    }
+
+}
@@ -0,0 +1,169 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code ProgramOptimizer}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class ProgramOptimizerTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Number of instructions in the long chain of calls.
+     */
+    private static final int CHAIN = 50_000;
+
+    /**
+     * Number of actions in a trace.
+     */
+    private static final int ACTIONS = 300;
+
+    /**
+     * Returns the trace of {@code p} on a bug with sensor seed {@code seed}.
+     *
+     * @param p
+     *            the program
+     * @param seed
+     *            the seed
+     * @return the trace
+     */
+    private static String trace(Program p, long seed) {
+        ScriptedBug bug = new ScriptedBug(ACTIONS, seed);
+        new Interpreter(Interpreter.resolve(p)).run(bug, ACTIONS);
+        return bug.trace();
+    }
+
+    /**
+     * Test that optimizing program1 inlines every call and keeps its
+     * behavior.
+     */
+    @Test
+    public void testOptimizeProgram1() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        ProgramOptimizer.optimize(p);
+        for (long seed = 0; seed < 5; seed++) {
+            assertEquals(trace(TestPrograms.read(FILE_NAME_1), seed),
+                    trace(p, seed));
+        }
+        assertEquals(TestPrograms.parse("PROGRAM Test IS"
+                + " INSTRUCTION one IS move turnleft END one"
+                + " INSTRUCTION two IS move turnleft"
+                + " IF next-is-not-empty THEN turnleft"
+                + " ELSE move turnleft move turnleft END IF END two"
+                + " BEGIN infect WHILE true DO"
+                + " move turnleft IF next-is-not-empty THEN turnleft"
+                + " ELSE move turnleft move turnleft END IF"
+                + " IF next-is-empty THEN move END IF"
+                + " move turnleft IF next-is-not-empty THEN turnleft"
+                + " ELSE move turnleft move turnleft END IF"
+                + " move turnleft END WHILE END Test"), p);
+    }
+
+    /**
+     * Test of removing empty IFs, folding true conditions, and dropping
+     * statements after WHILE true.
+     */
+    @Test
+    public void testOptimizeStatements() {
+        Program p = TestPrograms.parse("PROGRAM S IS BEGIN"
+                + " IF next-is-not-enemy THEN END IF"
+                + " IF random THEN ELSE END IF"
+                + " IF next-is-wall THEN ELSE turnleft END IF"
+                + " IF random THEN ELSE skip END IF"
+                + " IF true THEN infect ELSE move END IF"
+                + " IF next-is-friend THEN IF true THEN END IF END IF"
+                + " WHILE true DO skip END WHILE move END S");
+        ProgramOptimizer.optimize(p);
+        assertEquals(TestPrograms.parse("PROGRAM S IS BEGIN"
+                + " IF next-is-not-wall THEN turnleft END IF"
+                + " IF random THEN ELSE skip END IF infect"
+                + " WHILE true DO skip END WHILE END S"), p);
+    }
+
+    /**
+     * Test that recursive and large instructions are not inlined.
+     */
+    @Test
+    public void testOptimizeNoInline() {
+        String text = "PROGRAM R IS"
+                + " INSTRUCTION ping IS move IF random THEN pong END IF END ping"
+                + " INSTRUCTION pong IS turnleft ping END pong"
+                + " INSTRUCTION big IS move move move END big"
+                + " BEGIN ping big END R";
+        Program p = TestPrograms.parse(text);
+        ProgramOptimizer.optimize(p, 2);
+        Statement body = p.newBody();
+        p.swapBody(body);
+        assertEquals(2, body.lengthOfBlock());
+        assertEquals("ping", body.removeFromBlock(0).disassembleCall());
+        assertEquals("big", body.removeFromBlock(0).disassembleCall());
+        Program q = TestPrograms.parse(text);
+        ProgramOptimizer.optimize(q, 0);
+        assertEquals(TestPrograms.parse(text), q);
+    }
+
+    /**
+     * Test that a limit of 0 disables inlining, even of empty bodies.
+     */
+    @Test
+    public void testOptimizeZeroLimitKeepsEmptyBodies() {
+        String text = "PROGRAM E IS INSTRUCTION nothing IS END nothing"
+                + " BEGIN nothing move END E";
+        Program p = TestPrograms.parse(text);
+        ProgramOptimizer.optimize(p, 0);
+        assertEquals(TestPrograms.parse(text), p);
+        ProgramOptimizer.optimize(p, 1);
+        assertEquals(TestPrograms.parse("PROGRAM E IS"
+                + " INSTRUCTION nothing IS END nothing BEGIN move END E"), p);
+    }
+
+    /**
+     * Test of optimize on statements nested too deeply for the call stack.
+     */
+    @Test
+    public void testOptimizeDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        ProgramOptimizer.optimize(p);
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+    /**
+     * Test that inlining a long chain of calls, each instruction calling the
+     * next, does not optimize one body while optimizing another.
+     */
+    @Test
+    public void testOptimizeLongChain() {
+        StringBuilder text = new StringBuilder("PROGRAM L IS");
+        for (int k = 0; k < CHAIN; k++) {
+            String callee = "i" + (k + 1);
+            if (k == CHAIN - 1) {
+                callee = "move";
+            }
+            text.append(" INSTRUCTION i" + k + " IS " + callee + " END i" + k);
+        }
+        text.append(" BEGIN i0 END L");
+        Program p = TestPrograms.parse(text.toString());
+        ProgramOptimizer.optimize(p);
+        Statement body = p.newBody();
+        p.swapBody(body);
+        assertEquals(1, body.lengthOfBlock());
+        assertEquals("move", body.removeFromBlock(0).disassembleCall());
+    }
+
+}
@@ -86,6 +86,32 @@ public abstract class ProgramTest {
         assertEquals(pRef, pTest);
     }
 
+    /**
+     * Test of parse on syntactically valid input read directly from a
+     * {@code SimpleReader}.
+     */
+    @Test
+    public final void testParseValidExampleFromReader() {
+        /*
+         * Setup
+         */
+        Program pRef = this.constructorRef();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pRef.parse(file);
+        file.close();
+        Program pTest = this.constructorTest();
+        file = new SimpleReader1L(FILE_NAME_1);
+        /*
+         * The call
+         */
+        pTest.parse(file);
+        file.close();
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
     /**
      * Test of parse on syntactically invalid input.
      */
@@ -0,0 +1,166 @@
+import java.util.Random;
+
+/**
+ * {@code Bug} for tests: its sensors give fixed or seeded pseudo-random
+ * answers, it records every sensor reading and action in a trace, and it
+ * stops the program by throwing {@code Done} once a given number of actions
+ * have been taken.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+final class ScriptedBug implements Bug {
+
+    /**
+     * Thrown when the bug has taken all the actions it was allowed.
+     */
+    static final class Done extends RuntimeException {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+    }
+
+    /**
+     * Source of sensor answers, or null if every sensor answers
+     * {@code answer}.
+     */
+    private final Random random;
+
+    /**
+     * Answer of every sensor if {@code random} is null.
+     */
+    private final boolean answer;
+
+    /**
+     * Number of actions the bug may still take.
+     */
+    private int actionsLeft;
+
+    /**
+     * Sensor readings and actions so far, each followed by a space.
+     */
+    private final StringBuilder trace = new StringBuilder();
+
+    /**
+     * Constructor for a bug whose sensors all give {@code answer}.
+     *
+     * @param actions
+     *            the number of actions allowed
+     * @param answer
+     *            the answer of every sensor
+     */
+    ScriptedBug(int actions, boolean answer) {
+        this.random = null;
+        this.answer = answer;
+        this.actionsLeft = actions;
+    }
+
+    /**
+     * Constructor for a bug whose sensors give pseudo-random answers.
+     *
+     * @param actions
+     *            the number of actions allowed
+     * @param seed
+     *            seed of the answers
+     */
+    ScriptedBug(int actions, long seed) {
+        this.random = new Random(seed);
+        this.answer = false;
+        this.actionsLeft = actions;
+    }
+
+    /**
+     * Returns the sensor readings and actions so far, separated by spaces;
+     * readings are prefixed with '?'.
+     *
+     * @return the trace
+     */
+    String trace() {
+        return this.trace.toString().trim();
+    }
+
+    /**
+     * Records and answers a sensor reading.
+     *
+     * @param sensor
+     *            name of the sensor
+     * @return the answer
+     */
+    private boolean sense(String sensor) {
+        boolean result = this.answer;
+        if (this.random != null) {
+            result = this.random.nextBoolean();
+        }
+        this.trace.append('?').append(sensor).append(result ? "+ " : "- ");
+        return result;
+    }
+
+    /**
+     * Records an action, or throws {@code Done} if none is left.
+     *
+     * @param action
+     *            name of the action
+     */
+    private void act(String action) {
+        if (this.actionsLeft == 0) {
+            throw new Done();
+        }
+        this.actionsLeft--;
+        this.trace.append(action).append(' ');
+    }
+
+    @Override
+    public boolean nextIsEmpty() {
+        return this.sense("empty");
+    }
+
+    @Override
+    public boolean nextIsWall() {
+        return this.sense("wall");
+    }
+
+    @Override
+    public boolean nextIsFriend() {
+        return this.sense("friend");
+    }
+
+    @Override
+    public boolean nextIsEnemy() {
+        return this.sense("enemy");
+    }
+
+    @Override
+    public boolean random() {
+        return this.sense("random");
+    }
+
+    @Override
+    public void move() {
+        this.act("move");
+    }
+
+    @Override
+    public void turnLeft() {
+        this.act("turnleft");
+    }
+
+    @Override
+    public void turnRight() {
+        this.act("turnright");
+    }
+
+    @Override
+    public void infect() {
+        this.act("infect");
+    }
+
+    @Override
+    public void skip() {
+        this.act("skip");
+    }
+
+}
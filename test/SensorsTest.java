@@ -0,0 +1,256 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code Sensors} and the execution of programs on a
+ * {@code SensingBug}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class SensorsTest {
+
+    /**
+     * A program exercising every kind of statement and condition.
+     */
+    private static final String CONDITIONS = "PROGRAM C IS"
+            + " INSTRUCTION look IS IF random THEN turnright END IF END look"
+            + " BEGIN IF next-is-not-wall THEN move ELSE skip END IF"
+            + " WHILE next-is-friend DO turnleft look END WHILE"
+            + " WHILE next-is-not-empty DO skip END WHILE"
+            + " IF next-is-not-enemy THEN infect END IF"
+            + " IF true THEN skip ELSE move END IF"
+            + " IF next-is-empty THEN move ELSE look END IF END C";
+
+    /**
+     * Number of actions in a trace.
+     */
+    private static final int ACTIONS = 200;
+
+    /**
+     * {@code SensingBug} whose snapshots and random readings are seeded
+     * pseudo-random, recording every snapshot, random reading, and action in
+     * a trace.
+     */
+    private static final class SnapshotBug implements SensingBug {
+
+        /**
+         * Source of snapshots and random readings.
+         */
+        private final Random random;
+
+        /**
+         * Snapshots and actions so far, each followed by a space.
+         */
+        private final StringBuilder trace = new StringBuilder();
+
+        /**
+         * Constructor.
+         *
+         * @param seed
+         *            seed of the snapshots
+         */
+        SnapshotBug(long seed) {
+            this.random = new Random(seed);
+        }
+
+        /**
+         * Returns the snapshots and actions so far.
+         *
+         * @return the trace
+         */
+        String trace() {
+            return this.trace.toString().trim();
+        }
+
+        @Override
+        public int sense() {
+            int s = this.random.nextInt() & Sensors.SNAPSHOT;
+            this.trace.append('?').append(s).append(' ');
+            return s;
+        }
+
+        @Override
+        public boolean nextIsEmpty() {
+            throw new AssertionError("sensor called");
+        }
+
+        @Override
+        public boolean nextIsWall() {
+            throw new AssertionError("sensor called");
+        }
+
+        @Override
+        public boolean nextIsFriend() {
+            throw new AssertionError("sensor called");
+        }
+
+        @Override
+        public boolean nextIsEnemy() {
+            throw new AssertionError("sensor called");
+        }
+
+        @Override
+        public boolean random() {
+            boolean reading = this.random.nextBoolean();
+            this.trace.append("random").append(reading ? '+' : '-')
+                    .append(' ');
+            return reading;
+        }
+
+        @Override
+        public void move() {
+            this.trace.append("move ");
+        }
+
+        @Override
+        public void turnLeft() {
+            this.trace.append("turnleft ");
+        }
+
+        @Override
+        public void turnRight() {
+            this.trace.append("turnright ");
+        }
+
+        @Override
+        public void infect() {
+            this.trace.append("infect ");
+        }
+
+        @Override
+        public void skip() {
+            this.trace.append("skip ");
+        }
+
+    }
+
+    /**
+     * Returns whether {@code c} holds when the sensors read as in
+     * {@code snapshot}, without masks.
+     *
+     * @param c
+     *            the condition
+     * @param snapshot
+     *            the sensor readings
+     * @return whether c holds
+     */
+    private static boolean expected(Statement.Condition c, int snapshot) {
+        boolean empty = (snapshot & Sensors.EMPTY) != 0;
+        boolean wall = (snapshot & Sensors.WALL) != 0;
+        boolean friend = (snapshot & Sensors.FRIEND) != 0;
+        boolean enemy = (snapshot & Sensors.ENEMY) != 0;
+        switch (c) {
+            case NEXT_IS_EMPTY:
+                return empty;
+            case NEXT_IS_NOT_EMPTY:
+                return !empty;
+            case NEXT_IS_WALL:
+                return wall;
+            case NEXT_IS_NOT_WALL:
+                return !wall;
+            case NEXT_IS_FRIEND:
+                return friend;
+            case NEXT_IS_NOT_FRIEND:
+                return !friend;
+            case NEXT_IS_ENEMY:
+                return enemy;
+            case NEXT_IS_NOT_ENEMY:
+                return !enemy;
+            case RANDOM:
+                return (snapshot & Sensors.RANDOM) != 0;
+            default:
+                return true;
+        }
+    }
+
+    @Test
+    public final void testHoldsMatchesEveryCondition() {
+        for (Statement.Condition c : Statement.Condition.values()) {
+            int compiled = Sensors.compile(c);
+            for (int s = 0; s <= Sensors.SENSORS; s++) {
+                assertEquals(c + " in " + s, expected(c, s),
+                        Sensors.holds(s, compiled));
+            }
+        }
+    }
+
+    @Test
+    public final void testReadCallsOneSensor() {
+        ScriptedBug bug = new ScriptedBug(0, true);
+        assertEquals(Sensors.WALL, Sensors.read(bug,
+                Sensors.compile(Statement.Condition.NEXT_IS_NOT_WALL)));
+        assertEquals(0,
+                Sensors.read(bug, Sensors.compile(Statement.Condition.TRUE)));
+        assertEquals("?wall+", bug.trace());
+    }
+
+    @Test
+    public final void testSnapshotCallsEverySensorButRandomOnce() {
+        ScriptedBug bug = new ScriptedBug(0, true);
+        assertEquals(Sensors.SNAPSHOT, Sensors.snapshot(bug));
+        assertEquals("?empty+ ?wall+ ?friend+ ?enemy+", bug.trace());
+    }
+
+    @Test
+    public final void testRandomDrawnPerEvaluation() {
+        Program p = TestPrograms.parse("PROGRAM R IS BEGIN IF random THEN"
+                + " IF random THEN skip ELSE move END IF"
+                + " ELSE turnleft END IF END R");
+        boolean skipped = false;
+        boolean moved = false;
+        for (long seed = 0; seed < 20; seed++) {
+            SnapshotBug interpreted = new SnapshotBug(seed);
+            new Interpreter(Interpreter.resolve(p)).run(interpreted, 1);
+            SnapshotBug machine = new SnapshotBug(seed);
+            new VirtualMachine(CodeGenerator.generate(p)).run(machine, 1);
+            assertEquals(interpreted.trace(), machine.trace());
+            skipped |= interpreted.trace().endsWith("skip");
+            moved |= interpreted.trace().endsWith("move");
+        }
+        /*
+         * Both random conditions are in one turn, so if they shared a reading
+         * the bug could never move
+         */
+        assertTrue(skipped);
+        assertTrue(moved);
+    }
+
+    @Test
+    public final void testMachineMatchesInterpreterOnSnapshots() {
+        Program p = TestPrograms.parse(CONDITIONS);
+        for (long seed = 0; seed < 10; seed++) {
+            SnapshotBug interpreted = new SnapshotBug(seed);
+            new Interpreter(Interpreter.resolve(p)).run(interpreted, ACTIONS);
+            SnapshotBug machine = new SnapshotBug(seed);
+            VirtualMachine vm = new VirtualMachine(CodeGenerator.generate(p));
+            int steps = 0;
+            while (steps < ACTIONS && !vm.isDone()) {
+                steps += vm.run(machine, 1);
+            }
+            assertEquals(interpreted.trace(), machine.trace());
+        }
+    }
+
+    @Test
+    public final void testSensedOncePerTurn() {
+        Program p = TestPrograms.parse(CONDITIONS);
+        SnapshotBug bug = new SnapshotBug(1);
+        new Interpreter(Interpreter.resolve(p)).run(bug, ACTIONS);
+        String[] events = bug.trace().split(" ");
+        for (int i = 1; i < events.length; i++) {
+            assertFalse(events[i - 1].startsWith("?")
+                    && events[i].startsWith("?"));
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code Simulation}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class SimulationTest {
+
+    /**
+     * Side of the world of the determinism test.
+     */
+    private static final int SIDE = 24;
+
+    /**
+     * Number of rounds of the determinism test.
+     */
+    private static final int ROUNDS = 60;
+
+    /**
+     * Returns the program whose body is {@code body}.
+     *
+     * @param body
+     *            the body text
+     * @return the program
+     */
+    private static Program programWith(String body) {
+        return TestPrograms
+                .parse("PROGRAM Test IS\nBEGIN\n" + body + "\nEND Test\n");
+    }
+
+    /**
+     * Returns a world with bugs of generated species in a quarter of the
+     * cells, with {@code stripes} stripes.
+     *
+     * @param stripes
+     *            the number of stripes
+     * @return the world
+     * @throws IOException
+     *             never
+     */
+    private static Simulation crowd(int stripes) throws IOException {
+        Simulation sim = new Simulation(SIDE, SIDE, stripes, 3);
+        for (int k = 0; k < 3; k++) {
+            StringWriter text = new StringWriter();
+            new ProgramGenerator(k, 3, 2, 3).generate(text);
+            sim.addSpecies(TestPrograms.parse(text.toString()));
+        }
+        Random random = new Random(5);
+        for (int c = 0; c < SIDE * SIDE; c++) {
+            if (random.nextInt(4) == 0) {
+                sim.addBug(random.nextInt(3), c % SIDE, c / SIDE,
+                        random.nextInt(4));
+            }
+        }
+        return sim;
+    }
+
+    @Test
+    public final void testIndependentOfStripesAndThreads()
+            throws IOException {
+        Simulation sequential = crowd(1);
+        Simulation parallel = crowd(7);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            sequential.run(ROUNDS, one);
+            parallel.run(ROUNDS, four);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+        assertEquals(sequential.steps(), parallel.steps());
+        for (int id = 0; id < sequential.bugs(); id++) {
+            assertEquals(sequential.x(id), parallel.x(id));
+            assertEquals(sequential.y(id), parallel.y(id));
+            assertEquals(sequential.direction(id), parallel.direction(id));
+            assertEquals(sequential.species(id), parallel.species(id));
+        }
+    }
+
+    @Test
+    public final void testMoveStopsAtWall() {
+        Simulation sim = new Simulation(3, 3, 3, 0);
+        sim.addSpecies(programWith("move"));
+        int a = sim.addBug(0, 0, 0, Simulation.NORTH);
+        int b = sim.addBug(0, 2, 0, Simulation.SOUTH);
+        sim.run(5, ForkJoinPool.commonPool());
+        assertEquals(0, sim.y(a));
+        assertEquals(2, sim.y(b));
+        assertEquals(b, sim.occupant(2, 2));
+        assertEquals(Simulation.EMPTY, sim.occupant(2, 0));
+        assertEquals(10, sim.steps());
+    }
+
+    @Test
+    public final void testIdleBugDoesNotHoldUpRound() {
+        Simulation sim = new Simulation(3, 1, 1, 0);
+        int idle = sim.addSpecies(programWith("WHILE true DO\n"
+                + " IF next-is-enemy THEN\n infect\n END IF\nEND WHILE"));
+        int mover = sim.addSpecies(programWith("move"));
+        int a = sim.addBug(idle, 0, 0, Simulation.EAST);
+        int b = sim.addBug(mover, 1, 0, Simulation.EAST);
+        sim.run(3, ForkJoinPool.commonPool());
+        assertEquals(3, sim.rounds());
+        assertEquals(6, sim.steps());
+        assertEquals(0, sim.x(a));
+        assertEquals(2, sim.x(b));
+        assertEquals(idle, sim.species(a));
+    }
+
+    @Test
+    public final void testLowestIdWinsCell() {
+        Simulation sim = new Simulation(3, 3, 3, 0);
+        sim.addSpecies(programWith("move"));
+        int a = sim.addBug(0, 1, 0, Simulation.SOUTH);
+        int b = sim.addBug(0, 0, 1, Simulation.EAST);
+        sim.step(ForkJoinPool.commonPool());
+        assertEquals(a, sim.occupant(1, 1));
+        assertEquals(b, sim.occupant(0, 1));
+    }
+
+    @Test
+    public final void testInfectTakesSpeciesAndProgram() {
+        Simulation sim = new Simulation(4, 1, 1, 0);
+        int infector = sim.addSpecies(programWith("infect"));
+        int walker = sim.addSpecies(programWith("turnleft\nturnleft\nmove"));
+        int a = sim.addBug(infector, 0, 0, Simulation.EAST);
+        int b = sim.addBug(walker, 1, 0, Simulation.WEST);
+        sim.step(ForkJoinPool.commonPool());
+        assertEquals(infector, sim.species(b));
+        sim.run(3, ForkJoinPool.commonPool());
+        /*
+         * b turned left in the round it was infected, and now only infects
+         */
+        assertEquals(1, sim.x(b));
+        assertEquals(Simulation.SOUTH, sim.direction(b));
+        assertEquals(infector, sim.species(a));
+    }
+
+    @Test
+    public final void testVictimMovingAwayIsInfected() {
+        Simulation sim = new Simulation(1, 4, 4, 0);
+        int infector = sim.addSpecies(programWith("infect"));
+        int walker = sim.addSpecies(programWith("move"));
+        sim.addBug(infector, 0, 0, Simulation.SOUTH);
+        int b = sim.addBug(walker, 0, 1, Simulation.SOUTH);
+        sim.step(ForkJoinPool.commonPool());
+        assertEquals(infector, sim.species(b));
+        assertEquals(2, sim.y(b));
+        assertEquals(Simulation.EMPTY, sim.occupant(0, 1));
+    }
+
+    @Test
+    public final void testSensorsAndRandom() {
+        Simulation sim = new Simulation(2, 2, 2, 9);
+        sim.addSpecies(programWith("IF next-is-wall THEN\n turnright\n"
+                + "ELSE\n IF random THEN\n move\n ELSE\n skip\n END IF\n"
+                + "END IF"));
+        int a = sim.addBug(0, 0, 0, Simulation.WEST);
+        sim.run(100, ForkJoinPool.commonPool());
+        assertEquals(100, sim.steps());
+        assertEquals(a, sim.occupant(sim.x(a), sim.y(a)));
+    }
+
+}
@@ -1,11 +1,23 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.queue.Queue1L;
 import components.statement.Statement;
 import components.statement.Statement1;
+import components.utilities.Tokenizer;
 
 /**
  * Customized JUnit test fixture for {@code Statement1Parse1}.
  */
 public class Statement1Parse1Test extends StatementTest {
 
+    /**
+     * Nesting depth far beyond what a recursive parser survives.
+     */
+    private static final int DEEP = 100_000;
+
     @Override
     protected final Statement constructorTest() {
         return new Statement1Parse1();
@@ -16,4 +28,57 @@ public class Statement1Parse1Test extends StatementTest {
         return new Statement1();
     }
 
+    /**
+     * Returns the tokens of {@code depth} nested WHILE statements around a
+     * single call.
+     *
+     * @param depth
+     *            the nesting depth
+     * @return the tokens
+     */
+    private static Queue<String> nestedWhiles(int depth) {
+        Queue<String> tokens = new Queue1L<>();
+        for (int i = 0; i < depth; i++) {
+            tokens.enqueue("WHILE");
+            tokens.enqueue("true");
+            tokens.enqueue("DO");
+        }
+        tokens.enqueue("move");
+        for (int i = 0; i < depth; i++) {
+            tokens.enqueue("END");
+            tokens.enqueue("WHILE");
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        return tokens;
+    }
+
+    /**
+     * Test of parse on statements nested too deeply for the call stack.
+     */
+    @Test
+    public final void testParseDeeplyNested() {
+        Statement s = new Statement1Parse1();
+        s.parse(nestedWhiles(DEEP));
+        int depth = 0;
+        Statement block = s.newInstance();
+        while (s.kind() == Statement.Kind.WHILE) {
+            s.disassembleWhile(block);
+            s = block.removeFromBlock(0);
+            depth++;
+        }
+        assertEquals(DEEP, depth);
+        assertEquals("move", s.disassembleCall());
+    }
+
+    /**
+     * Test of parse into a {@code FlatStatement} on statements nested too
+     * deeply for the call stack.
+     */
+    @Test
+    public final void testParseDeeplyNestedFlat() {
+        FlatStatement s = new FlatStatement();
+        s.parse(nestedWhiles(DEEP));
+        assertEquals(2 * DEEP + 1, s.nodeCount());
+    }
+
 }
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code StatementStore}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class StatementStoreTest {
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * A program repeating the block "move turnleft".
+     */
+    private static final String PROGRAM = "PROGRAM Walk IS\n"
+            + "  INSTRUCTION step IS\n    move\n    turnleft\n  END step\n"
+            + "BEGIN\n  IF random THEN\n    move\n    turnleft\n"
+            + "  ELSE\n    step\n  END IF\n"
+            + "  WHILE next-is-empty DO\n    move\n    turnleft\n"
+            + "  END WHILE\nEND Walk\n";
+
+    @Test
+    public final void testSharesRepeatedBlocks() {
+        StatementStore store = new StatementStore();
+        StatementStore.Shape shape = store.intern(TestPrograms.parse(PROGRAM));
+        StatementStore.Node body = shape.body();
+        StatementStore.Node thenBlock = body.child(0).child(0);
+        StatementStore.Node whileBlock = body.child(1).child(0);
+        assertSame(thenBlock, whileBlock);
+        /*
+         * move, turnleft, step, the two blocks of the IF_ELSE, the IF_ELSE,
+         * the WHILE, and the body
+         */
+        assertEquals(8, store.size());
+    }
+
+    @Test
+    public final void testDuplicateProgramsShareShape() {
+        StatementStore store = new StatementStore();
+        StatementStore.Shape first = store.intern(TestPrograms.parse(PROGRAM));
+        int size = store.size();
+        assertTrue(store.contains(
+                TestPrograms.parse(PROGRAM.replace("\n", " "))));
+        StatementStore.Shape second = store
+                .intern(TestPrograms.parse(PROGRAM.replace("\n", " ")));
+        assertSame(first, second);
+        assertEquals(1, store.programs());
+        assertEquals(size, store.size());
+    }
+
+    @Test
+    public final void testContainsInternsNothing() {
+        StatementStore store = new StatementStore();
+        store.intern(TestPrograms.parse(PROGRAM));
+        int size = store.size();
+        assertFalse(store.contains(TestPrograms.parse(PROGRAM.replace(
+                "WHILE next-is-empty", "WHILE next-is-not-empty"))));
+        assertFalse(store.contains(
+                TestPrograms.parse(PROGRAM.replace("Walk", "Run"))));
+        assertEquals(size, store.size());
+        assertEquals(1, store.programs());
+    }
+
+    @Test
+    public final void testBuildRoundTrip() throws IOException {
+        StatementStore store = new StatementStore();
+        for (int seed = 0; seed < 5; seed++) {
+            StringWriter text = new StringWriter();
+            new ProgramGenerator(seed, 6, 3, 3).generate(text);
+            Program p = TestPrograms.parse(text.toString());
+            StatementStore.Shape shape = store.intern(p);
+            assertEquals(StructuralHash.of(p, false), shape.hash());
+            Program q = new Program1Parse1();
+            StatementStore.build(shape, q);
+            assertEquals(p, q);
+            Statement s = p.newBody();
+            StatementStore.build(shape.body(), s);
+            Statement body = TestPrograms.bodyOf(p);
+            assertEquals(StructuralHash.of(body), shape.body().hash());
+            assertEquals(body, s);
+        }
+        assertTrue(store.shared() > 0);
+    }
+
+    @Test
+    public final void testBuildIfElseOfOneBlock() {
+        String text = "PROGRAM S IS BEGIN IF random THEN move turnleft"
+                + " ELSE move turnleft END IF END S";
+        StatementStore store = new StatementStore();
+        StatementStore.Shape shape = store.intern(TestPrograms.parse(text));
+        StatementStore.Node ifElse = shape.body().child(0);
+        assertSame(ifElse.child(0), ifElse.child(1));
+        Program q = new Program1Parse1();
+        StatementStore.build(shape, q);
+        assertEquals(TestPrograms.parse(text), q);
+    }
+
+    @Test
+    public final void testDeeplyNested() {
+        StatementStore store = new StatementStore();
+        Program p = TestPrograms.nested(DEPTH);
+        StatementStore.Shape shape = store.intern(p);
+        assertTrue(store.contains(TestPrograms.nested(DEPTH)));
+        assertFalse(store.contains(TestPrograms.nested(DEPTH - 1)));
+        assertEquals(StructuralHash.of(p, false), shape.hash());
+        Program q = new Program1Parse1();
+        StatementStore.build(shape, q);
+        assertEquals(DEPTH, TestPrograms.depthOf(q));
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+}
@@ -0,0 +1,125 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code StructuralHash}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class StructuralHashTest {
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * A program with two instructions.
+     */
+    private static final String PROGRAM = "PROGRAM Walk IS\n"
+            + "  INSTRUCTION step IS\n    move\n    turnleft\n  END step\n"
+            + "  INSTRUCTION look IS\n    IF next-is-wall THEN\n"
+            + "      turnright\n    ELSE\n      step\n    END IF\n"
+            + "  END look\nBEGIN\n  WHILE true DO\n    look\n  END WHILE\n"
+            + "END Walk\n";
+
+    /**
+     * {@code PROGRAM} reformatted, with comments and its instructions in the
+     * other order.
+     */
+    private static final String REFORMATTED = "PROGRAM Walk IS "
+            + "INSTRUCTION look IS IF next-is-wall THEN turnright ELSE step"
+            + " END IF END look # decide\n"
+            + "INSTRUCTION step IS move turnleft END step\n"
+            + "BEGIN WHILE true DO look END WHILE END Walk";
+
+    /**
+     * {@code PROGRAM} with its program and instruction names changed.
+     */
+    private static final String RENAMED = "PROGRAM Run IS\n"
+            + "  INSTRUCTION decide IS\n    IF next-is-wall THEN\n"
+            + "      turnright\n    ELSE\n      advance\n    END IF\n"
+            + "  END decide\n"
+            + "  INSTRUCTION advance IS\n    move\n    turnleft\n"
+            + "  END advance\nBEGIN\n  WHILE true DO\n    decide\n"
+            + "  END WHILE\nEND Run\n";
+
+    @Test
+    public final void testStableAcrossFormatting() {
+        Program p = TestPrograms.parse(PROGRAM);
+        Program q = TestPrograms.parse(REFORMATTED);
+        assertEquals(StructuralHash.of(p, false), StructuralHash.of(q, false));
+        assertEquals(StructuralHash.of(p, true), StructuralHash.of(q, true));
+        assertEquals(StructuralHash.of(TestPrograms.bodyOf(p)),
+                StructuralHash.of(TestPrograms.bodyOf(q)));
+    }
+
+    @Test
+    public final void testRestoresProgram() {
+        Program p = TestPrograms.parse(PROGRAM);
+        Program expected = TestPrograms.parse(PROGRAM);
+        StructuralHash.of(p, false);
+        StructuralHash.of(p, true);
+        assertEquals(expected, p);
+    }
+
+    @Test
+    public final void testRenamingIgnoresNames() {
+        Program p = TestPrograms.parse(PROGRAM);
+        Program q = TestPrograms.parse(RENAMED);
+        assertTrue(
+                StructuralHash.of(p, false) != StructuralHash.of(q, false));
+        assertEquals(StructuralHash.of(p, true), StructuralHash.of(q, true));
+    }
+
+    @Test
+    public final void testRenamingKeepsStructure() {
+        Program p = TestPrograms.parse(PROGRAM);
+        Program q = TestPrograms
+                .parse(PROGRAM.replace("turnleft", "turnright"));
+        assertTrue(StructuralHash.of(p, true) != StructuralHash.of(q, true));
+        Program r = TestPrograms.parse(PROGRAM.replace("ELSE\n      step",
+                "ELSE\n      look"));
+        assertTrue(StructuralHash.of(p, true) != StructuralHash.of(r, true));
+    }
+
+    @Test
+    public final void testRenamingUnreachableInstructions() {
+        String dead = "  INSTRUCTION %s IS\n    skip\n  END %s\n"
+                + "  INSTRUCTION %s IS\n    infect\n  END %s\n";
+        String p = PROGRAM.replace("BEGIN",
+                String.format(dead, "a", "a", "b", "b") + "BEGIN");
+        String q = PROGRAM.replace("BEGIN",
+                String.format(dead, "z", "z", "y", "y") + "BEGIN");
+        assertEquals(StructuralHash.of(TestPrograms.parse(p), true),
+                StructuralHash.of(TestPrograms.parse(q), true));
+    }
+
+    @Test
+    public final void testDistinguishesStatements() {
+        Statement s = TestPrograms.bodyOf(TestPrograms.parse(PROGRAM));
+        Statement t = TestPrograms.bodyOf(TestPrograms
+                .parse(PROGRAM.replace("WHILE true", "WHILE random")));
+        assertTrue(StructuralHash.of(s) != StructuralHash.of(t));
+    }
+
+    @Test
+    public final void testDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        Program q = TestPrograms.nested(DEPTH);
+        long h = StructuralHash.of(p, true);
+        assertEquals(h, StructuralHash.of(q, true));
+        assertTrue(h != StructuralHash.of(TestPrograms.nested(DEPTH - 1),
+                true));
+        assertEquals(StructuralHash.of(p, false), StructuralHash.of(q, false));
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+}
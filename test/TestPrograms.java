@@ -0,0 +1,125 @@
+import components.program.Program;
+import components.queue.Queue;
+import components.queue.Queue1L;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.utilities.Tokenizer;
+
+/**
+ * Programs for tests: parsed by {@code Program1Parse1} from a string or a
+ * file, so every test fixture builds its programs the same way.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+final class TestPrograms {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private TestPrograms() {
+    }
+
+    /**
+     * Returns the program parsed from {@code text}, tokenized as by
+     * {@code Tokenizer.tokens}: tokens are separated by white space, and a
+     * {@code #} starts a comment that runs to the end of the line.
+     *
+     * @param text
+     *            the program text
+     * @return the program
+     */
+    static Program parse(String text) {
+        Queue<String> tokens = new Queue1L<>();
+        for (String line : text.split("\n")) {
+            String code = line;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                code = line.substring(0, comment);
+            }
+            for (String token : code.trim().split("\\s+")) {
+                if (!token.isEmpty()) {
+                    tokens.enqueue(token);
+                }
+            }
+        }
+        tokens.enqueue(Tokenizer.END_OF_INPUT);
+        Program p = new Program1Parse1();
+        p.parse(tokens);
+        return p;
+    }
+
+    /**
+     * Returns the program parsed from the file named {@code fileName}.
+     *
+     * @param fileName
+     *            the name of the file
+     * @return the program
+     */
+    static Program read(String fileName) {
+        Program p = new Program1Parse1();
+        SimpleReader file = new SimpleReader1L(fileName);
+        p.parse(file);
+        file.close();
+        return p;
+    }
+
+    /**
+     * Returns a program whose body is {@code depth} nested WHILE statements
+     * around a call of instruction {@code step}, which moves: far deeper than
+     * a walk on the call stack survives.
+     *
+     * @param depth
+     *            the nesting depth
+     * @return the program
+     */
+    static Program nested(int depth) {
+        StringBuilder text = new StringBuilder(
+                "PROGRAM Deep IS INSTRUCTION step IS move END step BEGIN");
+        for (int i = 0; i < depth; i++) {
+            text.append(" WHILE true DO");
+        }
+        text.append(" step");
+        for (int i = 0; i < depth; i++) {
+            text.append(" END WHILE");
+        }
+        text.append(" END Deep");
+        return parse(text.toString());
+    }
+
+    /**
+     * Returns the nesting depth of the WHILE statements in the body of
+     * {@code p}, as built by {@code nested}, taking them apart.
+     *
+     * @param p
+     *            the program
+     * @return the number of nested WHILE statements around the call
+     * @updates p
+     */
+    static int depthOf(Program p) {
+        Statement s = bodyOf(p).removeFromBlock(0);
+        Statement block = s.newInstance();
+        int depth = 0;
+        while (s.kind() == Statement.Kind.WHILE) {
+            s.disassembleWhile(block);
+            s = block.removeFromBlock(0);
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the body of {@code p}, leaving p with an empty body.
+     *
+     * @param p
+     *            the program
+     * @return the body
+     * @updates p
+     */
+    static Statement bodyOf(Program p) {
+        return p.replaceBody(p.newBody());
+    }
+
+}
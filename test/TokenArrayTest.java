@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code TokenArray}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class TokenArrayTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * Returns the tokens of {@code fileName} in a {@code TokenArray}.
+     *
+     * @param fileName
+     *            the file to lex
+     * @return the tokens
+     */
+    private static TokenArray tokensOf(String fileName) {
+        MappedTokenStream source = new MappedTokenStream(fileName);
+        TokenArray tokens = new TokenArray(source);
+        source.close();
+        return tokens;
+    }
+
+    /**
+     * Test of pack, lineOf, and columnOf.
+     */
+    @Test
+    public void testPack() {
+        long p = TokenArray.pack(123456, 78);
+        assertEquals(123456, TokenArray.lineOf(p));
+        assertEquals(78, TokenArray.columnOf(p));
+    }
+
+    /**
+     * Test of the kinds and positions of the first tokens of a file.
+     */
+    @Test
+    public void testPositions() {
+        TokenArray tokens = tokensOf(FILE_NAME_1);
+        assertEquals("PROGRAM", tokens.text(0));
+        assertEquals(TokenKind.PROGRAM, tokens.kind(0));
+        assertEquals(1, TokenArray.lineOf(tokens.position(0)));
+        assertEquals(1, TokenArray.columnOf(tokens.position(0)));
+        assertEquals("INSTRUCTION", tokens.text(3));
+        assertEquals(3, TokenArray.lineOf(tokens.position(3)));
+        assertEquals(3, TokenArray.columnOf(tokens.position(3)));
+        int last = tokens.length() - 1;
+        assertEquals(Tokenizer.END_OF_INPUT, tokens.text(last));
+        assertEquals(TokenKind.END_OF_INPUT, tokens.kind(last));
+    }
+
+    /**
+     * Test that the same tokens can be parsed twice after seek.
+     */
+    @Test
+    public void testParseTwice() {
+        Program pRef = new Program1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pRef.parse(file);
+        file.close();
+        TokenArray tokens = tokensOf(FILE_NAME_1);
+        Program1Parse1 pTest = new Program1Parse1();
+        pTest.parse(tokens);
+        assertEquals(pRef, pTest);
+        tokens.seek(0);
+        pTest = new Program1Parse1();
+        pTest.parse(tokens);
+        assertEquals(pRef, pTest);
+    }
+
+}
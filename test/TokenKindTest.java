@@ -0,0 +1,82 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code TokenKind}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class TokenKindTest {
+
+    /**
+     * Test of of on every keyword.
+     */
+    @Test
+    public void testOfKeywords() {
+        String[] keywords = { "PROGRAM", "IS", "BEGIN", "END", "INSTRUCTION",
+                "IF", "THEN", "ELSE", "WHILE", "DO" };
+        for (String k : keywords) {
+            assertEquals(TokenKind.valueOf(k), TokenKind.of(k));
+        }
+    }
+
+    /**
+     * Test of of on conditions.
+     */
+    @Test
+    public void testOfConditions() {
+        assertEquals(TokenKind.CONDITION, TokenKind.of("next-is-not-enemy"));
+        assertEquals(TokenKind.CONDITION, TokenKind.of("random"));
+        assertEquals(TokenKind.CONDITION, TokenKind.of("true"));
+    }
+
+    /**
+     * Test of of on identifiers.
+     */
+    @Test
+    public void testOfIdentifiers() {
+        assertEquals(TokenKind.IDENTIFIER, TokenKind.of("move"));
+        assertEquals(TokenKind.IDENTIFIER, TokenKind.of("go-for-it"));
+        assertEquals(TokenKind.IDENTIFIER, TokenKind.of("Step2"));
+        assertEquals(TokenKind.IDENTIFIER, TokenKind.of("if"));
+    }
+
+    /**
+     * Test of of on tokens that are never valid.
+     */
+    @Test
+    public void testOfErrors() {
+        assertEquals(TokenKind.ERROR, TokenKind.of("2step"));
+        assertEquals(TokenKind.ERROR, TokenKind.of("-move"));
+        assertEquals(TokenKind.ERROR, TokenKind.of("move;"));
+    }
+
+    /**
+     * Test of of on the end of input marker.
+     */
+    @Test
+    public void testOfEndOfInput() {
+        assertEquals(TokenKind.END_OF_INPUT,
+                TokenKind.of(Tokenizer.END_OF_INPUT));
+    }
+
+    /**
+     * Test of startsStatement.
+     */
+    @Test
+    public void testStartsStatement() {
+        assertTrue(TokenKind.IF.startsStatement());
+        assertTrue(TokenKind.WHILE.startsStatement());
+        assertTrue(TokenKind.IDENTIFIER.startsStatement());
+        assertFalse(TokenKind.END.startsStatement());
+        assertFalse(TokenKind.CONDITION.startsStatement());
+    }
+
+}
@@ -0,0 +1,240 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code CodeGenerator} and {@code VirtualMachine}.
+ *
+ * @author Grace Rhodes
+ * @author Aishwarya Srivastava
+ *
+ */
+public final class VirtualMachineTest {
+
+    /**
+     * The name of a file containing a valid BL program.
+     */
+    private static final String FILE_NAME_1 = "test/program1.bl";
+
+    /**
+     * A program exercising every kind of statement and condition.
+     */
+    private static final String CONDITIONS = "PROGRAM C IS"
+            + " INSTRUCTION look IS IF random THEN turnright END IF END look"
+            + " BEGIN IF next-is-not-wall THEN move ELSE skip END IF"
+            + " WHILE next-is-friend DO turnleft look END WHILE"
+            + " WHILE next-is-not-empty DO skip END WHILE"
+            + " IF next-is-not-enemy THEN infect END IF"
+            + " IF true THEN skip ELSE move END IF"
+            + " IF next-is-empty THEN move ELSE look END IF END C";
+
+    /**
+     * A program that may run many loops without a primitive instruction.
+     */
+    private static final String IDLE = "PROGRAM I IS BEGIN WHILE true DO"
+            + " IF next-is-enemy THEN infect END IF END WHILE END I";
+
+    /**
+     * A program that only calls an instruction that calls itself.
+     */
+    private static final String RECURSIVE = "PROGRAM R IS"
+            + " INSTRUCTION r IS r END r BEGIN r END R";
+
+    /**
+     * Nesting depth of the deeply nested program.
+     */
+    private static final int DEPTH = 100_000;
+
+    /**
+     * Number of actions in a trace.
+     */
+    private static final int ACTIONS = 200;
+
+    /**
+     * Returns the trace of the interpreted {@code p} on a bug with sensor
+     * seed {@code seed}.
+     *
+     * @param p
+     *            the program
+     * @param seed
+     *            the seed
+     * @return the trace
+     */
+    private static String interpretedTrace(Program p, long seed) {
+        ScriptedBug bug = new ScriptedBug(ACTIONS, seed);
+        new Interpreter(Interpreter.resolve(p)).run(bug, ACTIONS);
+        return bug.trace();
+    }
+
+    /**
+     * Returns the trace of {@code p} on the virtual machine on a bug with
+     * sensor seed {@code seed}, running {@code budget} steps at a time.
+     *
+     * @param p
+     *            the program
+     * @param seed
+     *            the seed
+     * @param budget
+     *            the steps per call of run
+     * @return the trace
+     */
+    private static String machineTrace(Program p, long seed, int budget) {
+        ScriptedBug bug = new ScriptedBug(ACTIONS, seed);
+        VirtualMachine vm = new VirtualMachine(CodeGenerator.generate(p));
+        int steps = 0;
+        while (steps < ACTIONS && !vm.isDone()) {
+            steps += vm.run(bug, Math.min(budget, ACTIONS - steps));
+        }
+        return bug.trace();
+    }
+
+    /**
+     * Test that running program1 on the machine matches interpreting it.
+     */
+    @Test
+    public void testMatchesInterpreterProgram1() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        for (long seed = 0; seed < 5; seed++) {
+            assertEquals(interpretedTrace(p, seed),
+                    machineTrace(p, seed, ACTIONS));
+        }
+    }
+
+    /**
+     * Test that running every kind of statement on the machine matches
+     * interpreting it, in one run and one step at a time.
+     */
+    @Test
+    public void testMatchesInterpreterConditions() {
+        Program p = TestPrograms.parse(CONDITIONS);
+        for (long seed = 0; seed < 20; seed++) {
+            String expected = interpretedTrace(p, seed);
+            assertEquals(expected, machineTrace(p, seed, ACTIONS));
+            assertEquals(expected, machineTrace(p, seed, 1));
+        }
+    }
+
+    /**
+     * Test of the code generated for a small program.
+     */
+    @Test
+    public void testGenerate() {
+        int[] code = CodeGenerator.generate(TestPrograms.parse(
+                "PROGRAM F IS INSTRUCTION two IS move move END two"
+                        + " BEGIN WHILE next-is-wall DO two END WHILE END F"));
+        int[] expected = { VirtualMachine.JUMP, 4, VirtualMachine.CALL, 7,
+                VirtualMachine.JUMP_IF_WALL, 2, VirtualMachine.HALT,
+                VirtualMachine.MOVE, VirtualMachine.MOVE,
+                VirtualMachine.RETURN };
+        assertEquals(Arrays.toString(expected),
+                Arrays.toString(code));
+    }
+
+    /**
+     * Test of run, isDone, and reset on a program whose body completes.
+     */
+    @Test
+    public void testRunToCompletion() {
+        VirtualMachine vm = new VirtualMachine(CodeGenerator.generate(
+                TestPrograms.parse("PROGRAM F IS"
+                        + " INSTRUCTION two IS move move END two"
+                        + " BEGIN two infect two END F")));
+        ScriptedBug bug = new ScriptedBug(ACTIONS, true);
+        assertEquals(3, vm.run(bug, 3));
+        assertFalse(vm.isDone());
+        assertEquals(2, vm.run(bug, ACTIONS));
+        assertTrue(vm.isDone());
+        assertEquals(0, vm.run(bug, ACTIONS));
+        vm.reset();
+        final int steps = 5;
+        assertEquals(steps, vm.run(bug, ACTIONS));
+        assertEquals("move move infect move move move move infect move move",
+                bug.trace());
+    }
+
+    /**
+     * Test that generating code restores the program.
+     */
+    @Test
+    public void testGenerateRestores() {
+        Program p = TestPrograms.read(FILE_NAME_1);
+        CodeGenerator.generate(p);
+        assertEquals(TestPrograms.read(FILE_NAME_1), p);
+    }
+
+    /**
+     * Test of generate on a call of an undefined instruction.
+     */
+    @Test(expected = RuntimeException.class)
+    public void testGenerateUndefinedInstruction() {
+        CodeGenerator.generate(
+                TestPrograms.parse("PROGRAM U IS BEGIN jump END U"));
+    }
+
+    /**
+     * Test that a loop of jumps without a primitive instruction ends turns.
+     */
+    @Test
+    public void testConditionOnlyLoopEndsTurns() {
+        VirtualMachine vm = new VirtualMachine(
+                CodeGenerator.generate(TestPrograms.parse(IDLE)));
+        ScriptedBug bug = new ScriptedBug(ACTIONS, false);
+        assertEquals(3, vm.run(bug, 3));
+        assertFalse(vm.isDone());
+        assertFalse(bug.trace().contains("infect"));
+    }
+
+    /**
+     * Test that unbounded recursion without a primitive instruction ends
+     * turns.
+     */
+    @Test
+    public void testRecursionEndsTurns() {
+        VirtualMachine vm = new VirtualMachine(
+                CodeGenerator.generate(TestPrograms.parse(RECURSIVE)));
+        ScriptedBug bug = new ScriptedBug(ACTIONS, false);
+        assertEquals(2, vm.run(bug, 2));
+        assertEquals("", bug.trace());
+    }
+
+    /**
+     * Test that the machine ends turns without a primitive instruction at
+     * the same points as the interpreter.
+     */
+    @Test
+    public void testMatchesInterpreterIdle() {
+        Program p = TestPrograms.parse(IDLE);
+        for (long seed = 0; seed < 5; seed++) {
+            String expected = interpretedTrace(p, seed);
+            assertEquals(expected, machineTrace(p, seed, ACTIONS));
+            assertEquals(expected, machineTrace(p, seed, 1));
+        }
+    }
+
+    /**
+     * Test of generate and run on statements nested too deeply for the call
+     * stack.
+     */
+    @Test
+    public void testDeeplyNested() {
+        Program p = TestPrograms.nested(DEPTH);
+        int[] code = CodeGenerator.generate(p);
+        /*
+         * The call, a jump back for each loop, HALT, and move and RETURN
+         */
+        final int words = 2 * DEPTH + 5;
+        assertEquals(words, code.length);
+        VirtualMachine vm = new VirtualMachine(code);
+        ScriptedBug bug = new ScriptedBug(ACTIONS, true);
+        assertEquals(3, vm.run(bug, 3));
+        assertEquals("move move move", bug.trace());
+        assertEquals(DEPTH, TestPrograms.depthOf(p));
+    }
+
+}